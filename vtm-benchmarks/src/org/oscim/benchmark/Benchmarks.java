@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import com.badlogic.gdx.utils.SharedLibraryLoader;
+import org.oscim.awt.AwtGraphics;
+import org.oscim.backend.AssetAdapter;
+import org.oscim.backend.DateTime;
+import org.oscim.backend.DateTimeAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MapElement;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+
+import java.io.InputStream;
+
+/**
+ * Headless setup shared by all benchmarks. No GL context is created, only
+ * the vtm-jni natives (tessellator) and the AWT canvas backend are loaded.
+ * Assets, e.g. the vtm-themes, are read from the class path.
+ */
+public final class Benchmarks {
+
+    private static boolean initialized;
+
+    public static synchronized void init() {
+        if (initialized)
+            return;
+
+        new SharedLibraryLoader().load("vtm-jni");
+        AwtGraphics.init();
+        AssetAdapter.init(new ClasspathAssets("assets/"));
+        DateTimeAdapter.init(new DateTime());
+
+        initialized = true;
+    }
+
+    static final class ClasspathAssets extends AssetAdapter {
+        private final String pathPrefix;
+
+        ClasspathAssets(String pathPrefix) {
+            this.pathPrefix = pathPrefix;
+        }
+
+        @Override
+        protected InputStream openFileAsStream(String file) {
+            return Benchmarks.class.getClassLoader().getResourceAsStream(pathPrefix + file);
+        }
+    }
+
+    /**
+     * Sink which only counts elements, so that a benchmark measures the
+     * data source or decoder and not the consumer.
+     */
+    static final class CountingSink implements ITileDataSink {
+        int elements;
+        int points;
+        QueryResult result;
+
+        void reset() {
+            elements = 0;
+            points = 0;
+            result = null;
+        }
+
+        @Override
+        public void process(MapElement element) {
+            elements++;
+            points += element.getNumPoints();
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            this.result = result;
+        }
+    }
+
+    private Benchmarks() {
+        throw new IllegalStateException();
+    }
+}
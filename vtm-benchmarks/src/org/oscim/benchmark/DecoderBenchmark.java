@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.benchmark.Benchmarks.CountingSink;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tile;
+import org.oscim.tiling.source.geojson.MapzenGeojsonTileSource;
+import org.oscim.utils.IOUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TileDecoders on in-memory payloads: oscimap4 and GeoJSON tiles encoded
+ * from synthetic elements and the MVT sample tile of vtm-tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoderBenchmark {
+
+    private final Tile mTile = new Tile(MapFileWriter.TILE_X, MapFileWriter.TILE_Y,
+            (byte) MapFileWriter.BASE_ZOOM);
+    private final Tile mMvtTile = new Tile(0, 0, (byte) 0);
+
+    private byte[] mOscimap4;
+    private byte[] mGeojson;
+    private byte[] mMvt;
+
+    private org.oscim.tiling.source.oscimap4.TileDecoder mOscimap4Decoder;
+    private org.oscim.tiling.source.geojson.TileDecoder mGeojsonDecoder;
+    private org.oscim.tiling.source.mvt.TileDecoder mMvtDecoder;
+
+    private final CountingSink mSink = new CountingSink();
+
+    @Setup
+    public void setup() throws IOException {
+        MapElement[] elements = SyntheticData.elements(new Random(SyntheticData.SEED), 600, 250, 60);
+        mOscimap4 = TilePayloads.oscimap4(elements);
+        mGeojson = TilePayloads.geojson(elements, mTile);
+        mMvt = read("/mvt-test.pbf");
+
+        mOscimap4Decoder = new org.oscim.tiling.source.oscimap4.TileDecoder();
+        mGeojsonDecoder = new org.oscim.tiling.source.geojson.TileDecoder(new MapzenGeojsonTileSource());
+        mMvtDecoder = new org.oscim.tiling.source.mvt.TileDecoder();
+    }
+
+    private static byte[] read(String resource) throws IOException {
+        InputStream is = DecoderBenchmark.class.getResourceAsStream(resource);
+        if (is == null)
+            throw new IOException("missing resource " + resource);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int n; (n = is.read(buf)) > 0; )
+                out.write(buf, 0, n);
+            return out.toByteArray();
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    @Benchmark
+    public int oscimap4() throws IOException {
+        mSink.reset();
+        mOscimap4Decoder.decode(mTile, mSink, new ByteArrayInputStream(mOscimap4));
+        return mSink.points;
+    }
+
+    @Benchmark
+    public int geojson() throws IOException {
+        mSink.reset();
+        mGeojsonDecoder.decode(mTile, mSink, new ByteArrayInputStream(mGeojson));
+        return mSink.points;
+    }
+
+    @Benchmark
+    public int mvt() throws IOException {
+        mSink.reset();
+        mMvtDecoder.decode(mMvtTile, mSink, new ByteArrayInputStream(mMvt));
+        return mSink.points;
+    }
+}
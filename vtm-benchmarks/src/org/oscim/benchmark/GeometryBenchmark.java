@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.backend.canvas.Color;
+import org.oscim.core.GeometryBuffer;
+import org.oscim.core.Tile;
+import org.oscim.renderer.bucket.LineBucket;
+import org.oscim.renderer.bucket.PolygonBucket;
+import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.utils.Tessellator;
+import org.oscim.utils.geom.SimplifyDP;
+import org.oscim.utils.geom.SimplifyVW;
+import org.oscim.utils.geom.TileClipper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geometry processing of the tile loader: bucket vertex generation,
+ * tessellation, clipping and simplification for a tile worth of lines and
+ * polygons. Buckets are cleared after each invocation, which returns
+ * their vertex items to the pool. Inputs are copied into scratch buffers first, as all of these
+ * work in place; the copy is part of the measurement but small.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+
+    private static final int NUM_LINES = 500;
+    private static final int NUM_POLYGONS = 300;
+
+    private GeometryBuffer[] mLines;
+    private GeometryBuffer[] mPolygons;
+    private final GeometryBuffer mScratch = new GeometryBuffer();
+    private final GeometryBuffer mMesh = new GeometryBuffer();
+
+    private RenderBuckets mBuckets;
+    private LineStyle mLineStyle;
+    private AreaStyle mAreaStyle;
+
+    private final TileClipper mClipper = new TileClipper(-8, -8, Tile.SIZE + 8, Tile.SIZE + 8);
+    private final SimplifyDP mSimplifyDP = new SimplifyDP();
+    private final SimplifyVW mSimplifyVW = new SimplifyVW();
+
+    @Setup
+    public void setup() {
+        Benchmarks.init();
+
+        Random random = new Random(SyntheticData.SEED);
+        mLines = new GeometryBuffer[NUM_LINES];
+        for (int i = 0; i < NUM_LINES; i++) {
+            mLines[i] = new GeometryBuffer();
+            SyntheticData.line(random, mLines[i], 2 + random.nextInt(80));
+        }
+        mPolygons = new GeometryBuffer[NUM_POLYGONS];
+        for (int i = 0; i < NUM_POLYGONS; i++) {
+            mPolygons[i] = new GeometryBuffer();
+            SyntheticData.polygon(random, mPolygons[i], 4 + random.nextInt(60), i % 4 == 0);
+        }
+
+        mBuckets = new RenderBuckets();
+        mLineStyle = LineStyle.builder().color(Color.BLACK).strokeWidth(2).build();
+        mAreaStyle = AreaStyle.builder().color(Color.GRAY).strokeWidth(1).strokeColor(Color.DKGRAY).build();
+    }
+
+    private GeometryBuffer copy(GeometryBuffer geom) {
+        GeometryBuffer g = mScratch;
+        g.clear();
+        g.type = geom.type;
+        System.arraycopy(geom.points, 0, g.ensurePointSize(geom.pointNextPos >> 1, false), 0,
+                geom.pointNextPos);
+        g.pointNextPos = geom.pointNextPos;
+        int n = 0;
+        while (n < geom.index.length && geom.index[n] >= 0)
+            n++;
+        int[] index = g.ensureIndexSize(n, false);
+        System.arraycopy(geom.index, 0, index, 0, n);
+        if (n < index.length)
+            index[n] = -1;
+        return g;
+    }
+
+    @Benchmark
+    public void lineBucket(Blackhole bh) {
+        LineBucket bucket = mBuckets.addLineBucket(0, mLineStyle);
+        for (GeometryBuffer geom : mLines)
+            bucket.addLine(geom);
+        bh.consume(bucket);
+        mBuckets.clear();
+    }
+
+    @Benchmark
+    public void polygonBucket(Blackhole bh) {
+        PolygonBucket bucket = mBuckets.addPolygonBucket(0, mAreaStyle);
+        for (GeometryBuffer geom : mPolygons)
+            bucket.addPolygon(geom);
+        bh.consume(bucket);
+        mBuckets.clear();
+    }
+
+    @Benchmark
+    public void tessellate(Blackhole bh) {
+        int n = 0;
+        for (GeometryBuffer geom : mPolygons)
+            n += Tessellator.tessellate(geom, mMesh);
+        bh.consume(n);
+    }
+
+    @Benchmark
+    public void clip(Blackhole bh) {
+        int n = 0;
+        for (GeometryBuffer geom : mLines) {
+            if (mClipper.clip(copy(geom)))
+                n += mScratch.pointNextPos;
+        }
+        for (GeometryBuffer geom : mPolygons) {
+            if (mClipper.clip(copy(geom)))
+                n += mScratch.pointNextPos;
+        }
+        bh.consume(n);
+    }
+
+    @Benchmark
+    public void simplifyDP(Blackhole bh) {
+        int n = 0;
+        for (GeometryBuffer geom : mLines) {
+            GeometryBuffer g = copy(geom);
+            mSimplifyDP.simplify(g, 1);
+            n += g.index[0];
+        }
+        bh.consume(n);
+    }
+
+    @Benchmark
+    public void simplifyVW(Blackhole bh) {
+        int n = 0;
+        for (GeometryBuffer geom : mPolygons) {
+            GeometryBuffer g = copy(geom);
+            mSimplifyVW.simplify(g, 4);
+            n += g.pointNextPos;
+        }
+        bh.consume(n);
+    }
+}
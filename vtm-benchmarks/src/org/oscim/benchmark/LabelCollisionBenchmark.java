@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.utils.geom.OBB2D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collision test of label placement: labels are placed greedily in
+ * priority order and dropped when their oriented box overlaps one that is
+ * already placed, with a cheap bounding box test first, as
+ * LabelPlacement.checkOverlap does. LabelPlacement itself needs a Map and
+ * the visible tiles of a TileRenderer, i.e. a GL frame, so it is not used
+ * directly here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LabelCollisionBenchmark {
+
+    /**
+     * Screen size in pixels.
+     */
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"500", "2000"})
+    public int labels;
+
+    private OBB2D[] mBoxes;
+    private float[] mBounds;
+    private int[] mPlaced;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticData.SEED);
+        mBoxes = new OBB2D[labels];
+        mBounds = new float[labels * 4];
+        mPlaced = new int[labels];
+
+        for (int i = 0; i < labels; i++) {
+            float cx = random.nextFloat() * WIDTH;
+            float cy = random.nextFloat() * HEIGHT;
+            float w = 30 + random.nextFloat() * 120;
+            float h = 14 + random.nextFloat() * 6;
+            /* half of the labels follow ways */
+            double angle = random.nextBoolean() ? 0 : random.nextDouble() * Math.PI;
+            float dx = (float) Math.cos(angle);
+            float dy = (float) Math.sin(angle);
+            mBoxes[i] = new OBB2D(cx, cy, cx - dx, cy - dy, w, h);
+
+            float ex = (Math.abs(dx) * w + Math.abs(dy) * h) / 2;
+            float ey = (Math.abs(dy) * w + Math.abs(dx) * h) / 2;
+            mBounds[i * 4] = cx - ex;
+            mBounds[i * 4 + 1] = cy - ey;
+            mBounds[i * 4 + 2] = cx + ex;
+            mBounds[i * 4 + 3] = cy + ey;
+        }
+    }
+
+    @Benchmark
+    public int place() {
+        float[] b = mBounds;
+        int placed = 0;
+        for (int i = 0; i < labels; i++) {
+            boolean overlaps = false;
+            for (int j = 0; j < placed; j++) {
+                int o = mPlaced[j];
+                if (b[i * 4] > b[o * 4 + 2] || b[o * 4] > b[i * 4 + 2]
+                        || b[i * 4 + 1] > b[o * 4 + 3] || b[o * 4 + 1] > b[i * 4 + 3])
+                    continue;
+                if (mBoxes[i].overlaps(mBoxes[o])) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps)
+                mPlaced[placed++] = i;
+        }
+        return placed;
+    }
+}
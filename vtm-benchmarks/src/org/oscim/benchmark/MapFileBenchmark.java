@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.benchmark.Benchmarks.CountingSink;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.TileSource.OpenResult;
+import org.oscim.tiling.source.mapfile.MapFileTileSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapFile.query on a generated map file (see {@link MapFileWriter}).
+ * Zoom 14 reads whole base tiles, 12 merges several blocks and 16 uses the
+ * tile bitmask of the base tiles. The index cache is warm after the first
+ * iteration, so this mostly measures block decoding, projection and clipping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapFileBenchmark {
+
+    @Param({"12", "14", "16"})
+    public int zoom;
+
+    private File mFile;
+    private MapFileTileSource mTileSource;
+    private ITileDataSource mDataSource;
+    private MapTile[] mTiles;
+    private final CountingSink mSink = new CountingSink();
+
+    @Setup
+    public void setup() throws IOException {
+        mFile = File.createTempFile("vtm-benchmark", ".map");
+        new MapFileWriter(400, 150, 40).write(mFile);
+
+        mTileSource = new MapFileTileSource();
+        mTileSource.setMapFile(mFile.getAbsolutePath());
+        OpenResult result = mTileSource.open();
+        if (!result.isSuccess())
+            throw new IllegalStateException(result.getErrorMessage());
+        mDataSource = mTileSource.getDataSource();
+
+        int shift = zoom - MapFileWriter.BASE_ZOOM;
+        int n = Math.max(1, shift >= 0 ? MapFileWriter.BLOCKS << shift : MapFileWriter.BLOCKS >> -shift);
+        n = Math.min(n, 8);
+        int x0 = shift >= 0 ? MapFileWriter.TILE_X << shift : MapFileWriter.TILE_X >> -shift;
+        int y0 = shift >= 0 ? MapFileWriter.TILE_Y << shift : MapFileWriter.TILE_Y >> -shift;
+        mTiles = new MapTile[n * n];
+        for (int y = 0; y < n; y++)
+            for (int x = 0; x < n; x++)
+                mTiles[y * n + x] = new MapTile(x0 + x, y0 + y, zoom);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mDataSource.dispose();
+        mTileSource.close();
+        mFile.delete();
+    }
+
+    @Benchmark
+    public void query(Blackhole bh) {
+        for (MapTile tile : mTiles) {
+            mSink.reset();
+            mDataSource.query(tile, mSink);
+            bh.consume(mSink.points);
+            bh.consume(mSink.result);
+        }
+    }
+}
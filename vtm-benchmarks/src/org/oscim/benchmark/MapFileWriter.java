@@ -0,0 +1,308 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.tiling.source.mapfile.Projection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Writes a small synthetic mapsforge binary map file (version 3, one
+ * sub-file) with the same element mix as {@link SyntheticData}, so that
+ * MapFile queries can be benchmarked without a downloaded map.
+ *
+ * @see <a href="https://github.com/mapsforge/mapsforge/blob/master/docs/Specification-Binary-Map-File.md">Specification</a>
+ */
+final class MapFileWriter {
+
+    static final int BASE_ZOOM = 14;
+    static final int ZOOM_MIN = 12;
+    static final int ZOOM_MAX = 20;
+
+    /**
+     * Top left base tile and number of blocks per side (Berlin).
+     */
+    static final int TILE_X = 8800;
+    static final int TILE_Y = 5373;
+    static final int BLOCKS = 4;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Random mRandom = new Random(SyntheticData.SEED);
+
+    private final int mWays;
+    private final int mAreas;
+    private final int mPois;
+
+    MapFileWriter(int waysPerBlock, int areasPerBlock, int poisPerBlock) {
+        mWays = waysPerBlock;
+        mAreas = areasPerBlock;
+        mPois = poisPerBlock;
+    }
+
+    static BoundingBox boundingBox() {
+        /* slightly inside of the block grid, so that the reader computes the same blocks */
+        double e = 1e-5;
+        return new BoundingBox(
+                Projection.tileYToLatitude(TILE_Y + BLOCKS, BASE_ZOOM) + e,
+                Projection.tileXToLongitude(TILE_X, BASE_ZOOM) + e,
+                Projection.tileYToLatitude(TILE_Y, BASE_ZOOM) - e,
+                Projection.tileXToLongitude(TILE_X + BLOCKS, BASE_ZOOM) - e);
+    }
+
+    void write(File file) throws IOException {
+        Buffer subFile = writeSubFile();
+
+        Buffer header = writeHeader(0, subFile.size());
+        header = writeHeader(header.size(), subFile.size());
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            header.writeTo(out);
+            subFile.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private Buffer writeHeader(long startAddress, long subFileSize) {
+        BoundingBox bbox = boundingBox();
+
+        Buffer h = new Buffer();
+        h.writeInt(3); // file version
+        h.writeLong(startAddress + subFileSize); // file size
+        h.writeLong(1600000000000L); // map date
+        h.writeInt(bbox.minLatitudeE6);
+        h.writeInt(bbox.minLongitudeE6);
+        h.writeInt(bbox.maxLatitudeE6);
+        h.writeInt(bbox.maxLongitudeE6);
+        h.writeShort(256); // tile size
+        h.writeString("Mercator");
+        h.write(0); // no optional fields
+
+        h.writeShort(SyntheticData.POI_TAGS.length);
+        for (String tag : SyntheticData.POI_TAGS)
+            h.writeString(tag);
+
+        h.writeShort(SyntheticData.LINE_TAGS.length + SyntheticData.AREA_TAGS.length);
+        for (String tag : SyntheticData.LINE_TAGS)
+            h.writeString(tag);
+        for (String tag : SyntheticData.AREA_TAGS)
+            h.writeString(tag);
+
+        h.write(1); // number of sub-files
+        h.write(BASE_ZOOM);
+        h.write(ZOOM_MIN);
+        h.write(ZOOM_MAX);
+        h.writeLong(startAddress);
+        h.writeLong(subFileSize);
+
+        Buffer magic = new Buffer();
+        magic.writeBytes("mapsforge binary OSM".getBytes(UTF8));
+        /* remaining header size, without magic and this field */
+        int size = h.size();
+        magic.writeInt(size);
+        magic.writeBytes(h.toByteArray());
+        return magic;
+    }
+
+    private Buffer writeSubFile() {
+        int numBlocks = BLOCKS * BLOCKS;
+        Buffer blocks = new Buffer();
+        long[] offsets = new long[numBlocks];
+        long indexSize = numBlocks * 5;
+
+        for (int row = 0; row < BLOCKS; row++) {
+            for (int col = 0; col < BLOCKS; col++) {
+                offsets[row * BLOCKS + col] = indexSize + blocks.size();
+                writeBlock(blocks, TILE_X + col, TILE_Y + row);
+            }
+        }
+
+        Buffer subFile = new Buffer();
+        for (long offset : offsets) {
+            /* 5 byte index entry, water flag not set */
+            for (int shift = 32; shift >= 0; shift -= 8)
+                subFile.write((int) (offset >> shift));
+        }
+        subFile.writeBytes(blocks.toByteArray());
+        return subFile;
+    }
+
+    private void writeBlock(Buffer out, int tileX, int tileY) {
+        int lat0 = (int) (Projection.tileYToLatitude(tileY, BASE_ZOOM) * 1e6);
+        int lon0 = (int) (Projection.tileXToLongitude(tileX, BASE_ZOOM) * 1e6);
+        int lat1 = (int) (Projection.tileYToLatitude(tileY + 1, BASE_ZOOM) * 1e6);
+        int lon1 = (int) (Projection.tileXToLongitude(tileX + 1, BASE_ZOOM) * 1e6);
+        /* offsets relative to the top left corner */
+        int height = lat1 - lat0; // negative
+        int width = lon1 - lon0;
+
+        Buffer pois = new Buffer();
+        for (int i = 0; i < mPois; i++) {
+            pois.writeSignedInt((int) (mRandom.nextFloat() * height));
+            pois.writeSignedInt((int) (mRandom.nextFloat() * width));
+            pois.write(5 << 4 | 1); // layer, one tag
+            pois.writeUnsignedInt(mRandom.nextInt(SyntheticData.POI_TAGS.length));
+            pois.write(0x80); // name
+            pois.writeString(SyntheticData.NAMES[mRandom.nextInt(SyntheticData.NAMES.length)]);
+        }
+
+        Buffer ways = new Buffer();
+        Buffer way = new Buffer();
+        for (int i = 0, n = mWays + mAreas; i < n; i++) {
+            way.reset();
+            boolean area = i >= mWays;
+            int tag = area ? SyntheticData.LINE_TAGS.length
+                    + mRandom.nextInt(SyntheticData.AREA_TAGS.length)
+                    : mRandom.nextInt(SyntheticData.LINE_TAGS.length);
+            boolean named = !area && mRandom.nextInt(3) == 0;
+
+            way.writeShort(0xffff); // tile bitmask
+            way.write(5 << 4 | 1); // layer, one tag
+            way.writeUnsignedInt(tag);
+            way.write(named ? 0x80 : 0);
+            if (named)
+                way.writeString(SyntheticData.NAMES[mRandom.nextInt(SyntheticData.NAMES.length)]);
+
+            way.writeUnsignedInt(1); // coordinate blocks
+            if (area)
+                writeRing(way, height, width, 4 + mRandom.nextInt(30));
+            else
+                writeLine(way, height, width, 2 + mRandom.nextInt(40));
+
+            ways.writeUnsignedInt(way.size());
+            ways.writeBytes(way.toByteArray());
+        }
+
+        /* zoom table, all elements appear at the minimum zoom level */
+        for (int z = ZOOM_MIN; z <= ZOOM_MAX; z++) {
+            out.writeUnsignedInt(z == ZOOM_MIN ? mPois : 0);
+            out.writeUnsignedInt(z == ZOOM_MIN ? mWays + mAreas : 0);
+        }
+        out.writeUnsignedInt(pois.size()); // first way offset
+        out.writeBytes(pois.toByteArray());
+        out.writeBytes(ways.toByteArray());
+    }
+
+    private void writeLine(Buffer out, int height, int width, int numNodes) {
+        out.writeUnsignedInt(numNodes);
+        int lat = (int) (mRandom.nextFloat() * height);
+        int lon = (int) (mRandom.nextFloat() * width);
+        out.writeSignedInt(lat);
+        out.writeSignedInt(lon);
+        double angle = mRandom.nextDouble() * Math.PI * 2;
+        int step = Math.abs(width) / 100;
+        for (int i = 1; i < numNodes; i++) {
+            angle += (mRandom.nextDouble() - 0.5) * 0.8;
+            out.writeSignedInt((int) (Math.sin(angle) * step * (0.2 + mRandom.nextFloat())));
+            out.writeSignedInt((int) (Math.cos(angle) * step * (0.2 + mRandom.nextFloat())));
+        }
+    }
+
+    private void writeRing(Buffer out, int height, int width, int numNodes) {
+        /* closed ring: the last node repeats the first one */
+        out.writeUnsignedInt(numNodes + 1);
+        int clat = (int) (mRandom.nextFloat() * height);
+        int clon = (int) (mRandom.nextFloat() * width);
+        int radius = (int) (Math.abs(width) / 40 * (0.2 + mRandom.nextFloat()));
+        int firstLat = 0, firstLon = 0, prevLat = 0, prevLon = 0;
+        for (int i = 0; i <= numNodes; i++) {
+            int lat, lon;
+            if (i == numNodes) {
+                lat = firstLat;
+                lon = firstLon;
+            } else {
+                double a = Math.PI * 2 * i / numNodes;
+                double r = radius * (0.7 + 0.3 * mRandom.nextFloat());
+                lat = clat + (int) (Math.sin(a) * r);
+                lon = clon + (int) (Math.cos(a) * r);
+            }
+            if (i == 0) {
+                firstLat = lat;
+                firstLon = lon;
+                out.writeSignedInt(lat);
+                out.writeSignedInt(lon);
+            } else {
+                out.writeSignedInt(lat - prevLat);
+                out.writeSignedInt(lon - prevLon);
+            }
+            prevLat = lat;
+            prevLon = lon;
+        }
+    }
+
+    static final class Buffer extends ByteArrayOutputStream {
+
+        void writeBytes(byte[] b) {
+            write(b, 0, b.length);
+        }
+
+        void writeShort(int v) {
+            write(v >> 8);
+            write(v);
+        }
+
+        void writeInt(int v) {
+            write(v >> 24);
+            write(v >> 16);
+            write(v >> 8);
+            write(v);
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >> 32));
+            writeInt((int) v);
+        }
+
+        /**
+         * Variable byte encoding, unsigned.
+         */
+        void writeUnsignedInt(int v) {
+            while ((v & ~0x7f) != 0) {
+                write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        /**
+         * Variable byte encoding, sign bit in the last byte.
+         */
+        void writeSignedInt(int v) {
+            int abs = Math.abs(v);
+            while ((abs & ~0x3f) != 0) {
+                write((abs & 0x7f) | 0x80);
+                abs >>>= 7;
+            }
+            write(v < 0 ? abs | 0x40 : abs);
+        }
+
+        void writeString(String s) {
+            byte[] b = s.getBytes(UTF8);
+            writeUnsignedInt(b.length);
+            writeBytes(b);
+        }
+    }
+}
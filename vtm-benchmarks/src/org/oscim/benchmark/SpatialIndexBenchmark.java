@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.core.Box;
+import org.oscim.core.Point;
+import org.oscim.utils.QuadTree;
+import org.oscim.utils.RTree;
+import org.oscim.utils.SpatialIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Window and k-nearest-neighbor queries of the SpatialIndex implementations,
+ * filled with boxes of different sizes as e.g. the VectorLayer does.
+ * Note that QuadTree does not implement the k-nearest-neighbor search yet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialIndexBenchmark {
+
+    private static final int EXTENTS = 1 << 20;
+    private static final int NUM_QUERIES = 64;
+
+    @Param({"RTree", "QuadTree"})
+    public String index;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private SpatialIndex<Integer> mIndex;
+    private Box[] mQueries;
+    private Point[] mPoints;
+    private final List<Integer> mResults = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        if ("RTree".equals(index))
+            mIndex = new RTree<>();
+        else
+            mIndex = new QuadTree<>(EXTENTS, 18);
+
+        Random random = new Random(SyntheticData.SEED);
+        for (int i = 0; i < size; i++) {
+            double x = (random.nextDouble() * 2 - 1) * EXTENTS * 0.9;
+            double y = (random.nextDouble() * 2 - 1) * EXTENTS * 0.9;
+            /* mostly small items, some large areas */
+            double w = random.nextInt(10) == 0 ? random.nextDouble() * EXTENTS / 20 : random.nextDouble() * 200;
+            double h = random.nextInt(10) == 0 ? random.nextDouble() * EXTENTS / 20 : random.nextDouble() * 200;
+            mIndex.insert(new Box(x, y, x + w, y + h), i);
+        }
+
+        mQueries = new Box[NUM_QUERIES];
+        mPoints = new Point[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            double x = (random.nextDouble() * 2 - 1) * EXTENTS * 0.8;
+            double y = (random.nextDouble() * 2 - 1) * EXTENTS * 0.8;
+            double s = EXTENTS / 64.0;
+            mQueries[i] = new Box(x, y, x + s, y + s);
+            mPoints[i] = new Point(x, y);
+        }
+    }
+
+    @Benchmark
+    public int search() {
+        int n = 0;
+        for (Box query : mQueries) {
+            mResults.clear();
+            n += mIndex.search(query, mResults).size();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int nearestNeighbors() {
+        int n = 0;
+        for (Point center : mPoints) {
+            mResults.clear();
+            n += mIndex.searchKNearestNeighbors(center, 16, EXTENTS / 8.0, mResults).size();
+        }
+        return n;
+    }
+}
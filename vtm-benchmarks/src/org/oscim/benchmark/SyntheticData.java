@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.core.GeometryBuffer;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic map data. There are no map files or recorded
+ * tiles in the repository besides the small MVT sample, so the benchmarks
+ * generate street networks, areas and POIs with OSM-like tags from a fixed
+ * seed. Coordinates are in tile pixels [0, Tile.SIZE].
+ */
+final class SyntheticData {
+
+    static final long SEED = 0x5eed;
+
+    static final String[] LINE_TAGS = {
+            "highway=motorway", "highway=primary", "highway=secondary", "highway=tertiary",
+            "highway=residential", "highway=residential", "highway=residential",
+            "highway=service", "highway=service", "highway=footway", "highway=track",
+            "railway=rail", "waterway=river", "waterway=stream", "boundary=administrative"
+    };
+
+    static final String[] AREA_TAGS = {
+            "building=yes", "building=yes", "building=yes", "building=house",
+            "landuse=residential", "landuse=grass", "landuse=forest", "landuse=industrial",
+            "leisure=park", "natural=water", "natural=wood", "amenity=parking"
+    };
+
+    static final String[] POI_TAGS = {
+            "amenity=restaurant", "amenity=cafe", "amenity=pharmacy", "shop=bakery",
+            "shop=supermarket", "tourism=hotel", "public_transport=stop_position",
+            "place=suburb"
+    };
+
+    static final String[] NAMES = {
+            "Hauptstraße", "Bahnhofstraße", "Lindenweg", "Am Markt", "Parkallee", "Seestraße"
+    };
+
+    private SyntheticData() {
+        throw new IllegalStateException();
+    }
+
+    static Tag[] parseTags(String[] tags) {
+        Tag[] result = new Tag[tags.length];
+        for (int i = 0; i < tags.length; i++)
+            result[i] = Tag.parse(tags[i]);
+        return result;
+    }
+
+    /**
+     * Random walk line with numPoints points.
+     */
+    static void line(Random random, GeometryBuffer geom, int numPoints) {
+        geom.clear();
+        geom.startLine();
+        float x = random.nextFloat() * Tile.SIZE;
+        float y = random.nextFloat() * Tile.SIZE;
+        double angle = random.nextDouble() * Math.PI * 2;
+        for (int i = 0; i < numPoints; i++) {
+            geom.addPoint(x, y);
+            angle += (random.nextDouble() - 0.5) * 0.8;
+            float step = 2 + random.nextFloat() * 14;
+            x += (float) Math.cos(angle) * step;
+            y += (float) Math.sin(angle) * step;
+        }
+    }
+
+    /**
+     * Star shaped, i.e. simple, polygon with numPoints points and an
+     * optional hole. Rings are not closed, as in MapElement.
+     */
+    static void polygon(Random random, GeometryBuffer geom, int numPoints, boolean hole) {
+        geom.clear();
+        geom.startPolygon();
+        float cx = random.nextFloat() * Tile.SIZE;
+        float cy = random.nextFloat() * Tile.SIZE;
+        float radius = 4 + random.nextFloat() * Tile.SIZE / 6f;
+        ring(random, geom, cx, cy, radius, numPoints, false);
+        if (hole) {
+            geom.startHole();
+            ring(random, geom, cx, cy, radius * 0.3f, Math.max(3, numPoints / 3), true);
+        }
+    }
+
+    private static void ring(Random random, GeometryBuffer geom, float cx, float cy,
+                             float radius, int numPoints, boolean clockwise) {
+        for (int i = 0; i < numPoints; i++) {
+            double a = (clockwise ? -1 : 1) * Math.PI * 2 * i / numPoints;
+            float r = radius * (0.7f + 0.3f * random.nextFloat());
+            geom.addPoint(cx + (float) Math.cos(a) * r, cy + (float) Math.sin(a) * r);
+        }
+    }
+
+    /**
+     * A tile worth of elements: lines, areas and POIs with tags.
+     */
+    static MapElement[] elements(Random random, int numLines, int numAreas, int numPois) {
+        Tag[] lineTags = parseTags(LINE_TAGS);
+        Tag[] areaTags = parseTags(AREA_TAGS);
+        Tag[] poiTags = parseTags(POI_TAGS);
+
+        MapElement[] elements = new MapElement[numLines + numAreas + numPois];
+        int n = 0;
+        for (int i = 0; i < numLines; i++) {
+            MapElement e = new MapElement();
+            line(random, e, 2 + random.nextInt(40));
+            e.tags.add(lineTags[random.nextInt(lineTags.length)]);
+            if (random.nextInt(3) == 0)
+                e.tags.add(new Tag(Tag.KEY_NAME, NAMES[random.nextInt(NAMES.length)], false));
+            if (random.nextInt(8) == 0)
+                e.tags.add(new Tag("bridge", "yes"));
+            e.setLayer(5);
+            elements[n++] = e;
+        }
+        for (int i = 0; i < numAreas; i++) {
+            MapElement e = new MapElement();
+            Tag tag = areaTags[random.nextInt(areaTags.length)];
+            boolean building = Tag.KEY_BUILDING.equals(tag.key);
+            polygon(random, e, building ? 4 + random.nextInt(6) : 8 + random.nextInt(60),
+                    !building && random.nextInt(4) == 0);
+            e.tags.add(tag);
+            e.setLayer(5);
+            elements[n++] = e;
+        }
+        for (int i = 0; i < numPois; i++) {
+            MapElement e = new MapElement();
+            e.startPoints();
+            e.addPoint(random.nextFloat() * Tile.SIZE, random.nextFloat() * Tile.SIZE);
+            e.tags.add(poiTags[random.nextInt(poiTags.length)]);
+            e.tags.add(new Tag(Tag.KEY_NAME, NAMES[random.nextInt(NAMES.length)], false));
+            e.setLayer(5);
+            elements[n++] = e;
+        }
+        return elements;
+    }
+}
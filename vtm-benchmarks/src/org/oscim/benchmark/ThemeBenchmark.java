@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.theme.IRenderTheme;
+import org.oscim.theme.ThemeLoader;
+import org.oscim.theme.internal.VtmThemes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RenderTheme.matchElement with the stock vtm-themes for a tile worth of
+ * synthetic elements. 'cached' hits the style cache as tiles of the same
+ * area do, 'uncached' makes every element unique by a ref tag, so that all
+ * rules are evaluated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ThemeBenchmark {
+
+    @Param({"DEFAULT", "OSMARENDER", "BIKER", "NEWTRON"})
+    public VtmThemes theme;
+
+    @Param({"16"})
+    public int zoom;
+
+    private IRenderTheme mTheme;
+    private MapElement[] mElements;
+    private final TagSet mTags = new TagSet();
+    private int mCounter;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init();
+        mTheme = ThemeLoader.load(theme);
+        mElements = SyntheticData.elements(new Random(SyntheticData.SEED), 600, 250, 60);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mTheme.dispose();
+    }
+
+    @Benchmark
+    public void cached(Blackhole bh) {
+        for (MapElement e : mElements)
+            bh.consume(mTheme.matchElement(e.type, e.tags, zoom));
+    }
+
+    @Benchmark
+    public void uncached(Blackhole bh) {
+        String name = Integer.toString(mCounter++);
+        Tag tag = new Tag("ref", name, false);
+        for (MapElement e : mElements) {
+            mTags.set(e.tags);
+            mTags.add(tag);
+            bh.consume(mTheme.matchElement(e.type, mTags, zoom));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.benchmark;
+
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Encodes synthetic elements into the wire formats of the tile decoders,
+ * i.e. payloads as they would be recorded from a tile server.
+ */
+final class TilePayloads {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private TilePayloads() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * OpenScienceMap v4 tile (see TileData_v4.proto) with all keys and
+     * values in the tile tag table.
+     */
+    static byte[] oscimap4(MapElement[] elements) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        Map<String, Integer> values = new LinkedHashMap<>();
+        Map<String, Integer> tags = new LinkedHashMap<>();
+        List<int[]> tagPairs = new ArrayList<>();
+
+        for (MapElement e : elements) {
+            for (int i = 0; i < e.tags.size(); i++) {
+                Tag t = e.tags.get(i);
+                if (tags.containsKey(t.toString()))
+                    continue;
+                tags.put(t.toString(), tags.size());
+                tagPairs.add(new int[]{index(keys, t.key), index(values, t.value)});
+            }
+        }
+
+        Pbf pbf = new Pbf();
+        pbf.varintField(1, 4); // version
+        pbf.varintField(11, tags.size());
+        pbf.varintField(12, keys.size());
+        pbf.varintField(13, values.size());
+        for (String key : keys.keySet())
+            pbf.bytesField(14, key.getBytes(UTF8));
+        for (String value : values.keySet())
+            pbf.bytesField(15, value.getBytes(UTF8));
+
+        Pbf packed = new Pbf();
+        for (int[] pair : tagPairs) {
+            /* custom tags are offset by Tags.ATTRIB_OFFSET */
+            packed.varint(pair[0] + 256);
+            packed.varint(pair[1] + 256);
+        }
+        pbf.bytesField(16, packed.toByteArray());
+
+        float scale = 4096f / Tile.SIZE;
+        Pbf elem = new Pbf();
+        for (MapElement e : elements) {
+            elem.reset();
+            elem.varintField(2, e.tags.size());
+            packed.reset();
+            for (int i = 0; i < e.tags.size(); i++)
+                packed.varint(tags.get(e.tags.get(i).toString()));
+            elem.bytesField(11, packed.toByteArray());
+
+            int numPoints = e.getNumPoints();
+            if (e.type != GeometryType.POINT) {
+                int numRings = 0;
+                packed.reset();
+                for (int i = 0; i < e.index.length && e.index[i] >= 0; i++) {
+                    packed.varint(e.index[i] / 2);
+                    numRings++;
+                }
+                elem.varintField(1, numRings);
+                elem.bytesField(12, packed.toByteArray());
+            }
+
+            packed.reset();
+            int lastX = 0, lastY = 0;
+            for (int i = 0; i < numPoints; i++) {
+                int x = Math.round(e.getPointX(i) * scale);
+                int y = Math.round(e.getPointY(i) * scale);
+                packed.zigzag(x - lastX);
+                packed.zigzag(y - lastY);
+                lastX = x;
+                lastY = y;
+            }
+            elem.bytesField(13, packed.toByteArray());
+            elem.varintField(21, e.layer);
+
+            int type = e.type == GeometryType.LINE ? 21 : e.type == GeometryType.POLY ? 22 : 23;
+            pbf.bytesField(type, elem.toByteArray());
+        }
+
+        Pbf out = new Pbf();
+        int size = pbf.size();
+        out.write(size >> 24);
+        out.write(size >> 16);
+        out.write(size >> 8);
+        out.write(size);
+        out.write(pbf.toByteArray(), 0, size);
+        return out.toByteArray();
+    }
+
+    private static int index(Map<String, Integer> map, String s) {
+        Integer id = map.get(s);
+        if (id == null) {
+            id = map.size();
+            map.put(s, id);
+        }
+        return id;
+    }
+
+    /**
+     * GeoJSON FeatureCollection of the elements placed in tile.
+     */
+    static byte[] geojson(MapElement[] elements, Tile tile) {
+        StringBuilder sb = new StringBuilder(1 << 16);
+        sb.append("{\"type\":\"FeatureCollection\",\"features\":[");
+        boolean first = true;
+        for (MapElement e : elements) {
+            if (!first)
+                sb.append(',');
+            first = false;
+
+            sb.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"");
+            if (e.type == GeometryType.POINT) {
+                sb.append("Point\",\"coordinates\":");
+                coordinate(sb, tile, e.getPointX(0), e.getPointY(0));
+            } else if (e.type == GeometryType.LINE) {
+                sb.append("LineString\",\"coordinates\":");
+                ring(sb, tile, e, 0, e.getNumPoints(), false);
+            } else {
+                sb.append("Polygon\",\"coordinates\":[");
+                int offset = 0;
+                for (int i = 0; i < e.index.length && e.index[i] >= 0; i++) {
+                    int n = e.index[i] / 2;
+                    if (i > 0)
+                        sb.append(',');
+                    ring(sb, tile, e, offset, n, true);
+                    offset += n;
+                }
+                sb.append(']');
+            }
+            sb.append("},\"properties\":{");
+            for (int i = 0; i < e.tags.size(); i++) {
+                Tag t = e.tags.get(i);
+                if (i > 0)
+                    sb.append(',');
+                sb.append('"').append(t.key).append("\":\"").append(t.value).append('"');
+            }
+            sb.append("}}");
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(UTF8);
+    }
+
+    private static void ring(StringBuilder sb, Tile tile, MapElement e, int offset, int n,
+                             boolean close) {
+        sb.append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                sb.append(',');
+            coordinate(sb, tile, e.getPointX(offset + i), e.getPointY(offset + i));
+        }
+        if (close) {
+            sb.append(',');
+            coordinate(sb, tile, e.getPointX(offset), e.getPointY(offset));
+        }
+        sb.append(']');
+    }
+
+    private static void coordinate(StringBuilder sb, Tile tile, float x, float y) {
+        double scale = (double) Tile.SIZE * (1 << tile.zoomLevel);
+        double lon = MercatorProjection.toLongitude((tile.tileX * Tile.SIZE + x) / scale);
+        double lat = MercatorProjection.toLatitude((tile.tileY * Tile.SIZE + y) / scale);
+        sb.append(String.format(Locale.ROOT, "[%.7f,%.7f]", lon, lat));
+    }
+
+    static final class Pbf extends ByteArrayOutputStream {
+
+        void varint(int v) {
+            while ((v & ~0x7f) != 0) {
+                write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void zigzag(int v) {
+            varint((v << 1) ^ (v >> 31));
+        }
+
+        void varintField(int field, int v) {
+            varint(field << 3);
+            varint(v);
+        }
+
+        void bytesField(int field, byte[] b) {
+            varint(field << 3 | 2);
+            varint(b.length);
+            write(b, 0, b.length);
+        }
+    }
+}
@@ -14,8 +14,8 @@
  */
 package org.oscim.awt;
 
-import com.kitfox.svg.SVGCache;
 import com.kitfox.svg.SVGDiagram;
+import com.kitfox.svg.SVGUniverse;
 import com.kitfox.svg.app.beans.SVGIcon;
 
 import org.oscim.backend.CanvasAdapter;
@@ -35,8 +35,10 @@ public class AwtSvgBitmap extends AwtBitmap {
 
     public static BufferedImage getResourceBitmap(InputStream inputStream, float scaleFactor, float defaultSize, int width, int height, int percent) throws IOException {
         try {
-            URI uri = SVGCache.getSVGUniverse().loadSVG(inputStream, Integer.toString(inputStream.hashCode()));
-            SVGDiagram diagram = SVGCache.getSVGUniverse().getDiagram(uri);
+            /* a universe per symbol, so that symbols can be rasterized in parallel */
+            SVGUniverse universe = new SVGUniverse();
+            URI uri = universe.loadSVG(inputStream, Integer.toString(inputStream.hashCode()));
+            SVGDiagram diagram = universe.getDiagram(uri);
 
             double scale = scaleFactor / Math.sqrt((diagram.getHeight() * diagram.getWidth()) / defaultSize);
 
@@ -46,6 +48,7 @@ public class AwtSvgBitmap extends AwtBitmap {
             icon.setAntiAlias(true);
             icon.setAutosize(SVGIcon.AUTOSIZE_STRETCH);
             icon.setPreferredSize(new Dimension((int) bmpSize[0], (int) bmpSize[1]));
+            icon.setSvgUniverse(universe);
             icon.setSvgURI(uri);
             BufferedImage bufferedImage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
             icon.paintIcon(null, bufferedImage.createGraphics(), 0, 0);
@@ -57,9 +60,7 @@ public class AwtSvgBitmap extends AwtBitmap {
     }
 
     private static BufferedImage getResourceBitmapImpl(InputStream inputStream, int width, int height, int percent) throws IOException {
-        synchronized (SVGCache.getSVGUniverse()) {
-            return getResourceBitmap(inputStream, CanvasAdapter.getScale(), DEFAULT_SIZE, width, height, percent);
-        }
+        return getResourceBitmap(inputStream, CanvasAdapter.getScale(), DEFAULT_SIZE, width, height, percent);
     }
 
     public AwtSvgBitmap(InputStream inputStream, int width, int height, int percent) throws IOException {
@@ -149,69 +149,54 @@ public class TileDecoder implements ITileDecoder {
 
     private void decodeTags(MapElement mapElement) {
         TagSet tags = mapElement.tags;
-        Tag tag = tags.get(Tag.KEY_ROOF_DIRECTION);
-        if (tag != null) {
-            if (!isNumeric(tag.value)) {
-                switch (tag.value.toLowerCase()) {
-                    case "n":
-                    case "north":
-                        tag.value = "0";
-                        break;
-                    case "e":
-                    case "east":
-                        tag.value = "90";
-                        break;
-                    case "s":
-                    case "south":
-                        tag.value = "180";
-                        break;
-                    case "w":
-                    case "west":
-                        tag.value = "270";
-                        break;
-
-                    case "ne":
-                        tag.value = "45";
-                        break;
-                    case "se":
-                        tag.value = "135";
-                        break;
-                    case "sw":
-                        tag.value = "225";
-                        break;
-                    case "nw":
-                        tag.value = "315";
-                        break;
-
-                    case "nne":
-                        tag.value = "22";
-                        break;
-                    case "ene":
-                        tag.value = "67";
-                        break;
-                    case "ese":
-                        tag.value = "112";
-                        break;
-                    case "sse":
-                        tag.value = "157";
-                        break;
-                    case "ssw":
-                        tag.value = "202";
-                        break;
-                    case "wsw":
-                        tag.value = "247";
-                        break;
-                    case "wnw":
-                        tag.value = "292";
-                        break;
-                    case "nnw":
-                        tag.value = "337";
-                        break;
-                    default:
-                        tag.value = "0";
-                        break;
-                }
-            }
+        Tag[] tagArray = tags.getTags();
+        for (int i = 0, n = tags.size(); i < n; i++) {
+            Tag tag = tagArray[i];
+            if (Tag.KEY_ROOF_DIRECTION.equals(tag.key) && !isNumeric(tag.value))
+                tagArray[i] = new Tag(tag.key, toDegrees(tag.value), false);
+        }
+    }
+
+    private static String toDegrees(String direction) {
+        switch (direction.toLowerCase()) {
+            case "n":
+            case "north":
+                return "0";
+            case "e":
+            case "east":
+                return "90";
+            case "s":
+            case "south":
+                return "180";
+            case "w":
+            case "west":
+                return "270";
+            case "ne":
+                return "45";
+            case "se":
+                return "135";
+            case "sw":
+                return "225";
+            case "nw":
+                return "315";
+            case "nne":
+                return "22";
+            case "ene":
+                return "67";
+            case "ese":
+                return "112";
+            case "sse":
+                return "157";
+            case "ssw":
+                return "202";
+            case "wsw":
+                return "247";
+            case "wnw":
+                return "292";
+            case "nnw":
+                return "337";
+            default:
+                return "0";
         }
     }
 
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.osmpbf;
+
+import java.util.Arrays;
+
+/**
+ * Coordinates of OSM nodes by id, in primitive arrays of 16 bytes per node.
+ * <p>
+ * Nodes are appended in chunks. Ids in ascending order, as in sorted PBF
+ * files, are searched right away, otherwise the index is sorted on the
+ * first lookup. Of nodes added more than once the last one is kept.
+ */
+public class NodeIndex {
+
+    private static final int SHIFT = 16;
+    private static final int CHUNK = 1 << SHIFT;
+    private static final int MASK = CHUNK - 1;
+
+    private long[][] mIds = new long[16][];
+    /* latitude, longitude in 1e-7 degrees */
+    private int[][] mCoords = new int[16][];
+
+    /* first id of each chunk */
+    private long[] mFirst = new long[16];
+
+    private int mSize;
+    private boolean mSorted = true;
+
+    /* order of adding while sorting, to keep the last of duplicate ids */
+    private int[][] mOrder;
+
+    /**
+     * @param lat latitude in 1e-7 degrees.
+     * @param lon longitude in 1e-7 degrees.
+     */
+    public void add(long id, int lat, int lon) {
+        int c = mSize >>> SHIFT;
+        int i = mSize & MASK;
+        if (i == 0) {
+            if (c == mIds.length) {
+                mIds = Arrays.copyOf(mIds, c * 2);
+                mCoords = Arrays.copyOf(mCoords, c * 2);
+                mFirst = Arrays.copyOf(mFirst, c * 2);
+            }
+            mIds[c] = new long[CHUNK];
+            mCoords[c] = new int[CHUNK * 2];
+            mFirst[c] = id;
+        }
+        if (mSize > 0 && mSorted && id <= id(mSize - 1))
+            mSorted = false;
+
+        mIds[c][i] = id;
+        mCoords[c][i * 2] = lat;
+        mCoords[c][i * 2 + 1] = lon;
+        mSize++;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the position of the node, or -1 when missing.
+     */
+    public int find(long id) {
+        if (mSize == 0)
+            return -1;
+        if (!mSorted)
+            sort();
+
+        /* find the chunk, then the node */
+        int lo = 0, hi = (mSize - 1) >>> SHIFT;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (mFirst[mid] <= id)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        long[] ids = mIds[lo];
+        int n = lo == (mSize - 1) >>> SHIFT ? ((mSize - 1) & MASK) + 1 : CHUNK;
+        int i = Arrays.binarySearch(ids, 0, n, id);
+        return i < 0 ? -1 : (lo << SHIFT) + i;
+    }
+
+    /**
+     * @return latitude in 1e-7 degrees of the node at position.
+     */
+    public int getLat(int position) {
+        return mCoords[position >>> SHIFT][(position & MASK) * 2];
+    }
+
+    /**
+     * @return longitude in 1e-7 degrees of the node at position.
+     */
+    public int getLon(int position) {
+        return mCoords[position >>> SHIFT][(position & MASK) * 2 + 1];
+    }
+
+    public void clear() {
+        Arrays.fill(mIds, null);
+        Arrays.fill(mCoords, null);
+        mSize = 0;
+        mSorted = true;
+    }
+
+    private long id(int position) {
+        return mIds[position >>> SHIFT][position & MASK];
+    }
+
+    private void sort() {
+        int chunks = ((mSize - 1) >>> SHIFT) + 1;
+        mOrder = new int[chunks][];
+        for (int c = 0; c < chunks; c++) {
+            int[] order = mOrder[c] = new int[CHUNK];
+            for (int i = 0; i < CHUNK; i++)
+                order[i] = (c << SHIFT) + i;
+        }
+        quickSort(0, mSize - 1);
+        mOrder = null;
+
+        /* drop duplicate ids, the last added is sorted last */
+        int n = 0;
+        for (int i = 0; i < mSize; i++) {
+            if (n > 0 && id(n - 1) == id(i))
+                n--;
+            move(i, n++);
+        }
+        for (int c = ((n - 1) >>> SHIFT) + 1; c < mIds.length; c++) {
+            mIds[c] = null;
+            mCoords[c] = null;
+        }
+        mSize = n;
+        for (int c = 0; c <= (n - 1) >>> SHIFT; c++)
+            mFirst[c] = mIds[c][0];
+        mSorted = true;
+    }
+
+    private void quickSort(int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                /* insertion sort */
+                for (int i = lo + 1; i <= hi; i++)
+                    for (int j = i; j > lo && compare(j - 1, id(j), order(j)) > 0; j--)
+                        swap(j - 1, j);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            long pivot = id(mid);
+            int pivotOrder = order(mid);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (compare(i, pivot, pivotOrder) < 0)
+                    i++;
+                while (compare(j, pivot, pivotOrder) > 0)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            /* recurse into the smaller part */
+            if (j - lo < hi - i) {
+                quickSort(lo, j);
+                lo = i;
+            } else {
+                quickSort(i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    /**
+     * Compare the node at position with a node by id and order of adding.
+     */
+    private int compare(int position, long id, int order) {
+        long a = id(position);
+        if (a != id)
+            return a < id ? -1 : 1;
+        int o = order(position);
+        return o < order ? -1 : (o == order ? 0 : 1);
+    }
+
+    private int order(int position) {
+        return mOrder[position >>> SHIFT][position & MASK];
+    }
+
+    private void swap(int a, int b) {
+        long[] ia = mIds[a >>> SHIFT], ib = mIds[b >>> SHIFT];
+        int[] ca = mCoords[a >>> SHIFT], cb = mCoords[b >>> SHIFT];
+        int pa = a & MASK, pb = b & MASK;
+
+        long id = ia[pa];
+        ia[pa] = ib[pb];
+        ib[pb] = id;
+
+        int lat = ca[pa * 2], lon = ca[pa * 2 + 1];
+        ca[pa * 2] = cb[pb * 2];
+        ca[pa * 2 + 1] = cb[pb * 2 + 1];
+        cb[pb * 2] = lat;
+        cb[pb * 2 + 1] = lon;
+
+        int[] oa = mOrder[a >>> SHIFT], ob = mOrder[b >>> SHIFT];
+        int o = oa[pa];
+        oa[pa] = ob[pb];
+        ob[pb] = o;
+    }
+
+    private void move(int from, int to) {
+        if (from == to)
+            return;
+        mIds[to >>> SHIFT][to & MASK] = id(from);
+        mCoords[to >>> SHIFT][(to & MASK) * 2] = getLat(from);
+        mCoords[to >>> SHIFT][(to & MASK) * 2 + 1] = getLon(from);
+    }
+}
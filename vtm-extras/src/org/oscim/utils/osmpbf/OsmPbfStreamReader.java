@@ -0,0 +1,241 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.osmpbf;
+
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.mapfile.OSMUtils;
+import org.oscim.utils.async.WorkerPool;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.oscim.core.MercatorProjection.latitudeToY;
+import static org.oscim.core.MercatorProjection.longitudeToX;
+
+/**
+ * Streams the tagged nodes and ways of an OSM PBF file as {@link MapElement}s
+ * into an {@link ITileDataSink}, unlike {@link OsmPbfReader} which keeps all
+ * entities as objects.
+ * <p>
+ * Blocks are decoded in parallel and passed on in file order. Node
+ * coordinates are kept in a {@link NodeIndex}, so the file must have its
+ * nodes before the ways, as the usual 'Sort.Type_then_ID' files do. Ways
+ * with less than two known nodes are dropped, relations are skipped.
+ */
+public class OsmPbfStreamReader {
+
+    /**
+     * Maximum size of a blob header and a blob, by the format.
+     */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private final int mThreads;
+    private final NodeIndex mNodes = new NodeIndex();
+    private final MapElement mElement = new MapElement();
+
+    private double mTileX, mTileY, mTileScale;
+
+    public OsmPbfStreamReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of threads decoding blocks.
+     */
+    public OsmPbfStreamReader(int threads) {
+        mThreads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the node coordinates of the last read.
+     */
+    public NodeIndex getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * Read the file and pass its elements to the sink, then complete the
+     * sink with the result.
+     *
+     * @param tile coordinates are in pixels of this tile, see {@link Tile#SIZE}.
+     */
+    public void read(InputStream is, Tile tile, ITileDataSink sink) throws IOException {
+        mTileScale = 1 << tile.zoomLevel;
+        mTileX = tile.tileX / mTileScale;
+        mTileY = tile.tileY / mTileScale;
+        mTileScale *= Tile.SIZE;
+        mNodes.clear();
+
+        DataInputStream in = new DataInputStream(is);
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads,
+                WorkerPool.threadFactory("OsmPbfStreamReader"));
+        /* decoded blocks in file order, bounded to keep memory low */
+        ArrayDeque<Future<PbfBlock>> pending = new ArrayDeque<>();
+        boolean success = false;
+        try {
+            byte[] header;
+            while ((header = readBlob(in, -1)) != null) {
+                Fileformat.BlobHeader bh = Fileformat.BlobHeader.parseFrom(header);
+                final byte[] blob = readBlob(in, bh.getDatasize());
+                if (blob == null)
+                    throw new EOFException();
+
+                if ("OSMHeader".equals(bh.getType())) {
+                    checkHeader(Osmformat.HeaderBlock.parseFrom(PbfBlock.inflate(blob)));
+                } else if ("OSMData".equals(bh.getType())) {
+                    pending.add(executor.submit(new Callable<PbfBlock>() {
+                        @Override
+                        public PbfBlock call() throws IOException {
+                            return PbfBlock.decode(blob);
+                        }
+                    }));
+                    if (pending.size() >= 2 * mThreads)
+                        process(take(pending), sink);
+                }
+            }
+            while (!pending.isEmpty())
+                process(take(pending), sink);
+            success = true;
+        } finally {
+            executor.shutdownNow();
+            sink.completed(success ? QueryResult.SUCCESS : QueryResult.FAILED);
+        }
+    }
+
+    /**
+     * @param size the size, or -1 to read the length prefixed blob header.
+     * @return the bytes, or null at the end of the stream.
+     */
+    private static byte[] readBlob(DataInputStream in, int size) throws IOException {
+        if (size < 0) {
+            try {
+                size = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (size < 0 || size > MAX_HEADER_SIZE)
+                throw new IOException("invalid blob header size " + size);
+        } else if (size > MAX_BLOB_SIZE) {
+            throw new IOException("invalid blob size " + size);
+        }
+        byte[] b = new byte[size];
+        in.readFully(b);
+        return b;
+    }
+
+    private static PbfBlock take(ArrayDeque<Future<PbfBlock>> pending) throws IOException {
+        try {
+            return pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void checkHeader(Osmformat.HeaderBlock header) throws IOException {
+        for (String s : header.getRequiredFeaturesList()) {
+            if (!"OsmSchema-V0.6".equals(s) && !"DenseNodes".equals(s))
+                throw new IOException("File requires unknown feature: " + s);
+        }
+    }
+
+    private void process(PbfBlock b, ITileDataSink sink) {
+        MapElement e = mElement;
+        String[] strings = b.strings;
+
+        for (int i = 0; i < b.nodes; i++) {
+            mNodes.add(b.nodeIds[i], b.nodeLat[i], b.nodeLon[i]);
+
+            int start = b.nodeTagStart[i], end = b.nodeTagStart[i + 1];
+            if (start == end)
+                continue;
+
+            e.clear();
+            setTags(strings, b.nodeTags, start, end);
+            e.startPoints();
+            addPoint(b.nodeLat[i], b.nodeLon[i]);
+            sink.process(e);
+        }
+
+        for (int i = 0; i < b.ways; i++) {
+            int start = b.wayTagStart[i], end = b.wayTagStart[i + 1];
+            if (start == end)
+                continue;
+
+            int first = b.wayRefStart[i], last = b.wayRefStart[i + 1] - 1;
+            if (last - first < 1)
+                continue;
+
+            e.clear();
+            setTags(strings, b.wayTags, start, end);
+
+            boolean closed = b.wayRefs[first] == b.wayRefs[last];
+            boolean area = closed && last - first > 2 && OSMUtils.isArea(e);
+            if (area) {
+                e.startPolygon();
+                /* polygons are implicitly closed */
+                last--;
+            } else {
+                e.startLine();
+            }
+
+            int points = 0;
+            for (int r = first; r <= last; r++) {
+                int n = mNodes.find(b.wayRefs[r]);
+                if (n < 0)
+                    continue;
+                addPoint(mNodes.getLat(n), mNodes.getLon(n));
+                points++;
+            }
+            if (points < (area ? 3 : 2))
+                continue;
+
+            sink.process(e);
+        }
+    }
+
+    private void setTags(String[] strings, int[] tags, int start, int end) {
+        mElement.tags.clear();
+        for (int t = start; t < end; t += 2)
+            mElement.tags.add(new Tag(strings[tags[t]], strings[tags[t + 1]], false));
+    }
+
+    private void addPoint(int lat, int lon) {
+        mElement.addPoint((float) ((longitudeToX(lon / 1e7) - mTileX) * mTileScale),
+                (float) ((latitudeToY(lat / 1e7) - mTileY) * mTileScale));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.osmpbf;
+
+import com.google.protobuf.ByteString;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The nodes and ways of a PBF data block in primitive arrays, decoded on a
+ * worker thread of {@link OsmPbfStreamReader}.
+ */
+final class PbfBlock {
+
+    String[] strings;
+
+    int nodes;
+    long[] nodeIds;
+    /* 1e-7 degrees */
+    int[] nodeLat, nodeLon;
+    /* tags of node i are key, value string pairs in
+     * nodeTags[nodeTagStart[i]..nodeTagStart[i + 1]] */
+    int[] nodeTagStart;
+    int[] nodeTags;
+
+    int ways;
+    long[] wayIds;
+    int[] wayTagStart;
+    int[] wayTags;
+    int[] wayRefStart;
+    long[] wayRefs;
+
+    static byte[] inflate(byte[] blobData) throws IOException {
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(blobData);
+        if (blob.hasRaw())
+            return blob.getRaw().toByteArray();
+        if (!blob.hasZlibData())
+            throw new IOException("unsupported blob compression");
+
+        byte[] data = new byte[blob.getRawSize()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob.getZlibData().toByteArray());
+            int n = 0;
+            while (n < data.length && !inflater.finished()) {
+                int r = inflater.inflate(data, n, data.length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                n += r;
+            }
+            if (n != data.length)
+                throw new IOException("truncated blob");
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    static PbfBlock decode(byte[] blobData) throws IOException {
+        Osmformat.PrimitiveBlock pb = Osmformat.PrimitiveBlock.parseFrom(inflate(blobData));
+        PbfBlock b = new PbfBlock();
+
+        Osmformat.StringTable st = pb.getStringtable();
+        b.strings = new String[st.getSCount()];
+        for (int i = 0; i < b.strings.length; i++) {
+            ByteString s = st.getS(i);
+            b.strings[i] = s.toStringUtf8();
+        }
+
+        /* granularity in nanodegrees, to 1e-7 degrees */
+        long granularity = pb.getGranularity();
+        long latOffset = pb.getLatOffset();
+        long lonOffset = pb.getLonOffset();
+
+        int nodes = 0, ways = 0;
+        for (Osmformat.PrimitiveGroup g : pb.getPrimitivegroupList()) {
+            nodes += g.getNodesCount();
+            if (g.hasDense())
+                nodes += g.getDense().getIdCount();
+            ways += g.getWaysCount();
+        }
+
+        b.nodeIds = new long[nodes];
+        b.nodeLat = new int[nodes];
+        b.nodeLon = new int[nodes];
+        b.nodeTagStart = new int[nodes + 1];
+        b.nodeTags = new int[16];
+        b.wayIds = new long[ways];
+        b.wayTagStart = new int[ways + 1];
+        b.wayTags = new int[16];
+        b.wayRefStart = new int[ways + 1];
+        b.wayRefs = new long[64];
+
+        for (Osmformat.PrimitiveGroup g : pb.getPrimitivegroupList()) {
+            for (Osmformat.Node node : g.getNodesList()) {
+                int n = b.nodes;
+                b.nodeIds[n] = node.getId();
+                b.nodeLat[n] = (int) ((latOffset + granularity * node.getLat()) / 100);
+                b.nodeLon[n] = (int) ((lonOffset + granularity * node.getLon()) / 100);
+                int t = b.nodeTagStart[n];
+                for (int j = 0; j < node.getKeysCount(); j++) {
+                    b.nodeTags = ensure(b.nodeTags, t + 2);
+                    b.nodeTags[t++] = node.getKeys(j);
+                    b.nodeTags[t++] = node.getVals(j);
+                }
+                b.nodeTagStart[++b.nodes] = t;
+            }
+            if (g.hasDense()) {
+                Osmformat.DenseNodes dense = g.getDense();
+                long id = 0, lat = 0, lon = 0;
+                int kv = 0;
+                boolean tagged = dense.getKeysValsCount() > 0;
+                for (int i = 0; i < dense.getIdCount(); i++) {
+                    id += dense.getId(i);
+                    lat += dense.getLat(i);
+                    lon += dense.getLon(i);
+                    int n = b.nodes;
+                    b.nodeIds[n] = id;
+                    b.nodeLat[n] = (int) ((latOffset + granularity * lat) / 100);
+                    b.nodeLon[n] = (int) ((lonOffset + granularity * lon) / 100);
+                    int t = b.nodeTagStart[n];
+                    if (tagged) {
+                        /* key, value pairs of each node end with 0 */
+                        int k;
+                        while ((k = dense.getKeysVals(kv++)) != 0) {
+                            b.nodeTags = ensure(b.nodeTags, t + 2);
+                            b.nodeTags[t++] = k;
+                            b.nodeTags[t++] = dense.getKeysVals(kv++);
+                        }
+                    }
+                    b.nodeTagStart[++b.nodes] = t;
+                }
+            }
+            for (Osmformat.Way way : g.getWaysList()) {
+                int w = b.ways;
+                b.wayIds[w] = way.getId();
+                int t = b.wayTagStart[w];
+                for (int j = 0; j < way.getKeysCount(); j++) {
+                    b.wayTags = ensure(b.wayTags, t + 2);
+                    b.wayTags[t++] = way.getKeys(j);
+                    b.wayTags[t++] = way.getVals(j);
+                }
+                int r = b.wayRefStart[w];
+                int refs = way.getRefsCount();
+                if (b.wayRefs.length < r + refs)
+                    b.wayRefs = Arrays.copyOf(b.wayRefs, Math.max(r + refs, b.wayRefs.length * 2));
+                long ref = 0;
+                for (int j = 0; j < refs; j++) {
+                    ref += way.getRefs(j);
+                    b.wayRefs[r++] = ref;
+                }
+                b.wayTagStart[++b.ways] = t;
+                b.wayRefStart[b.ways] = r;
+            }
+        }
+
+        /* share the key strings */
+        boolean[] interned = new boolean[b.strings.length];
+        internKeys(b.strings, interned, b.nodeTags, b.nodeTagStart[b.nodes]);
+        internKeys(b.strings, interned, b.wayTags, b.wayTagStart[b.ways]);
+        return b;
+    }
+
+    private static void internKeys(String[] strings, boolean[] interned, int[] tags, int end) {
+        for (int i = 0; i < end; i += 2) {
+            int k = tags[i];
+            if (!interned[k]) {
+                strings[k] = strings[k].intern();
+                interned[k] = true;
+            }
+        }
+    }
+
+    private static int[] ensure(int[] a, int size) {
+        return a.length >= size ? a : Arrays.copyOf(a, Math.max(size, a.length * 2));
+    }
+}
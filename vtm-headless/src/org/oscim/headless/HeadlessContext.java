@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.headless;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GLCapabilities;
+import org.oscim.backend.GL;
+import org.oscim.backend.GL30;
+import org.oscim.backend.GLAdapter;
+import org.oscim.gdx.Lwjgl3GL20;
+import org.oscim.gdx.Lwjgl3GL30;
+import org.oscim.renderer.GLState;
+import org.oscim.renderer.GLUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.logging.Logger;
+
+import static org.oscim.backend.GLAdapter.gl;
+
+/**
+ * OpenGL context without visible surface. A hidden 1x1 GLFW window provides
+ * the context, the map is rendered into a framebuffer object with RGBA color
+ * and packed depth-stencil renderbuffers.
+ * <p>
+ * With OSMesa GLFW runs on its null platform, which has no windowing system,
+ * and the context is created by libOSMesa. No X11 or Wayland display is
+ * needed then.
+ * <p>
+ * GLFW is initialized and terminated per context, so there can only be one
+ * context at a time. All methods must be called on the thread which created
+ * the context.
+ */
+final class HeadlessContext {
+
+    private static final Logger log = Logger.getLogger(HeadlessContext.class.getName());
+
+    private long mWindow;
+
+    private int mFrameBuffer;
+    private int mColorBuffer;
+    private int mDepthStencilBuffer;
+
+    private int mWidth;
+    private int mHeight;
+
+    private ByteBuffer mPixels;
+
+    HeadlessContext(int width, int height, boolean osmesa) {
+        /* init hints persist, reset them for the native platform */
+        GLFW.glfwInitHint(GLFW.GLFW_PLATFORM,
+                osmesa ? GLFW.GLFW_PLATFORM_NULL : GLFW.GLFW_ANY_PLATFORM);
+        if (!GLFW.glfwInit())
+            throw new IllegalStateException("Unable to initialize GLFW");
+
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        if (osmesa) {
+            if (GLFW.glfwGetPlatform() != GLFW.GLFW_PLATFORM_NULL) {
+                GLFW.glfwTerminate();
+                throw new IllegalStateException("GLFW null platform not available");
+            }
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_OSMESA_CONTEXT_API);
+        }
+
+        mWindow = GLFW.glfwCreateWindow(1, 1, "vtm-headless", 0, 0);
+        if (mWindow == 0) {
+            GLFW.glfwTerminate();
+            throw new IllegalStateException(osmesa
+                    ? "Unable to create GL context, libOSMesa missing?"
+                    : "Unable to create GL context");
+        }
+        GLFW.glfwMakeContextCurrent(mWindow);
+
+        GLCapabilities caps = org.lwjgl.opengl.GL.createCapabilities();
+        if (!caps.OpenGL30 && !caps.GL_ARB_framebuffer_object) {
+            dispose();
+            throw new IllegalStateException("Framebuffer objects not supported");
+        }
+
+        if (caps.OpenGL30)
+            GLAdapter.init(new Lwjgl3GL30());
+        else
+            GLAdapter.init(new Lwjgl3GL20());
+
+        log.fine(gl.getString(GL.RENDERER) + " / " + gl.getString(GL.VERSION));
+
+        mFrameBuffer = GLUtils.glGenFrameBuffers(1)[0];
+        int[] renderBuffers = GLUtils.glGenRenderBuffers(2);
+        mColorBuffer = renderBuffers[0];
+        mDepthStencilBuffer = renderBuffers[1];
+
+        resize(width, height);
+    }
+
+    /**
+     * (Re)allocate the renderbuffers, contents are undefined afterwards.
+     */
+    void resize(int width, int height) {
+        if (width == mWidth && height == mHeight)
+            return;
+
+        mWidth = width;
+        mHeight = height;
+
+        gl.bindRenderbuffer(GL.RENDERBUFFER, mColorBuffer);
+        gl.renderbufferStorage(GL.RENDERBUFFER, GL30.RGBA8, width, height);
+
+        /* vtm draws polygons and line outlines with the stencil buffer */
+        gl.bindRenderbuffer(GL.RENDERBUFFER, mDepthStencilBuffer);
+        gl.renderbufferStorage(GL.RENDERBUFFER, GL30.DEPTH24_STENCIL8, width, height);
+        gl.bindRenderbuffer(GL.RENDERBUFFER, 0);
+
+        GLState.bindFramebuffer(mFrameBuffer);
+        gl.framebufferRenderbuffer(GL.FRAMEBUFFER, GL.COLOR_ATTACHMENT0,
+                GL.RENDERBUFFER, mColorBuffer);
+        gl.framebufferRenderbuffer(GL.FRAMEBUFFER, GL30.DEPTH_STENCIL_ATTACHMENT,
+                GL.RENDERBUFFER, mDepthStencilBuffer);
+
+        if (GLUtils.checkFramebufferStatus(getClass().getName()) != GL.FRAMEBUFFER_COMPLETE)
+            throw new IllegalStateException("Incomplete framebuffer " + width + "x" + height);
+
+        mPixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Bind the framebuffer, renderers which use an own framebuffer for
+     * post-processing unbind it.
+     */
+    void bind() {
+        if (GLState.getFramebuffer() != mFrameBuffer)
+            GLState.bindFramebuffer(mFrameBuffer);
+    }
+
+    /**
+     * Read back the framebuffer as RGBA rows from top to bottom.
+     */
+    byte[] readPixels() {
+        bind();
+        gl.pixelStorei(GL.PACK_ALIGNMENT, 1);
+
+        mPixels.clear();
+        gl.readPixels(0, 0, mWidth, mHeight, GL.RGBA, GL.UNSIGNED_BYTE, mPixels);
+
+        /* GL origin is bottom-left */
+        int stride = mWidth * 4;
+        byte[] rgba = new byte[stride * mHeight];
+        for (int row = 0; row < mHeight; row++) {
+            mPixels.position((mHeight - row - 1) * stride);
+            mPixels.get(rgba, row * stride, stride);
+        }
+        return rgba;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    void dispose() {
+        if (mWindow == 0)
+            return;
+
+        if (mFrameBuffer != 0) {
+            GLState.bindFramebuffer(0);
+            gl.deleteFramebuffer(mFrameBuffer);
+            gl.deleteRenderbuffer(mColorBuffer);
+            gl.deleteRenderbuffer(mDepthStencilBuffer);
+            mFrameBuffer = 0;
+        }
+
+        GLFW.glfwMakeContextCurrent(0);
+        GLFW.glfwDestroyWindow(mWindow);
+        GLFW.glfwTerminate();
+        mWindow = 0;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.headless;
+
+import org.oscim.map.Map;
+import org.oscim.renderer.MapRenderer;
+import org.oscim.utils.async.AsyncTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Map without window system. Frames are drawn on demand by {@link #runFrame()}
+ * on the thread which created the map, which is also the main thread for
+ * posted tasks.
+ */
+final class HeadlessMap extends Map {
+
+    private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+    private final PriorityQueue<DelayedTask> mDelayedTasks = new PriorityQueue<>();
+    private final AtomicInteger mAsyncTasks = new AtomicInteger();
+
+    private MapRenderer mRenderer;
+
+    private int mWidth;
+    private int mHeight;
+
+    private long mSequence;
+    private boolean mUpdateRequest;
+    private boolean mRenderRequest;
+
+    HeadlessMap(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        viewport().setViewSize(width, height);
+    }
+
+    void setRenderer(MapRenderer renderer) {
+        mRenderer = renderer;
+    }
+
+    void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        viewport().setViewSize(width, height);
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public int getScreenWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getScreenHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public void updateMap() {
+        updateMap(true);
+    }
+
+    @Override
+    public synchronized void updateMap(boolean redraw) {
+        mUpdateRequest = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void render() {
+        if (mClearMap)
+            mUpdateRequest = true;
+        else
+            mRenderRequest = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean post(Runnable action) {
+        mTasks.add(action);
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean postDelayed(Runnable action, long delay) {
+        mDelayedTasks.add(new DelayedTask(action, System.currentTimeMillis() + delay, mSequence++));
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public void addTask(final Runnable task) {
+        /* AsyncTasks post their result back to the main loop */
+        if (task instanceof AsyncTask) {
+            super.addTask(task);
+            return;
+        }
+        mAsyncTasks.incrementAndGet();
+        super.addTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    mAsyncTasks.decrementAndGet();
+                    synchronized (HeadlessMap.this) {
+                        HeadlessMap.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void beginFrame() {
+    }
+
+    @Override
+    public void doneFrame(boolean needsRedraw) {
+        if (needsRedraw)
+            updateMap(true);
+    }
+
+    /**
+     * Run posted tasks which are due and draw a frame when requested.
+     *
+     * @return true if anything was done
+     */
+    boolean runFrame() {
+        ArrayList<Runnable> tasks = new ArrayList<>();
+        boolean update;
+        boolean render;
+
+        synchronized (this) {
+            tasks.addAll(mTasks);
+            mTasks.clear();
+
+            long now = System.currentTimeMillis();
+            while (!mDelayedTasks.isEmpty() && mDelayedTasks.peek().time <= now)
+                tasks.add(mDelayedTasks.poll().task);
+        }
+
+        for (Runnable task : tasks)
+            task.run();
+
+        synchronized (this) {
+            update = mUpdateRequest;
+            render = mRenderRequest;
+            mUpdateRequest = false;
+            mRenderRequest = false;
+        }
+
+        if (update)
+            prepareFrame();
+
+        if (update || render)
+            mRenderer.onDrawFrame();
+
+        return !tasks.isEmpty() || update || render;
+    }
+
+    /**
+     * @return true if tasks are pending or running, or a frame is requested
+     */
+    synchronized boolean isBusy() {
+        return !mTasks.isEmpty() || !mDelayedTasks.isEmpty() || mAsyncTasks.get() > 0
+                || mUpdateRequest || mRenderRequest;
+    }
+
+    /**
+     * Wait until something was posted, the next delayed task is due or
+     * at most maxWait milliseconds.
+     */
+    synchronized void await(long maxWait) throws InterruptedException {
+        if (!mTasks.isEmpty() || mUpdateRequest || mRenderRequest)
+            return;
+
+        long wait = maxWait;
+        if (!mDelayedTasks.isEmpty())
+            wait = Math.min(wait, mDelayedTasks.peek().time - System.currentTimeMillis());
+
+        if (wait > 0)
+            wait(wait);
+    }
+
+    private static final class DelayedTask implements Comparable<DelayedTask> {
+        final Runnable task;
+        final long time;
+        final long sequence;
+
+        DelayedTask(Runnable task, long time, long sequence) {
+            this.task = task;
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(DelayedTask o) {
+            if (time != o.time)
+                return time < o.time ? -1 : 1;
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
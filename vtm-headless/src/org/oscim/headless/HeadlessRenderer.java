@@ -0,0 +1,517 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.headless;
+
+import com.badlogic.gdx.utils.SharedLibraryLoader;
+import org.oscim.awt.AwtGraphics;
+import org.oscim.backend.AssetAdapter;
+import org.oscim.backend.DateTime;
+import org.oscim.backend.DateTimeAdapter;
+import org.oscim.core.BoundingBox;
+import org.oscim.core.MapPosition;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.layers.Layer;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.layers.tile.TileLayer;
+import org.oscim.layers.tile.TileManager;
+import org.oscim.layers.tile.TileSet;
+import org.oscim.layers.tile.buildings.BuildingLayer;
+import org.oscim.layers.tile.vector.OsmTileLayer;
+import org.oscim.layers.tile.vector.VectorTileLayer;
+import org.oscim.layers.tile.vector.labeling.LabelLayer;
+import org.oscim.renderer.MapRenderer;
+import org.oscim.theme.ThemeFile;
+import org.oscim.theme.internal.VtmThemes;
+import org.oscim.tiling.TileSource;
+import org.oscim.utils.FastMath;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Renders tiles or map views of a {@link TileSource} with a render theme
+ * into images, without window or display.
+ * <p>
+ * vtm keeps its GL state in static fields, so there is one GL context per
+ * renderer and all rendering runs on its GL thread. Requests are queued
+ * and completed as {@link Future}s, tile loading and label placement still
+ * run on the loader and worker threads of the map. Only one renderer can be
+ * open per process, see {@link Builder}.
+ * <p>
+ * Tiles of a batch are grouped to meta-tiles of n x n tiles, which are
+ * rendered as one view and split afterwards. This saves frames and keeps
+ * labels consistent across tile borders within a meta-tile.
+ * <p>
+ * The context is created with GLFW and needs an X11 or Wayland display,
+ * e.g. Xvfb on servers. For software rendering with Mesa run with
+ * LIBGL_ALWAYS_SOFTWARE=1 (llvmpipe). {@link Builder#osmesa(boolean)}
+ * renders with libOSMesa instead and needs no display at all.
+ */
+public final class HeadlessRenderer implements Closeable {
+
+    private static final Logger log = Logger.getLogger(HeadlessRenderer.class.getName());
+
+    private static final long POLL_INTERVAL = 10;
+
+    private static boolean initialized;
+
+    /* a renderer is open, guarded by the class */
+    private static boolean open;
+
+    /**
+     * Load natives and init the desktop backend, assets are read from the
+     * class path or file system. Called on {@link Builder#build()}.
+     */
+    public static synchronized void init() {
+        if (initialized)
+            return;
+
+        new SharedLibraryLoader().load("vtm-jni");
+        AwtGraphics.init();
+        AssetAdapter.init(new HeadlessAssets("assets/"));
+        DateTimeAdapter.init(new DateTime());
+
+        initialized = true;
+    }
+
+    /**
+     * Options of a renderer.
+     * <p>
+     * There can be only one open renderer per process: vtm keeps its GL
+     * state, the GL adapter and {@link Tile#SIZE} in static fields, and the
+     * GLFW context is global. {@link #build()} fails while another renderer
+     * is open. Render different themes or sources one after the other, or in
+     * separate processes.
+     */
+    public static class Builder {
+        private TileSource tileSource;
+        private ThemeFile theme = VtmThemes.DEFAULT;
+        private int tileSize = Tile.SIZE;
+        private int metaTiles = 4;
+        private boolean labels = true;
+        private boolean buildings;
+        private boolean osmesa;
+        private long timeout = 30000;
+        private long settleTime = 50;
+
+        public Builder tileSource(TileSource tileSource) {
+            this.tileSource = tileSource;
+            return this;
+        }
+
+        public Builder theme(ThemeFile theme) {
+            this.theme = theme;
+            return this;
+        }
+
+        /**
+         * Tile size in pixels, sets {@link Tile#SIZE}.
+         */
+        public Builder tileSize(int tileSize) {
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Number of tiles per meta-tile side for batches.
+         */
+        public Builder metaTiles(int metaTiles) {
+            this.metaTiles = metaTiles;
+            return this;
+        }
+
+        public Builder labels(boolean labels) {
+            this.labels = labels;
+            return this;
+        }
+
+        public Builder buildings(boolean buildings) {
+            this.buildings = buildings;
+            return this;
+        }
+
+        /**
+         * Create the context with OSMesa on the GLFW null platform instead of
+         * the native GL. Renders in software without any display, requires
+         * libOSMesa.
+         */
+        public Builder osmesa(boolean osmesa) {
+            this.osmesa = osmesa;
+            return this;
+        }
+
+        /**
+         * Maximum time in milliseconds to wait for tiles and labels of a view.
+         */
+        public Builder timeout(long timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Time in milliseconds without pending work until a view is complete.
+         */
+        public Builder settleTime(long settleTime) {
+            this.settleTime = settleTime;
+            return this;
+        }
+
+        public HeadlessRenderer build() {
+            if (tileSource == null)
+                throw new IllegalArgumentException("Tile source must be set");
+            if (theme == null)
+                throw new IllegalArgumentException("Theme must be set");
+            if (metaTiles < 1)
+                throw new IllegalArgumentException("Invalid meta-tiles: " + metaTiles);
+
+            synchronized (HeadlessRenderer.class) {
+                if (open)
+                    throw new IllegalStateException("Another renderer is open");
+                init();
+                open = true;
+            }
+            return new HeadlessRenderer(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final ExecutorService mExecutor;
+    private final int mMetaTiles;
+    private final long mTimeout;
+    private final long mSettleTime;
+
+    /* owned by the GL thread */
+    private HeadlessContext mContext;
+    private HeadlessMap mMap;
+    private MapRenderer mRenderer;
+
+    private HeadlessRenderer(final Builder builder) {
+        Tile.SIZE = FastMath.clamp(builder.tileSize, 128, 512);
+        mMetaTiles = builder.metaTiles;
+        mTimeout = builder.timeout;
+        mSettleTime = builder.settleTime;
+
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "VtmHeadlessRenderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        setup(builder);
+                    } catch (RuntimeException e) {
+                        dispose();
+                        throw e;
+                    }
+                    return null;
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            mExecutor.shutdown();
+            throw new IllegalStateException("Cannot create renderer", e.getCause());
+        } catch (InterruptedException e) {
+            mExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }
+    }
+
+    private void setup(Builder builder) {
+        int size = Tile.SIZE;
+        mContext = new HeadlessContext(size, size, builder.osmesa);
+
+        /* the map thread is the GL thread */
+        mMap = new HeadlessMap(size, size);
+        mMap.viewport().setMinZoomLevel(0);
+        mRenderer = new MapRenderer(mMap);
+        mMap.setRenderer(mRenderer);
+
+        VectorTileLayer tileLayer = new OsmTileLayer(mMap);
+        if (!tileLayer.setTileSource(builder.tileSource))
+            throw new IllegalArgumentException("Cannot open tile source");
+        mMap.setBaseMap(tileLayer);
+        if (builder.buildings)
+            mMap.layers().add(new BuildingLayer(mMap, tileLayer));
+        if (builder.labels)
+            mMap.layers().add(new LabelLayer(mMap, tileLayer));
+        mMap.setTheme(builder.theme);
+
+        mContext.bind();
+        mRenderer.onSurfaceCreated();
+        mRenderer.onSurfaceChanged(size, size);
+    }
+
+    /**
+     * Render a single tile.
+     */
+    public Future<TileImage> render(final Tile tile) {
+        return mExecutor.submit(new Callable<TileImage>() {
+            @Override
+            public TileImage call() throws InterruptedException {
+                return renderTiles(Collections.singletonList(tile), 1).get(0);
+            }
+        });
+    }
+
+    /**
+     * Render a batch of tiles, grouped to meta-tiles.
+     *
+     * @return the images in order of the tiles
+     */
+    public Future<List<TileImage>> render(Collection<Tile> tiles) {
+        final List<Tile> list = new ArrayList<>(tiles);
+        return mExecutor.submit(new Callable<List<TileImage>>() {
+            @Override
+            public List<TileImage> call() throws InterruptedException {
+                return renderTiles(list, mMetaTiles);
+            }
+        });
+    }
+
+    /**
+     * Render a map view of width x height pixels, e.g. a thumbnail.
+     */
+    public Future<TileImage> render(MapPosition mapPosition, final int width, final int height) {
+        final MapPosition pos = new MapPosition();
+        pos.copy(mapPosition);
+        return mExecutor.submit(new Callable<TileImage>() {
+            @Override
+            public TileImage call() throws InterruptedException {
+                return renderView(pos, width, height);
+            }
+        });
+    }
+
+    /**
+     * @return the tiles at zoom level covering the bounding box
+     */
+    public static List<Tile> tiles(BoundingBox box, int zoomLevel) {
+        byte zoom = (byte) zoomLevel;
+        int minX = MercatorProjection.longitudeToTileX(box.getMinLongitude(), zoom);
+        int maxX = MercatorProjection.longitudeToTileX(box.getMaxLongitude(), zoom);
+        int minY = MercatorProjection.latitudeToTileY(box.getMaxLatitude(), zoom);
+        int maxY = MercatorProjection.latitudeToTileY(box.getMinLatitude(), zoom);
+
+        List<Tile> tiles = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++)
+                tiles.add(new Tile(x, y, zoom));
+        }
+        return tiles;
+    }
+
+    private List<TileImage> renderTiles(List<Tile> tiles, int metaTiles) throws InterruptedException {
+        /* group tile indices by meta-tile, keeping the order of requests */
+        LinkedHashMap<Long, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0, n = tiles.size(); i < n; i++) {
+            Tile t = tiles.get(i);
+            int size = Math.min(metaTiles, 1 << t.zoomLevel);
+            long key = ((long) t.zoomLevel << 56)
+                    | ((long) (t.tileX / size) << 28)
+                    | (t.tileY / size);
+            List<Integer> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(i);
+        }
+
+        TileImage[] images = new TileImage[tiles.size()];
+        for (List<Integer> group : groups.values()) {
+            Tile first = tiles.get(group.get(0));
+            int zoom = first.zoomLevel;
+            int size = Math.min(metaTiles, 1 << zoom);
+            if (group.size() == 1)
+                size = 1;
+
+            int originX = first.tileX / size * size;
+            int originY = first.tileY / size * size;
+
+            double scale = 1 << zoom;
+            MapPosition pos = new MapPosition();
+            pos.setX((originX + size / 2.0) / scale);
+            pos.setY((originY + size / 2.0) / scale);
+            pos.setScale(scale);
+
+            TileImage view = renderView(pos, size * Tile.SIZE, size * Tile.SIZE);
+            for (int i : group) {
+                Tile t = tiles.get(i);
+                images[i] = view.crop(t, (t.tileX - originX) * Tile.SIZE,
+                        (t.tileY - originY) * Tile.SIZE, Tile.SIZE, Tile.SIZE);
+            }
+        }
+        return Arrays.asList(images);
+    }
+
+    private TileImage renderView(MapPosition pos, int width, int height) throws InterruptedException {
+        if (width != mContext.getWidth() || height != mContext.getHeight()) {
+            mContext.resize(width, height);
+            mMap.setSize(width, height);
+            mRenderer.onSurfaceChanged(width, height);
+        }
+
+        if (pos.zoomLevel > mMap.viewport().getMaxZoomLevel())
+            mMap.viewport().setMaxZoomLevel(pos.zoomLevel);
+
+        mMap.setMapPosition(pos);
+        awaitCompleted();
+
+        /* draw the final state */
+        mContext.bind();
+        mRenderer.onDrawFrame();
+
+        return new TileImage(null, width, height, mContext.readPixels());
+    }
+
+    /**
+     * Run frames until tiles are loaded, labels are placed and nothing
+     * changed within the settle time.
+     */
+    private void awaitCompleted() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long idleSince = start;
+
+        while (true) {
+            mContext.bind();
+            boolean active = mMap.runFrame();
+
+            long now = System.currentTimeMillis();
+            if (active || mMap.isBusy() || isLoading())
+                idleSince = now;
+            else if (now - idleSince >= mSettleTime)
+                return;
+
+            if (now - start > mTimeout) {
+                log.warning("Timeout after " + mTimeout + "ms, view may be incomplete");
+                return;
+            }
+            mMap.await(POLL_INTERVAL);
+        }
+    }
+
+    private boolean isLoading() {
+        for (Layer layer : mMap.layers()) {
+            if (!(layer instanceof TileLayer))
+                continue;
+
+            TileManager manager = ((TileLayer) layer).getManager();
+            if (manager.hasTileJobs())
+                return true;
+
+            TileSet tileSet = new TileSet();
+            manager.getActiveTiles(tileSet);
+            try {
+                for (int i = 0; i < tileSet.cnt; i++) {
+                    if (tileSet.tiles[i].state(MapTile.State.LOADING | MapTile.State.NEW_DATA))
+                        return true;
+                }
+            } finally {
+                tileSet.releaseTiles();
+            }
+        }
+        return false;
+    }
+
+    private void dispose() {
+        if (mMap != null)
+            mMap.destroy();
+        if (mContext != null)
+            mContext.dispose();
+        mMap = null;
+        mContext = null;
+        synchronized (HeadlessRenderer.class) {
+            open = false;
+        }
+    }
+
+    /**
+     * Release the GL context and map, pending requests are completed first.
+     * Returns when the context is released and a new renderer can be built.
+     */
+    @Override
+    public void close() {
+        Future<?> disposed;
+        try {
+            disposed = mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    dispose();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            /* already closed */
+            return;
+        }
+        mExecutor.shutdown();
+        try {
+            disposed.get();
+        } catch (ExecutionException e) {
+            log.warning("Dispose: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class HeadlessAssets extends AssetAdapter {
+        private final String pathPrefix;
+
+        HeadlessAssets(String pathPrefix) {
+            this.pathPrefix = pathPrefix;
+        }
+
+        @Override
+        protected InputStream openFileAsStream(String file) {
+            InputStream is = HeadlessRenderer.class.getClassLoader().getResourceAsStream(pathPrefix + file);
+            if (is != null)
+                return is;
+            try {
+                return new FileInputStream(new File(file));
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.headless;
+
+import org.oscim.core.Tile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Rendered image of a tile or map view, stored as RGBA rows from top
+ * to bottom with premultiplied alpha.
+ */
+public final class TileImage {
+
+    private final Tile mTile;
+    private final int mWidth;
+    private final int mHeight;
+    private final byte[] mRgba;
+
+    TileImage(Tile tile, int width, int height, byte[] rgba) {
+        mTile = tile;
+        mWidth = width;
+        mHeight = height;
+        mRgba = rgba;
+    }
+
+    /**
+     * @return the tile or null when a map view was rendered
+     */
+    public Tile getTile() {
+        return mTile;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return the RGBA pixels, not copied
+     */
+    public byte[] getRgba() {
+        return mRgba;
+    }
+
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(mWidth, mHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        /* write to the raster as setRGB() would un-premultiply */
+        int[] argb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int p = 0, i = 0; p < argb.length; p++, i += 4) {
+            argb[p] = (mRgba[i + 3] & 0xff) << 24
+                    | (mRgba[i] & 0xff) << 16
+                    | (mRgba[i + 1] & 0xff) << 8
+                    | (mRgba[i + 2] & 0xff);
+        }
+        return image;
+    }
+
+    public byte[] toPng() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(mWidth * mHeight);
+        ImageIO.write(toBufferedImage(), "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Cut a tile out of a larger image.
+     */
+    TileImage crop(Tile tile, int left, int top, int width, int height) {
+        byte[] rgba = new byte[width * height * 4];
+        int stride = width * 4;
+        for (int y = 0; y < height; y++)
+            System.arraycopy(mRgba, ((top + y) * mWidth + left) * 4, rgba, y * stride, stride);
+        return new TileImage(tile, width, height, rgba);
+    }
+
+    @Override
+    public String toString() {
+        return "TileImage[" + (mTile != null ? mTile + ", " : "") + mWidth + "x" + mHeight + "]";
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.geojson;
+
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+
+public class GeojsonFileTileDataSource implements ITileDataSource {
+
+    private final GeojsonTileIndex mIndex;
+
+    public GeojsonFileTileDataSource(GeojsonTileIndex index) {
+        mIndex = index;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        mIndex.query(tile, sink);
+        sink.completed(QueryResult.SUCCESS);
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.geojson;
+
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.TileSource;
+import org.oscim.utils.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Vector tiles of a local GeoJSON file, cut in memory by a
+ * {@link GeojsonTileIndex}. The file is read on {@link #open()}.
+ */
+public class GeojsonFileTileSource extends TileSource implements GeojsonTileIndex.TagDecoder {
+    private static final Logger log = Logger.getLogger(GeojsonFileTileSource.class.getName());
+
+    private final File mFile;
+    private float mTolerance = GeojsonTileIndex.DEFAULT_TOLERANCE;
+    private int mCacheSize = GeojsonTileIndex.DEFAULT_CACHE_SIZE;
+
+    private GeojsonTileIndex mIndex;
+
+    public GeojsonFileTileSource(File file) {
+        this(file, Viewport.MIN_ZOOM_LEVEL, Viewport.MAX_ZOOM_LEVEL);
+    }
+
+    public GeojsonFileTileSource(File file, int zoomMin, int zoomMax) {
+        super(zoomMin, zoomMax);
+        mFile = file;
+    }
+
+    /**
+     * @param index the features, e.g. read from a stream.
+     */
+    public GeojsonFileTileSource(GeojsonTileIndex index, int zoomMin, int zoomMax) {
+        super(zoomMin, zoomMax);
+        mFile = null;
+        mIndex = index;
+    }
+
+    /**
+     * @param tolerance simplification tolerance in pixels, set before open.
+     */
+    public void setTolerance(float tolerance) {
+        mTolerance = tolerance;
+    }
+
+    /**
+     * @param cacheSize number of tiles to keep, including the parents of
+     *                  the requested tiles, set before open.
+     */
+    public void setCacheSize(int cacheSize) {
+        mCacheSize = cacheSize;
+    }
+
+    public GeojsonTileIndex getIndex() {
+        return mIndex;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        return new OverzoomTileDataSource(new GeojsonFileTileDataSource(mIndex), mOverZoom);
+    }
+
+    @Override
+    public OpenResult open() {
+        if (mIndex != null)
+            return OpenResult.SUCCESS;
+
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(mFile), 1 << 16);
+            mIndex = GeojsonTileIndex.load(is, this, mTolerance,
+                    GeojsonTileIndex.DEFAULT_BUFFER, mCacheSize);
+            log.fine(mFile + ": " + mIndex.size() + " features");
+        } catch (IOException e) {
+            return new OpenResult(e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * allow overriding tag handling, by default all properties become tags
+     */
+    @Override
+    public void decodeTags(MapElement mapElement, Map<String, Object> properties) {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            Tag tag = rewriteTag(entry.getKey(), entry.getValue());
+            if (tag != null)
+                mapElement.tags.add(tag);
+        }
+    }
+
+    public Tag rewriteTag(String key, Object value) {
+        if (value == null)
+            return null;
+
+        String val = (value instanceof String) ? (String) value : String.valueOf(value);
+
+        return new Tag(key, val);
+    }
+}
@@ -0,0 +1,873 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.utils.ArrayUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.END_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_FALSE;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_FLOAT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_STRING;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_TRUE;
+import static org.oscim.core.MercatorProjection.latitudeToY;
+import static org.oscim.core.MercatorProjection.longitudeToX;
+
+/**
+ * Cuts the features of a local GeoJSON file into map tiles on demand, like
+ * geojson-vt.
+ * <p>
+ * The features are kept in integer world coordinates. Each vertex gets
+ * its Douglas-Peucker distance once while reading, so a zoom level only
+ * selects the vertices above its tolerance. A tile is clipped from the
+ * features of its parent tile, down from the whole world at zoom level 0.
+ * Clipped tiles, including the parents, are kept in a LRU cache. Features
+ * smaller than the tolerance are dropped, so low zoom levels stay light.
+ * <p>
+ * Reads a FeatureCollection, a Feature, a geometry or a sequence of them,
+ * e.g. line delimited features. GeometryCollections are skipped.
+ */
+public class GeojsonTileIndex {
+
+    /**
+     * World size in integer coordinates, about 4cm at the equator.
+     */
+    static final int WORLD = 1 << 30;
+
+    public static final float DEFAULT_TOLERANCE = 0.5f;
+    public static final int DEFAULT_BUFFER = 4;
+    public static final int DEFAULT_CACHE_SIZE = 128;
+
+    private static final char[] FIELD_FEATURES = "features".toCharArray();
+    private static final char[] FIELD_GEOMETRY = "geometry".toCharArray();
+    private static final char[] FIELD_PROPERTIES = "properties".toCharArray();
+    private static final char[] FIELD_COORDINATES = "coordinates".toCharArray();
+    private static final char[] FIELD_TYPE = "type".toCharArray();
+
+    private static final char[] LINESTRING = "LineString".toCharArray();
+    private static final char[] POLYGON = "Polygon".toCharArray();
+    private static final char[] POINT = "Point".toCharArray();
+    private static final char[] MULTI_LINESTRING = "MultiLineString".toCharArray();
+    private static final char[] MULTI_POLYGON = "MultiPolygon".toCharArray();
+    private static final char[] MULTI_POINT = "MultiPoint".toCharArray();
+
+    /**
+     * Simplification distance of end and intersection points, which are
+     * kept at all zoom levels.
+     */
+    static final float KEEP = Float.POSITIVE_INFINITY;
+
+    /**
+     * Tag decoding of the feature properties.
+     */
+    public interface TagDecoder {
+        void decodeTags(MapElement mapElement, Map<String, Object> properties);
+    }
+
+    static final class Feature {
+        final GeometryType type;
+        /* x, y in world coordinates */
+        final int[] points;
+        /* squared simplification distance of the points, null for points */
+        final float[] importance;
+        /* point counts of the rings or lines, 0 starts the next polygon */
+        final int[] index;
+        final Tag[] tags;
+        final int layer;
+        final int xmin, ymin, xmax, ymax;
+
+        Feature(GeometryType type, int[] points, float[] importance, int[] index, Tag[] tags,
+                int layer, int xmin, int ymin, int xmax, int ymax) {
+            this.type = type;
+            this.points = points;
+            this.importance = importance;
+            this.index = index;
+            this.tags = tags;
+            this.layer = layer;
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+        }
+
+        Feature(Feature f, int[] points, float[] importance, int[] index) {
+            int xmin = Integer.MAX_VALUE, ymin = Integer.MAX_VALUE;
+            int xmax = Integer.MIN_VALUE, ymax = Integer.MIN_VALUE;
+            for (int i = 0; i < points.length; i += 2) {
+                xmin = Math.min(xmin, points[i]);
+                xmax = Math.max(xmax, points[i]);
+                ymin = Math.min(ymin, points[i + 1]);
+                ymax = Math.max(ymax, points[i + 1]);
+            }
+            this.type = f.type;
+            this.points = points;
+            this.importance = importance;
+            this.index = index;
+            this.tags = f.tags;
+            this.layer = f.layer;
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+        }
+    }
+
+    static final class TileData {
+        /* features clipped to the tile and its buffer */
+        final Feature[] features;
+        /* simplified elements in tile pixels, built when requested */
+        volatile MapElement[] elements;
+
+        TileData(Feature[] features) {
+            this.features = features;
+        }
+    }
+
+    private final Feature[] mFeatures;
+
+    private final float mTolerance;
+    private final int mBuffer;
+    private final int mCacheSize;
+
+    private final LinkedHashMap<Long, TileData> mTiles;
+
+    private GeojsonTileIndex(Feature[] features, float tolerance, int buffer, int cacheSize) {
+        mFeatures = features;
+        mTolerance = tolerance;
+        mBuffer = buffer;
+        mCacheSize = cacheSize;
+        mTiles = new LinkedHashMap<Long, TileData>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TileData> eldest) {
+                return size() > mCacheSize;
+            }
+        };
+    }
+
+    public static GeojsonTileIndex load(InputStream is, TagDecoder decoder) throws IOException {
+        return load(is, decoder, DEFAULT_TOLERANCE, DEFAULT_BUFFER, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Read the features of the stream, the stream is not closed.
+     *
+     * @param tolerance simplification tolerance in pixels.
+     * @param buffer    pixels around the tile to keep.
+     * @param cacheSize number of tiles to keep, including the parents of
+     *                  the requested tiles.
+     */
+    public static GeojsonTileIndex load(InputStream is, TagDecoder decoder, float tolerance,
+                                        int buffer, int cacheSize) throws IOException {
+        Reader reader = new Reader(decoder);
+        JsonParser jp = new JsonFactory().createParser(is);
+        try {
+            for (JsonToken t; (t = jp.nextToken()) != null; ) {
+                if (t == START_OBJECT)
+                    reader.parseObject(jp);
+            }
+        } finally {
+            jp.close();
+        }
+        List<Feature> features = reader.features;
+        return new GeojsonTileIndex(features.toArray(new Feature[features.size()]),
+                tolerance, buffer, cacheSize);
+    }
+
+    /**
+     * @return the number of features.
+     */
+    public int size() {
+        return mFeatures.length;
+    }
+
+    /**
+     * Pass the elements of a tile to the sink, coordinates are in pixels
+     * of the tile, see {@link Tile#SIZE}.
+     */
+    public void query(Tile tile, ITileDataSink sink) {
+        TileData t = tile(tile.zoomLevel, tile.tileX, tile.tileY);
+        MapElement[] elements = t.elements;
+        if (elements == null)
+            t.elements = elements = build(tile, t.features);
+
+        /* sinks may clip or scale the elements */
+        for (MapElement e : elements)
+            sink.process(new MapElement(e));
+    }
+
+    /**
+     * @return the features of the tile, clipped from its parent.
+     */
+    TileData tile(int zoom, int x, int y) {
+        Long key = ((long) zoom << 56) | ((long) x << 28) | y;
+        TileData t;
+        synchronized (mTiles) {
+            t = mTiles.get(key);
+        }
+        if (t != null)
+            return t;
+
+        /* concurrent misses may clip the same tile twice, which is
+         * cheaper than holding the lock while clipping */
+        Feature[] parent = zoom == 0 ? mFeatures : tile(zoom - 1, x >> 1, y >> 1).features;
+
+        int size = WORLD >> zoom;
+        int b = (int) ((long) mBuffer * size / Tile.SIZE);
+        int x1 = x * size - b, x2 = x * size + size + b;
+        int y1 = y * size - b, y2 = y * size + size + b;
+
+        Clipper clipper = new Clipper();
+        List<Feature> features = new ArrayList<>();
+        for (Feature f : parent) {
+            f = clipper.clip(f, 0, x1, x2);
+            if (f != null)
+                f = clipper.clip(f, 1, y1, y2);
+            if (f != null)
+                features.add(f);
+        }
+        t = new TileData(features.toArray(new Feature[features.size()]));
+        synchronized (mTiles) {
+            mTiles.put(key, t);
+        }
+        return t;
+    }
+
+    /**
+     * @return the clipped features in tile pixels, with the vertices above
+     * the tolerance of the zoom level.
+     */
+    MapElement[] build(Tile tile, Feature[] features) {
+        int size = WORLD >> tile.zoomLevel;
+        double scale = (double) Tile.SIZE / size;
+        long ox = (long) tile.tileX * size;
+        long oy = (long) tile.tileY * size;
+        float tolerance = mTolerance;
+        float sqTolerance = (float) ((tolerance / scale) * (tolerance / scale));
+
+        List<MapElement> elements = new ArrayList<>();
+        for (Feature f : features) {
+            if (f.type != GeometryType.POINT
+                    && (f.xmax - f.xmin) * scale < tolerance
+                    && (f.ymax - f.ymin) * scale < tolerance)
+                continue;
+
+            MapElement e = new MapElement();
+            e.tags.set(f.tags);
+            e.layer = f.layer;
+
+            int[] p = f.points;
+            float[] imp = f.importance;
+            if (f.type == GeometryType.POINT) {
+                e.startPoints();
+                for (int i = 0; i < p.length; i += 2)
+                    e.addPoint((float) ((p[i] - ox) * scale), (float) ((p[i + 1] - oy) * scale));
+                elements.add(e);
+                continue;
+            }
+
+            boolean poly = f.type == GeometryType.POLY;
+            int min = poly ? 3 : 2;
+            boolean outer = true;
+            boolean skip = false;
+            int pos = 0;
+            for (int n : f.index) {
+                if (n == 0) {
+                    outer = true;
+                    skip = false;
+                    continue;
+                }
+                int start = pos >> 1;
+                pos += n * 2;
+                if (skip)
+                    continue;
+
+                int kept = 0;
+                for (int i = start; i < start + n; i++) {
+                    if (imp[i] > sqTolerance)
+                        kept++;
+                }
+                if (kept < min) {
+                    /* holes of a dropped outer ring */
+                    skip = poly && outer;
+                    continue;
+                }
+                if (!poly)
+                    e.startLine();
+                else if (outer)
+                    e.startPolygon();
+                else
+                    e.startHole();
+                outer = false;
+
+                for (int i = start; i < start + n; i++) {
+                    if (imp[i] > sqTolerance)
+                        e.addPoint((float) ((p[i * 2] - ox) * scale),
+                                (float) ((p[i * 2 + 1] - oy) * scale));
+                }
+            }
+            if (e.getNumPoints() > 0)
+                elements.add(e);
+        }
+        return elements.toArray(new MapElement[elements.size()]);
+    }
+
+    /**
+     * Set the squared Douglas-Peucker distance of each vertex of the rings
+     * or lines. First and last vertices are always kept.
+     */
+    static float[] simplify(int[] points, int[] index) {
+        float[] importance = new float[points.length >> 1];
+        int[] stack = new int[64];
+        int pos = 0;
+        for (int n : index) {
+            if (n == 0)
+                continue;
+            int first = pos;
+            int last = pos + n - 1;
+            pos += n;
+            importance[first] = KEEP;
+            importance[last] = KEEP;
+
+            int sp = 0;
+            stack[sp++] = first;
+            stack[sp++] = last;
+            while (sp > 0) {
+                int l = stack[--sp];
+                int f = stack[--sp];
+                if (l - f < 2)
+                    continue;
+
+                double max = -1;
+                int maxIndex = f + 1;
+                for (int i = f + 1; i < l; i++) {
+                    double d = sqSegmentDistance(points, i, f, l);
+                    if (d > max) {
+                        max = d;
+                        maxIndex = i;
+                    }
+                }
+                importance[maxIndex] = (float) max;
+
+                if (sp + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[sp++] = f;
+                stack[sp++] = maxIndex;
+                stack[sp++] = maxIndex;
+                stack[sp++] = l;
+            }
+        }
+        return importance;
+    }
+
+    private static double sqSegmentDistance(int[] p, int i, int a, int b) {
+        double x = p[a * 2], y = p[a * 2 + 1];
+        double dx = p[b * 2] - x, dy = p[b * 2 + 1] - y;
+        if (dx != 0 || dy != 0) {
+            double t = ((p[i * 2] - x) * dx + (p[i * 2 + 1] - y) * dy) / (dx * dx + dy * dy);
+            if (t > 1) {
+                x = p[b * 2];
+                y = p[b * 2 + 1];
+            } else if (t > 0) {
+                x += dx * t;
+                y += dy * t;
+            }
+        }
+        dx = p[i * 2] - x;
+        dy = p[i * 2 + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Clips features to a range of one axis. Lines are split where they
+     * leave the range, rings are closed along its border. Intersection
+     * points are kept at all zoom levels.
+     */
+    static final class Clipper {
+        private int[] mPoints = new int[64];
+        private float[] mImportance = new float[32];
+        private int mNumPoints;
+        private int[] mIndex = new int[8];
+        private int mNumIndex;
+
+        /**
+         * @param axis 0 for x, 1 for y.
+         * @return the feature itself when it is inside the range, null when
+         * it is outside, otherwise the clipped feature.
+         */
+        Feature clip(Feature f, int axis, int k1, int k2) {
+            int min = axis == 0 ? f.xmin : f.ymin;
+            int max = axis == 0 ? f.xmax : f.ymax;
+            if (min >= k1 && max <= k2)
+                return f;
+            if (max < k1 || min > k2)
+                return null;
+
+            mNumPoints = 0;
+            mNumIndex = 0;
+            int[] p = f.points;
+
+            if (f.type == GeometryType.POINT) {
+                for (int i = 0; i < p.length; i += 2) {
+                    int k = p[i + axis];
+                    if (k >= k1 && k <= k2)
+                        add(p[i], p[i + 1], 0);
+                }
+            } else {
+                boolean poly = f.type == GeometryType.POLY;
+                boolean outer = true;
+                boolean skip = false;
+                int pos = 0;
+                for (int n : f.index) {
+                    if (n == 0) {
+                        outer = true;
+                        skip = false;
+                        continue;
+                    }
+                    int start = pos >> 1;
+                    pos += n * 2;
+                    if (skip)
+                        continue;
+                    if (poly) {
+                        boolean first = outer;
+                        outer = false;
+                        if (clipRing(f, start, n, axis, k1, k2, first))
+                            continue;
+                        /* holes of a dropped outer ring */
+                        skip = first;
+                    } else {
+                        clipLine(f, start, n, axis, k1, k2);
+                    }
+                }
+            }
+            if (mNumPoints == 0)
+                return null;
+
+            int[] points = Arrays.copyOf(mPoints, mNumPoints);
+            if (f.type == GeometryType.POINT)
+                return new Feature(f, points, null, new int[0]);
+            return new Feature(f, points, Arrays.copyOf(mImportance, mNumPoints >> 1),
+                    Arrays.copyOf(mIndex, mNumIndex));
+        }
+
+        private void clipLine(Feature f, int start, int n, int axis, int k1, int k2) {
+            int[] p = f.points;
+            int count = 0;
+            for (int i = start; i < start + n; i++) {
+                int k = p[i * 2 + axis];
+                boolean inside = k >= k1 && k <= k2;
+                if (i > start) {
+                    /* enter or leave through one or both borders, in the
+                     * direction of the line */
+                    int kp = p[(i - 1) * 2 + axis];
+                    if (kp < k) {
+                        if (kp < k1 && k > k1)
+                            count = crossing(p, i - 1, i, axis, k1, count);
+                        if (kp < k2 && k > k2)
+                            count = crossing(p, i - 1, i, axis, k2, count);
+                    } else if (kp > k) {
+                        if (kp > k2 && k < k2)
+                            count = crossing(p, i - 1, i, axis, k2, count);
+                        if (kp > k1 && k < k1)
+                            count = crossing(p, i - 1, i, axis, k1, count);
+                    }
+                }
+                if (inside) {
+                    add(p[i * 2], p[i * 2 + 1], f.importance[i]);
+                    count++;
+                } else if (count > 0) {
+                    count = endLine(count);
+                }
+            }
+            endLine(count);
+        }
+
+        /**
+         * Add the intersection of a line segment with a border, it ends the
+         * line when it leaves the range.
+         */
+        private int crossing(int[] p, int a, int b, int axis, int k, int count) {
+            boolean leaving = count > 0;
+            addIntersection(p, a, b, axis, k);
+            count++;
+            return leaving ? endLine(count) : count;
+        }
+
+        private int endLine(int count) {
+            if (count >= 2) {
+                /* the ends of the pieces stay */
+                mImportance[(mNumPoints >> 1) - count] = KEEP;
+                mImportance[(mNumPoints >> 1) - 1] = KEEP;
+                addIndex(count);
+            } else {
+                /* drop a single point */
+                mNumPoints -= count * 2;
+            }
+            return 0;
+        }
+
+        /**
+         * @return false when the ring is outside the range.
+         */
+        private boolean clipRing(Feature f, int start, int n, int axis, int k1, int k2,
+                                 boolean outer) {
+            int begin = mNumPoints;
+            /* Sutherland-Hodgman, one border after the other */
+            clipRing(f.points, f.importance, start, n, axis, k1, true);
+            int count = (mNumPoints - begin) >> 1;
+            if (count >= 3) {
+                int[] p = Arrays.copyOfRange(mPoints, begin, mNumPoints);
+                float[] imp = Arrays.copyOfRange(mImportance, begin >> 1, mNumPoints >> 1);
+                mNumPoints = begin;
+                clipRing(p, imp, 0, count, axis, k2, false);
+                count = (mNumPoints - begin) >> 1;
+            }
+            if (count < 3) {
+                mNumPoints = begin;
+                return false;
+            }
+            if (outer && mNumIndex > 0)
+                addIndex(0);
+            addIndex(count);
+            return true;
+        }
+
+        private void clipRing(int[] p, float[] imp, int start, int n, int axis, int k,
+                              boolean above) {
+            int prev = start + n - 1;
+            for (int i = start; i < start + n; i++) {
+                int kp = p[prev * 2 + axis];
+                int kc = p[i * 2 + axis];
+                boolean in = above ? kc >= k : kc <= k;
+                boolean inPrev = above ? kp >= k : kp <= k;
+                if (in != inPrev && kp != k && kc != k)
+                    addIntersection(p, prev, i, axis, k);
+                if (in)
+                    add(p[i * 2], p[i * 2 + 1], imp[i]);
+                prev = i;
+            }
+        }
+
+        private void addIntersection(int[] p, int a, int b, int axis, int k) {
+            int other = 1 - axis;
+            double t = (double) (k - p[a * 2 + axis]) / (p[b * 2 + axis] - p[a * 2 + axis]);
+            int v = (int) Math.round(p[a * 2 + other] + (p[b * 2 + other] - p[a * 2 + other]) * t);
+            if (axis == 0)
+                add(k, v, KEEP);
+            else
+                add(v, k, KEEP);
+        }
+
+        private void add(int x, int y, float importance) {
+            if (mNumPoints + 2 > mPoints.length) {
+                mPoints = Arrays.copyOf(mPoints, mPoints.length * 2);
+                mImportance = Arrays.copyOf(mImportance, mPoints.length >> 1);
+            }
+            mImportance[mNumPoints >> 1] = importance;
+            mPoints[mNumPoints++] = x;
+            mPoints[mNumPoints++] = y;
+        }
+
+        private void addIndex(int n) {
+            if (mNumIndex == mIndex.length)
+                mIndex = Arrays.copyOf(mIndex, mIndex.length * 2);
+            mIndex[mNumIndex++] = n;
+        }
+    }
+
+    /**
+     * Reads the features and simplifies their geometry.
+     */
+    static final class Reader {
+        final List<Feature> features = new ArrayList<>();
+
+        private final TagDecoder mDecoder;
+        private final MapElement mElement = new MapElement();
+        private final LinkedHashMap<String, Object> mProperties = new LinkedHashMap<>();
+
+        /* coordinates and nesting of the current geometry */
+        private int[] mPoints = new int[64];
+        private int mNumPoints;
+        private int[] mIndex = new int[8];
+        private int mNumIndex;
+        private int mDepth;
+        private GeometryType mType;
+        private boolean mMulti;
+
+        Reader(TagDecoder decoder) {
+            mDecoder = decoder;
+        }
+
+        /**
+         * Parse an object of the root or of 'features', after its
+         * START_OBJECT.
+         */
+        void parseObject(JsonParser jp) throws IOException {
+            mProperties.clear();
+            mType = GeometryType.NONE;
+            mMulti = false;
+            mDepth = -1;
+            mNumPoints = 0;
+            mNumIndex = 0;
+
+            for (JsonToken t; (t = jp.nextToken()) != END_OBJECT; ) {
+                if (t == null)
+                    throw new IOException("unexpected end of input");
+                if (t != FIELD_NAME)
+                    continue;
+
+                if (match(jp, FIELD_FEATURES)) {
+                    if (jp.nextToken() != START_ARRAY) {
+                        jp.skipChildren();
+                        continue;
+                    }
+                    while ((t = jp.nextToken()) != END_ARRAY) {
+                        if (t == START_OBJECT)
+                            parseObject(jp);
+                        else
+                            jp.skipChildren();
+                    }
+                    /* the collection is no feature */
+                    mDepth = -1;
+                } else if (match(jp, FIELD_GEOMETRY)) {
+                    if (jp.nextToken() != START_OBJECT) {
+                        jp.skipChildren();
+                        continue;
+                    }
+                    while ((t = jp.nextToken()) != END_OBJECT) {
+                        if (t == FIELD_NAME)
+                            parseGeometryField(jp);
+                    }
+                } else if (match(jp, FIELD_PROPERTIES)) {
+                    if (jp.nextToken() == START_OBJECT)
+                        parseProperties(jp);
+                    else
+                        jp.skipChildren();
+                } else {
+                    /* type and coordinates of a plain geometry */
+                    parseGeometryField(jp);
+                }
+            }
+
+            if (mDepth > 0 && mType != GeometryType.NONE)
+                addGeometry();
+        }
+
+        /**
+         * Parse the value of the current field when it is the type or the
+         * coordinates of a geometry, skip it otherwise.
+         */
+        private void parseGeometryField(JsonParser jp) throws IOException {
+            if (match(jp, FIELD_COORDINATES)) {
+                if (jp.nextToken() == START_ARRAY)
+                    mDepth = parseCoordinates(jp);
+                else
+                    jp.skipChildren();
+            } else if (match(jp, FIELD_TYPE)) {
+                if (jp.nextToken() != VALUE_STRING)
+                    jp.skipChildren();
+                else if (match(jp, POINT))
+                    setType(GeometryType.POINT, false);
+                else if (match(jp, LINESTRING))
+                    setType(GeometryType.LINE, false);
+                else if (match(jp, POLYGON))
+                    setType(GeometryType.POLY, false);
+                else if (match(jp, MULTI_POINT))
+                    setType(GeometryType.POINT, true);
+                else if (match(jp, MULTI_LINESTRING))
+                    setType(GeometryType.LINE, true);
+                else if (match(jp, MULTI_POLYGON))
+                    setType(GeometryType.POLY, true);
+            } else {
+                jp.nextToken();
+                jp.skipChildren();
+            }
+        }
+
+        private void setType(GeometryType type, boolean multi) {
+            mType = type;
+            mMulti = multi;
+        }
+
+        private void parseProperties(JsonParser jp) throws IOException {
+            for (JsonToken t; (t = jp.nextToken()) != END_OBJECT; ) {
+                if (t != FIELD_NAME)
+                    continue;
+                String key = jp.getCurrentName();
+                t = jp.nextToken();
+                if (t == VALUE_STRING)
+                    mProperties.put(key, jp.getText());
+                else if (t == VALUE_NUMBER_INT || t == VALUE_NUMBER_FLOAT)
+                    mProperties.put(key, jp.getNumberValue());
+                else if (t == VALUE_TRUE || t == VALUE_FALSE)
+                    mProperties.put(key, t == VALUE_TRUE);
+                else
+                    jp.skipChildren();
+            }
+        }
+
+        /**
+         * Parse nested coordinate arrays after their START_ARRAY. Lists of
+         * positions end with a ring entry in the index, lists of rings with
+         * a 0.
+         *
+         * @return the depth, 1 for a position, -1 when empty.
+         */
+        private int parseCoordinates(JsonParser jp) throws IOException {
+            JsonToken t = jp.nextToken();
+            if (t == VALUE_NUMBER_FLOAT || t == VALUE_NUMBER_INT) {
+                double lon = number(jp);
+                if (jp.nextToken() == END_ARRAY)
+                    return -1;
+                double lat = number(jp);
+                /* skip altitude */
+                while (jp.nextToken() != END_ARRAY)
+                    jp.skipChildren();
+                addPoint(lon, lat);
+                return 1;
+            }
+
+            int depth = -1;
+            int start = mNumPoints;
+            for (; t != END_ARRAY; t = jp.nextToken()) {
+                if (t == null)
+                    throw new IOException("unexpected end of input");
+                if (t != START_ARRAY)
+                    continue;
+                int d = parseCoordinates(jp);
+                if (d < 0)
+                    continue;
+                depth = d;
+                if (depth == 3)
+                    addIndex(0);
+            }
+            if (depth == 1)
+                addIndex((mNumPoints - start) >> 1);
+            return depth < 0 ? -1 : depth + 1;
+        }
+
+        private static double number(JsonParser jp) throws IOException {
+            // avoid String allocation (by getDouble...)
+            char[] val = jp.getTextCharacters();
+            int offset = jp.getTextOffset();
+            return ArrayUtils.parseNumber(val, offset, offset + jp.getTextLength());
+        }
+
+        private void addPoint(double lon, double lat) {
+            if (mNumPoints + 2 > mPoints.length)
+                mPoints = Arrays.copyOf(mPoints, mPoints.length * 2);
+            mPoints[mNumPoints++] = (int) Math.round(longitudeToX(lon) * WORLD);
+            mPoints[mNumPoints++] = (int) Math.round(latitudeToY(lat) * WORLD);
+        }
+
+        private void addIndex(int n) {
+            if (mNumIndex == mIndex.length)
+                mIndex = Arrays.copyOf(mIndex, mIndex.length * 2);
+            mIndex[mNumIndex++] = n;
+        }
+
+        private void addGeometry() {
+            int expected = mType == GeometryType.POINT ? 1 : mType == GeometryType.LINE ? 2 : 3;
+            if (mMulti)
+                expected++;
+            if (mDepth != expected || mNumPoints == 0)
+                return;
+
+            MapElement e = mElement;
+            e.clear();
+            e.tags.clear();
+            mDecoder.decodeTags(e, mProperties);
+            if (e.tags.size() == 0)
+                return;
+
+            int[] points = mPoints;
+            int[] index;
+            int n = mNumPoints;
+            if (mType == GeometryType.POLY) {
+                /* drop the closing points of the rings */
+                index = Arrays.copyOf(mIndex, mNumIndex);
+                int in = 0, out = 0;
+                for (int i = 0; i < index.length; i++) {
+                    int len = index[i];
+                    if (len == 0)
+                        continue;
+                    if (len > 1 && points[in] == points[in + len * 2 - 2]
+                            && points[in + 1] == points[in + len * 2 - 1]) {
+                        System.arraycopy(points, in, points, out, len * 2 - 2);
+                        index[i] = len - 1;
+                    } else {
+                        System.arraycopy(points, in, points, out, len * 2);
+                    }
+                    in += len * 2;
+                    out += index[i] * 2;
+                }
+                n = out;
+            } else {
+                index = mType == GeometryType.POINT ? new int[0] : Arrays.copyOf(mIndex, mNumIndex);
+            }
+
+            int xmin = Integer.MAX_VALUE, ymin = Integer.MAX_VALUE;
+            int xmax = Integer.MIN_VALUE, ymax = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i += 2) {
+                xmin = Math.min(xmin, points[i]);
+                xmax = Math.max(xmax, points[i]);
+                ymin = Math.min(ymin, points[i + 1]);
+                ymax = Math.max(ymax, points[i + 1]);
+            }
+
+            points = Arrays.copyOf(points, n);
+            float[] importance = mType == GeometryType.POINT ? null : simplify(points, index);
+            features.add(new Feature(mType, points, importance, index,
+                    e.tags.asArray(), e.layer, xmin, ymin, xmax, ymax));
+        }
+    }
+
+    private static boolean match(JsonParser jp, char[] fieldName) throws IOException {
+        int length = jp.getTextLength();
+        if (length != fieldName.length)
+            return false;
+
+        char[] val = jp.getTextCharacters();
+        int offset = jp.getTextOffset();
+
+        for (int i = 0; i < length; i++) {
+            if (fieldName[i] != val[i + offset])
+                return false;
+        }
+        return true;
+    }
+}
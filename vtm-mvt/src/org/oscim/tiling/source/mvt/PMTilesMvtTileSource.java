@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mvt;
+
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.tiling.source.pmtiles.PMTilesFile;
+import org.oscim.tiling.source.pmtiles.PMTilesTileSource;
+
+/**
+ * A tile source for PMTiles vector archives.
+ */
+public class PMTilesMvtTileSource extends PMTilesTileSource {
+
+    private final String mLocale;
+
+    /**
+     * @param filename the path to the PMTiles archive.
+     * @param locale   the language to use when rendering the tiles.
+     */
+    public PMTilesMvtTileSource(String filename, String locale) {
+        super(filename);
+        mLocale = locale != null ? locale : "";
+    }
+
+    public PMTilesMvtTileSource(String filename) {
+        this(filename, null);
+    }
+
+    @Override
+    protected ITileDecoder createDecoder(int tileType) {
+        if (tileType == PMTilesFile.TYPE_MVT)
+            return new TileDecoder(mLocale);
+        return super.createDecoder(tileType);
+    }
+}
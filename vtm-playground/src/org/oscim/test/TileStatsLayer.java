@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.test;
+
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.backend.canvas.Canvas;
+import org.oscim.backend.canvas.Color;
+import org.oscim.backend.canvas.Paint;
+import org.oscim.core.MapPosition;
+import org.oscim.event.Event;
+import org.oscim.layers.Layer;
+import org.oscim.map.Map;
+import org.oscim.renderer.BitmapRenderer;
+import org.oscim.renderer.GLViewport;
+import org.oscim.utils.stats.Histogram;
+import org.oscim.utils.stats.TileStats;
+
+import java.util.Locale;
+
+/**
+ * Overlay showing {@link TileStats} of the tile pipeline.
+ */
+public class TileStatsLayer extends Layer implements Map.UpdateListener {
+
+    private static final int WIDTH = 512;
+    private static final int HEIGHT = 256;
+    private static final long INTERVAL = 1000;
+
+    private final Bitmap mBitmap;
+    private final Canvas mCanvas;
+    private final Paint mPaint;
+    private final BitmapRenderer mBitmapRenderer;
+
+    private long mLastUpdate;
+
+    public TileStatsLayer(Map map) {
+        super(map);
+
+        mBitmap = CanvasAdapter.newBitmap(WIDTH, HEIGHT, 0);
+        mCanvas = CanvasAdapter.newCanvas();
+        mCanvas.setBitmap(mBitmap);
+
+        mPaint = CanvasAdapter.newPaint();
+        mPaint.setColor(Color.WHITE);
+        mPaint.setTypeface(Paint.FontFamily.MONOSPACE, Paint.FontStyle.NORMAL);
+        mPaint.setTextSize(12 * CanvasAdapter.getScale());
+
+        mRenderer = mBitmapRenderer = new BitmapRenderer();
+        mBitmapRenderer.setBitmap(mBitmap, WIDTH, HEIGHT);
+        mBitmapRenderer.setPosition(GLViewport.Position.TOP_LEFT);
+
+        TileStats.setEnabled(true);
+    }
+
+    @Override
+    public void onMapEvent(Event e, MapPosition mapPosition) {
+        long now = System.currentTimeMillis();
+        if (now - mLastUpdate < INTERVAL)
+            return;
+        mLastUpdate = now;
+
+        synchronized (mBitmap) {
+            draw();
+        }
+        mBitmapRenderer.updateBitmap();
+    }
+
+    private void draw() {
+        mCanvas.fillColor(Color.fade(Color.BLACK, 0.6f));
+
+        float lineHeight = mPaint.getTextHeight("0") * 1.5f;
+        float y = lineHeight;
+
+        mCanvas.drawText("stage      count   mean    p50    p95    max [ms]", 5, y, mPaint);
+        for (TileStats.Stage stage : TileStats.Stage.values()) {
+            Histogram h = TileStats.getHistogram(stage);
+            y += lineHeight;
+            mCanvas.drawText(String.format(Locale.ROOT, "%-8s %7d %6.2f %6.2f %6.2f %6.2f",
+                    stage, h.getCount(), ms(h.getMean()), ms(h.getPercentile(0.5)),
+                    ms(h.getPercentile(0.95)), ms(h.getMax())), 5, y, mPaint);
+        }
+
+        y += lineHeight;
+        StringBuilder sb = new StringBuilder("hit rate");
+        for (TileStats.Cache cache : TileStats.Cache.values()) {
+            float rate = TileStats.getHitRate(cache);
+            sb.append(String.format(Locale.ROOT, "  %s %s", cache,
+                    rate < 0 ? "-" : String.format(Locale.ROOT, "%.0f%%", rate * 100)));
+        }
+        mCanvas.drawText(sb.toString(), 5, y, mPaint);
+
+        y += lineHeight;
+        mCanvas.drawText(String.format(Locale.ROOT, "jobs %d  upload %d  vbo %.1fMB",
+                TileStats.getGauge(TileStats.Gauge.JOB_QUEUE),
+                TileStats.getGauge(TileStats.Gauge.UPLOAD_QUEUE),
+                TileStats.getGauge(TileStats.Gauge.VBO_BYTES) / (1024f * 1024f)), 5, y, mPaint);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        TileStats.setEnabled(false);
+    }
+}
@@ -0,0 +1,74 @@
+package org.oscim.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.Rule.Element;
+import org.oscim.theme.rule.RuleBuilder;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TagDictionaryTest {
+
+    @Test
+    public void shouldAssignStableIds() {
+        int k1 = TagDictionary.keyId("highway");
+        int k2 = TagDictionary.keyId(new String("highway"));
+        Assert.assertEquals(k1, k2);
+        Assert.assertSame("highway", TagDictionary.key(k1));
+
+        int v1 = TagDictionary.valueId("primary");
+        Assert.assertEquals(v1, TagDictionary.findValueId(new String("primary")));
+        Assert.assertEquals(TagDictionary.NONE, TagDictionary.findValueId("not-a-known-value-4711"));
+
+        int t1 = TagDictionary.tagId(k1, v1);
+        Assert.assertEquals(t1, new Tag("highway", "primary").id());
+        Assert.assertEquals(t1, new Tag(k1, v1).id());
+        Assert.assertEquals(TagDictionary.NONE, TagDictionary.tagId(k1, TagDictionary.NONE));
+    }
+
+    @Test
+    public void shouldNotAddVariableValues() {
+        Tag name = new Tag(Tag.KEY_NAME, "Some Street 4712", false);
+        Assert.assertEquals(TagDictionary.NONE, name.valueId());
+        Assert.assertEquals(TagDictionary.NONE, name.id());
+        Assert.assertEquals(TagDictionary.keyId(Tag.KEY_NAME), name.keyId());
+    }
+
+    @Test
+    public void shouldOnlyAddThemeValues() {
+        Tag tag = new Tag("highway", "not-a-theme-value-4713");
+        Assert.assertEquals(TagDictionary.NONE, tag.valueId());
+        Assert.assertEquals(TagDictionary.NONE, TagDictionary.findValueId("not-a-theme-value-4713"));
+
+        // theme loaded after the tag was resolved
+        RuleBuilder.create("highway", "not-a-theme-value-4713").onComplete(new int[]{0});
+        int valueId = TagDictionary.findValueId("not-a-theme-value-4713");
+        Assert.assertTrue(valueId != TagDictionary.NONE);
+        Assert.assertEquals(valueId, tag.valueId());
+        Assert.assertEquals(TagDictionary.tagId(tag.keyId(), valueId), tag.id());
+    }
+
+    @Test
+    public void shouldMatchRulesByIds() {
+        int[] level = {0};
+        Rule kv = RuleBuilder.create("highway", "residential|service").onComplete(level);
+        Rule neg = RuleBuilder.create("tunnel", "-|yes").onComplete(level);
+
+        Tag[] tags = {new Tag("highway", new String("service"), false)};
+        Assert.assertTrue(kv.matchesTags(tags));
+        Assert.assertTrue(neg.matchesTags(tags));
+
+        tags = new Tag[]{new Tag("highway", "service"), new Tag("tunnel", "yes")};
+        Assert.assertTrue(kv.matchesTags(tags));
+        Assert.assertFalse(neg.matchesTags(tags));
+
+        tags = new Tag[]{new Tag("highway", "primary")};
+        Assert.assertFalse(kv.matchesTags(tags));
+
+        List<RenderStyle> result = new ArrayList<>();
+        Assert.assertFalse(kv.matchElement(Element.LINE, tags, ~0, result));
+    }
+}
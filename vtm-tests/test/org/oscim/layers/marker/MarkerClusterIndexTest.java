@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.marker;
+
+import org.junit.Test;
+import org.oscim.core.Box;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.MercatorProjection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerClusterIndexTest {
+
+    private static final Box WORLD = new Box(0, 0, 1, 1);
+
+    private static class Counter implements MarkerClusterIndex.Callback {
+        final MarkerClusterIndex index;
+        int markers;
+        int items;
+
+        Counter(MarkerClusterIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void cluster(double x, double y, int count, long id) {
+            assertTrue(count > 1);
+            assertEquals(count, index.getItems(id, null).size());
+            markers += count;
+        }
+
+        @Override
+        public void item(double x, double y, MarkerInterface item) {
+            assertTrue(item != null);
+            markers++;
+            items++;
+        }
+    }
+
+    private static List<MarkerItem> randomItems(Random r, int n) {
+        List<MarkerItem> items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            items.add(new MarkerItem(null, null,
+                    new GeoPoint(r.nextDouble() * 10 + 45, r.nextDouble() * 10)));
+        return items;
+    }
+
+    private static void checkCounts(MarkerClusterIndex index, int n) {
+        for (int z = 0; z <= index.getMaxZoom() + 1; z++) {
+            Counter counter = new Counter(index);
+            index.query(WORLD, z, counter);
+            assertEquals(n, counter.markers);
+        }
+    }
+
+    @Test
+    public void shouldClusterAllMarkers() {
+        MarkerClusterIndex index = new MarkerClusterIndex(0, 16, 40, 512);
+        index.load(randomItems(new Random(1), 2000));
+        assertEquals(2000, index.size());
+        checkCounts(index, 2000);
+
+        Counter low = new Counter(index);
+        index.query(WORLD, 2, low);
+        assertTrue(low.items < 10);
+
+        Counter high = new Counter(index);
+        index.query(WORLD, 17, high);
+        assertEquals(2000, high.items);
+    }
+
+    @Test
+    public void shouldInsertAndRemove() {
+        Random r = new Random(2);
+        MarkerClusterIndex index = new MarkerClusterIndex(0, 16, 40, 512);
+        List<MarkerItem> items = randomItems(r, 1000);
+        index.load(items);
+
+        List<MarkerItem> added = randomItems(r, 500);
+        for (MarkerItem item : added)
+            index.insert(item);
+        checkCounts(index, 1500);
+
+        for (int i = 0; i < 400; i++)
+            assertTrue(index.remove(items.get(i)));
+        for (int i = 0; i < 300; i++)
+            assertTrue(index.remove(added.get(i)));
+        assertEquals(800, index.size());
+        checkCounts(index, 800);
+    }
+
+    @Test
+    public void shouldQueryBox() {
+        MarkerClusterIndex index = new MarkerClusterIndex(0, 16, 40, 512);
+        List<MarkerItem> items = randomItems(new Random(3), 1000);
+        index.load(items);
+
+        Box box = new Box(0.5, 0.34, 0.51, 0.35);
+        final int[] found = {0};
+        index.query(box, 17, new MarkerClusterIndex.Callback() {
+            @Override
+            public void cluster(double x, double y, int count, long id) {
+            }
+
+            @Override
+            public void item(double x, double y, MarkerInterface item) {
+                found[0]++;
+            }
+        });
+        int expected = 0;
+        for (MarkerItem item : items) {
+            double x = MercatorProjection.longitudeToX(item.getPoint().getLongitude());
+            double y = MercatorProjection.latitudeToY(item.getPoint().getLatitude());
+            if (box.contains(x, y))
+                expected++;
+        }
+        assertTrue(expected > 0);
+        assertEquals(expected, found[0]);
+    }
+
+    @Test
+    public void shouldQueryWhileLoading() throws Exception {
+        final MarkerClusterIndex index = new MarkerClusterIndex(0, 16, 40, 512);
+        index.load(randomItems(new Random(4), 500));
+
+        final CountDownLatch building = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<MarkerItem> items = randomItems(new Random(5), 800);
+        items.add(new MarkerItem(null, null, new GeoPoint(50, 5)) {
+            @Override
+            public GeoPoint getPoint() {
+                building.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getPoint();
+            }
+        });
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                index.load(items);
+            }
+        });
+        loader.start();
+        assertTrue(building.await(10, TimeUnit.SECONDS));
+
+        /* the previous markers stay queryable while the load is blocked */
+        checkCounts(index, 500);
+        assertEquals(500, index.size());
+
+        release.countDown();
+        loader.join(10000);
+        assertEquals(801, index.size());
+        checkCounts(index, 801);
+    }
+}
@@ -0,0 +1,79 @@
+package org.oscim.layers.tile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TileKeyMapTest {
+
+    @Test
+    public void shouldGetPutTiles() {
+        TileKeyMap map = new TileKeyMap();
+        MapTile t1 = new MapTile(1, 2, 3);
+        MapTile t2 = new MapTile(2, 1, 3);
+
+        map.put(t1);
+        map.put(t2);
+        Assert.assertEquals(2, map.size());
+        Assert.assertSame(t1, map.get(1, 2, 3));
+        Assert.assertSame(t2, map.get(2, 1, 3));
+        Assert.assertNull(map.get(1, 2, 4));
+
+        map.remove(t1);
+        Assert.assertNull(map.get(1, 2, 3));
+        Assert.assertSame(t2, map.get(2, 1, 3));
+
+        /* reuse tombstone */
+        MapTile t3 = new MapTile(1, 2, 3);
+        map.put(t3);
+        Assert.assertSame(t3, map.get(1, 2, 3));
+        Assert.assertEquals(2, map.size());
+
+        map.clear();
+        Assert.assertNull(map.get(2, 1, 3));
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void shouldGrowAndDropTombstones() {
+        TileKeyMap map = new TileKeyMap();
+        List<MapTile> tiles = new ArrayList<>();
+        int z = 18;
+        for (int i = 0; i < 2000; i++) {
+            MapTile t = new MapTile((1 << z) - 1 - i, i * 7, z);
+            tiles.add(t);
+            map.put(t);
+            /* keep a sliding window of 300 tiles */
+            if (i >= 300)
+                map.remove(tiles.get(i - 300));
+        }
+        Assert.assertEquals(300, map.size());
+        for (int i = 0; i < 2000; i++) {
+            MapTile t = tiles.get(i);
+            if (i < 1700)
+                Assert.assertNull(map.get(t.tileX, t.tileY, z));
+            else
+                Assert.assertSame(t, map.get(t.tileX, t.tileY, z));
+        }
+    }
+
+    @Test
+    public void shouldOrderByDistance() {
+        MapTile[] tiles = new MapTile[50];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new MapTile(i, 0, 10);
+            tiles[i].distance = (i * 31) % tiles.length;
+        }
+        TileDistanceHeap heap = new TileDistanceHeap();
+        heap.init(tiles, tiles.length);
+
+        float prev = Float.MAX_VALUE;
+        for (int i = tiles.length - 1; i >= 0; i--) {
+            MapTile t = heap.get(i);
+            Assert.assertTrue(t.distance <= prev);
+            prev = t.distance;
+        }
+    }
+}
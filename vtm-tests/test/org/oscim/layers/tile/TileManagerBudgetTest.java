@@ -0,0 +1,53 @@
+package org.oscim.layers.tile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TileManagerBudgetTest {
+
+    private static MapTile tile(float distance, int heapSize, int gpuSize) {
+        MapTile t = new MapTile(0, 0, 10);
+        t.distance = distance;
+        t.heapSize = heapSize;
+        t.gpuSize = gpuSize;
+        return t;
+    }
+
+    @Test
+    public void shouldWeightDistancesBySize() {
+        MapTile near = tile(1, 0, 4000);
+        MapTile farSmall = tile(8, 0, 100);
+        MapTile farLarge = tile(8, 0, 4000);
+        MapTile empty = tile(20, 0, 0);
+        MapTile[] tiles = {near, farSmall, farLarge, empty};
+
+        TileManager.weightDistances(tiles, tiles.length, false, true);
+
+        Assert.assertTrue(farLarge.distance > near.distance);
+        Assert.assertTrue(near.distance > farSmall.distance);
+        /* far tiles without data are still removed before near ones */
+        Assert.assertEquals(21 * TileManager.MIN_SIZE_WEIGHT, empty.distance, 1e-6);
+        Assert.assertTrue(empty.distance > farSmall.distance);
+    }
+
+    @Test
+    public void shouldIgnoreSizesOfOtherBudget() {
+        MapTile a = tile(4, 1000, 0);
+        MapTile b = tile(2, 0, 1000);
+        MapTile[] tiles = {a, b};
+
+        TileManager.weightDistances(tiles, tiles.length, true, false);
+
+        Assert.assertEquals(5, a.distance, 1e-6);
+        Assert.assertEquals(3 * TileManager.MIN_SIZE_WEIGHT, b.distance, 1e-6);
+    }
+
+    @Test
+    public void shouldDeriveBudgetsFromMaxMemory() {
+        long mb = 1 << 20;
+        Assert.assertEquals(64 * mb, TileManager.defaultHeapBudget(512 * mb));
+        Assert.assertEquals(128 * mb, TileManager.defaultGpuBudget(512 * mb));
+        Assert.assertEquals(16 * mb, TileManager.defaultGpuBudget(32 * mb));
+        Assert.assertEquals(256 * mb, TileManager.defaultGpuBudget(4096 * mb));
+    }
+}
@@ -0,0 +1,65 @@
+package org.oscim.layers.tile.vector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer;
+import org.oscim.renderer.bucket.LineBucket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class LineMergerTest {
+
+    static class TestBucket extends LineBucket {
+        final ArrayList<float[]> lines = new ArrayList<>();
+
+        TestBucket() {
+            super(0);
+        }
+
+        @Override
+        public void addLine(float[] points, int offset, int length, boolean closed) {
+            lines.add(Arrays.copyOfRange(points, offset, offset + length));
+        }
+    }
+
+    private static GeometryBuffer line(float... points) {
+        GeometryBuffer g = new GeometryBuffer(points.length, 2);
+        g.startLine();
+        for (int i = 0; i < points.length; i += 2)
+            g.addPoint(points[i], points[i + 1]);
+        return g;
+    }
+
+    @Test
+    public void shouldJoinLinesAtEndPoints() {
+        LineMerger merger = new LineMerger();
+        TestBucket bucket = new TestBucket();
+        TestBucket other = new TestBucket();
+
+        merger.add(bucket, line(10, 0, 20, 0));
+        /* reversed, joins at the end */
+        merger.add(bucket, line(30, 0, 20, 0));
+        /* joins at the start */
+        merger.add(bucket, line(0, 0, 10, 0));
+        /* not connected */
+        merger.add(bucket, line(0, 50, 10, 50));
+        /* other bucket */
+        merger.add(other, line(30, 0, 40, 0));
+        merger.flush();
+
+        Assert.assertEquals(2, bucket.lines.size());
+        Assert.assertEquals(1, other.lines.size());
+
+        float[] joined = bucket.lines.get(0);
+        Assert.assertEquals(8, joined.length);
+        float[] expected = {0, 0, 10, 0, 20, 0, 30, 0};
+        for (int i = 0; i < expected.length; i++)
+            Assert.assertEquals(expected[i], joined[i], 0);
+
+        /* state is reset */
+        bucket.lines.clear();
+        merger.flush();
+        Assert.assertEquals(0, bucket.lines.size());
+    }
+}
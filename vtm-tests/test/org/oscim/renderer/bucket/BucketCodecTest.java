@@ -0,0 +1,115 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.backend.canvas.Color;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class BucketCodecTest {
+
+    private final LineStyle mLine = new LineStyle(0, Color.BLUE, 2f);
+    private final LineStyle mOutline = new LineStyle(1, Color.BLACK, 1f);
+    private final AreaStyle mArea = new AreaStyle(2, Color.GREEN);
+
+    private final BucketCodec.StyleTable mStyles = new BucketCodec.StyleTable() {
+        final List<RenderStyle<?>> styles = Arrays.<RenderStyle<?>>asList(mLine, mOutline, mArea);
+
+        @Override
+        public int indexOf(Object key) {
+            return styles.indexOf(key);
+        }
+
+        @Override
+        public RenderStyle<?> get(int index) {
+            return styles.get(index);
+        }
+    };
+
+    private RenderBuckets createBuckets() {
+        RenderBuckets buckets = new RenderBuckets();
+
+        PolygonBucket pb = buckets.getPolygonBucket(0);
+        pb.area = mArea;
+        pb.addPolygon(new float[]{0, 0, 100, 0, 100, 100, 0, 100}, new int[]{8});
+
+        LineBucket lb = buckets.getLineBucket(1);
+        lb.line = mLine;
+        lb.scale = 1.5f;
+        float[] points = new float[2 * 500];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = i;
+            points[i + 1] = (i % 4) * 10;
+        }
+        lb.addLine(points, points.length, false);
+
+        LineBucket ob = buckets.getLineBucket(2);
+        ob.line = mOutline;
+        ob.addOutline(lb);
+
+        buckets.prepare();
+        return buckets;
+    }
+
+    private static short[] compile(RenderBuckets buckets) {
+        int size = 0;
+        for (RenderBucket b = buckets.get(); b != null; b = b.next)
+            size += b.vertexItems.countSize() + b.indiceItems.countSize();
+
+        ShortBuffer sbuf = ShortBuffer.allocate(size);
+        for (RenderBucket b = buckets.get(); b != null; b = b.next) {
+            b.vertexItems.compile(sbuf);
+            b.indiceItems.compile(sbuf);
+        }
+        return sbuf.array();
+    }
+
+    @Test
+    public void shouldRestoreBuckets() throws IOException {
+        RenderBuckets buckets = createBuckets();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BucketCodec.writeBuckets(new DataOutputStream(bytes), buckets.get(), mStyles);
+
+        RenderBuckets restored = new RenderBuckets();
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        restored.set(BucketCodec.readBuckets(in, mStyles));
+        Assert.assertFalse(in.hasRemaining());
+
+        RenderBucket a = buckets.get();
+        RenderBucket b = restored.get();
+        for (; a != null; a = a.next, b = b.next) {
+            Assert.assertNotNull(b);
+            Assert.assertEquals(a.type, b.type);
+            Assert.assertEquals(a.level, b.level);
+            Assert.assertEquals(a.numVertices, b.numVertices);
+            Assert.assertEquals(a.numIndices, b.numIndices);
+        }
+        Assert.assertNull(b);
+
+        LineBucket outline = (LineBucket) restored.get().next.next;
+        Assert.assertSame(mOutline, outline.line);
+        Assert.assertSame(restored.get().next, outline.outlines);
+        Assert.assertEquals(1.5f, ((LineBucket) restored.get().next).scale, 0);
+
+        Assert.assertTrue(Arrays.equals(compile(buckets), compile(restored)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownStyle() throws IOException {
+        RenderBuckets buckets = createBuckets();
+        ((LineBucket) buckets.get().next).line = new LineStyle(3, Color.RED, 1f);
+
+        BucketCodec.writeBuckets(new DataOutputStream(new ByteArrayOutputStream()),
+                buckets.get(), mStyles);
+    }
+}
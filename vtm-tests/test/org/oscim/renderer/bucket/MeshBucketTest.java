@@ -0,0 +1,143 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.backend.canvas.Color;
+import org.oscim.core.GeometryBuffer;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.oscim.renderer.MapRenderer.COORD_SCALE;
+
+public class MeshBucketTest {
+
+    private static short[] compile(VertexData data) {
+        ShortBuffer sbuf = ShortBuffer.allocate(data.countSize());
+        data.compile(sbuf);
+        return sbuf.array();
+    }
+
+    @Test
+    public void shouldShareVerticesAndDropCollapsedTriangles() {
+        MeshBucket mb = new MeshBucket(0);
+        float[] vertices = {0, 0, 10, 0, 10, 10, 0, 10, 0.01f, 0};
+        mb.addTriangles(vertices, 5, new int[]{0, 1, 2, 0, 2, 3, 0, 4, 3}, 9);
+
+        Assert.assertEquals(4, mb.numVertices);
+        Assert.assertEquals(6, mb.numIndices);
+        Assert.assertArrayEquals(new short[]{0, 1, 2, 0, 2, 3}, compile(mb.indiceItems));
+
+        /* shared with the triangles added before */
+        mb.addTriangles(new float[]{10, 0, 20, 0, 10, 10}, 3, new int[]{0, 1, 2}, 3);
+        Assert.assertEquals(5, mb.numVertices);
+        Assert.assertEquals(1, mb.numRanges);
+    }
+
+    @Test
+    public void shouldSplitLargeMeshesIntoRanges() throws IOException {
+        int size = 300;
+        float[] vertices = new float[size * size * 2];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                vertices[(y * size + x) * 2] = x;
+                vertices[(y * size + x) * 2 + 1] = y;
+            }
+        }
+        int[] elements = new int[(size - 1) * (size - 1) * 6];
+        int n = 0;
+        for (int y = 0; y < size - 1; y++) {
+            for (int x = 0; x < size - 1; x++) {
+                int v = y * size + x;
+                elements[n++] = v;
+                elements[n++] = v + 1;
+                elements[n++] = v + size;
+                elements[n++] = v + 1;
+                elements[n++] = v + size + 1;
+                elements[n++] = v + size;
+            }
+        }
+        MeshBucket mb = new MeshBucket(0);
+        mb.addTriangles(vertices, size * size, elements, n);
+
+        /* no triangle is dropped */
+        Assert.assertEquals(n, mb.numIndices);
+        Assert.assertEquals(2, mb.numRanges);
+        Assert.assertTrue(mb.ranges[2] <= MeshBucket.MAX_VERTICES);
+
+        short[] points = compile(mb.vertexItems);
+        short[] indices = compile(mb.indiceItems);
+        for (int r = 0, i = 0; r < mb.numRanges; r++) {
+            int end = r + 1 < mb.numRanges ? mb.ranges[r * 2 + 3] : mb.numIndices;
+            int last = r + 1 < mb.numRanges ? mb.ranges[r * 2 + 2] : mb.numVertices;
+            for (; i < end; i++) {
+                int v = mb.ranges[r * 2] + (indices[i] & 0xffff);
+                Assert.assertTrue(v < last);
+                Assert.assertEquals(vertices[elements[i] * 2] * COORD_SCALE, points[v * 2], 0);
+                Assert.assertEquals(vertices[elements[i] * 2 + 1] * COORD_SCALE, points[v * 2 + 1], 0);
+            }
+        }
+
+        final AreaStyle area = new AreaStyle(0, Color.GREEN);
+        mb.area = area;
+        BucketCodec.StyleTable styles = new BucketCodec.StyleTable() {
+            @Override
+            public int indexOf(Object key) {
+                return key == area ? 0 : -1;
+            }
+
+            @Override
+            public RenderStyle<?> get(int index) {
+                return area;
+            }
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BucketCodec.writeBuckets(new DataOutputStream(bytes), mb, styles);
+        MeshBucket restored = (MeshBucket) BucketCodec.readBuckets(
+                ByteBuffer.wrap(bytes.toByteArray()), styles);
+        Assert.assertEquals(2, restored.numRanges);
+        Assert.assertEquals(mb.ranges[2], restored.ranges[2]);
+        Assert.assertEquals(mb.ranges[3], restored.ranges[3]);
+    }
+
+    @Test
+    public void shouldOrientOuterRingsAndHoles() {
+        GeometryBuffer geom = new GeometryBuffer(32, 8);
+        /* both rings clockwise */
+        geom.startPolygon();
+        geom.addPoint(0, 0);
+        geom.addPoint(0, 10);
+        geom.addPoint(10, 10);
+        geom.addPoint(10, 0);
+        geom.startHole();
+        geom.addPoint(2, 2);
+        geom.addPoint(2, 8);
+        geom.addPoint(8, 8);
+        geom.addPoint(8, 2);
+        /* second polygon counter-clockwise */
+        geom.startPolygon();
+        geom.addPoint(20, 0);
+        geom.addPoint(30, 0);
+        geom.addPoint(30, 10);
+
+        float[] points = MeshBucket.orient(geom, null);
+        Assert.assertTrue(area(points, 0, 8) > 0);
+        Assert.assertTrue(area(points, 8, 8) < 0);
+        Assert.assertTrue(area(points, 16, 6) > 0);
+        Assert.assertEquals(geom.points[16], points[16], 0);
+    }
+
+    private static float area(float[] p, int pos, int len) {
+        float a = 0;
+        for (int j = 0; j < len; j += 2) {
+            int k = (j + 2) % len;
+            a += p[pos + j] * p[pos + k + 1] - p[pos + k] * p[pos + j + 1];
+        }
+        return a;
+    }
+}
@@ -0,0 +1,33 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RenderBucketsTest {
+
+    @Test
+    public void shouldMergeBehindSameLevel() {
+        RenderBuckets buckets = new RenderBuckets();
+        LineBucket a0 = buckets.getLineBucket(0);
+        LineBucket a2 = buckets.getLineBucket(2);
+
+        RenderBuckets other = new RenderBuckets();
+        LineBucket b0 = other.getLineBucket(0);
+        LineBucket b1 = other.getLineBucket(1);
+        LineBucket b3 = other.getLineBucket(3);
+
+        buckets.merge(other);
+
+        RenderBucket[] expected = {a0, b0, b1, a2, b3};
+        RenderBucket b = buckets.get();
+        for (RenderBucket e : expected) {
+            Assert.assertSame(e, b);
+            b = b.next;
+        }
+        Assert.assertNull(b);
+        Assert.assertNull(other.get());
+
+        /* lookups still find the first bucket of a level */
+        Assert.assertSame(a0, buckets.getLineBucket(0));
+    }
+}
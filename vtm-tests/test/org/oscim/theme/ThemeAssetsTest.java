@@ -0,0 +1,95 @@
+package org.oscim.theme;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.RuleBuilder;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ThemeAssetsTest {
+
+    private static final byte[] XML = "<rendertheme version=\"1\"/>".getBytes(Charset.forName("UTF-8"));
+
+    private static File tempDir() throws Exception {
+        File dir = File.createTempFile("theme", "");
+        Assert.assertTrue(dir.delete() && dir.mkdirs());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static File write(File dir, String name) throws Exception {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(XML);
+        out.close();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void shouldKeyOnContentAndPath() throws Exception {
+        File dir = tempDir();
+        String path = write(dir, "a.xml").getPath();
+
+        long key = ThemeAssets.key(new ExternalRenderTheme(path), XML);
+        Assert.assertEquals(key, ThemeAssets.key(new ExternalRenderTheme(path), XML));
+
+        /* symbols are resolved relative to the theme */
+        File other = tempDir();
+        long moved = ThemeAssets.key(new ExternalRenderTheme(write(other, "a.xml").getPath()), XML);
+        Assert.assertNotEquals(key, moved);
+
+        byte[] changed = Arrays.copyOf(XML, XML.length + 1);
+        changed[XML.length] = '\n';
+        Assert.assertNotEquals(key, ThemeAssets.key(new ExternalRenderTheme(path), changed));
+    }
+
+    @Test
+    public void shouldPersistRequests() throws Exception {
+        File dir = tempDir();
+        List<ThemeAssets.Request> requests = Arrays.asList(
+                new ThemeAssets.Request("assets:symbols/bar.svg", 0, 0, 100),
+                new ThemeAssets.Request("assets:symbols/cafe.svg", 24, 24, 120));
+
+        SymbolCache cache = new SymbolCache(dir);
+        cache.putRequests(42, requests);
+        cache.flush();
+
+        SymbolCache restored = new SymbolCache(dir);
+        Assert.assertEquals(requests, restored.getRequests(42));
+        Assert.assertNull(restored.getRequests(43));
+
+        for (File file : dir.listFiles())
+            file.deleteOnExit();
+    }
+
+    @Test
+    public void shouldReplacePlaceholderStyles() {
+        LineStyle placeholder = LineStyle.builder().reset().color(0xff000000).build();
+        LineStyle line = LineStyle.builder().reset().color(0xff112233).build();
+        AreaStyle dropped = AreaStyle.builder().reset().color(0xff445566).build();
+        AreaStyle area = AreaStyle.builder().reset().color(0xff778899).build();
+
+        RuleBuilder sub = new RuleBuilder().addStyle(placeholder).addStyle(area);
+        RuleBuilder root = new RuleBuilder().addStyle(dropped).addSubRule(sub);
+
+        Map<RenderStyle<?>, RenderStyle<?>> styles = new IdentityHashMap<>();
+        styles.put(placeholder, line);
+        styles.put(dropped, null);
+        Rule rule = root.replaceStyles(styles).onComplete(null);
+
+        Assert.assertEquals(0, rule.styles.length);
+        Assert.assertSame(line, rule.subRules[0].styles[0]);
+        Assert.assertSame(area, rule.subRules[0].styles[1]);
+    }
+}
@@ -0,0 +1,153 @@
+package org.oscim.theme;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.RuleBuilder;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.CircleStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ThemeCompilerTest {
+
+    @Test
+    public void shouldRestoreRulesAndStyles() throws Exception {
+        LineStyle line = LineStyle.builder().reset()
+                .level(0).color(0xff112233).strokeWidth(2.5f)
+                .dashArray(new float[]{4, 2}).build();
+        AreaStyle area = AreaStyle.builder().reset()
+                .level(2).color(0xff445566).fadeScale(12).build();
+        CircleStyle circle = CircleStyle.builder().reset()
+                .level(4).radius(3).color(0xffabcdef).build();
+
+        int[] level = {0};
+        Rule[] rules = {
+                RuleBuilder.create("highway", "primary|secondary")
+                        .addStyle(line)
+                        .addSubRule(RuleBuilder.create("tunnel", "-|yes").addStyle(area))
+                        .onComplete(level),
+                RuleBuilder.create(null, "park").cat("green").addStyle(area).onComplete(level),
+                RuleBuilder.create("amenity", null).element(Rule.Element.NODE)
+                        .select(Rule.Selector.FIRST).addStyle(circle).onComplete(level)};
+
+        Map<String, String> keyMap = new HashMap<>();
+        keyMap.put("k1", "highway");
+        Map<Tag, Tag> tagMap = new HashMap<>();
+        tagMap.put(new Tag("k2", "v2"), new Tag("landuse", "forest"));
+
+        RenderTheme theme = new RenderTheme(0xff010203, 0xff040506, 1.5f, rules, 6,
+                keyMap, tagMap, false);
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        new ThemeCompiler.Writer(out).write(theme);
+        out.flush();
+
+        RenderTheme t = new ThemeCompiler.Reader(new DataInputStream(
+                new ByteArrayInputStream(buf.toByteArray())), null).read();
+
+        Assert.assertEquals(0xff010203, t.getMapBackground());
+        Assert.assertEquals(0xff040506, t.getMapBackgroundOutside());
+        Assert.assertEquals(6, t.getLevels());
+        Assert.assertEquals(1.5f, t.getBaseTextSize(), 0);
+        Assert.assertEquals("highway", t.transformForwardKey("k1"));
+        Assert.assertEquals("forest", t.transformForwardTag(new Tag("k2", "v2")).value);
+
+        TagSet tags = new TagSet();
+        tags.add(new Tag("highway", "secondary"));
+        RenderStyle[] ri = t.matchElement(GeometryType.LINE, tags, 14);
+        Assert.assertEquals(2, ri.length);
+        LineStyle l = (LineStyle) ri[1];
+        Assert.assertEquals(0xff112233, l.color);
+        Assert.assertEquals(2.5f, l.width, 0);
+        Assert.assertEquals(2, l.dashArray.length);
+        AreaStyle a = (AreaStyle) ri[0];
+        Assert.assertEquals(12, a.fadeScale);
+
+        tags.clear();
+        tags.add(new Tag("highway", "secondary"));
+        tags.add(new Tag("tunnel", "yes"));
+        Assert.assertEquals(1, t.matchElement(GeometryType.LINE, tags, 14).length);
+
+        tags.clear();
+        tags.add(new Tag("leisure", "park"));
+        ri = t.matchElement(GeometryType.POLY, tags, 14);
+        /* shared styles stay shared */
+        Assert.assertSame(a, ri[0]);
+        Assert.assertEquals("green", t.getRules()[1].cat);
+
+        tags.clear();
+        tags.add(new Tag("amenity", "cafe"));
+        ri = t.matchElement(GeometryType.POINT, tags, 14);
+        Assert.assertEquals(3, ((CircleStyle) ri[0]).radius, 0);
+        Assert.assertTrue(t.getRules()[2].selectFirstMatch);
+    }
+
+    @Test
+    public void shouldRestoreStyleMenu() throws Exception {
+        XmlRenderThemeStyleMenu menu = new XmlRenderThemeStyleMenu("menu", "en", "base");
+        XmlRenderThemeStyleLayer base = menu.createLayer("base", true, false);
+        base.addCategory("roads");
+        base.addTranslation("en", "Base");
+        XmlRenderThemeStyleLayer pois = menu.createLayer("pois", false, true);
+        pois.addCategory("shops");
+        pois.addCategory("food");
+        base.addOverlay(pois);
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        ThemeCompiler.writeMenu(out, menu);
+        out.flush();
+
+        XmlRenderThemeStyleMenu m = ThemeCompiler.readMenu(new DataInputStream(
+                new ByteArrayInputStream(buf.toByteArray())));
+
+        Assert.assertEquals("menu", m.getId());
+        Assert.assertEquals("en", m.getDefaultLanguage());
+        Assert.assertEquals("base", m.getDefaultValue());
+        Assert.assertEquals(2, m.getLayers().size());
+
+        XmlRenderThemeStyleLayer b = m.getLayer("base");
+        Assert.assertTrue(b.isVisible());
+        Assert.assertFalse(b.isEnabled());
+        Assert.assertEquals("Base", b.getTitle("de"));
+        Assert.assertTrue(b.getCategories().contains("roads"));
+        Assert.assertEquals(1, b.getOverlays().size());
+        Assert.assertSame(m.getLayer("pois"), b.getOverlays().get(0));
+        Assert.assertArrayEquals(new Object[]{"shops", "food"},
+                m.getLayer("pois").getCategories().toArray());
+    }
+
+    @Test
+    public void shouldKeyOnCallbackVersion() {
+        byte[] data = {1, 2, 3};
+        Assert.assertEquals(ThemeCompiler.hash(data, new VersionedCallback("day")),
+                ThemeCompiler.hash(data, new VersionedCallback("day")));
+        Assert.assertNotEquals(ThemeCompiler.hash(data, new VersionedCallback("day")),
+                ThemeCompiler.hash(data, new VersionedCallback("night")));
+    }
+
+    static class VersionedCallback extends ThemeCallbackAdapter implements ThemeCallback.Versioned {
+        private final String version;
+
+        VersionedCallback(String version) {
+            this.version = version;
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.oscim.tiling;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.layers.tile.MapTile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedTileSourceTest {
+
+    /**
+     * Emits one point per tile, blocks until released.
+     */
+    static class CountingTileSource extends TileSource {
+        final AtomicInteger queries = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        int opened, closed;
+
+        CountingTileSource() {
+            super(0, 20);
+        }
+
+        @Override
+        public ITileDataSource getDataSource() {
+            return new ITileDataSource() {
+                @Override
+                public void query(MapTile tile, ITileDataSink sink) {
+                    queries.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        sink.completed(QueryResult.FAILED);
+                        return;
+                    }
+                    MapElement e = new MapElement();
+                    e.startPoints();
+                    e.addPoint(tile.tileX, tile.tileY);
+                    e.tags.add(new Tag("name", "x"));
+                    sink.process(e);
+                    /* the element belongs to the source */
+                    e.clear();
+                    sink.completed(QueryResult.SUCCESS);
+                }
+
+                @Override
+                public void dispose() {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            };
+        }
+
+        @Override
+        public OpenResult open() {
+            opened++;
+            return OpenResult.SUCCESS;
+        }
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+
+    static class CollectingSink implements ITileDataSink {
+        final List<MapElement> elements = new ArrayList<>();
+        QueryResult result;
+
+        @Override
+        public void process(MapElement element) {
+            elements.add(new MapElement(element));
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            this.result = result;
+        }
+    }
+
+    @Test
+    public void shouldMergeConcurrentQueries() throws InterruptedException {
+        CountingTileSource source = new CountingTileSource();
+        SharedTileSource shared = new SharedTileSource(source);
+        Assert.assertTrue(shared.open().isSuccess());
+
+        final ITileDataSource ds1 = shared.getDataSource();
+        final ITileDataSource ds2 = shared.getDataSource();
+        final CollectingSink sink1 = new CollectingSink();
+        final CollectingSink sink2 = new CollectingSink();
+
+        Thread t1 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ds1.query(new MapTile(3, 4, 5), sink1);
+            }
+        });
+        t1.start();
+        Assert.assertTrue(source.started.await(5, TimeUnit.SECONDS));
+
+        Thread t2 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ds2.query(new MapTile(3, 4, 5), sink2);
+            }
+        });
+        t2.start();
+        Thread.sleep(50);
+        source.release.countDown();
+        t1.join();
+        t2.join();
+
+        Assert.assertEquals(1, source.queries.get());
+        Assert.assertEquals(QueryResult.SUCCESS, sink1.result);
+        Assert.assertEquals(QueryResult.SUCCESS, sink2.result);
+        Assert.assertEquals(1, sink2.elements.size());
+        Assert.assertEquals(3, sink2.elements.get(0).getPointX(0), 0);
+        Assert.assertEquals("x", sink2.elements.get(0).tags.getValue("name"));
+
+        /* served from memory */
+        CollectingSink sink3 = new CollectingSink();
+        shared.getDataSource().query(new MapTile(3, 4, 5), sink3);
+        Assert.assertEquals(1, source.queries.get());
+        Assert.assertEquals(1, sink3.elements.size());
+
+        shared.getDataSource().query(new MapTile(4, 4, 5), new CollectingSink());
+        Assert.assertEquals(2, source.queries.get());
+    }
+
+    @Test
+    public void shouldOpenWrappedSourceOnce() {
+        CountingTileSource source = new CountingTileSource();
+        SharedTileSource shared = new SharedTileSource(source, 0);
+        shared.open();
+        shared.open();
+        Assert.assertEquals(1, source.opened);
+        shared.close();
+        Assert.assertEquals(0, source.closed);
+        shared.close();
+        Assert.assertEquals(1, source.closed);
+        Assert.assertEquals(20, shared.getZoomLevelMax());
+    }
+}
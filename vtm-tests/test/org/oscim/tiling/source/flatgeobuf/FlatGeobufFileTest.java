@@ -0,0 +1,261 @@
+package org.oscim.tiling.source.flatgeobuf;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MapElement;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FlatGeobufFileTest {
+
+    @Test
+    public void shouldComputeLevelBounds() {
+        /* 3 leaves, 2 nodes above, root */
+        Assert.assertArrayEquals(new long[]{3, 6, 1, 3, 0, 1, 6},
+                FlatGeobufFile.levelBounds(3, 2));
+        Assert.assertArrayEquals(new long[]{1, 17, 0, 1, 17},
+                FlatGeobufFile.levelBounds(16, 16));
+    }
+
+    @Test
+    public void shouldQueryFeaturesThroughIndex() throws IOException {
+        /* point in the north east, line in the south west,
+         * polygon in the north west quadrant */
+        byte[] point = feature(FlatGeobufFile.GEOMETRY_POINT, new double[]{10, 10}, null, "a", 0);
+        byte[] line = feature(FlatGeobufFile.GEOMETRY_LINESTRING,
+                new double[]{-20, -20, -10, -20}, null, "b", 7);
+        byte[] polygon = feature(FlatGeobufFile.GEOMETRY_POLYGON,
+                new double[]{-170, 60, -160, 60, -160, 70, -170, 70, -170, 60,
+                        -168, 62, -162, 62, -165, 68, -168, 62}, new int[]{5, 9}, "c", 0);
+        long[] offsets = {0, point.length, point.length + line.length};
+
+        ByteBuffer index = ByteBuffer.allocate(6 * 40).order(ByteOrder.LITTLE_ENDIAN);
+        node(index, -170, -20, 10, 70, 1);
+        node(index, -170, -20, -10, 70, 3);
+        node(index, 10, 10, 10, 10, 5);
+        /* leaves not in file order */
+        node(index, -170, 60, -160, 70, offsets[2]);
+        node(index, -20, -20, -10, -20, offsets[1]);
+        node(index, 10, 10, 10, 10, offsets[0]);
+
+        File file = File.createTempFile("test", ".fgb");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{'f', 'g', 'b', 3, 'f', 'g', 'b', 0});
+        byte[] header = header(3, 2);
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(header.length).array());
+        out.write(header);
+        out.write(index.array());
+        out.write(point);
+        out.write(line);
+        out.write(polygon);
+        out.close();
+
+        FlatGeobufFile fgb = new FlatGeobufFile(file);
+        try {
+            Assert.assertEquals(3, fgb.getFeaturesCount());
+            Assert.assertEquals(FlatGeobufFile.CRS_WGS84, fgb.getCrs());
+            Assert.assertArrayEquals(new String[]{"name", "count"}, fgb.getColumnNames());
+            Assert.assertEquals(70, fgb.getBounds().getMaxLatitude(), 1e-9);
+
+            Assert.assertArrayEquals(offsets, fgb.search(-180, -90, 180, 90));
+            Assert.assertArrayEquals(new long[]{offsets[1]}, fgb.search(-15, -25, -5, -15));
+            Assert.assertEquals(0, fgb.search(100, -80, 120, -70).length);
+
+            FlatGeobufTileDataSource ds = new FlatGeobufTileDataSource(fgb);
+
+            List<MapElement> elements = query(ds, new MapTile(1, 0, 1));
+            Assert.assertEquals(1, elements.size());
+            Assert.assertTrue(elements.get(0).isPoint());
+            Assert.assertEquals("a", elements.get(0).tags.getValue("name"));
+
+            elements = query(ds, new MapTile(0, 1, 1));
+            Assert.assertEquals(1, elements.size());
+            Assert.assertTrue(elements.get(0).isLine());
+            Assert.assertEquals("7", elements.get(0).tags.getValue("count"));
+
+            elements = query(ds, new MapTile(0, 0, 1));
+            Assert.assertEquals(1, elements.size());
+            MapElement e = elements.get(0);
+            Assert.assertTrue(e.isPoly());
+            /* closing points dropped */
+            Assert.assertArrayEquals(new int[]{8, 6}, Arrays.copyOf(e.index, 2));
+
+            Assert.assertEquals(0, query(ds, new MapTile(1, 1, 1)).size());
+        } finally {
+            fgb.close();
+        }
+    }
+
+    private static List<MapElement> query(FlatGeobufTileDataSource ds, MapTile tile) {
+        final List<MapElement> elements = new ArrayList<>();
+        final QueryResult[] result = new QueryResult[1];
+        ds.query(tile, new ITileDataSink() {
+            @Override
+            public void process(MapElement element) {
+                elements.add(new MapElement(element));
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult res) {
+                result[0] = res;
+            }
+        });
+        Assert.assertEquals(QueryResult.SUCCESS, result[0]);
+        return elements;
+    }
+
+    private static void node(ByteBuffer b, double minX, double minY, double maxX, double maxY, long offset) {
+        b.putDouble(minX).putDouble(minY).putDouble(maxX).putDouble(maxY).putLong(offset);
+    }
+
+    private static byte[] header(long featuresCount, int nodeSize) {
+        Builder fb = new Builder();
+        int header = fb.table(11);
+        fb.root(header);
+        fb.putRef(header, 1, fb.doubles(-170, -20, 10, 70));
+        fb.putByte(header, 2, FlatGeobufFile.GEOMETRY_UNKNOWN);
+        fb.putLong(header, 8, featuresCount);
+        fb.putShort(header, 9, nodeSize);
+
+        int name = fb.table(2);
+        fb.putRef(name, 0, fb.string("name"));
+        fb.putByte(name, 1, FlatGeobufFile.COLUMN_STRING);
+        int count = fb.table(2);
+        fb.putRef(count, 0, fb.string("count"));
+        fb.putByte(count, 1, FlatGeobufFile.COLUMN_INT);
+        fb.putRef(header, 7, fb.refs(name, count));
+        return fb.toArray();
+    }
+
+    /**
+     * @return the size prefixed feature.
+     */
+    private static byte[] feature(int type, double[] xy, int[] ends, String name, int count) {
+        Builder fb = new Builder();
+        int feature = fb.table(2);
+        fb.root(feature);
+
+        int geometry = fb.table(8);
+        fb.putRef(feature, 0, geometry);
+        fb.putByte(geometry, 6, type);
+        fb.putRef(geometry, 1, fb.doubles(xy));
+        if (ends != null)
+            fb.putRef(geometry, 0, fb.ints(ends));
+
+        byte[] n = name.getBytes(FlatGeobufFile.UTF8);
+        ByteBuffer p = ByteBuffer.allocate(2 + 4 + n.length + (count != 0 ? 6 : 0))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        p.putShort((short) 0).putInt(n.length).put(n);
+        if (count != 0)
+            p.putShort((short) 1).putInt(count);
+        fb.putRef(feature, 1, fb.bytes(p.array()));
+
+        byte[] bytes = fb.toArray();
+        return ByteBuffer.allocate(4 + bytes.length).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(bytes.length).put(bytes).array();
+    }
+
+    /**
+     * Writes FlatBuffers front to back, each table field has an 8 byte slot.
+     */
+    private static class Builder {
+        final ByteBuffer b = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+
+        void root(int table) {
+            b.putInt(0, table);
+        }
+
+        int table(int numFields) {
+            if (b.position() == 0)
+                b.putInt(0);
+            int vtable = b.position();
+            b.putShort((short) (4 + numFields * 2)).putShort((short) (4 + numFields * 8));
+            for (int i = 0; i < numFields; i++)
+                b.putShort((short) 0);
+            int table = b.position();
+            b.putInt(table - vtable);
+            for (int i = 0; i < numFields; i++)
+                b.putLong(0);
+            return table;
+        }
+
+        private int slot(int table, int id) {
+            int vtable = table - b.getInt(table);
+            b.putShort(vtable + 4 + id * 2, (short) (4 + id * 8));
+            return table + 4 + id * 8;
+        }
+
+        void putByte(int table, int id, int v) {
+            b.put(slot(table, id), (byte) v);
+        }
+
+        void putShort(int table, int id, int v) {
+            b.putShort(slot(table, id), (short) v);
+        }
+
+        void putLong(int table, int id, long v) {
+            b.putLong(slot(table, id), v);
+        }
+
+        void putRef(int table, int id, int target) {
+            int pos = slot(table, id);
+            b.putInt(pos, target - pos);
+        }
+
+        int doubles(double... v) {
+            int pos = b.position();
+            b.putInt(v.length);
+            for (double d : v)
+                b.putDouble(d);
+            return pos;
+        }
+
+        int ints(int... v) {
+            int pos = b.position();
+            b.putInt(v.length);
+            for (int i : v)
+                b.putInt(i);
+            return pos;
+        }
+
+        int bytes(byte[] v) {
+            int pos = b.position();
+            b.putInt(v.length).put(v);
+            return pos;
+        }
+
+        int string(String s) {
+            int pos = bytes(s.getBytes(FlatGeobufFile.UTF8));
+            b.put((byte) 0);
+            return pos;
+        }
+
+        int refs(int... tables) {
+            int pos = b.position();
+            b.putInt(tables.length);
+            for (int t : tables)
+                b.putInt(t - b.position());
+            return pos;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(b.array(), b.position());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.oscim.tiling.source.geojson;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class GeojsonTileIndexTest {
+
+    private static final GeojsonTileIndex.TagDecoder DECODER = new GeojsonTileIndex.TagDecoder() {
+        @Override
+        public void decodeTags(MapElement mapElement, Map<String, Object> properties) {
+            mapElement.tags.add(new Tag("name", String.valueOf(properties.get("name")), false));
+        }
+    };
+
+    @Test
+    public void shouldClipToTileAndBuffer() throws IOException {
+        GeojsonTileIndex index = load(
+                feature("a", "LineString", line(0.1, 0.375, 0.9, 0.375)),
+                feature("b", "Polygon", "[" + ring(0.2, 0.2, 0.6, 0.6) + ","
+                        + ring(0.52, 0.3, 0.55, 0.35) + "]"),
+                /* 2 pixels right of tile 2/1/1, in its buffer */
+                feature("c", "Point", point(0.5 + 2.0 / (4 * Tile.SIZE), 0.3)),
+                /* 10 pixels right, outside of the buffer */
+                feature("d", "Point", point(0.5 + 10.0 / (4 * Tile.SIZE), 0.3)));
+        Assert.assertEquals(4, index.size());
+
+        List<MapElement> elements = query(index, new Tile(1, 1, (byte) 2));
+        Assert.assertEquals(3, elements.size());
+
+        MapElement line = find(elements, "a");
+        Assert.assertTrue(line.isLine());
+        Assert.assertEquals(2, line.getNumPoints());
+        Assert.assertEquals(-4, line.getPointX(0), 0.01);
+        Assert.assertEquals(Tile.SIZE + 4, line.getPointX(1), 0.01);
+        Assert.assertEquals(Tile.SIZE / 2, line.getPointY(0), 0.01);
+
+        MapElement poly = find(elements, "b");
+        Assert.assertTrue(poly.isPoly());
+        /* the hole is outside of the buffer */
+        Assert.assertEquals(8, poly.index[0]);
+        Assert.assertTrue(poly.index.length == 1 || poly.index[1] <= 0);
+        for (int i = 0; i < poly.getNumPoints(); i++) {
+            Assert.assertEquals(Tile.SIZE / 2, Math.abs(poly.getPointX(i) - Tile.SIZE / 2), 4.01);
+            Assert.assertEquals(Tile.SIZE / 2, Math.abs(poly.getPointY(i) - Tile.SIZE / 2), 4.01);
+        }
+
+        MapElement p = find(elements, "c");
+        Assert.assertTrue(p.isPoint());
+        Assert.assertEquals(Tile.SIZE + 2, p.getPointX(0), 0.01);
+        Assert.assertNull(find(elements, "d"));
+    }
+
+    @Test
+    public void shouldSplitLinesLeavingTheTile() throws IOException {
+        /* leaves tile 2/1/1 through the top and comes back */
+        GeojsonTileIndex index = load(feature("a", "LineString",
+                line(0.3, 0.3, 0.3, 0.2, 0.4, 0.2, 0.4, 0.3)));
+
+        List<MapElement> elements = query(index, new Tile(1, 1, (byte) 2));
+        Assert.assertEquals(1, elements.size());
+        MapElement line = elements.get(0);
+        /* two pieces of two points */
+        Assert.assertEquals(4, line.index[0]);
+        Assert.assertEquals(4, line.index[1]);
+        Assert.assertEquals(-4, line.getPointY(1), 0.01);
+        Assert.assertEquals(-4, line.getPointY(2), 0.01);
+        /* in the direction of the line */
+        Assert.assertTrue(line.getPointX(3) > line.getPointX(0));
+    }
+
+    @Test
+    public void shouldSimplifyByZoomLevel() throws IOException {
+        /* the middle vertex is 0.2 pixels off at zoom level 2 */
+        double e = 0.2 / (4 * Tile.SIZE);
+        GeojsonTileIndex index = load(feature("a", "LineString",
+                line(0.3, 0.377, 0.31, 0.377 + e, 0.32, 0.377)));
+
+        List<MapElement> elements = query(index, new Tile(1, 1, (byte) 2));
+        Assert.assertEquals(2, elements.get(0).getNumPoints());
+
+        /* 12.8 pixels at zoom level 8, clipped from the parents */
+        elements = query(index, new Tile(79, 96, (byte) 8));
+        MapElement line = elements.get(0);
+        Assert.assertEquals(3, line.getNumPoints());
+        Assert.assertEquals(-4, line.getPointX(0), 0.01);
+        Assert.assertEquals(Tile.SIZE + 4, line.getPointX(2), 0.01);
+        Assert.assertEquals(((0.377 + e) * 256 - 96) * Tile.SIZE, line.getPointY(1), 0.01);
+
+        /* the vertex is kept at higher zoom levels */
+        Assert.assertEquals(3, query(index, new Tile(158, 193, (byte) 9)).get(0).getNumPoints());
+    }
+
+    @Test
+    public void shouldKeepEndsOfSimplifiedLines() {
+        int[] points = {0, 0, 10, 1, 20, 0, 30, 50, 40, 0};
+        float[] importance = GeojsonTileIndex.simplify(points, new int[]{5});
+        Assert.assertEquals(GeojsonTileIndex.KEEP, importance[0], 0);
+        Assert.assertEquals(GeojsonTileIndex.KEEP, importance[4], 0);
+        Assert.assertEquals(2500, importance[3], 0);
+        Assert.assertEquals(1, importance[1], 0);
+    }
+
+    private static MapElement find(List<MapElement> elements, String name) {
+        for (MapElement e : elements) {
+            if (name.equals(e.tags.getValue("name")))
+                return e;
+        }
+        return null;
+    }
+
+    private static String point(double x, double y) {
+        return "[" + MercatorProjection.toLongitude(x) + "," + MercatorProjection.toLatitude(y) + "]";
+    }
+
+    private static String line(double... xy) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < xy.length; i += 2)
+            sb.append(i > 0 ? "," : "").append(point(xy[i], xy[i + 1]));
+        return sb.append("]").toString();
+    }
+
+    private static String ring(double x1, double y1, double x2, double y2) {
+        return line(x1, y1, x2, y1, x2, y2, x1, y2, x1, y1);
+    }
+
+    private static String feature(String name, String type, String coordinates) {
+        return "{\"type\":\"Feature\",\"properties\":{\"name\":\"" + name + "\"},"
+                + "\"geometry\":{\"type\":\"" + type + "\",\"coordinates\":" + coordinates + "}}";
+    }
+
+    private static GeojsonTileIndex load(String... features) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 0; i < features.length; i++)
+            sb.append(i > 0 ? "," : "").append(features[i]);
+        sb.append("]}");
+        return GeojsonTileIndex.load(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")), DECODER);
+    }
+
+    private static List<MapElement> query(GeojsonTileIndex index, Tile tile) {
+        final List<MapElement> elements = new ArrayList<>();
+        index.query(tile, new ITileDataSink() {
+            @Override
+            public void process(MapElement element) {
+                elements.add(element);
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+            }
+        });
+        return elements;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.junit.Test;
+import org.oscim.backend.GL;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HgtTileTest {
+
+    private static final int SIZE = 121;
+
+    /**
+     * Elevation rises by 10m per sample to the west.
+     */
+    private static void write(File file, boolean zip) throws IOException {
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        ZipOutputStream zos = null;
+        DataOutputStream os;
+        if (zip) {
+            zos = new ZipOutputStream(fos);
+            zos.putNextEntry(new ZipEntry(file.getName().replace(".zip", "")));
+            os = new DataOutputStream(zos);
+        } else {
+            os = new DataOutputStream(fos);
+        }
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++)
+                os.writeShort((SIZE - 1 - col) * 10);
+        if (zos != null)
+            zos.closeEntry();
+        os.close();
+    }
+
+    private static File folder() throws IOException {
+        File dir = File.createTempFile("hgt", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        write(new File(dir, "N47E011.hgt"), false);
+        write(new File(dir, "N47E012.hgt.zip"), true);
+        return dir;
+    }
+
+    @Test
+    public void shouldReadElevations() throws IOException {
+        HgtFolder folder = new HgtFolder(folder());
+        assertEquals(2, folder.size());
+        assertNull(folder.getTile(46, 11));
+
+        for (int lon = 11; lon <= 12; lon++) {
+            HgtTile tile = folder.getTile(47, lon);
+            assertNotNull(tile);
+            assertEquals(SIZE, tile.getSize());
+            assertEquals(1200, tile.get(0, 0));
+            assertEquals(1200, tile.getElevation(47.5, lon), 1e-3);
+            assertEquals(600, tile.getElevation(47.5, lon + 0.5), 1e-3);
+            assertEquals(595, tile.getElevation(47.2, lon + 0.5 + 0.5 / (SIZE - 1)), 1e-3);
+        }
+    }
+
+    @Test
+    public void shouldShadeSlopes() throws IOException {
+        HgtFolder folder = new HgtFolder(folder());
+        int zoom = 12;
+        int x = (int) (MercatorProjection.longitudeToX(11.5) * (1 << zoom));
+        int y = (int) (MercatorProjection.latitudeToY(47.5) * (1 << zoom));
+        Tile tile = new Tile(x, y, (byte) zoom);
+        assertTrue(Hillshading.covers(folder, tile));
+        assertFalse(Hillshading.covers(folder, new Tile(0, 0, (byte) zoom)));
+
+        int size = 64;
+        byte[] alpha = new byte[size * size];
+
+        /* the slope faces east, away from a north western light */
+        new Hillshading().shade(folder, tile, size, alpha, null);
+        int shade = alpha[size * size / 2] & 0xff;
+        assertTrue(shade > 0);
+        for (byte a : alpha)
+            assertEquals(shade, a & 0xff, 1);
+
+        /* lit from the east */
+        new Hillshading(90, 45, 1, 128).shade(folder, tile, size, alpha, null);
+        assertEquals(0, alpha[size * size / 2]);
+    }
+
+    @Test
+    public void shouldEncodeElevations() throws IOException {
+        assertEquals(0xff0186a0, HgtElevationTileSource.encode(0));
+        for (float h : new float[]{-10000, -432.1f, 0, 8848.8f})
+            assertEquals(h, HgtElevationTileSource.decode(HgtElevationTileSource.encode(h)), 0.05);
+
+        HgtFolder folder = new HgtFolder(folder());
+        int zoom = 12;
+        int x = (int) (MercatorProjection.longitudeToX(11.5) * (1 << zoom));
+        int y = (int) (MercatorProjection.latitudeToY(47.5) * (1 << zoom));
+        int size = HgtElevationTileSource.TEXTURE_SIZE;
+        int border = HgtElevationTileSource.BORDER;
+        byte[] a = new byte[size * size * 3];
+        byte[] b = new byte[size * size * 3];
+        float[] elevations = new float[size * size];
+        HgtElevationTileSource.encode(folder, new Tile(x, y, (byte) zoom), a, elevations);
+        HgtElevationTileSource.encode(folder, new Tile(x + 1, y, (byte) zoom), b, elevations);
+
+        /* the border repeats the texels of the neighbour */
+        int inner = size - 2 * border;
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < 2 * border * 3; col++)
+                assertEquals(a[(row * size + inner) * 3 + col], b[row * size * 3 + col]);
+    }
+
+    @Test
+    public void shouldReadBackPng() throws IOException {
+        for (int format : new int[]{GL.ALPHA, GL.RGB}) {
+            ByteBitmap bitmap = new ByteBitmap(37, 5, format);
+            for (int i = 0; i < bitmap.data.length; i++)
+                bitmap.data[i] = (byte) (i * 31);
+            byte[] png = bitmap.getPngEncodedData();
+
+            ByteBitmap read = ByteBitmap.decodePng(new ByteArrayInputStream(png), format);
+            assertNotNull(read);
+            assertEquals(37, read.getWidth());
+            assertEquals(5, read.getHeight());
+            assertArrayEquals(bitmap.data, read.data);
+            assertArrayEquals(bitmap.getPixels(), read.getPixels());
+
+            /* the other format is not read */
+            int other = format == GL.ALPHA ? GL.RGB : GL.ALPHA;
+            assertNull(ByteBitmap.decodePng(new ByteArrayInputStream(png), other));
+        }
+    }
+}
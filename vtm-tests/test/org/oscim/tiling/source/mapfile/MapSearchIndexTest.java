@@ -0,0 +1,89 @@
+package org.oscim.tiling.source.mapfile;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.oscim.core.BoundingBox;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.Tag;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+public class MapSearchIndexTest {
+
+    @Test
+    public void shouldNormalizeNames() {
+        Assert.assertEquals("strasse cafe", MapSearchIndex.normalize("  Straße-Café "));
+        Assert.assertEquals("muller", MapSearchIndex.normalize("Müller"));
+    }
+
+    @Test
+    public void shouldFindByWordPrefix() throws Exception {
+        MapSearchIndexBuilder builder = new MapSearchIndexBuilder();
+        BoundingBox chunk = new BoundingBox(50, 8, 51, 9);
+        add(builder, "Hauptstraße", new GeoPoint(50.5, 8.5), chunk);
+        add(builder, "Alte Hauptwache", new GeoPoint(50.6, 8.6), chunk);
+        add(builder, "Bahnhof", new GeoPoint(50.7, 8.7), chunk);
+        /* read again from the neighbour chunk */
+        add(builder, "Bahnhof", new GeoPoint(50.7, 8.7), new BoundingBox(50, 9, 51, 10));
+
+        File file = File.createTempFile("search", ".idx");
+        try {
+            builder.write(file);
+            MapSearchIndex index = new MapSearchIndex(file);
+            try {
+                Assert.assertEquals(3, index.size());
+
+                List<MapSearchIndex.Result> results = index.search("haupt", 10);
+                Assert.assertEquals(2, results.size());
+                Assert.assertEquals("Hauptstraße", results.get(0).name);
+                Assert.assertEquals("Alte Hauptwache", results.get(1).name);
+
+                Assert.assertEquals(1, index.search("hauptstrasse", 10).size());
+                Assert.assertEquals(1, index.search("BAHN", 10).size());
+                Assert.assertEquals(0, index.search("aupt", 10).size());
+                Assert.assertEquals(0, index.search("zoo", 10).size());
+            } finally {
+                index.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldFindBySingleCharacter() throws Exception {
+        MapSearchIndexBuilder builder = new MapSearchIndexBuilder();
+        BoundingBox chunk = new BoundingBox(50, 8, 51, 9);
+        add(builder, "Hauptstraße", new GeoPoint(50.5, 8.5), chunk);
+        add(builder, "Alte Hauptwache", new GeoPoint(50.6, 8.6), chunk);
+        add(builder, "Bahnhof", new GeoPoint(50.7, 8.7), chunk);
+        add(builder, "B", new GeoPoint(50.8, 8.8), chunk);
+
+        File file = File.createTempFile("search", ".idx");
+        try {
+            builder.write(file);
+            MapSearchIndex index = new MapSearchIndex(file);
+            try {
+                List<MapSearchIndex.Result> results = index.search("b", 10);
+                Assert.assertEquals(2, results.size());
+                Assert.assertEquals("B", results.get(0).name);
+                Assert.assertEquals("Bahnhof", results.get(1).name);
+
+                Assert.assertEquals(2, index.search("H", 10).size());
+                Assert.assertEquals(1, index.search("a", 10).size());
+                Assert.assertEquals(0, index.search("z", 10).size());
+            } finally {
+                index.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void add(MapSearchIndexBuilder builder, String name, GeoPoint p, BoundingBox chunk) {
+        List<Tag> tags = Collections.singletonList(new Tag(Tag.KEY_NAME, name, false));
+        builder.add(tags, p, p, p, chunk);
+    }
+}
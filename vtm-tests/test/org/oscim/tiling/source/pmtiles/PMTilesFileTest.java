@@ -0,0 +1,130 @@
+package org.oscim.tiling.source.pmtiles;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPOutputStream;
+
+public class PMTilesFileTest {
+
+    @Test
+    public void shouldComputeHilbertTileIds() {
+        Assert.assertEquals(0, PMTilesFile.tileId(0, 0, 0));
+        Assert.assertEquals(1, PMTilesFile.tileId(1, 0, 0));
+        Assert.assertEquals(2, PMTilesFile.tileId(1, 0, 1));
+        Assert.assertEquals(3, PMTilesFile.tileId(1, 1, 1));
+        Assert.assertEquals(4, PMTilesFile.tileId(1, 1, 0));
+        Assert.assertEquals(5, PMTilesFile.tileId(2, 0, 0));
+        Assert.assertEquals(21, PMTilesFile.tileId(3, 0, 0));
+        Assert.assertEquals(85, PMTilesFile.tileId(4, 0, 0));
+        Assert.assertEquals(19078479, PMTilesFile.tileId(12, 3423, 1763));
+    }
+
+    @Test
+    public void shouldReadTilesThroughLeafDirectory() throws IOException {
+        byte[] tiles = "abcdefgh".getBytes("UTF-8");
+        /* tile 0 -> "abc", tile 4 -> "de", tiles 5..7 -> "fgh" */
+        byte[] leaf = gzip(directory(new long[]{0, 4, 5}, new int[]{1, 1, 3},
+                new int[]{3, 2, 3}, new long[]{0, 3, 5}));
+        byte[] root = gzip(directory(new long[]{0}, new int[]{0},
+                new int[]{leaf.length}, new long[]{0}));
+        byte[] metadata = gzip("{\"name\":\"test\"}".getBytes("UTF-8"));
+
+        ByteBuffer h = ByteBuffer.allocate(127).order(ByteOrder.LITTLE_ENDIAN);
+        h.put("PMTiles".getBytes("UTF-8")).put((byte) 3);
+        long offset = 127;
+        h.putLong(offset).putLong(root.length);
+        offset += root.length;
+        h.putLong(offset).putLong(metadata.length);
+        offset += metadata.length;
+        h.putLong(offset).putLong(leaf.length);
+        offset += leaf.length;
+        h.putLong(offset).putLong(tiles.length);
+        h.putLong(5).putLong(3).putLong(3);
+        h.put((byte) 1).put((byte) PMTilesFile.COMPRESSION_GZIP)
+                .put((byte) PMTilesFile.COMPRESSION_NONE).put((byte) PMTilesFile.TYPE_MVT);
+        h.put((byte) 0).put((byte) 2);
+        h.putInt(-1800000000).putInt(-850000000).putInt(1800000000).putInt(850000000);
+        h.put((byte) 1).putInt(130000000).putInt(525000000);
+
+        File file = File.createTempFile("test", ".pmtiles");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(h.array());
+        out.write(root);
+        out.write(metadata);
+        out.write(leaf);
+        out.write(tiles);
+        out.close();
+
+        PMTilesFile pm = new PMTilesFile(file);
+        try {
+            Assert.assertEquals(PMTilesFile.TYPE_MVT, pm.getTileType());
+            Assert.assertEquals(2, pm.getMaxZoom());
+            Assert.assertEquals(52.5, pm.getCenter().getLatitude(), 1e-6);
+            Assert.assertEquals(85, pm.getBounds().getMaxLatitude(), 1e-6);
+            Assert.assertEquals("{\"name\":\"test\"}", pm.getMetadata());
+
+            Assert.assertEquals("abc", read(pm.getTileStream(0, 0, 0)));
+            Assert.assertEquals("de", read(pm.getTileStream(1, 1, 0)));
+            Assert.assertEquals("fgh", read(pm.getTileStream(2, 0, 0)));
+            Assert.assertEquals("fgh", read(pm.getTileStream(2, 1, 0)));
+            Assert.assertNull(pm.getTileStream(1, 0, 0));
+            Assert.assertNull(pm.getTileStream(2, 3, 3));
+        } finally {
+            pm.close();
+        }
+    }
+
+    private static byte[] directory(long[] ids, int[] runs, int[] lengths, long[] offsets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        varint(out, ids.length);
+        long last = 0;
+        for (long id : ids) {
+            varint(out, id - last);
+            last = id;
+        }
+        for (int r : runs)
+            varint(out, r);
+        for (int l : lengths)
+            varint(out, l);
+        for (int i = 0; i < offsets.length; i++) {
+            if (i > 0 && offsets[i] == offsets[i - 1] + lengths[i - 1])
+                varint(out, 0);
+            else
+                varint(out, offsets[i] + 1);
+        }
+        return out.toByteArray();
+    }
+
+    private static void varint(ByteArrayOutputStream out, long v) {
+        while (v >= 0x80) {
+            out.write((int) (v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(buf);
+        out.write(data);
+        out.close();
+        return buf.toByteArray();
+    }
+
+    private static String read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = is.read()) != -1)
+            out.write(b);
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,34 @@
+package org.oscim.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class LongHashSetTest {
+
+    @Test
+    public void shouldMatchHashSet() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> ref = new HashSet<>();
+        Random r = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            long v = (r.nextInt(5000) + 1) * 0x100000001L;
+            Assert.assertEquals(ref.add(v), set.add(v));
+        }
+        Assert.assertEquals(ref.size(), set.size());
+
+        Assert.assertTrue(set.add(0));
+        Assert.assertFalse(set.add(0));
+        Assert.assertTrue(set.contains(0));
+
+        set.clear();
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains(0));
+        for (long v : ref)
+            Assert.assertFalse(set.contains(v));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import org.junit.Test;
+import org.oscim.core.Box;
+import org.oscim.core.Point;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedRTreeTest {
+
+    private static class Item {
+        final Box box;
+
+        Item(Box box) {
+            this.box = box;
+        }
+    }
+
+    private static List<Item> randomItems(Random r, int n) {
+        List<Item> items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = r.nextDouble() * 1000;
+            double y = r.nextDouble() * 1000;
+            items.add(new Item(new Box(x, y, x + r.nextDouble() * 20, y + r.nextDouble() * 20)));
+        }
+        return items;
+    }
+
+    private static PackedRTree<Item> build(List<Item> items) {
+        PackedRTree.Builder<Item> builder = new PackedRTree.Builder<>();
+        for (Item it : items)
+            builder.add(it.box, it);
+        return builder.build();
+    }
+
+    private static double distSq(Box b, Point p) {
+        double dx = Math.max(0, Math.max(b.xmin - p.x, p.x - b.xmax));
+        double dy = Math.max(0, Math.max(b.ymin - p.y, p.y - b.ymax));
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void shouldSearchLikeBruteForce() {
+        Random r = new Random(1);
+        for (int n : new int[]{0, 1, 16, 17, 1000, 5000}) {
+            List<Item> items = randomItems(r, n);
+            PackedRTree<Item> tree = build(items);
+            assertEquals(n, tree.size());
+
+            for (int q = 0; q < 50; q++) {
+                double x = r.nextDouble() * 1000;
+                double y = r.nextDouble() * 1000;
+                Box query = new Box(x, y, x + 100, y + 100);
+
+                List<Item> expected = new ArrayList<>();
+                for (Item it : items)
+                    if (it.box.overlap(query))
+                        expected.add(it);
+
+                List<Item> result = tree.search(query, null);
+                assertEquals(expected.size(), result.size());
+                assertTrue(result.containsAll(expected));
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindNearestNeighbors() {
+        Random r = new Random(2);
+        final List<Item> items = randomItems(r, 3000);
+        PackedRTree<Item> tree = build(items);
+
+        for (int q = 0; q < 50; q++) {
+            final Point p = new Point(r.nextDouble() * 1000, r.nextDouble() * 1000);
+            List<Double> expected = new ArrayList<>();
+            for (Item it : items) {
+                double d = distSq(it.box, p);
+                if (d <= 50 * 50)
+                    expected.add(d);
+            }
+            Collections.sort(expected);
+
+            List<Item> result = tree.searchKNearestNeighbors(p, 10, 50, null);
+            assertEquals(Math.min(10, expected.size()), result.size());
+            for (int i = 0; i < result.size(); i++)
+                assertEquals(expected.get(i), distSq(result.get(i).box, p), 1e-9);
+        }
+    }
+
+    @Test
+    public void shouldSwapTree() {
+        Random r = new Random(3);
+        List<Item> items = randomItems(r, 100);
+        CopyOnWriteSpatialIndex<Item> index = new CopyOnWriteSpatialIndex<>(build(items));
+        PackedRTree<Item> before = index.get();
+
+        Item it = items.get(42);
+        assertTrue(index.remove(it.box, it));
+        assertEquals(99, index.size());
+        assertEquals(100, before.size());
+        assertTrue(!index.search(it.box, new ArrayList<Item>()).contains(it));
+
+        index.insert(it.box, it);
+        assertEquals(100, index.size());
+        assertTrue(index.search(it.box, new ArrayList<Item>()).contains(it));
+
+        index.clear();
+        assertEquals(0, index.size());
+    }
+}
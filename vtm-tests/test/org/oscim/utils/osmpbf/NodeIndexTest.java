@@ -0,0 +1,92 @@
+package org.oscim.utils.osmpbf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class NodeIndexTest {
+
+    /* more than two chunks */
+    private static final int COUNT = 150000;
+
+    @Test
+    public void shouldFindSortedNodes() {
+        NodeIndex index = new NodeIndex();
+        for (int i = 0; i < COUNT; i++)
+            index.add(i * 3L + 1, i, -i);
+
+        Assert.assertEquals(COUNT, index.size());
+        /* first and last of the chunks */
+        for (int i : new int[]{0, 65535, 65536, 131071, 131072, COUNT - 1}) {
+            int p = index.find(i * 3L + 1);
+            Assert.assertEquals(i, p);
+            Assert.assertEquals(i, index.getLat(p));
+            Assert.assertEquals(-i, index.getLon(p));
+        }
+        Assert.assertEquals(-1, index.find(0));
+        Assert.assertEquals(-1, index.find(65536 * 3L + 2));
+        Assert.assertEquals(-1, index.find(COUNT * 3L + 1));
+    }
+
+    @Test
+    public void shouldSortUnsortedNodes() {
+        NodeIndex index = new NodeIndex();
+        Random r = new Random(42);
+        Map<Long, Integer> ref = new HashMap<>();
+        for (int i = 0; i < COUNT; i++) {
+            long id = r.nextInt(Integer.MAX_VALUE);
+            index.add(id, i, i + 1);
+            ref.put(id, i);
+        }
+
+        for (Map.Entry<Long, Integer> e : ref.entrySet()) {
+            int p = index.find(e.getKey());
+            Assert.assertTrue(p >= 0);
+            Assert.assertEquals((int) e.getValue(), index.getLat(p));
+            Assert.assertEquals(e.getValue() + 1, index.getLon(p));
+        }
+        Assert.assertEquals(ref.size(), index.size());
+        Assert.assertEquals(-1, index.find(-1));
+    }
+
+    @Test
+    public void shouldKeepLastAddedDuplicate() {
+        NodeIndex index = new NodeIndex();
+        Random r = new Random(7);
+        Map<Long, Integer> ref = new HashMap<>();
+        for (int i = 0; i < COUNT; i++) {
+            /* many duplicates, unsorted and across chunks */
+            long id = r.nextInt(1000) * 1000L;
+            index.add(id, i, 0);
+            ref.put(id, i);
+        }
+        /* appended in order */
+        index.add(999000, -1, 0);
+        ref.put(999000L, -1);
+
+        Assert.assertEquals(-1, index.getLat(index.find(999000)));
+        Assert.assertEquals(ref.size(), index.size());
+        for (Map.Entry<Long, Integer> e : ref.entrySet())
+            Assert.assertEquals((int) e.getValue(), index.getLat(index.find(e.getKey())));
+    }
+
+    @Test
+    public void shouldKeepLastOfSortedDuplicates() {
+        NodeIndex index = new NodeIndex();
+        index.add(1, 1, 0);
+        index.add(2, 2, 0);
+        index.add(2, 3, 0);
+        index.add(3, 4, 0);
+
+        Assert.assertEquals(3, index.getLat(index.find(2)));
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(4, index.getLat(index.find(3)));
+
+        index.clear();
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(-1, index.find(2));
+    }
+}
@@ -0,0 +1,67 @@
+#ifdef GLES
+precision highp float;
+#endif
+attribute vec2 a_pos;
+attribute vec2 a_tex_coord;
+uniform mat4 u_mvp;
+varying vec2 tex_c;
+
+void main() {
+    gl_Position = u_mvp * vec4(a_pos, 0.0, 1.0);
+    tex_c = a_tex_coord;
+}
+
+$$
+
+#ifdef GLES
+precision highp float;
+#endif
+uniform sampler2D u_tex;
+uniform float u_alpha;
+// texture size, border
+uniform vec2 u_size;
+// exaggeration / (2 * texel ground size)
+uniform float u_scale;
+// light direction: east, south, up
+uniform vec3 u_light;
+// shade color, alpha of the darkest shade
+uniform vec4 u_color;
+varying vec2 tex_c;
+
+// terrain-RGB elevation of the texel at p
+float height(vec2 p) {
+    vec3 c = floor(texture2D(u_tex, (p + 0.5) / u_size.x).rgb * 255.0 + 0.5);
+    return dot(c, vec3(6553.6, 25.6, 0.1));
+}
+
+void main() {
+    // texel position without the border
+    vec2 p = tex_c * (u_size.x - 2.0 * u_size.y) + u_size.y - 0.5;
+    vec2 t = floor(p);
+    vec2 f = p - t;
+
+    // heights around the four surrounding texels, hXY with m for -1
+    float h0m = height(t + vec2(0.0, -1.0));
+    float h1m = height(t + vec2(1.0, -1.0));
+    float hm0 = height(t + vec2(-1.0, 0.0));
+    float h00 = height(t);
+    float h10 = height(t + vec2(1.0, 0.0));
+    float h20 = height(t + vec2(2.0, 0.0));
+    float hm1 = height(t + vec2(-1.0, 1.0));
+    float h01 = height(t + vec2(0.0, 1.0));
+    float h11 = height(t + vec2(1.0, 1.0));
+    float h21 = height(t + vec2(2.0, 1.0));
+    float h02 = height(t + vec2(0.0, 2.0));
+    float h12 = height(t + vec2(1.0, 2.0));
+
+    // central differences at the four texels
+    vec2 g00 = vec2(h10 - hm0, h01 - h0m);
+    vec2 g10 = vec2(h20 - h00, h11 - h1m);
+    vec2 g01 = vec2(h11 - hm1, h02 - h00);
+    vec2 g11 = vec2(h21 - h01, h12 - h10);
+    vec2 g = mix(mix(g00, g10, f.x), mix(g01, g11, f.x), f.y) * u_scale;
+
+    float shade = dot(normalize(vec3(-g, 1.0)), u_light);
+    float a = clamp((u_light.z - shade) / u_light.z, 0.0, 1.0) * u_color.a * u_alpha;
+    gl_FragColor = vec4(u_color.rgb * a, a);
+}
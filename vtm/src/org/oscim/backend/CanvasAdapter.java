@@ -179,6 +179,29 @@ public abstract class CanvasAdapter {
             return null;
         }
 
+        InputStream inputStream = getInputStream(relativePathPrefix, src, resourceProvider);
+        if (inputStream == null)
+            return null;
+
+        Bitmap bitmap;
+        if (src.toLowerCase(Locale.ENGLISH).endsWith(".svg"))
+            bitmap = decodeSvgBitmap(inputStream, width, height, percent);
+        else
+            bitmap = decodeBitmap(inputStream, width, height, percent);
+        inputStream.close();
+        if (themeCallback != null)
+            bitmap = themeCallback.getBitmap(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Open a theme resource, e.g. to decode it with {@link #decodeBitmap(InputStream)}.
+     *
+     * @param relativePathPrefix the prefix for relative resource path
+     * @param src                the resource
+     * @return the input stream or null if the resource is invalid
+     */
+    public static InputStream getInputStream(String relativePathPrefix, String src, XmlThemeResourceProvider resourceProvider) throws IOException {
         InputStream inputStream = null;
         if (resourceProvider != null) {
             try {
@@ -211,20 +234,10 @@ public abstract class CanvasAdapter {
                 log.info("internal resource: " + src);*/
         }
 
-        if (inputStream == null) {
+        if (inputStream == null)
             log.severe("invalid resource: " + src);
-            return null;
-        }
 
-        Bitmap bitmap;
-        if (src.toLowerCase(Locale.ENGLISH).endsWith(".svg"))
-            bitmap = decodeSvgBitmap(inputStream, width, height, percent);
-        else
-            bitmap = decodeBitmap(inputStream, width, height, percent);
-        inputStream.close();
-        if (themeCallback != null)
-            bitmap = themeCallback.getBitmap(bitmap);
-        return bitmap;
+        return inputStream;
     }
 
     private static InputStream inputStreamFromAssets(String relativePathPrefix, String src) throws IOException {
@@ -60,8 +60,10 @@ public class MapElement extends GeometryBuffer {
     public MapElement(MapElement element) {
         super(element);
         this.tags.set(element.tags.asArray());
-        this.centroidPosition = element.centroidPosition;
-        this.labelPosition = element.labelPosition;
+        if (element.centroidPosition != null)
+            this.centroidPosition = new PointF(element.centroidPosition.x, element.centroidPosition.y);
+        if (element.labelPosition != null)
+            this.labelPosition = new PointF(element.labelPosition.x, element.labelPosition.y);
         this.setLayer(element.layer);
         this.level = element.level;
     }
@@ -104,7 +104,7 @@ public class Tag {
     /**
      * The value of this tag.
      */
-    public String value;
+    public final String value;
 
     /**
      * true when value is intern().
@@ -113,6 +113,16 @@ public class Tag {
 
     private int hashCodeValue = 0;
 
+    /**
+     * Ids in {@link TagDictionary}, resolved on first use.
+     */
+    private int keyId = UNRESOLVED;
+    private int valueId = UNRESOLVED;
+    private int tagId = UNRESOLVED;
+    private int valuesVersion;
+
+    private static final int UNRESOLVED = -2;
+
     /**
      * @param key   the key of the tag.
      * @param value the value of the tag.
@@ -142,6 +152,57 @@ public class Tag {
         this.intern = internValue;
     }
 
+    /**
+     * Create Tag from ids of {@link TagDictionary}.
+     *
+     * @param keyId   the key id.
+     * @param valueId the value id.
+     */
+    public Tag(int keyId, int valueId) {
+        this.key = TagDictionary.key(keyId);
+        this.value = TagDictionary.value(valueId);
+        this.intern = true;
+        this.keyId = keyId;
+        this.valueId = valueId;
+    }
+
+    /**
+     * @return the key id in {@link TagDictionary}.
+     */
+    public int keyId() {
+        if (keyId == UNRESOLVED)
+            keyId = TagDictionary.keyId(key);
+        return keyId;
+    }
+
+    /**
+     * Values are only looked up, the dictionary holds the values referenced
+     * by theme rules. An unknown value is resolved again when values were
+     * added since, e.g. when a theme is loaded after the tag was created.
+     *
+     * @return the value id in {@link TagDictionary}, or {@link TagDictionary#NONE}
+     * when value is not known to the dictionary.
+     */
+    public int valueId() {
+        if (valueId == UNRESOLVED
+                || (valueId == TagDictionary.NONE && valuesVersion != TagDictionary.valuesVersion())) {
+            valuesVersion = TagDictionary.valuesVersion();
+            valueId = TagDictionary.findValueId(value);
+            tagId = UNRESOLVED;
+        }
+        return valueId;
+    }
+
+    /**
+     * @return the key=value id in {@link TagDictionary}, or {@link TagDictionary#NONE}.
+     */
+    public int id() {
+        int valueId = valueId();
+        if (tagId == UNRESOLVED)
+            tagId = TagDictionary.tagId(keyId(), valueId);
+        return tagId;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of tag keys, tag values and key=value pairs.
+ * <p>
+ * Every distinct string gets a stable int id which is shared by all tile
+ * decoders and the render theme, so that matching of elements only needs
+ * to compare ints. Strings are stored intern()alized, i.e. {@link #key(int)}
+ * returns the same instance as {@link String#intern()}.
+ * <p>
+ * Values and pairs are limited to {@link #MAX_VALUES} and {@link #MAX_TAGS}
+ * entries. Once the limit is reached unknown values resolve to {@link #NONE},
+ * which never equals an id registered by a theme rule.
+ */
+public final class TagDictionary {
+
+    /**
+     * Id of a key, value or pair which is not in the dictionary.
+     */
+    public static final int NONE = -1;
+
+    public static final int MAX_VALUES = 1 << 18;
+    public static final int MAX_TAGS = 1 << 20;
+
+    private static final StringTable sKeys = new StringTable(Integer.MAX_VALUE);
+    private static final StringTable sValues = new StringTable(MAX_VALUES);
+
+    private static final ConcurrentHashMap<Long, Integer> sTags = new ConcurrentHashMap<>();
+    private static int sNumTags;
+
+    /**
+     * @param key the key.
+     * @return the id of key, it is added when not yet known.
+     */
+    public static int keyId(String key) {
+        return key == null ? NONE : sKeys.id(key, true, false);
+    }
+
+    /**
+     * @param value the value.
+     * @return the id of value, it is added when not yet known and the
+     * dictionary is not full.
+     */
+    public static int valueId(String value) {
+        return value == null ? NONE : sValues.id(value, true, false);
+    }
+
+    /**
+     * @param value the value.
+     * @return the id of value or {@link #NONE} when not known.
+     */
+    public static int findValueId(String value) {
+        return value == null ? NONE : sValues.id(value, false, false);
+    }
+
+    /**
+     * @return a counter which changes whenever a value is added, so that
+     * values cached as {@link #NONE} can be resolved again.
+     */
+    public static int valuesVersion() {
+        return sValues.version;
+    }
+
+    /**
+     * Add value regardless of the dictionary limit. Used for values
+     * that must always be matchable, e.g. the values of theme rules.
+     *
+     * @param value the value.
+     * @return the id of value.
+     */
+    public static int registerValue(String value) {
+        return value == null ? NONE : sValues.id(value, true, true);
+    }
+
+    /**
+     * @param keyId   the key id.
+     * @param valueId the value id.
+     * @return the id of the key=value pair, or {@link #NONE} when one of
+     * the ids is {@link #NONE} or the dictionary is full.
+     */
+    public static int tagId(int keyId, int valueId) {
+        if (keyId < 0 || valueId < 0)
+            return NONE;
+
+        Long pair = ((long) keyId << 32) | valueId;
+        Integer id = sTags.get(pair);
+        if (id != null)
+            return id;
+
+        synchronized (sTags) {
+            id = sTags.get(pair);
+            if (id != null)
+                return id;
+            if (sNumTags >= MAX_TAGS)
+                return NONE;
+            id = sNumTags++;
+            sTags.put(pair, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param id the key id.
+     * @return the intern()alized key.
+     */
+    public static String key(int id) {
+        return sKeys.get(id);
+    }
+
+    /**
+     * @param id the value id.
+     * @return the intern()alized value.
+     */
+    public static String value(int id) {
+        return sValues.get(id);
+    }
+
+    /**
+     * @return the intern()alized key, e.g. as replacement for String.intern()
+     * in tile decoders.
+     */
+    public static String internKey(String key) {
+        return key == null ? null : key(keyId(key));
+    }
+
+    /**
+     * Resolve the ids of all tags, e.g. for tag tables of a map file header,
+     * so that loader threads do not need to do it.
+     */
+    public static void resolve(Tag[] tags) {
+        for (Tag tag : tags) {
+            if (tag != null)
+                tag.id();
+        }
+    }
+
+    static final class StringTable {
+        private final ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<>();
+        private final int limit;
+        private volatile String[] strings = new String[256];
+        private volatile int version;
+        private int size;
+
+        StringTable(int limit) {
+            this.limit = limit;
+        }
+
+        int id(String s, boolean add, boolean force) {
+            Integer id = map.get(s);
+            if (id != null)
+                return id;
+            if (!add)
+                return NONE;
+
+            synchronized (this) {
+                id = map.get(s);
+                if (id != null)
+                    return id;
+                if (size >= limit && !force)
+                    return NONE;
+
+                String[] tmp = strings;
+                if (size == tmp.length) {
+                    String[] grown = new String[size << 1];
+                    System.arraycopy(tmp, 0, grown, 0, size);
+                    tmp = grown;
+                }
+                tmp[size] = s.intern();
+                /* publish the string before its id */
+                strings = tmp;
+                id = size++;
+                map.put(tmp[id], id);
+                version++;
+            }
+            return id;
+        }
+
+        String get(int id) {
+            String[] tmp = strings;
+            if (id < 0 || id >= tmp.length)
+                return null;
+            return tmp[id];
+        }
+    }
+
+    private TagDictionary() {
+        throw new IllegalStateException();
+    }
+}
@@ -39,6 +39,11 @@ public class TagSet {
      */
     private int numTags;
 
+    /**
+     * The {@link TagDictionary} ids of Tags.
+     */
+    private int[] ids = new int[0];
+
     /**
      * Instantiates a new TagSet with initial size of 10.
      */
@@ -124,6 +129,20 @@ public class TagSet {
         return tags;
     }
 
+    /**
+     * Return the {@link TagDictionary} key=value ids of Tags contained in TagSet.
+     * The array is reused, only the first {@link #size()} entries are valid.
+     *
+     * @return the ids array.
+     */
+    public int[] getIds() {
+        if (ids.length < numTags)
+            ids = new int[tags.length];
+        for (int i = 0; i < numTags; i++)
+            ids[i] = tags[i].id();
+        return ids;
+    }
+
     /**
      * Checks if any tag has the key 'key'.
      *
@@ -0,0 +1,662 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.marker;
+
+import org.oscim.core.Box;
+import org.oscim.core.MercatorProjection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Hierarchical clusters of markers for all zoom levels, see
+ * https://github.com/mapbox/supercluster
+ * <p>
+ * The hierarchy is built once, from the markers up to the lowest zoom
+ * level. Each level keeps its clusters in primitive arrays with a KD-tree,
+ * so a viewport query takes O(log n + k). Markers can be inserted and
+ * removed later without rebuilding the hierarchy.
+ * <p>
+ * A new hierarchy is built aside and replaces the current one as a whole,
+ * queries only wait for single inserts and removals.
+ * <p>
+ * Positions are in projected map coordinates [0..1].
+ */
+public class MarkerClusterIndex {
+
+    /**
+     * Receives the clusters and single markers of a query.
+     */
+    public interface Callback {
+        void cluster(double x, double y, int count, long id);
+
+        void item(double x, double y, MarkerInterface item);
+    }
+
+    private static final int KD_NODE_SIZE = 16;
+
+    private final int mMinZoom;
+    private final int mMaxZoom;
+    private final double mRadius;
+
+    /**
+     * The current hierarchy. load() builds the next one without holding the
+     * lock and replaces it at once, so queries never wait for a build.
+     */
+    private volatile Clusters mClusters;
+
+    /* the latest started load, older loads do not replace newer ones */
+    private long mLoadCount;
+    private long mLoaded;
+
+    /**
+     * @param minZoom the lowest zoom level to cluster.
+     * @param maxZoom the highest zoom level to cluster, markers are not
+     *                clustered above.
+     * @param radius  the cluster radius in pixels, relative to the tile size.
+     */
+    public MarkerClusterIndex(int minZoom, int maxZoom, double radius, int tileSize) {
+        mMinZoom = minZoom;
+        mMaxZoom = maxZoom;
+        mRadius = radius / tileSize;
+        mClusters = new Clusters();
+    }
+
+    public int getMinZoom() {
+        return mMinZoom;
+    }
+
+    public int getMaxZoom() {
+        return mMaxZoom;
+    }
+
+    public synchronized int size() {
+        return mClusters.size;
+    }
+
+    public synchronized void clear() {
+        mLoaded = ++mLoadCount;
+        mClusters = new Clusters();
+    }
+
+    /**
+     * Replace all markers and build the cluster hierarchy.
+     * <p>
+     * The hierarchy is built on the calling thread without holding the lock,
+     * queries use the previous markers until it is complete. Markers inserted
+     * or removed meanwhile are replaced by the loaded ones.
+     */
+    public void load(List<? extends MarkerInterface> items) {
+        long load;
+        synchronized (this) {
+            load = ++mLoadCount;
+        }
+        Clusters clusters = new Clusters();
+
+        Level points = clusters.levels[mMaxZoom + 1];
+        for (MarkerInterface item : items)
+            clusters.addPoint(item);
+        points.index();
+
+        for (int z = mMaxZoom; z >= mMinZoom; z--)
+            cluster(clusters.levels[z + 1], clusters.levels[z]);
+
+        synchronized (this) {
+            if (load > mLoaded) {
+                mLoaded = load;
+                mClusters = clusters;
+            }
+        }
+    }
+
+    /**
+     * Add the clusters of the level below to the (empty) level.
+     */
+    private static void cluster(Level prev, Level level) {
+        double r = level.radius;
+        int[] neighbors = new int[16];
+
+        for (int i = 0; i < prev.size; i++) {
+            if (prev.parent[i] >= 0 || prev.count[i] == 0)
+                continue;
+
+            double x = prev.x(i);
+            double y = prev.y(i);
+            int n = prev.within(x, y, r, neighbors);
+            if (n > neighbors.length) {
+                neighbors = new int[n];
+                n = prev.within(x, y, r, neighbors);
+            }
+
+            int c = level.add(0, 0);
+            double sx = 0, sy = 0;
+            int count = 0;
+            for (int k = -1; k < n; k++) {
+                int j = k < 0 ? i : neighbors[k];
+                if (prev.parent[j] >= 0 || prev.count[j] == 0)
+                    continue;
+                sx += prev.sumX[j];
+                sy += prev.sumY[j];
+                count += prev.count[j];
+                level.link(c, prev, j);
+            }
+            level.anchorX[c] = sx / count;
+            level.anchorY[c] = sy / count;
+            level.sumX[c] = sx;
+            level.sumY[c] = sy;
+            level.count[c] = count;
+        }
+        level.index();
+    }
+
+    /**
+     * Add a marker to the nearest cluster on each zoom level, or start a
+     * new cluster where there is none in range.
+     */
+    public synchronized void insert(MarkerInterface item) {
+        Clusters clusters = mClusters;
+        if (clusters.itemIds.containsKey(item))
+            return;
+
+        Level[] levels = clusters.levels;
+        Level prev = levels[mMaxZoom + 1];
+        int child = clusters.addPoint(item);
+        double x = prev.anchorX[child];
+        double y = prev.anchorY[child];
+        prev.index();
+
+        for (int z = mMaxZoom; z >= mMinZoom; z--) {
+            Level level = levels[z];
+            int c = level.nearest(x, y, level.radius);
+            if (c >= 0) {
+                level.link(c, prev, child);
+                for (int l = z; l >= mMinZoom && c >= 0; l--) {
+                    Level a = levels[l];
+                    a.sumX[c] += x;
+                    a.sumY[c] += y;
+                    a.count[c]++;
+                    a.moved(c);
+                    c = a.parent[c];
+                }
+                return;
+            }
+            c = level.add(x, y);
+            level.sumX[c] = x;
+            level.sumY[c] = y;
+            level.count[c] = 1;
+            level.link(c, prev, child);
+            level.index();
+
+            prev = level;
+            child = c;
+        }
+    }
+
+    /**
+     * Remove a marker from its clusters on all zoom levels.
+     *
+     * @return false when the marker is not in the index.
+     */
+    public synchronized boolean remove(MarkerInterface item) {
+        Clusters clusters = mClusters;
+        Integer id = clusters.itemIds.remove(item);
+        if (id == null)
+            return false;
+
+        Level[] levels = clusters.levels;
+        Level points = levels[mMaxZoom + 1];
+        double x = points.anchorX[id];
+        double y = points.anchorY[id];
+        clusters.items.set(id, null);
+        clusters.size--;
+
+        for (int z = mMaxZoom + 1, c = id; z >= mMinZoom && c >= 0; z--) {
+            Level level = levels[z];
+            level.count[c]--;
+            if (level.count[c] == 0) {
+                level.sumX[c] = 0;
+                level.sumY[c] = 0;
+            } else {
+                level.sumX[c] -= x;
+                level.sumY[c] -= y;
+                level.moved(c);
+            }
+            c = level.parent[c];
+        }
+        return true;
+    }
+
+    /**
+     * Find the clusters and single markers within a box at a zoom level.
+     *
+     * @param box  the area in projected map coordinates.
+     * @param zoom the zoom level, levels above maxZoom return all markers.
+     */
+    public synchronized void query(Box box, int zoom, Callback cb) {
+        Clusters clusters = mClusters;
+        int z = Math.max(mMinZoom, Math.min(zoom, mMaxZoom + 1));
+        Level level = clusters.levels[z];
+
+        double d = level.maxDrift;
+        int[] ids = level.range(box.xmin - d, box.ymin - d, box.xmax + d, box.ymax + d);
+
+        for (int k = 0, n = level.found; k < n; k++) {
+            int c = ids[k];
+            int count = level.count[c];
+            if (count == 0)
+                continue;
+            double x = level.x(c);
+            double y = level.y(c);
+            if (x < box.xmin || x > box.xmax || y < box.ymin || y > box.ymax)
+                continue;
+
+            if (count > 1) {
+                cb.cluster(x, y, count, ((long) z << 32) | c);
+                continue;
+            }
+            /* find the remaining marker of the cluster */
+            int l = z;
+            while (l <= mMaxZoom) {
+                c = clusters.levels[l].firstLive(c, clusters.levels[l + 1]);
+                l++;
+            }
+            cb.item(x, y, clusters.items.get(c));
+        }
+    }
+
+    /**
+     * @return the zoom level where the cluster splits up.
+     */
+    public synchronized int getExpansionZoom(long clusterId) {
+        Level[] levels = mClusters.levels;
+        int z = (int) (clusterId >> 32);
+        int c = (int) clusterId;
+        while (z <= mMaxZoom) {
+            Level level = levels[z];
+            Level next = levels[z + 1];
+            int live = 0;
+            int first = -1;
+            for (int i = level.firstChild[c]; i >= 0; i = next.nextSibling[i]) {
+                if (next.count[i] > 0) {
+                    live++;
+                    first = i;
+                }
+            }
+            z++;
+            if (live != 1)
+                break;
+            c = first;
+        }
+        return z;
+    }
+
+    /**
+     * Get the markers of a cluster.
+     */
+    public synchronized List<MarkerInterface> getItems(long clusterId, List<MarkerInterface> out) {
+        if (out == null)
+            out = new ArrayList<>();
+        mClusters.collect((int) (clusterId >> 32), (int) clusterId, out);
+        return out;
+    }
+
+    /**
+     * The levels of one hierarchy with its markers.
+     */
+    final class Clusters {
+        /**
+         * Levels by zoom, the markers on level maxZoom + 1.
+         */
+        final Level[] levels = new Level[mMaxZoom + 2];
+
+        final List<MarkerInterface> items = new ArrayList<>();
+        final IdentityHashMap<MarkerInterface, Integer> itemIds = new IdentityHashMap<>();
+
+        int size;
+
+        Clusters() {
+            for (int z = mMinZoom; z <= mMaxZoom + 1; z++)
+                levels[z] = new Level(z > mMaxZoom ? 0 : mRadius / (1 << z));
+        }
+
+        int addPoint(MarkerInterface item) {
+            Level points = levels[mMaxZoom + 1];
+            double x = MercatorProjection.longitudeToX(item.getPoint().getLongitude());
+            double y = MercatorProjection.latitudeToY(item.getPoint().getLatitude());
+            int id = points.add(x, y);
+            points.sumX[id] = x;
+            points.sumY[id] = y;
+            points.count[id] = 1;
+            items.add(item);
+            itemIds.put(item, id);
+            size++;
+            return id;
+        }
+
+        void collect(int z, int c, List<MarkerInterface> out) {
+            if (levels[z].count[c] == 0)
+                return;
+            if (z == mMaxZoom + 1) {
+                out.add(items.get(c));
+                return;
+            }
+            Level next = levels[z + 1];
+            for (int i = levels[z].firstChild[c]; i >= 0; i = next.nextSibling[i])
+                collect(z + 1, i, out);
+        }
+    }
+
+    /**
+     * Clusters of one zoom level. Anchors are the positions at the time a
+     * cluster was created and are used for the spatial index, the center
+     * is the mean of its markers.
+     */
+    static final class Level {
+        final double radius;
+
+        double[] anchorX = new double[16];
+        double[] anchorY = new double[16];
+        double[] sumX = new double[16];
+        double[] sumY = new double[16];
+        int[] count = new int[16];
+
+        /* cluster on the next lower zoom level */
+        int[] parent = new int[16];
+
+        /* children on the next higher zoom level, linked by their nextSibling */
+        int[] firstChild = new int[16];
+        int[] nextSibling = new int[16];
+
+        int size;
+
+        /* the largest distance of a center from its anchor */
+        double maxDrift;
+
+        /* KD-trees over consecutive entries, see index() */
+        KdTree[] trees = new KdTree[8];
+        int numTrees;
+
+        /* query results */
+        int[] result = new int[64];
+        int found;
+        int[] stack = new int[64];
+
+        Level(double radius) {
+            this.radius = radius;
+        }
+
+        double x(int i) {
+            return sumX[i] / count[i];
+        }
+
+        double y(int i) {
+            return sumY[i] / count[i];
+        }
+
+        void moved(int i) {
+            double dx = x(i) - anchorX[i];
+            double dy = y(i) - anchorY[i];
+            maxDrift = Math.max(maxDrift, Math.sqrt(dx * dx + dy * dy));
+        }
+
+        int add(double x, double y) {
+            if (size == count.length) {
+                int n = size * 2;
+                anchorX = Arrays.copyOf(anchorX, n);
+                anchorY = Arrays.copyOf(anchorY, n);
+                sumX = Arrays.copyOf(sumX, n);
+                sumY = Arrays.copyOf(sumY, n);
+                count = Arrays.copyOf(count, n);
+                parent = Arrays.copyOf(parent, n);
+                firstChild = Arrays.copyOf(firstChild, n);
+                nextSibling = Arrays.copyOf(nextSibling, n);
+            }
+            anchorX[size] = x;
+            anchorY[size] = y;
+            parent[size] = -1;
+            firstChild[size] = -1;
+            nextSibling[size] = -1;
+            return size++;
+        }
+
+        void link(int c, Level children, int child) {
+            children.parent[child] = c;
+            children.nextSibling[child] = firstChild[c];
+            firstChild[c] = child;
+        }
+
+        int firstLive(int c, Level children) {
+            for (int i = firstChild[c]; i >= 0; i = children.nextSibling[i])
+                if (children.count[i] > 0)
+                    return i;
+            return -1;
+        }
+
+        /**
+         * Index the entries added since the last call. Entries are indexed
+         * by a stack of KD-trees whose sizes decrease, like the digits of a
+         * binary counter: trees of similar size are merged, so an entry is
+         * re-indexed O(log n) times and a query visits O(log n) trees.
+         */
+        void index() {
+            int start = numTrees == 0 ? 0 : trees[numTrees - 1].end;
+            if (start == size)
+                return;
+            while (numTrees > 0) {
+                KdTree last = trees[numTrees - 1];
+                if (last.end - last.start > size - start)
+                    break;
+                start = last.start;
+                numTrees--;
+            }
+            if (numTrees == trees.length)
+                trees = Arrays.copyOf(trees, numTrees * 2);
+            trees[numTrees++] = new KdTree(anchorX, anchorY, start, size);
+        }
+
+        void found(int id) {
+            if (found == result.length)
+                result = Arrays.copyOf(result, found * 2);
+            result[found++] = id;
+        }
+
+        /**
+         * Find the entries with anchor in the box, valid until the next query.
+         *
+         * @return the ids, the number of results in {@link #found}.
+         */
+        int[] range(double minX, double minY, double maxX, double maxY) {
+            found = 0;
+            for (int t = 0; t < numTrees; t++)
+                stack = trees[t].range(minX, minY, maxX, maxY, this, stack);
+            return result;
+        }
+
+        /**
+         * Put the live entries with their center within r of x, y into out.
+         *
+         * @return the number of entries, may be larger than out.
+         */
+        int within(double x, double y, double r, int[] out) {
+            double d = r + maxDrift;
+            int[] ids = range(x - d, y - d, x + d, y + d);
+            double r2 = r * r;
+            int n = 0;
+            for (int k = 0; k < found; k++) {
+                int i = ids[k];
+                if (count[i] == 0)
+                    continue;
+                double dx = x(i) - x;
+                double dy = y(i) - y;
+                if (dx * dx + dy * dy <= r2) {
+                    if (n < out.length)
+                        out[n] = i;
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        /**
+         * @return the live entry nearest to x, y within r, or -1.
+         */
+        int nearest(double x, double y, double r) {
+            double d = r + maxDrift;
+            int[] ids = range(x - d, y - d, x + d, y + d);
+            double best = r * r;
+            int nearest = -1;
+            for (int k = 0; k < found; k++) {
+                int i = ids[k];
+                if (count[i] == 0)
+                    continue;
+                double dx = x(i) - x;
+                double dy = y(i) - y;
+                double dist = dx * dx + dy * dy;
+                if (dist <= best) {
+                    best = dist;
+                    nearest = i;
+                }
+            }
+            return nearest;
+        }
+    }
+
+    /**
+     * Static KD-tree over the anchors of the entries [start..end) of a level,
+     * see https://github.com/mourner/kdbush
+     */
+    static final class KdTree {
+        final int start;
+        final int end;
+        final int[] ids;
+        final double[] coords;
+
+        KdTree(double[] x, double[] y, int start, int end) {
+            this.start = start;
+            this.end = end;
+            int n = end - start;
+            ids = new int[n];
+            coords = new double[n * 2];
+            for (int i = 0; i < n; i++) {
+                ids[i] = start + i;
+                coords[i * 2] = x[start + i];
+                coords[i * 2 + 1] = y[start + i];
+            }
+            sort(0, n - 1, 0);
+        }
+
+        private void sort(int left, int right, int axis) {
+            if (right - left <= KD_NODE_SIZE)
+                return;
+            int m = (left + right) >> 1;
+            select(m, left, right, axis);
+            sort(left, m - 1, 1 - axis);
+            sort(m + 1, right, 1 - axis);
+        }
+
+        private void select(int k, int left, int right, int axis) {
+            while (right > left) {
+                double t = coords[2 * k + axis];
+                int i = left;
+                int j = right;
+                swap(left, k);
+                if (coords[2 * right + axis] > t)
+                    swap(left, right);
+                while (i < j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                    while (coords[2 * i + axis] < t)
+                        i++;
+                    while (coords[2 * j + axis] > t)
+                        j--;
+                }
+                if (coords[2 * left + axis] == t) {
+                    swap(left, j);
+                } else {
+                    j++;
+                    swap(j, right);
+                }
+                if (j <= k)
+                    left = j + 1;
+                if (k <= j)
+                    right = j - 1;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double t = coords[2 * i];
+            coords[2 * i] = coords[2 * j];
+            coords[2 * j] = t;
+            t = coords[2 * i + 1];
+            coords[2 * i + 1] = coords[2 * j + 1];
+            coords[2 * j + 1] = t;
+        }
+
+        /**
+         * Add the entries with anchor in the box to the results of level.
+         *
+         * @return the stack, grown when needed.
+         */
+        int[] range(double minX, double minY, double maxX, double maxY, Level level, int[] stack) {
+            int sp = 0;
+            stack[sp++] = 0;
+            stack[sp++] = ids.length - 1;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int axis = stack[--sp];
+                int right = stack[--sp];
+                int left = stack[--sp];
+
+                if (right - left <= KD_NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        double x = coords[2 * i];
+                        double y = coords[2 * i + 1];
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY)
+                            level.found(ids[i]);
+                    }
+                    continue;
+                }
+                int m = (left + right) >> 1;
+                double x = coords[2 * m];
+                double y = coords[2 * m + 1];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY)
+                    level.found(ids[m]);
+
+                if (sp + 6 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                double v = axis == 0 ? x : y;
+                if (axis == 0 ? minX <= v : minY <= v) {
+                    stack[sp++] = left;
+                    stack[sp++] = m - 1;
+                    stack[sp++] = 1 - axis;
+                }
+                if (axis == 0 ? maxX >= v : maxY >= v) {
+                    stack[sp++] = m + 1;
+                    stack[sp++] = right;
+                    stack[sp++] = 1 - axis;
+                }
+            }
+            return stack;
+        }
+    }
+}
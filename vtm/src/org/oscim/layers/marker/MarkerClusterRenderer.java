@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.marker;
+
+import org.oscim.core.Box;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.renderer.GLViewport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link MarkerRenderer} that shows clusters of nearby markers, looked up
+ * in a {@link MarkerClusterIndex}. The index is built when the layer is
+ * populated, the renderer only queries the clusters around the viewport
+ * when the zoom level changes or the map moves out of the queried area.
+ * <p>
+ * Cluster markers are {@link MarkerItem}s with the cluster id as uid, see
+ * {@link MarkerClusterIndex#getItems(long, List)}.
+ */
+public class MarkerClusterRenderer extends MarkerRenderer implements MarkerClusterIndex.Callback {
+
+    public static final int DEFAULT_MAX_ZOOM = 16;
+
+    /**
+     * The cluster radius in pixels.
+     */
+    public static final float DEFAULT_RADIUS = 40;
+
+    protected final MarkerClusterIndex mIndex;
+    protected final MarkerSymbol mClusterSymbol;
+
+    private final Box mViewBox = new Box();
+    private final Box mQueryBox = new Box();
+    private int mQueryZoom = -1;
+
+    private InternalItem[] mPool = new InternalItem[0];
+    private int mFound;
+
+    public MarkerClusterRenderer(MarkerLayer markerLayer, MarkerSymbol defaultSymbol,
+                                 MarkerSymbol clusterSymbol) {
+        this(markerLayer, defaultSymbol, clusterSymbol,
+                new MarkerClusterIndex(0, DEFAULT_MAX_ZOOM, DEFAULT_RADIUS, Tile.SIZE));
+    }
+
+    public MarkerClusterRenderer(MarkerLayer markerLayer, MarkerSymbol defaultSymbol,
+                                 MarkerSymbol clusterSymbol, MarkerClusterIndex index) {
+        super(markerLayer, defaultSymbol);
+        mClusterSymbol = clusterSymbol;
+        mIndex = index;
+    }
+
+    public MarkerClusterIndex getIndex() {
+        return mIndex;
+    }
+
+    @Override
+    protected void populate(int size) {
+        List<MarkerInterface> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            MarkerInterface item = mMarkerLayer.createItem(i);
+            if (item != null)
+                items.add(item);
+        }
+        mIndex.load(items);
+
+        synchronized (this) {
+            mQueryZoom = -1;
+            mUpdate = true;
+        }
+    }
+
+    /**
+     * Add a marker without rebuilding the clusters.
+     */
+    public void insert(MarkerInterface item) {
+        mIndex.insert(item);
+        invalidate();
+    }
+
+    /**
+     * Remove a marker without rebuilding the clusters.
+     */
+    public boolean remove(MarkerInterface item) {
+        if (!mIndex.remove(item))
+            return false;
+        invalidate();
+        return true;
+    }
+
+    private synchronized void invalidate() {
+        mQueryZoom = -1;
+        mUpdate = true;
+    }
+
+    /**
+     * @return the symbol for a cluster of count markers.
+     */
+    protected MarkerSymbol getClusterSymbol(int count) {
+        return mClusterSymbol != null ? mClusterSymbol : mDefaultMarker;
+    }
+
+    @Override
+    public synchronized void update(GLViewport v) {
+        if (!v.changed() && !mUpdate)
+            return;
+
+        double scale = Tile.SIZE * v.pos.scale;
+        mMarkerLayer.map().viewport().getMapExtents(mBox, Tile.SIZE / 2);
+        mViewBox.setExtents(mBox);
+        mViewBox.xmin = Math.max(0, v.pos.x + mViewBox.xmin / scale);
+        mViewBox.xmax = Math.min(1, v.pos.x + mViewBox.xmax / scale);
+        mViewBox.ymin = Math.max(0, v.pos.y + mViewBox.ymin / scale);
+        mViewBox.ymax = Math.min(1, v.pos.y + mViewBox.ymax / scale);
+
+        int zoom = v.pos.zoomLevel;
+        if (zoom != mQueryZoom
+                || mViewBox.xmin < mQueryBox.xmin || mViewBox.xmax > mQueryBox.xmax
+                || mViewBox.ymin < mQueryBox.ymin || mViewBox.ymax > mQueryBox.ymax) {
+            /* query one more view size around the view */
+            double w = mViewBox.getWidth();
+            double h = mViewBox.getHeight();
+            mQueryBox.xmin = Math.max(0, mViewBox.xmin - w);
+            mQueryBox.xmax = Math.min(1, mViewBox.xmax + w);
+            mQueryBox.ymin = Math.max(0, mViewBox.ymin - h);
+            mQueryBox.ymax = Math.min(1, mViewBox.ymax + h);
+            mQueryZoom = zoom;
+
+            mFound = 0;
+            mIndex.query(mQueryBox, zoom, this);
+            mItems = Arrays.copyOf(mPool, mFound);
+            mUpdate = true;
+        }
+        super.update(v);
+    }
+
+    private InternalItem nextItem(double x, double y) {
+        if (mFound == mPool.length) {
+            mPool = Arrays.copyOf(mPool, Math.max(64, mFound * 2));
+            for (int i = mFound; i < mPool.length; i++)
+                mPool[i] = new InternalItem();
+        }
+        InternalItem it = mPool[mFound++];
+        it.visible = false;
+        it.changes = false;
+        it.px = x;
+        it.py = y;
+        return it;
+    }
+
+    @Override
+    public void cluster(double x, double y, int count, long id) {
+        MarkerItem item = new MarkerItem(id, String.valueOf(count), null,
+                new GeoPoint(MercatorProjection.toLatitude(y), MercatorProjection.toLongitude(x)));
+        item.setMarker(getClusterSymbol(count));
+        nextItem(x, y).item = item;
+    }
+
+    @Override
+    public void item(double x, double y, MarkerInterface item) {
+        nextItem(x, y).item = item;
+    }
+
+    /**
+     * @return a factory to pass to the {@link ItemizedLayer} constructor.
+     */
+    public static MarkerRendererFactory factory(final MarkerSymbol defaultSymbol,
+                                                final MarkerSymbol clusterSymbol) {
+        return new MarkerRendererFactory() {
+            @Override
+            public MarkerRenderer create(MarkerLayer markerLayer) {
+                return new MarkerClusterRenderer(markerLayer, defaultSymbol, clusterSymbol);
+            }
+        };
+    }
+}
@@ -145,11 +145,31 @@ public class MapTile extends Tile {
      */
     MapTile holder;
 
+    /**
+     * Estimated memory of the tile data, see {@link #updateSize()}.
+     */
+    int heapSize, gpuSize;
+
     public abstract static class TileData extends Inlist<TileData> {
         Object id;
 
         protected abstract void dispose();
 
+        /**
+         * @return the estimated bytes of the data in the Java heap.
+         */
+        public int getHeapSize() {
+            return 0;
+        }
+
+        /**
+         * @return the estimated bytes of buffers and textures of the data
+         * in GL memory.
+         */
+        public int getGpuSize() {
+            return 0;
+        }
+
         @Override
         public TileData next() {
             return (TileData) next;
@@ -289,9 +309,41 @@ public class MapTile extends Tile {
             data.dispose();
             data = data.next;
         }
+        heapSize = 0;
+        gpuSize = 0;
         setState(NONE);
     }
 
+    /**
+     * Estimate the memory of the tile data. Only called by
+     * {@link TileManager} when the data is set and uploaded to GL.
+     */
+    void updateSize() {
+        int heap = 0, gpu = 0;
+        for (TileData d = data; d != null; d = d.next()) {
+            heap += d.getHeapSize();
+            gpu += d.getGpuSize();
+        }
+        heapSize = heap;
+        gpuSize = gpu;
+    }
+
+    /**
+     * @return the estimated bytes of the tile data in the Java heap, as
+     * counted by the TileManager.
+     */
+    public int getHeapSize() {
+        return heapSize;
+    }
+
+    /**
+     * @return the estimated bytes of the tile data in GL memory, as
+     * counted by the TileManager.
+     */
+    public int getGpuSize() {
+        return gpuSize;
+    }
+
     /**
      * Get the default ElementLayers which are added
      * by {@link VectorTileLoader}
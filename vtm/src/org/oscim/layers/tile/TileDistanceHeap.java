@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile;
+
+/**
+ * Orders tiles by {@link MapTile#distance} in place, like a heap sort that
+ * only proceeds as far as needed: building the heap is linear and each
+ * tile taken from the far end costs log(n). Cache eviction usually visits
+ * only a few of the cached tiles, so this avoids sorting all of them.
+ */
+final class TileDistanceHeap {
+
+    private MapTile[] mTiles;
+    private int mHeapSize;
+
+    /**
+     * @param tiles without null entries in [0, size)
+     */
+    void init(MapTile[] tiles, int size) {
+        mTiles = tiles;
+        mHeapSize = size;
+        for (int i = (size >> 1) - 1; i >= 0; i--)
+            siftDown(i, size);
+    }
+
+    /**
+     * @return the tile at position i of the ascending order. Positions
+     * from get(i) upwards are sorted, the tile may be replaced with null.
+     */
+    MapTile get(int i) {
+        MapTile[] tiles = mTiles;
+        while (mHeapSize > i) {
+            /* move farthest tile behind the heap */
+            int last = --mHeapSize;
+            MapTile t = tiles[0];
+            tiles[0] = tiles[last];
+            tiles[last] = t;
+            siftDown(0, last);
+        }
+        return tiles[i];
+    }
+
+    void clear() {
+        mTiles = null;
+        mHeapSize = 0;
+    }
+
+    private void siftDown(int i, int size) {
+        MapTile[] tiles = mTiles;
+        MapTile t = tiles[i];
+        float d = t.distance;
+
+        while (true) {
+            int c = (i << 1) + 1;
+            if (c >= size)
+                break;
+            if (c + 1 < size && tiles[c + 1].distance > tiles[c].distance)
+                c++;
+            if (tiles[c].distance <= d)
+                break;
+            tiles[i] = tiles[c];
+            i = c;
+        }
+        tiles[i] = t;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile;
+
+import org.oscim.map.Map;
+import org.oscim.utils.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Runs the {@link TileLoader}s of all tile layers on one set of threads,
+ * see {@link Parameters#TILE_LOADER_THREADS}.
+ * <p>
+ * Loaders are not started as threads but driven by {@link TileLoader#runOnce()}.
+ * A worker picks the layer with the highest priority that has jobs and an
+ * idle loader. Layers with the same priority share the workers by weight.
+ * Layers whose upload queue is full are skipped until the next map update.
+ */
+final class TileExecutor {
+    private static final Logger log = Logger.getLogger(TileExecutor.class.getName());
+
+    private static TileExecutor sInstance;
+
+    static synchronized TileExecutor getInstance() {
+        if (sInstance == null) {
+            int threads = Parameters.TILE_LOADER_THREADS;
+            if (threads < 0)
+                threads = Runtime.getRuntime().availableProcessors();
+            sInstance = new TileExecutor(Math.max(1, threads));
+        }
+        return sInstance;
+    }
+
+    private static final class Entry {
+        final Map map;
+        final TileManager manager;
+        final TileLoader[] loaders;
+        final boolean[] busy;
+        final int weight;
+        final int priority;
+
+        int running;
+        boolean updateRequested;
+
+        Entry(Map map, TileManager manager, TileLoader[] loaders, int weight, int priority) {
+            this.map = map;
+            this.manager = manager;
+            this.loaders = loaders;
+            this.busy = new boolean[loaders.length];
+            this.weight = Math.max(1, weight);
+            this.priority = priority;
+        }
+
+        int idleLoader() {
+            for (int i = 0; i < loaders.length; i++) {
+                if (!busy[i] && !loaders[i].isCanceled())
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private final List<Entry> mEntries = new ArrayList<>();
+
+    private TileExecutor(int threads) {
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "TileExecutor" + i);
+            t.setDaemon(true);
+            t.setPriority((Thread.NORM_PRIORITY + Thread.MIN_PRIORITY) / 2);
+            t.start();
+        }
+    }
+
+    synchronized void register(Map map, TileManager manager, TileLoader[] loaders,
+                               int weight, int priority) {
+        mEntries.add(new Entry(map, manager, loaders, weight, priority));
+        notifyAll();
+    }
+
+    synchronized void unregister(TileLoader[] loaders) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).loaders == loaders) {
+                mEntries.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wake up idle workers, called when jobs were added or loaders resumed.
+     */
+    synchronized void signal() {
+        for (Entry e : mEntries)
+            e.updateRequested = false;
+        notifyAll();
+    }
+
+    private Entry next() {
+        Entry best = null;
+        for (Entry e : mEntries) {
+            if (e.running >= e.loaders.length || e.idleLoader() < 0)
+                continue;
+            if (!e.manager.hasTileJobs())
+                continue;
+            if (e.manager.isUploadQueueFull()) {
+                /* the count is refreshed by the next update */
+                if (!e.updateRequested) {
+                    e.updateRequested = true;
+                    e.map.updateMap(false);
+                }
+                continue;
+            }
+            if (best == null || e.priority > best.priority
+                    || (e.priority == best.priority
+                    && e.running * best.weight < best.running * e.weight))
+                best = e;
+        }
+        return best;
+    }
+
+    private void work() {
+        while (true) {
+            Entry entry;
+            int slot;
+            synchronized (this) {
+                while ((entry = next()) == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                slot = entry.idleLoader();
+                entry.busy[slot] = true;
+                entry.running++;
+            }
+            try {
+                entry.loaders[slot].runOnce();
+            } catch (Throwable t) {
+                log.severe(t.toString());
+            } finally {
+                synchronized (this) {
+                    entry.busy[slot] = false;
+                    entry.running--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
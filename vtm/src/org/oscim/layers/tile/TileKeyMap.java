@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from tile coordinates, packed into a long key,
+ * to {@link MapTile}.
+ * <p>
+ * There must be only one writer thread, but lookups may run concurrently
+ * without locking: entries never move within a table, removed entries leave
+ * a tombstone and a grown table is published as a whole. A lookup returns
+ * either null or a tile with the requested coordinates.
+ */
+final class TileKeyMap {
+
+    private static final long FREE = -1;
+    private static final long REMOVED = -2;
+
+    private static final int MIN_CAPACITY = 64;
+
+    private static final class Table {
+        final long[] keys;
+        final MapTile[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new MapTile[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, FREE);
+        }
+    }
+
+    private volatile Table mTable;
+
+    /**
+     * written after each modification, read before each lookup
+     */
+    private volatile int mModCount;
+
+    /**
+     * number of entries
+     */
+    private int mSize;
+
+    /**
+     * number of entries and tombstones
+     */
+    private int mUsed;
+
+    TileKeyMap() {
+        mTable = new Table(MIN_CAPACITY);
+    }
+
+    static long key(int x, int y, int z) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    private static int hash(long key) {
+        /* murmur3 finalizer */
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * @threadsafe
+     */
+    MapTile get(int x, int y, int z) {
+        long key = key(x, y, z);
+
+        while (true) {
+            int modCount = mModCount;
+            MapTile t = find(mTable, key);
+
+            if (t != null && t.tileX == x && t.tileY == y && t.zoomLevel == z)
+                return t;
+
+            /* retry when the writer changed the map meanwhile */
+            if (modCount == mModCount)
+                return null;
+        }
+    }
+
+    private static MapTile find(Table table, long key) {
+        long[] keys = table.keys;
+        int mask = table.mask;
+
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return table.values[i];
+            if (k == FREE)
+                return null;
+        }
+    }
+
+    void put(MapTile tile) {
+        if (mUsed + 1 > (mTable.keys.length >> 1) + (mTable.keys.length >> 2))
+            rehash();
+
+        Table table = mTable;
+        long key = key(tile.tileX, tile.tileY, tile.zoomLevel);
+        long[] keys = table.keys;
+        int mask = table.mask;
+        int slot = -1;
+
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                table.values[i] = tile;
+                mModCount++;
+                return;
+            }
+            if (k == REMOVED) {
+                if (slot < 0)
+                    slot = i;
+            } else if (k == FREE) {
+                if (slot < 0) {
+                    slot = i;
+                    mUsed++;
+                }
+                break;
+            }
+        }
+
+        /* publish value before key */
+        table.values[slot] = tile;
+        keys[slot] = key;
+        mSize++;
+        mModCount++;
+    }
+
+    void remove(MapTile tile) {
+        Table table = mTable;
+        long key = key(tile.tileX, tile.tileY, tile.zoomLevel);
+        long[] keys = table.keys;
+        int mask = table.mask;
+
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                if (table.values[i] != tile)
+                    return;
+                table.values[i] = null;
+                keys[i] = REMOVED;
+                mSize--;
+                mModCount++;
+                return;
+            }
+            if (k == FREE)
+                return;
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        mTable = new Table(MIN_CAPACITY);
+        mSize = 0;
+        mUsed = 0;
+        mModCount++;
+    }
+
+    /**
+     * Copy entries to a new table, which drops tombstones and grows the
+     * table when more than half is used by entries.
+     */
+    private void rehash() {
+        Table old = mTable;
+        int capacity = old.keys.length;
+        if (mSize >= capacity >> 1)
+            capacity <<= 1;
+
+        Table table = new Table(capacity);
+        for (int j = 0, n = old.keys.length; j < n; j++) {
+            MapTile t = old.values[j];
+            if (t == null)
+                continue;
+            long key = old.keys[j];
+            int i = hash(key) & table.mask;
+            while (table.keys[i] != FREE)
+                i = (i + 1) & table.mask;
+            table.keys[i] = key;
+            table.values[i] = t;
+        }
+        mUsed = mSize;
+        mTable = table;
+        mModCount++;
+    }
+}
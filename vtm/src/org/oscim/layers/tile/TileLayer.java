@@ -24,10 +24,18 @@ import org.oscim.layers.Layer;
 import org.oscim.map.Map;
 import org.oscim.map.Map.UpdateListener;
 import org.oscim.tiling.TileSource;
+import org.oscim.utils.Parameters;
 
 public abstract class TileLayer extends Layer implements UpdateListener {
 
     private int mNumLoaders = 4;
+    private int mLoaderPriority;
+    private int mLoaderWeight;
+
+    /**
+     * Loaders are run by the shared TileExecutor.
+     */
+    private boolean mSharedLoaders;
 
     /**
      * TileManager responsible for adding visible tiles
@@ -67,9 +75,15 @@ public abstract class TileLayer extends Layer implements UpdateListener {
     protected void initLoader(int numLoaders) {
         mTileLoader = new TileLoader[numLoaders];
 
+        mSharedLoaders = Parameters.TILE_LOADER_THREADS != 0;
         for (int i = 0; i < numLoaders; i++) {
             mTileLoader[i] = createLoader();
-            mTileLoader[i].start();
+            if (!mSharedLoaders)
+                mTileLoader[i].start();
+        }
+        if (mSharedLoaders) {
+            int weight = mLoaderWeight > 0 ? mLoaderWeight : numLoaders;
+            TileExecutor.getInstance().register(mMap, mTileManager, mTileLoader, weight, mLoaderPriority);
         }
     }
 
@@ -87,6 +101,24 @@ public abstract class TileLayer extends Layer implements UpdateListener {
         mNumLoaders = num;
     }
 
+    /**
+     * Set priority of the loaders when shared with other layers, see
+     * {@link Parameters#TILE_LOADER_THREADS}. Layers with higher priority are
+     * loaded first. Default is 0. Should be called before attaching layer to map.
+     */
+    public void setLoaderPriority(int priority) {
+        mLoaderPriority = priority;
+    }
+
+    /**
+     * Set share of the loader threads when shared with layers of the same
+     * priority. Default is the number of loaders. Should be called before
+     * attaching layer to map.
+     */
+    public void setLoaderWeight(int weight) {
+        mLoaderWeight = weight;
+    }
+
     @Override
     public void onMapEvent(Event event, MapPosition mapPosition) {
 
@@ -103,11 +135,20 @@ public abstract class TileLayer extends Layer implements UpdateListener {
         } else if (event == Map.POSITION_EVENT) {
             if (mTileManager.update(mapPosition))
                 notifyLoaders();
+
+        } else if (event == Map.UPDATE_EVENT) {
+            /* update requested by TileExecutor to refresh the upload queue */
+            if (mSharedLoaders && mTileManager.isUploadQueueFull()) {
+                if (mTileManager.update(mapPosition))
+                    notifyLoaders();
+            }
         }
     }
 
     @Override
     public void onDetach() {
+        if (mSharedLoaders)
+            TileExecutor.getInstance().unregister(mTileLoader);
         for (TileLoader loader : mTileLoader) {
             loader.pause();
             loader.finish();
@@ -118,6 +159,10 @@ public abstract class TileLayer extends Layer implements UpdateListener {
     }
 
     void notifyLoaders() {
+        if (mSharedLoaders) {
+            TileExecutor.getInstance().signal();
+            return;
+        }
         for (TileLoader loader : mTileLoader)
             loader.go();
     }
@@ -142,6 +187,8 @@ public abstract class TileLayer extends Layer implements UpdateListener {
     protected void resumeLoaders() {
         for (TileLoader loader : mTileLoader)
             loader.proceed();
+        if (mSharedLoaders)
+            TileExecutor.getInstance().signal();
     }
 
     public TileManager getManager() {
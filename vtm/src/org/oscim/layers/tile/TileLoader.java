@@ -22,6 +22,7 @@ import org.oscim.core.MapElement;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.QueryResult;
 import org.oscim.utils.PausableThread;
+import org.oscim.utils.stats.TileStats;
 
 import static org.oscim.tiling.QueryResult.FAILED;
 import static org.oscim.tiling.QueryResult.SUCCESS;
@@ -59,12 +60,15 @@ public abstract class TileLoader extends PausableThread implements ITileDataSink
         if (mTile == null)
             return;
 
+        MapTile tile = mTile;
+        TileStats.beginTile();
         try {
-            loadTile(mTile);
+            loadTile(tile);
         } catch (Throwable t) {
             t.printStackTrace();
             completed(FAILED);
         }
+        TileStats.endTile(tile);
     }
 
     @Override
@@ -28,13 +28,16 @@ import org.oscim.map.Map;
 import org.oscim.map.Viewport;
 import org.oscim.renderer.BufferObject;
 import org.oscim.tiling.QueryResult;
+import org.oscim.utils.Parameters;
 import org.oscim.utils.ScanBox;
 import org.oscim.utils.quadtree.TileIndex;
+import org.oscim.utils.stats.TileStats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import static org.oscim.layers.tile.MapTile.State.*;
@@ -50,6 +53,28 @@ public class TileManager {
     private final int mCacheLimit;
     private int mCacheReduce;
 
+    /**
+     * With memory budget the number of tiles is only limited to
+     * mCacheLimit * BUDGET_CACHE_FACTOR.
+     */
+    private static final int BUDGET_CACHE_FACTOR = 4;
+
+    /**
+     * Weight of tiles without data in the budgets, they still take a place
+     * in the cache.
+     */
+    static final float MIN_SIZE_WEIGHT = 0.1f;
+
+    private long mHeapBudget;
+    private long mGpuBudget;
+
+    /**
+     * Estimated bytes of the tiles with data, counted when the data is set,
+     * uploaded and released.
+     */
+    private final AtomicLong mHeapUsage = new AtomicLong();
+    private final AtomicLong mGpuUsage = new AtomicLong();
+
     int mMinZoom;
     private int mMaxZoom;
 
@@ -94,7 +119,7 @@ public class TileManager {
     /**
      * counter for tiles with new data not yet loaded to GL
      */
-    private int mTilesToUpload;
+    private volatile int mTilesToUpload;
 
     /**
      * new tile jobs for MapWorkers
@@ -127,6 +152,13 @@ public class TileManager {
     private double mLevelUpThreshold = 1;
     private double mLevelDownThreshold = 2;
 
+    /**
+     * lock-free lookup of cached tiles, mIndex links parent and child tiles
+     */
+    private final TileKeyMap mTileMap = new TileKeyMap();
+
+    private final TileDistanceHeap mDistanceHeap = new TileDistanceHeap();
+
     private final TileIndex<TileNode, MapTile> mIndex =
             new TileIndex<TileNode, MapTile>() {
                 @Override
@@ -172,6 +204,89 @@ public class TileManager {
         mTilesEnd = 0;
         mTilesToUpload = 0;
         mUpdateSerial = 0;
+
+        if (Parameters.TILE_MEMORY_BUDGET) {
+            long maxMemory = Runtime.getRuntime().maxMemory();
+            setMemoryBudget(defaultHeapBudget(maxMemory), defaultGpuBudget(maxMemory));
+        }
+    }
+
+    /**
+     * @return an eighth of the maximum heap, the tile managers of several
+     * layers share the heap with the application.
+     */
+    static long defaultHeapBudget(long maxMemory) {
+        return maxMemory / 8;
+    }
+
+    /**
+     * GL has no portable query of the graphics memory, the maximum heap
+     * size stands in for the memory class of the device.
+     *
+     * @return a quarter of the maximum heap, within 16 to 256 MB.
+     */
+    static long defaultGpuBudget(long maxMemory) {
+        return Math.min(Math.max(maxMemory / 4, 16L << 20), 256L << 20);
+    }
+
+    /**
+     * Limit the cache by the estimated memory of the tile data, see
+     * {@link MapTile.TileData#getHeapSize()} and
+     * {@link MapTile.TileData#getGpuSize()}. When a budget is exceeded tiles
+     * are removed by their distance to the map center weighted by their
+     * size, so that far and large tiles go first. The cache limit of the
+     * constructor is raised, dense tiles then take fewer and sparse tiles
+     * more places in the cache.
+     *
+     * @param heapBytes the budget of tile data in the Java heap, 0 for none.
+     * @param gpuBytes  the budget of buffers and textures in GL memory, 0 for
+     *                  none.
+     */
+    public void setMemoryBudget(long heapBytes, long gpuBytes) {
+        mHeapBudget = Math.max(heapBytes, 0);
+        mGpuBudget = Math.max(gpuBytes, 0);
+    }
+
+    public boolean hasMemoryBudget() {
+        return mHeapBudget > 0 || mGpuBudget > 0;
+    }
+
+    /**
+     * @return the estimated bytes of the cached tiles in the Java heap.
+     */
+    public long getHeapUsage() {
+        return mHeapUsage.get();
+    }
+
+    /**
+     * @return the estimated bytes of the cached tiles in GL memory.
+     */
+    public long getGpuUsage() {
+        return mGpuUsage.get();
+    }
+
+    /**
+     * Update the estimated memory of a tile after its data was uploaded
+     * to GL.
+     *
+     * @threadsafe
+     */
+    public void updateSize(MapTile tile) {
+        synchronized (tile) {
+            if (tile.state(NEW_DATA | READY))
+                addSize(tile);
+        }
+    }
+
+    /**
+     * Count the change of the tile size, with the lock of the tile.
+     */
+    private void addSize(MapTile tile) {
+        int heap = tile.heapSize;
+        int gpu = tile.gpuSize;
+        tile.updateSize();
+        mHeapUsage.addAndGet(tile.heapSize - heap);
+        mGpuUsage.addAndGet(tile.gpuSize - gpu);
     }
 
     public void setZoomTable(int[] zoomTable) {
@@ -187,10 +302,11 @@ public class TileManager {
         mLevelUpThreshold = clamp(up, 1, 2);
     }
 
+    /**
+     * @threadsafe
+     */
     public MapTile getTile(int x, int y, int z) {
-        synchronized (mTilelock) {
-            return mIndex.getTile(x, y, z);
-        }
+        return mTileMap.get(x, y, z);
     }
 
     public void init() {
@@ -198,6 +314,7 @@ public class TileManager {
             mCurrentTiles.releaseTiles();
 
         mIndex.drop();
+        mTileMap.clear();
 
         /* Pass VBOs and VertexItems back to pools */
         for (int i = 0; i < mTilesEnd; i++) {
@@ -219,6 +336,8 @@ public class TileManager {
         Arrays.fill(mTiles, null);
         mTilesEnd = 0;
         mTilesCount = 0;
+        mHeapUsage.set(0);
+        mGpuUsage.set(0);
 
         /* Set up TileSet large enough to hold current tiles.
          * Use screen size as workaround for blank tiles in #520. */
@@ -371,25 +490,45 @@ public class TileManager {
         /* sets tiles to state == LOADING */
         jobQueue.setJobs(jobs);
         mJobs.clear();
-
-        if (mCacheReduce < mCacheLimit / 2) {
-            if (BufferObject.isMaxFill()) {
-                mCacheReduce += 10;
-                if (dbg)
-                    log.fine("reduce cache " + (mCacheLimit - mCacheReduce));
-            } else {
-                mCacheReduce = 0;
+        TileStats.gauge(TileStats.Gauge.JOB_QUEUE, jobs.length);
+
+        if (hasMemoryBudget()) {
+            /* the GL budget replaces the reduction on buffer fill */
+            long heapUsage = mHeapUsage.get();
+            long gpuUsage = mGpuUsage.get();
+            TileStats.gauge(TileStats.Gauge.TILE_HEAP_BYTES, heapUsage);
+            TileStats.gauge(TileStats.Gauge.TILE_GPU_BYTES, gpuUsage);
+            long removeHeap = mHeapBudget > 0 ? heapUsage - mHeapBudget : 0;
+            long removeGpu = mGpuBudget > 0 ? gpuUsage - mGpuBudget : 0;
+            int remove = mTilesCount - mCacheLimit * BUDGET_CACHE_FACTOR;
+
+            if (removeHeap > 0 || removeGpu > 0 || remove > CACHE_THRESHOLD
+                    || mTilesToUpload > MAX_TILES_IN_QUEUE) {
+                synchronized (mTilelock) {
+                    limitCache(pos, remove, removeHeap, removeGpu);
+                }
+            }
+        } else {
+            if (mCacheReduce < mCacheLimit / 2) {
+                if (BufferObject.isMaxFill()) {
+                    mCacheReduce += 10;
+                    if (dbg)
+                        log.fine("reduce cache " + (mCacheLimit - mCacheReduce));
+                } else {
+                    mCacheReduce = 0;
+                }
             }
-        }
 
-        /* limit cache items */
-        int remove = mTilesCount - (mCacheLimit - mCacheReduce);
+            /* limit cache items */
+            int remove = mTilesCount - (mCacheLimit - mCacheReduce);
 
-        if (remove > CACHE_THRESHOLD || mTilesToUpload > MAX_TILES_IN_QUEUE) {
-            synchronized (mTilelock) {
-                limitCache(pos, remove);
+            if (remove > CACHE_THRESHOLD || mTilesToUpload > MAX_TILES_IN_QUEUE) {
+                synchronized (mTilelock) {
+                    limitCache(pos, remove, 0, 0);
+                }
             }
         }
+        TileStats.gauge(TileStats.Gauge.UPLOAD_QUEUE, mTilesToUpload);
         return true;
     }
 
@@ -397,6 +536,15 @@ public class TileManager {
         jobQueue.clear();
     }
 
+    /**
+     * @return true if more tiles with new data wait for upload than allowed.
+     * The count is refreshed by the next update with tile jobs.
+     * @threadsafe
+     */
+    public boolean isUploadQueueFull() {
+        return mTilesToUpload > MAX_TILES_IN_QUEUE;
+    }
+
     public boolean hasTileJobs() {
         return !jobQueue.isEmpty();
     }
@@ -433,11 +581,13 @@ public class TileManager {
     }
 
     MapTile addTile(int x, int y, int zoomLevel) {
-        MapTile tile = mIndex.getTile(x, y, zoomLevel);
+        MapTile tile = mTileMap.get(x, y, zoomLevel);
+        TileStats.cache(TileStats.Cache.TILE, tile != null && tile.isActive());
 
         if (tile == null) {
             TileNode n = mIndex.add(x, y, zoomLevel);
             tile = n.item = new MapTile(n, x, y, zoomLevel);
+            mTileMap.put(tile);
             tile.setState(LOADING);
             mJobs.add(tile);
             addToCache(tile);
@@ -452,6 +602,7 @@ public class TileManager {
             if (p == null) {
                 TileNode n = mIndex.add(x >> 1, y >> 1, zoomLevel - 1);
                 p = n.item = new MapTile(n, x >> 1, y >> 1, zoomLevel - 1);
+                mTileMap.put(p);
                 addToCache(p);
                 /* this prevents to add tile twice to queue */
                 p.setState(LOADING);
@@ -467,12 +618,8 @@ public class TileManager {
     private void addToCache(MapTile tile) {
 
         if (mTilesEnd == mTiles.length) {
-            if (mTilesEnd > mTilesCount) {
-                TileDistanceSort.sort(mTiles, 0, mTilesEnd);
-                /* sorting also repacks the 'sparse' filled array
-                 * so end of mTiles is at mTilesCount now */
-                mTilesEnd = mTilesCount;
-            }
+            if (mTilesEnd > mTilesCount)
+                compactCache();
 
             if (mTilesEnd == mTiles.length) {
                 log.fine("realloc tiles " + mTilesEnd);
@@ -499,14 +646,68 @@ public class TileManager {
         if (t.state(NEW_DATA | READY))
             events.fire(TILE_REMOVED, t);
 
-        t.clear();
+        synchronized (t) {
+            mHeapUsage.addAndGet(-t.heapSize);
+            mGpuUsage.addAndGet(-t.gpuSize);
+            t.clear();
+        }
 
         mIndex.removeItem(t);
+        mTileMap.remove(t);
         mTilesCount--;
         return true;
     }
 
-    private void limitCache(MapPosition pos, int remove) {
+    /**
+     * Repack the 'sparse' filled cache array, so that the end
+     * of mTiles is at mTilesCount.
+     */
+    private void compactCache() {
+        MapTile[] tiles = mTiles;
+        int end = 0;
+        for (int i = 0; i < mTilesEnd; i++) {
+            if (tiles[i] != null)
+                tiles[end++] = tiles[i];
+        }
+        Arrays.fill(tiles, end, mTilesEnd, null);
+        mTilesEnd = end;
+    }
+
+    /**
+     * Weight the distances by the tile sizes relative to the mean size,
+     * like the cost per size of GreedyDual-Size. The aging of that policy
+     * is left to the distances, which grow while the map moves away.
+     * Tiles without data keep MIN_SIZE_WEIGHT, so that far ones are removed
+     * before near ones.
+     */
+    static void weightDistances(MapTile[] tiles, int size, boolean heap, boolean gpu) {
+        long sum = 0;
+        int cnt = 0;
+        for (int i = 0; i < size; i++) {
+            MapTile t = tiles[i];
+            long s = (heap ? t.heapSize : 0) + (gpu ? t.gpuSize : 0);
+            if (s > 0) {
+                sum += s;
+                cnt++;
+            }
+        }
+        if (cnt == 0)
+            return;
+
+        float mean = (float) sum / cnt;
+        for (int i = 0; i < size; i++) {
+            MapTile t = tiles[i];
+            long s = (heap ? t.heapSize : 0) + (gpu ? t.gpuSize : 0);
+            t.distance = (1 + t.distance) * Math.max(s / mean, MIN_SIZE_WEIGHT);
+        }
+    }
+
+    /**
+     * @param remove     the number of tiles to remove.
+     * @param removeHeap the bytes in the Java heap to remove.
+     * @param removeGpu  the bytes in GL memory to remove.
+     */
+    private void limitCache(MapPosition pos, int remove, long removeHeap, long removeGpu) {
         MapTile[] tiles = mTiles;
 
         /* count tiles that have new data */
@@ -535,19 +736,24 @@ public class TileManager {
             }
         }
 
-        if ((remove < CACHE_CLEAR_THRESHOLD) && (newTileCnt < MAX_TILES_IN_QUEUE))
+        boolean overBudget = removeHeap > 0 || removeGpu > 0;
+        if ((remove < CACHE_CLEAR_THRESHOLD) && (newTileCnt < MAX_TILES_IN_QUEUE) && !overBudget) {
+            mTilesToUpload = newTileCnt;
             return;
+        }
 
+        compactCache();
         updateDistances(tiles, mTilesEnd, pos);
-        TileDistanceSort.sort(tiles, 0, mTilesEnd);
+        if (overBudget)
+            weightDistances(tiles, mTilesEnd, removeHeap > 0, removeGpu > 0);
 
-        /* sorting also repacks the 'sparse' filled array
-         * so end of mTiles is at mTilesCount now */
-        mTilesEnd = mTilesCount;
+        /* order tiles by distance only as far as they are visited */
+        TileDistanceHeap heap = mDistanceHeap;
+        heap.init(tiles, mTilesEnd);
 
         /* start with farest away tile */
-        for (int i = mTilesCount - 1; i >= 0 && remove > 0; i--) {
-            MapTile t = tiles[i];
+        for (int i = mTilesEnd - 1; i >= 0 && (remove > 0 || removeHeap > 0 || removeGpu > 0); i--) {
+            MapTile t = heap.get(i);
 
             /* dont remove tile used by TileRenderer, or somewhere else
              * try again in next run. */
@@ -580,14 +786,18 @@ public class TileManager {
                 log.severe("stuff that should be here! " + t + " " + t.state());
             }
 
+            int heapSize = t.heapSize;
+            int gpuSize = t.gpuSize;
             if (removeFromCache(t)) {
                 tiles[i] = null;
                 remove--;
+                removeHeap -= heapSize;
+                removeGpu -= gpuSize;
             }
         }
 
-        for (int i = mTilesCount - 1; i >= 0 && newTileCnt > MAX_TILES_IN_QUEUE; i--) {
-            MapTile t = tiles[i];
+        for (int i = mTilesEnd - 1; i >= 0 && newTileCnt > MAX_TILES_IN_QUEUE; i--) {
+            MapTile t = heap.get(i);
             if ((t != null) && (t.state(NEW_DATA))) {
                 if (removeFromCache(t)) {
                     tiles[i] = null;
@@ -596,6 +806,7 @@ public class TileManager {
             }
         }
 
+        heap.clear();
         mTilesToUpload = newTileCnt;
     }
 
@@ -632,7 +843,10 @@ public class TileManager {
         @Override
         public void run() {
             if (result == QueryResult.SUCCESS && tile.state(LOADING)) {
-                tile.setState(NEW_DATA);
+                synchronized (tile) {
+                    addSize(tile);
+                    tile.setState(NEW_DATA);
+                }
                 events.fire(TILE_LOADED, tile);
                 mTilesToUpload++;
                 return;
@@ -732,7 +946,7 @@ public class TileManager {
     };
 
     public MapTile getTile(int tileX, int tileY, byte zoomLevel) {
-        return mIndex.getTile(tileX, tileY, zoomLevel);
+        return mTileMap.get(tileX, tileY, zoomLevel);
     }
 
     public void setZoomLevel(int zoomLevelMin, int zoomLevelMax) {
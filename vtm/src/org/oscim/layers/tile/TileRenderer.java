@@ -24,6 +24,7 @@ import org.oscim.renderer.LayerRenderer;
 import org.oscim.renderer.MapRenderer;
 import org.oscim.renderer.bucket.RenderBuckets;
 import org.oscim.utils.ScanBox;
+import org.oscim.utils.stats.TileStats;
 
 import static org.oscim.layers.tile.MapTile.PROXY_PARENT;
 import static org.oscim.layers.tile.MapTile.State.NEW_DATA;
@@ -137,7 +138,7 @@ public abstract class TileRenderer extends LayerRenderer {
     /**
      * compile tile layer data and upload to VBOs
      */
-    private static int compileTileLayers(MapTile[] tiles, int tileCnt) {
+    private int compileTileLayers(MapTile[] tiles, int tileCnt) {
         int uploadCnt = 0;
 
         for (int i = 0; i < tileCnt; i++) {
@@ -183,7 +184,7 @@ public abstract class TileRenderer extends LayerRenderer {
         return uploadCnt;
     }
 
-    private static int uploadTileData(MapTile tile) {
+    private int uploadTileData(MapTile tile) {
         tile.setState(READY);
         RenderBuckets buckets = tile.getBuckets();
 
@@ -191,14 +192,26 @@ public abstract class TileRenderer extends LayerRenderer {
         if (buckets == null)
             return 0;
 
+        long start = TileStats.start();
         if (!buckets.compile(true)) {
             buckets.clear();
+            mTileManager.updateSize(tile);
             return 0;
         }
+        TileStats.record(TileStats.Stage.UPLOAD, start);
+        mTileManager.updateSize(tile);
 
         return 1;
     }
 
+    /**
+     * Update the estimated memory of a tile after data of another layer
+     * was uploaded to GL, see {@link TileManager#updateSize(MapTile)}.
+     */
+    public void updateSize(MapTile tile) {
+        mTileManager.updateSize(tile);
+    }
+
     private final Object tilelock = new Object();
 
     /**
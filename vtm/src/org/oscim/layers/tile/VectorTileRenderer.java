@@ -214,6 +214,9 @@ public class VectorTileRenderer extends TileRenderer {
                 case CIRCLE:
                     b = CircleBucket.Renderer.draw(b, v);
                     break;
+                case HILLSHADING:
+                    b = HillshadingBucket.Renderer.draw(b, v, mLayerAlpha);
+                    break;
                 default:
                     /* just in case */
                     log.severe("unknown layer " + b.type);
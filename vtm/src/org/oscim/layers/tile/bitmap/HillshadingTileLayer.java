@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile.bitmap;
+
+import org.oscim.layers.tile.TileLoader;
+import org.oscim.map.Map;
+import org.oscim.renderer.bucket.HillshadingBucket;
+import org.oscim.renderer.bucket.HillshadingBucket.Shading;
+import org.oscim.renderer.bucket.TextureItem;
+import org.oscim.renderer.bucket.TextureItem.TexturePool;
+import org.oscim.renderer.light.Sun;
+import org.oscim.tiling.TileSource;
+import org.oscim.tiling.source.hgt.HgtElevationTileSource;
+
+/**
+ * Hillshading of elevation tiles on the GPU, e.g. from a
+ * {@link HgtElevationTileSource} or a source of
+ * 'terrain-RGB' tiles. The tiles hold the plain elevations, so changing the
+ * light, color or magnitude does not reload them.
+ */
+public class HillshadingTileLayer extends BitmapTileLayer {
+
+    private final Shading mShading = new Shading();
+    private final int mBorder;
+
+    public HillshadingTileLayer(Map map, TileSource tileSource) {
+        this(map, tileSource, HgtElevationTileSource.BORDER);
+    }
+
+    /**
+     * @param border the texels around each tile from its neighbours, 0 for
+     *               plain 'terrain-RGB' tiles.
+     */
+    public HillshadingTileLayer(Map map, TileSource tileSource, int border) {
+        super(map, tileSource);
+        mBorder = border;
+    }
+
+    int getBorder() {
+        return mBorder;
+    }
+
+    Shading getShading() {
+        return mShading;
+    }
+
+    /**
+     * @param azimuth  light direction in degrees clockwise from north.
+     * @param altitude light angle in degrees above the horizon.
+     */
+    public void setLight(float azimuth, float altitude) {
+        mShading.setLight(azimuth, altitude);
+        map().updateMap(true);
+    }
+
+    /**
+     * Light from the current position of the sun, call again when it moves.
+     */
+    public void setLight(Sun sun) {
+        float[] p = sun.getPosition();
+        mShading.setLight(p[0], p[1], p[2]);
+        map().updateMap(true);
+    }
+
+    /**
+     * @param color the shade color, its alpha is the alpha of the darkest shade.
+     */
+    public void setColor(int color) {
+        mShading.color = color;
+        map().updateMap(true);
+    }
+
+    /**
+     * @param exaggeration vertical scale of the elevations.
+     */
+    public void setExaggeration(float exaggeration) {
+        mShading.exaggeration = exaggeration;
+        map().updateMap(true);
+    }
+
+    @Override
+    protected TileLoader createLoader() {
+        return new HillshadingTileLoader(this, mTileSource);
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        elevationPool.clear();
+    }
+
+    /**
+     * pool of unfiltered elevation textures
+     */
+    final TexturePool elevationPool = new TexturePool(POOL_FILL) {
+        @Override
+        protected void initTexture(TextureItem t) {
+            HillshadingBucket.initTexture(t);
+        }
+    };
+}
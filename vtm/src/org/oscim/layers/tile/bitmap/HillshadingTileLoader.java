@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile.bitmap;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.renderer.bucket.HillshadingBucket;
+import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.tiling.TileSource;
+
+import static org.oscim.layers.tile.MapTile.State.LOADING;
+
+public class HillshadingTileLoader extends BitmapTileLoader {
+
+    private final HillshadingTileLayer mLayer;
+
+    public HillshadingTileLoader(HillshadingTileLayer tileLayer, TileSource tileSource) {
+        super(tileLayer, tileSource);
+        mLayer = tileLayer;
+    }
+
+    @Override
+    public void setTileImage(Bitmap bitmap) {
+        if (isCanceled() || !mTile.state(LOADING)) {
+            bitmap.recycle();
+            return;
+        }
+
+        int border = mLayer.getBorder();
+        double lat = MercatorProjection.toLatitude((mTile.tileY + 0.5) / (1 << mTile.zoomLevel));
+
+        HillshadingBucket l = new HillshadingBucket(mLayer.getShading());
+        l.border = border;
+        l.cellSize = (float) (MercatorProjection.groundResolution(lat, 1L << mTile.zoomLevel)
+                / (bitmap.getWidth() - 2 * border));
+        l.setBitmap(bitmap, Tile.SIZE, Tile.SIZE, mLayer.elevationPool);
+
+        RenderBuckets buckets = new RenderBuckets();
+        buckets.set(l);
+        mTile.data = buckets;
+    }
+}
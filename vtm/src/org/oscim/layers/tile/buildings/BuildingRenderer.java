@@ -136,6 +136,7 @@ public class BuildingRenderer extends ExtrusionRenderer {
                     mExtrusionBucketSet[activeTiles++] = ebs;
                 else if (!compiled && ebs.compile()) {
                     mExtrusionBucketSet[activeTiles++] = ebs;
+                    mTileRenderer.updateSize(tiles[i]);
                     compiled = true;
                 }
             }
@@ -158,6 +159,7 @@ public class BuildingRenderer extends ExtrusionRenderer {
 
                 else if (!compiled && ebs.compile()) {
                     mExtrusionBucketSet[activeTiles++] = ebs;
+                    mTileRenderer.updateSize(t);
                     compiled = true;
                 }
             }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile.vector;
+
+import org.oscim.core.GeometryBuffer;
+import org.oscim.renderer.bucket.LineBucket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Collects the lines of a tile per {@link LineBucket} and joins lines which
+ * share an end point before they are added to the bucket. Fewer, longer lines
+ * need fewer vertices for caps and joins.
+ * <p>
+ * Not thread safe, each {@link VectorTileLoader} has its own instance.
+ */
+final class LineMerger {
+
+    private static final class Group {
+        LineBucket bucket;
+
+        float[] points = new float[256];
+        int numPoints;
+
+        /* start and length of each line in points */
+        int[] lines = new int[32];
+        int numLines;
+
+        void add(float[] src, int start, int length) {
+            if (numPoints + length > points.length)
+                points = Arrays.copyOf(points, Math.max(points.length * 2, numPoints + length));
+            System.arraycopy(src, start, points, numPoints, length);
+
+            if (numLines * 2 + 2 > lines.length)
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            lines[numLines * 2] = numPoints;
+            lines[numLines * 2 + 1] = length;
+            numLines++;
+            numPoints += length;
+        }
+    }
+
+    private final IdentityHashMap<LineBucket, Group> mGroups = new IdentityHashMap<>();
+    private final ArrayList<Group> mPool = new ArrayList<>();
+
+    /* end point hash: key -> first end point, chained by mNext */
+    private long[] mKeys = new long[64];
+    private int[] mHead = new int[64];
+    private int[] mNext = new int[64];
+    private boolean[] mUsed = new boolean[32];
+
+    /* line ids of the current chain, negative when reversed */
+    private int[] mChain = new int[64];
+
+    private float[] mOut = new float[256];
+
+    /**
+     * Add the line strings of geom to be merged into bucket.
+     */
+    void add(LineBucket bucket, GeometryBuffer geom) {
+        Group g = mGroups.get(bucket);
+        if (g == null) {
+            g = mPool.isEmpty() ? new Group() : mPool.remove(mPool.size() - 1);
+            g.bucket = bucket;
+            mGroups.put(bucket, g);
+        }
+        int[] index = geom.index;
+        for (int i = 0, pos = 0; i < index.length; i++) {
+            int length = index[i];
+            if (length < 0)
+                break;
+            if (length >= 4)
+                g.add(geom.points, pos, length);
+            pos += length;
+        }
+    }
+
+    /**
+     * Merge the collected lines and add them to their buckets.
+     */
+    void flush() {
+        for (Group g : mGroups.values())
+            merge(g);
+        clear();
+    }
+
+    void clear() {
+        for (Group g : mGroups.values()) {
+            g.bucket = null;
+            g.numPoints = 0;
+            g.numLines = 0;
+            mPool.add(g);
+        }
+        mGroups.clear();
+    }
+
+    private static long key(float x, float y) {
+        /* +0f turns -0f into 0f */
+        return ((long) Float.floatToIntBits(x + 0f) << 32)
+                | (Float.floatToIntBits(y + 0f) & 0xffffffffL);
+    }
+
+    private long endKey(Group g, int end) {
+        int line = end >> 1;
+        int pos = g.lines[line * 2];
+        if ((end & 1) != 0)
+            pos += g.lines[line * 2 + 1] - 2;
+        return key(g.points[pos], g.points[pos + 1]);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        int mask = mKeys.length - 1;
+        int i = (int) (h ^ (h >>> 32)) & mask;
+        while (mHead[i] >= 0 && mKeys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * @return an unused end point other than 'end' at the same position,
+     * or -1.
+     */
+    private int find(Group g, int end) {
+        int i = slot(endKey(g, end));
+        for (int e = mHead[i]; e >= 0; e = mNext[e]) {
+            if (!mUsed[e >> 1])
+                return e;
+        }
+        return -1;
+    }
+
+    private void merge(Group g) {
+        int numLines = g.numLines;
+        int numEnds = numLines * 2;
+
+        int size = Integer.highestOneBit(Math.max(numEnds, 8)) << 2;
+        if (mKeys.length < size) {
+            mKeys = new long[size];
+            mHead = new int[size];
+        }
+        Arrays.fill(mHead, 0, mKeys.length, -1);
+        if (mNext.length < numEnds)
+            mNext = new int[numEnds];
+        if (mUsed.length < numLines)
+            mUsed = new boolean[numLines];
+        Arrays.fill(mUsed, 0, numLines, false);
+        if (mChain.length < numLines * 2 + 1)
+            mChain = new int[numLines * 2 + 1];
+
+        for (int e = 0; e < numEnds; e++) {
+            long key = endKey(g, e);
+            int i = slot(key);
+            mKeys[i] = key;
+            mNext[e] = mHead[i];
+            mHead[i] = e;
+        }
+
+        for (int line = 0; line < numLines; line++) {
+            if (mUsed[line])
+                continue;
+            mUsed[line] = true;
+
+            /* chain is built in both directions from the middle of mChain,
+             * ids are stored +1 to keep the sign for line 0 */
+            int first = numLines;
+            int last = numLines;
+            mChain[first] = line + 1;
+
+            /* append at the end */
+            int end = line * 2 + 1;
+            for (int e; (e = find(g, end)) >= 0; ) {
+                int next = e >> 1;
+                mUsed[next] = true;
+                boolean reversed = (e & 1) != 0;
+                mChain[++last] = reversed ? -(next + 1) : next + 1;
+                end = reversed ? next * 2 : next * 2 + 1;
+            }
+
+            /* prepend at the start */
+            end = line * 2;
+            for (int e; (e = find(g, end)) >= 0; ) {
+                int prev = e >> 1;
+                mUsed[prev] = true;
+                boolean reversed = (e & 1) == 0;
+                mChain[--first] = reversed ? -(prev + 1) : prev + 1;
+                end = reversed ? prev * 2 + 1 : prev * 2;
+            }
+
+            if (first == last) {
+                g.bucket.addLine(g.points, g.lines[line * 2], g.lines[line * 2 + 1], false);
+                continue;
+            }
+
+            int n = 0;
+            for (int c = first; c <= last; c++) {
+                int id = mChain[c];
+                int l = (id < 0 ? -id : id) - 1;
+                int pos = g.lines[l * 2];
+                int length = g.lines[l * 2 + 1];
+
+                if (mOut.length < n + length)
+                    mOut = Arrays.copyOf(mOut, Math.max(mOut.length * 2, n + length));
+
+                /* skip the shared point of the following lines */
+                int skip = c == first ? 0 : 2;
+                if (id > 0) {
+                    System.arraycopy(g.points, pos + skip, mOut, n, length - skip);
+                    n += length - skip;
+                } else {
+                    for (int i = pos + length - 2 - skip; i >= pos; i -= 2) {
+                        mOut[n++] = g.points[i];
+                        mOut[n++] = g.points[i + 1];
+                    }
+                }
+            }
+            g.bucket.addLine(mOut, 0, n, false);
+        }
+    }
+}
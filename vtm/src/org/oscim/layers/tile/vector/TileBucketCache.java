@@ -0,0 +1,650 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile.vector;
+
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.layers.tile.MapTile.TileData;
+import org.oscim.layers.tile.buildings.BuildingLayer;
+import org.oscim.layers.tile.vector.labeling.LabelTileData;
+import org.oscim.renderer.bucket.BucketCodec;
+import org.oscim.renderer.bucket.ExtrusionBucket;
+import org.oscim.renderer.bucket.ExtrusionBuckets;
+import org.oscim.renderer.bucket.RenderBucket;
+import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.renderer.bucket.SymbolItem;
+import org.oscim.renderer.bucket.TextItem;
+import org.oscim.theme.IRenderTheme;
+import org.oscim.theme.RenderTheme;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.Rule.RuleVisitor;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.AreaStyle.AreaBuilder;
+import org.oscim.theme.styles.CircleStyle;
+import org.oscim.theme.styles.ExtrusionStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.LineStyle.LineBuilder;
+import org.oscim.theme.styles.RenderStyle;
+import org.oscim.theme.styles.SymbolStyle;
+import org.oscim.theme.styles.TextStyle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Persistent cache of prepared {@link RenderBuckets}, label and
+ * extrusion data of {@link VectorTileLayer} tiles. Cached tiles are
+ * memory-mapped and restored without querying the tile source and
+ * without theme matching, bucket building and tessellation.
+ * <p/>
+ * Entries are stored in a versioned binary format per tile, keyed by
+ * tile, data source id and a hash of the theme. The theme hash covers
+ * the rules of the {@link RenderTheme} with their tags, the tag
+ * transformations, the style properties that are baked into the
+ * buckets, the text scale, the hooks of the layer and
+ * {@link VectorTileLoader#USE_MESH_POLY}. Use
+ * {@link #setThemeKey(String)} to distinguish further settings.
+ * <p/>
+ * The cache is limited to {@link #setMaxSize(long)} bytes. Entries are
+ * touched when they are loaded and the least recently used entries are
+ * removed once the limit is exceeded.
+ * <p/>
+ * Usage: {@link VectorTileLayer#setBucketCache(TileBucketCache)}
+ */
+public class TileBucketCache {
+
+    private static final Logger log = Logger.getLogger(TileBucketCache.class.getName());
+
+    private static final int MAGIC = 0x56544243; // "VTBC"
+    private static final int VERSION = 3;
+
+    private static final byte SECTION_END = 0;
+    private static final byte SECTION_BUCKETS = 1;
+    private static final byte SECTION_LABELS = 2;
+    private static final byte SECTION_EXTRUSIONS = 3;
+
+    private static final String SUFFIX = ".vtb";
+
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * Touch entries on load at most once per interval.
+     */
+    private static final long TOUCH_INTERVAL = 60 * 1000;
+
+    private final File mDir;
+    private final String mSourceId;
+
+    private String mThemeKey = "";
+
+    private Styles mStyles;
+
+    /**
+     * Guards the fields below.
+     */
+    private final Object mLock = new Object();
+    private final HashSet<File> mInUse = new HashSet<>();
+    private long mMaxSize = DEFAULT_MAX_SIZE;
+    /**
+     * Bytes in the cache directory, -1 when not yet counted.
+     */
+    private long mSize = -1;
+    private boolean mTrimming;
+
+    /**
+     * @param dir      the cache directory
+     * @param sourceId identifies the data of the tile source, e.g. map file name and date
+     */
+    public TileBucketCache(File dir, String sourceId) {
+        mDir = dir;
+        mSourceId = sourceId;
+    }
+
+    /**
+     * Set the key of the current theme, e.g. theme file, version and
+     * selected style. Entries of other keys are not used.
+     */
+    public synchronized void setThemeKey(String themeKey) {
+        mThemeKey = themeKey == null ? "" : themeKey;
+        mStyles = null;
+    }
+
+    /**
+     * Set the size limit of the cache directory in bytes.
+     */
+    public void setMaxSize(long maxSize) {
+        boolean trim;
+        synchronized (mLock) {
+            mMaxSize = maxSize;
+            trim = mSize > mMaxSize;
+        }
+        if (trim)
+            trim();
+    }
+
+    /**
+     * Restore the data of tile from cache.
+     *
+     * @return the RenderBuckets set as tile data or null when not cached
+     */
+    public RenderBuckets load(MapTile tile, VectorTileLayer layer) {
+        Styles styles = getStyles(layer);
+        if (styles == null)
+            return null;
+
+        File file = getFile(styles, tile);
+        if (!file.exists())
+            return null;
+
+        RenderBucket buckets = null;
+        LabelItems labels = null;
+        ExtrusionBucket extrusions = null;
+
+        /* the mapping is only referenced while decoding, the file
+         * is not removed by trim() meanwhile */
+        acquire(file);
+        boolean broken = false;
+        try {
+            ByteBuffer in = map(file);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != styles.hash)
+                throw new IOException("invalid header");
+
+            byte section;
+            while ((section = in.get()) != SECTION_END) {
+                if (section == SECTION_BUCKETS) {
+                    buckets = BucketCodec.readBuckets(in, styles);
+                } else if (section == SECTION_LABELS) {
+                    labels = new LabelItems();
+                    labels.symbols = BucketCodec.readSymbols(in, styles);
+                    labels.labels = BucketCodec.readLabels(in, styles);
+                } else if (section == SECTION_EXTRUSIONS) {
+                    extrusions = BucketCodec.readExtrusions(in);
+                } else {
+                    throw new IOException("invalid section " + section);
+                }
+            }
+        } catch (Exception e) {
+            log.fine(tile + " " + e);
+            broken = true;
+        } finally {
+            release(file);
+        }
+        if (broken) {
+            /* drop broken or outdated entry */
+            remove(file);
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > TOUCH_INTERVAL)
+            file.setLastModified(now);
+
+        RenderBuckets renderBuckets = new RenderBuckets();
+        renderBuckets.set(buckets);
+        tile.data = renderBuckets;
+
+        if (labels != null) {
+            LabelTileData ld = LabelTileData.get(tile);
+            ld.symbols.appendList(labels.symbols);
+            ld.labels.appendList(labels.labels);
+        }
+        if (extrusions != null)
+            BuildingLayer.get(tile).resetBuckets(extrusions);
+
+        return renderBuckets;
+    }
+
+    /**
+     * Store the prepared data of tile.
+     */
+    public void save(MapTile tile, VectorTileLayer layer) {
+        Styles styles = getStyles(layer);
+        if (styles == null)
+            return;
+
+        RenderBuckets buckets = tile.getBuckets();
+        if (buckets == null)
+            return;
+
+        File file = getFile(styles, tile);
+        File tmp = new File(file.getPath() + "." + Thread.currentThread().getId());
+
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            log.fine("could not create " + parent);
+            return;
+        }
+
+        boolean ok = false;
+        long replaced = file.length();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(styles.hash);
+
+            out.writeByte(SECTION_BUCKETS);
+            BucketCodec.writeBuckets(out, buckets.get(), styles);
+
+            for (TileData d = tile.data; d != null; d = d.next()) {
+                if (d instanceof LabelTileData) {
+                    LabelTileData ld = (LabelTileData) d;
+                    out.writeByte(SECTION_LABELS);
+                    BucketCodec.writeSymbols(out, ld.symbols.head(), styles);
+                    BucketCodec.writeLabels(out, ld.labels.head(), styles);
+                } else if (d instanceof ExtrusionBuckets) {
+                    out.writeByte(SECTION_EXTRUSIONS);
+                    BucketCodec.writeExtrusions(out, ((ExtrusionBuckets) d).buckets());
+                }
+            }
+            out.writeByte(SECTION_END);
+            out.close();
+            out = null;
+
+            ok = tmp.renameTo(file) || (file.delete() && tmp.renameTo(file));
+        } catch (IOException e) {
+            log.fine(tile + " " + e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.fine(e.toString());
+                }
+            }
+            if (!ok)
+                tmp.delete();
+        }
+        if (ok)
+            added(file.length() - replaced);
+    }
+
+    private void acquire(File file) {
+        synchronized (mLock) {
+            mInUse.add(file);
+        }
+    }
+
+    private void release(File file) {
+        synchronized (mLock) {
+            mInUse.remove(file);
+        }
+    }
+
+    private void remove(File file) {
+        long length = file.length();
+        synchronized (mLock) {
+            if (mInUse.contains(file) || !file.delete())
+                return;
+            if (mSize >= 0)
+                mSize -= length;
+        }
+    }
+
+    private void added(long bytes) {
+        boolean trim;
+        synchronized (mLock) {
+            if (mSize >= 0)
+                mSize += bytes;
+            trim = mSize < 0 || mSize > mMaxSize;
+        }
+        if (trim)
+            trim();
+    }
+
+    /**
+     * Count the cache directory and remove the least recently used
+     * entries until it is below 3/4 of the size limit.
+     */
+    private void trim() {
+        synchronized (mLock) {
+            if (mTrimming)
+                return;
+            mTrimming = true;
+        }
+        try {
+            ArrayList<File> files = new ArrayList<>();
+            collect(mDir, files);
+
+            final int n = files.size();
+            final long[] modified = new long[n];
+            final long[] length = new long[n];
+            Integer[] order = new Integer[n];
+            long size = 0;
+            for (int i = 0; i < n; i++) {
+                File f = files.get(i);
+                modified[i] = f.lastModified();
+                length[i] = f.length();
+                order[i] = i;
+                size += length[i];
+            }
+
+            long maxSize;
+            synchronized (mLock) {
+                maxSize = mMaxSize;
+                mSize = size;
+            }
+            if (size <= maxSize)
+                return;
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Long.compare(modified[a], modified[b]);
+                }
+            });
+
+            long target = maxSize / 4 * 3;
+            for (int i = 0; i < n && size > target; i++) {
+                int idx = order[i];
+                synchronized (mLock) {
+                    if (mInUse.contains(files.get(idx)) || !files.get(idx).delete())
+                        continue;
+                    size -= length[idx];
+                    mSize -= length[idx];
+                }
+            }
+            log.fine("trimmed cache to " + size + " bytes");
+        } finally {
+            synchronized (mLock) {
+                mTrimming = false;
+            }
+        }
+    }
+
+    private static void collect(File dir, ArrayList<File> files) {
+        File[] list = dir.listFiles();
+        if (list == null)
+            return;
+        for (File f : list) {
+            if (f.isDirectory())
+                collect(f, files);
+            else if (f.getName().endsWith(SUFFIX))
+                files.add(f);
+        }
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
+        }
+    }
+
+    private File getFile(Styles styles, Tile tile) {
+        return new File(mDir, styles.dir + File.separator
+                + tile.zoomLevel + File.separator
+                + tile.tileX + File.separator
+                + tile.tileY + SUFFIX);
+    }
+
+    private synchronized Styles getStyles(VectorTileLayer layer) {
+        IRenderTheme theme = layer.getTheme();
+        if (!(theme instanceof RenderTheme))
+            return null;
+
+        RenderTheme renderTheme = (RenderTheme) theme;
+        String hooks = layer.getHookNames();
+        if (mStyles == null || mStyles.theme != theme || !mStyles.hooks.equals(hooks)
+                || mStyles.meshPoly != VectorTileLoader.USE_MESH_POLY
+                || mStyles.textScale != renderTheme.getTextScale())
+            mStyles = new Styles(renderTheme, hooks, mSourceId, mThemeKey);
+
+        return mStyles;
+    }
+
+    static final class LabelItems {
+        SymbolItem symbols;
+        TextItem labels;
+    }
+
+    /**
+     * Indices of the styles of a theme in rule traversal order
+     * and the hash of theme rules, styles, hooks and cache key.
+     */
+    static final class Styles extends RuleVisitor implements BucketCodec.StyleTable {
+        final RenderTheme theme;
+        final String hooks;
+        final boolean meshPoly;
+        final float textScale;
+        final long hash;
+        final String dir;
+
+        private final ArrayList<RenderStyle<?>> mStyles = new ArrayList<>();
+        private final IdentityHashMap<Object, Integer> mIndex = new IdentityHashMap<>();
+
+        private long mHash = 0xcbf29ce484222325L;
+
+        private static final Comparator<Tag> TAG_ORDER = new Comparator<Tag>() {
+            @Override
+            public int compare(Tag a, Tag b) {
+                int c = compareStrings(a.key, b.key);
+                return c != 0 ? c : compareStrings(a.value, b.value);
+            }
+        };
+
+        private static int compareStrings(String a, String b) {
+            if (a == null)
+                return b == null ? 0 : -1;
+            return b == null ? 1 : a.compareTo(b);
+        }
+
+        Styles(RenderTheme theme, String hooks, String sourceId, String themeKey) {
+            this.theme = theme;
+            this.hooks = hooks;
+            this.meshPoly = VectorTileLoader.USE_MESH_POLY;
+            this.textScale = theme.getTextScale();
+
+            hash(VERSION);
+            hash(Tile.SIZE);
+            hash(sourceId);
+            hash(themeKey);
+            hash(hooks);
+            hash(meshPoly ? 1 : 0);
+            hash(theme.getLevels());
+
+            /* the transformations decide which rules match */
+            Map<String, String> keyMap = theme.getTransformKeyMap();
+            hash(keyMap == null ? 0 : keyMap.size());
+            if (keyMap != null) {
+                String[] keys = keyMap.keySet().toArray(new String[0]);
+                Arrays.sort(keys);
+                for (String key : keys) {
+                    hash(key);
+                    hash(keyMap.get(key));
+                }
+            }
+            Map<Tag, Tag> tagMap = theme.getTransformTagMap();
+            hash(tagMap == null ? 0 : tagMap.size());
+            if (tagMap != null) {
+                Tag[] tags = tagMap.keySet().toArray(new Tag[0]);
+                Arrays.sort(tags, TAG_ORDER);
+                for (Tag tag : tags) {
+                    Tag to = tagMap.get(tag);
+                    hash(tag.key);
+                    hash(tag.value);
+                    hash(to.key);
+                    hash(to.value);
+                }
+            }
+
+            theme.traverseRules(this);
+
+            hash = mHash;
+            dir = Long.toHexString(hash);
+        }
+
+        @Override
+        public void apply(Rule r) {
+            hash(r.getType().ordinal());
+            hash(r.element);
+            hash(r.zoom);
+            hash(r.selectFirstMatch ? 1 : 0);
+            hash(r.selectWhenMatched ? 1 : 0);
+            hash(r.getKeys());
+            hash(r.getValues());
+            hash(r.styles.length);
+
+            for (RenderStyle<?> style : r.styles) {
+                Integer index = mIndex.get(style);
+                if (index != null) {
+                    hash(index);
+                    continue;
+                }
+                index = mStyles.size();
+                hash(index);
+                mStyles.add(style);
+                add(style, index);
+                hash(style);
+
+                RenderStyle<?> current = style.current();
+                if (current != style)
+                    add(current, index);
+            }
+            hash(r.subRules.length);
+            super.apply(r);
+        }
+
+        /**
+         * Hash the properties that select the bucket type or
+         * change the geometry that is built for a style.
+         */
+        private void hash(RenderStyle<?> style) {
+            hash(style.getClass().getName());
+            if (style instanceof AreaStyle) {
+                AreaBuilder<?> b = AreaStyle.builder().set((AreaStyle) style);
+                hash(b.level);
+                hash(b.mesh ? 1 : 0);
+                hash(b.texture != null ? 1 : 0);
+                hash(b.strokeWidth);
+                hash(b.fadeScale);
+            } else if (style instanceof LineStyle) {
+                LineBuilder<?> b = LineStyle.builder().set((LineStyle) style);
+                hash(b.level);
+                hash(b.outline ? 1 : 0);
+                hash(b.fixed ? 1 : 0);
+                hash(b.strokeWidth);
+                hash(b.cap == null ? -1 : b.cap.ordinal());
+                hash(b.stipple);
+                hash(b.stippleWidth);
+                hash(b.texture != null ? 1 : 0);
+                hash(b.randomOffset ? 1 : 0);
+                hash(b.heightOffset);
+                if (b.dashArray != null) {
+                    for (float f : b.dashArray)
+                        hash(f);
+                }
+            } else if (style instanceof CircleStyle) {
+                CircleStyle c = (CircleStyle) style;
+                hash(c.radius);
+                hash(c.scaleRadius ? 1 : 0);
+            } else if (style instanceof ExtrusionStyle) {
+                hash(((ExtrusionStyle) style).defaultHeight);
+            } else if (style instanceof SymbolStyle) {
+                SymbolStyle s = (SymbolStyle) style;
+                hash(s.bitmap != null ? s.bitmap.getWidth() : -1);
+                hash(s.bitmap != null ? s.bitmap.getHeight() : -1);
+                hash(s.texture != null ? s.texture.rect.w : -1);
+                hash(s.texture != null ? s.texture.rect.h : -1);
+                hash(s.billboard ? 1 : 0);
+                hash(s.repeat ? 1 : 0);
+                hash(s.repeatStart);
+                hash(s.repeatGap);
+                hash(s.rotate ? 1 : 0);
+            } else if (style instanceof TextStyle) {
+                TextStyle t = (TextStyle) style;
+                hash(t.textKey);
+                hash(t.caption ? 1 : 0);
+                hash(t.priority);
+                hash(t.dy);
+                hash(t.areaSize);
+                /* label widths are measured at the scaled font size */
+                hash(t.fontSize);
+                hash(t.fontFamily.ordinal());
+                hash(t.fontStyle.ordinal());
+            }
+        }
+
+        private void add(RenderStyle<?> style, Integer index) {
+            if (!mIndex.containsKey(style))
+                mIndex.put(style, index);
+
+            if (style instanceof SymbolStyle) {
+                SymbolStyle symbol = (SymbolStyle) style;
+                if (symbol.bitmap != null && !mIndex.containsKey(symbol.bitmap))
+                    mIndex.put(symbol.bitmap, index);
+                if (symbol.texture != null && !mIndex.containsKey(symbol.texture))
+                    mIndex.put(symbol.texture, index);
+            }
+        }
+
+        @Override
+        public int indexOf(Object key) {
+            Integer index = key == null ? null : mIndex.get(key);
+            return index == null ? -1 : index;
+        }
+
+        @Override
+        public RenderStyle<?> get(int index) {
+            if (index < 0 || index >= mStyles.size())
+                return null;
+            return mStyles.get(index);
+        }
+
+        private void hash(String s) {
+            if (s == null) {
+                hash(-2);
+                return;
+            }
+            for (int i = 0, n = s.length(); i < n; i++)
+                hash(s.charAt(i));
+            hash(-1);
+        }
+
+        private void hash(String[] s) {
+            hash(s.length);
+            for (String v : s)
+                hash(v);
+        }
+
+        private void hash(float v) {
+            hash(Float.floatToIntBits(v));
+        }
+
+        private void hash(int v) {
+            mHash = (mHash ^ v) * 0x100000001b3L;
+        }
+    }
+}
@@ -45,6 +45,8 @@ public class VectorTileLayer extends TileLayer {
 
     private IRenderTheme mTheme;
 
+    private TileBucketCache mBucketCache;
+
     public VectorTileLayer(Map map, TileSource tileSource) {
         this(map, new TileManager(map,
                         100),
@@ -136,6 +138,23 @@ public class VectorTileLayer extends TileLayer {
         return mTheme;
     }
 
+    /**
+     * Set {@link TileBucketCache} to store and restore prepared tiles,
+     * null to disable.
+     */
+    public void setBucketCache(TileBucketCache cache) {
+        pauseLoaders(true);
+        mTileManager.clearJobs();
+
+        mBucketCache = cache;
+
+        resumeLoaders();
+    }
+
+    public TileBucketCache getBucketCache() {
+        return mBucketCache;
+    }
+
     /**
      * Hook to intercept tile data processing. Called concurently by tile
      * loader threads, so dont keep tile specific state.
@@ -199,6 +218,19 @@ public class VectorTileLayer extends TileLayer {
         return false;
     }
 
+    /**
+     * @return the class names of all hooks, identifying the tile data
+     * added by hooks
+     */
+    String getHookNames() {
+        StringBuilder sb = new StringBuilder();
+        for (LList<TileLoaderThemeHook> th = mLoaderThemeHooks.head(); th != null; th = th.next)
+            sb.append(th.data.getClass().getName()).append(';');
+        for (LList<TileLoaderProcessHook> ph = mLoaderProcessHooks.head(); ph != null; ph = ph.next)
+            sb.append(ph.data.getClass().getName()).append(';');
+        return sb.toString();
+    }
+
     public void callHooksComplete(MapTile tile, boolean success) {
         /* NB: cannot use internal iterater as this function
          * is called concurently by TileLoaders */
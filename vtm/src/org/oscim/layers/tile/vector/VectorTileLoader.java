@@ -28,7 +28,17 @@ import org.oscim.theme.styles.*;
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.QueryResult;
 import org.oscim.utils.Constants;
-
+import org.oscim.utils.Parameters;
+import org.oscim.utils.async.WorkerPool;
+import org.oscim.utils.stats.TileStats;
+import org.oscim.utils.stats.TileStats.Stage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static org.oscim.layers.tile.MapTile.State.LOADING;
@@ -42,6 +52,19 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
 
     public static final byte STROKE_MIN_ZOOM = 12;
 
+    /**
+     * Elements of a tile beyond this number are built in parallel, when
+     * enabled by {@link Parameters#TILE_BUILD_THREADS}. Their tags are
+     * filtered by {@link #filterTags(TagSet)}, the theme callbacks of this
+     * class are not called for them.
+     */
+    public static int PARALLEL_MIN_ELEMENTS = 1000;
+
+    /**
+     * Each partition adds its own buckets, so they should not be too small.
+     */
+    private static final int PARTITION_MIN_ELEMENTS = 250;
+
     protected IRenderTheme renderTheme;
 
     /**
@@ -71,8 +94,34 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
 
     protected RenderBuckets mBuckets;
 
+    /**
+     * TileBucketCache of the current tile, null when restored from cache
+     */
+    private TileBucketCache mBucketCache;
+
     private final VectorTileLayer mTileLayer;
 
+    /**
+     * Lines of the current tile to be joined, see {@link Parameters#MERGE_LINES}
+     */
+    private final LineMerger mLineMerger = new LineMerger();
+
+    /**
+     * Copies of the elements to build in parallel, null when disabled
+     */
+    private ArrayList<MapElement> mPending;
+
+    /**
+     * Filtered tags of the pending elements, null when not filtered
+     */
+    private ArrayList<TagSet> mPendingTags;
+    private int mElementCount;
+
+    /**
+     * Contexts building the partitions of the pending elements
+     */
+    private Partition[] mPartitions;
+
     public VectorTileLoader(VectorTileLayer tileLayer) {
         super(tileLayer.getManager());
         mTileLayer = tileLayer;
@@ -113,9 +162,35 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
 
         /* scale line width relative to latitude + PI * thumb */
         mLineScale *= 0.4f + 0.6f * ((float) Math.sin(Math.abs(lat) * (Math.PI / 180)));
+
+        mBucketCache = mTileLayer.getBucketCache();
+        if (mBucketCache != null) {
+            long start = TileStats.start();
+            mBuckets = mBucketCache.load(tile, mTileLayer);
+            TileStats.stop(Stage.IO, start);
+
+            if (mBuckets != null) {
+                mBucketCache = null;
+                completed(QueryResult.SUCCESS);
+                return true;
+            }
+        }
+
         mBuckets = new RenderBuckets();
         tile.data = mBuckets;
 
+        mElementCount = 0;
+        if (buildThreads() > 1) {
+            if (mPending == null) {
+                mPending = new ArrayList<>();
+                mPendingTags = new ArrayList<>();
+            }
+        } else {
+            mPending = null;
+            mPendingTags = null;
+        }
+
+        long start = TileStats.start();
         try {
             /* query data source, which calls process() callback */
             mTileDataSource.query(tile, this);
@@ -126,6 +201,8 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
             log.fine(tile + " " + t);
             t.printStackTrace();
             return false;
+        } finally {
+            TileStats.stop(Stage.DECODE, start);
         }
         return true;
     }
@@ -134,12 +211,39 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
     public void completed(QueryResult result) {
         boolean ok = (result == QueryResult.SUCCESS);
 
+        if (mPending != null) {
+            if (ok && !mPending.isEmpty() && !isCanceled()) {
+                ok = buildParallel();
+                if (!ok)
+                    result = QueryResult.FAILED;
+            }
+            mPending.clear();
+            mPendingTags.clear();
+        }
+
+        if (ok) {
+            long start = TileStats.start();
+            mLineMerger.flush();
+            TileStats.stop(Stage.BUILD, start);
+        } else {
+            mLineMerger.clear();
+        }
+
         mTileLayer.callHooksComplete(mTile, ok);
 
         /* finish buckets- tessellate and cleanup on worker-thread */
+        long start = TileStats.start();
         mBuckets.prepare();
+        TileStats.stop(Stage.PREPARE, start);
         clearState();
 
+        if (ok && mBucketCache != null && !isCanceled()) {
+            start = TileStats.start();
+            mBucketCache.save(mTile, mTileLayer);
+            TileStats.stop(Stage.IO, start);
+        }
+        mBucketCache = null;
+
         super.completed(result);
     }
 
@@ -185,6 +289,31 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
         if (mTileLayer.callProcessHooks(mTile, mBuckets, element))
             return;
 
+        if (mPending != null && ++mElementCount > PARALLEL_MIN_ELEMENTS) {
+            /* filter on this thread, filterTags may reuse its result */
+            TagSet tags = filterTags(element.tags);
+            if (tags == null)
+                return;
+            if (tags != element.tags) {
+                TagSet filtered = new TagSet();
+                filtered.set(tags);
+                tags = filtered;
+            } else {
+                tags = null;
+            }
+            /* the element belongs to the data source */
+            mPending.add(new MapElement(element));
+            mPendingTags.add(tags);
+            return;
+        }
+
+        build(element);
+    }
+
+    /**
+     * Match the element with the theme and add it to the buckets.
+     */
+    private void build(MapElement element) {
         TagSet tags = filterTags(element.tags);
         if (tags == null)
             return;
@@ -192,15 +321,177 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
         mElement = element;
 
         /* get and apply render instructions */
+        long start = TileStats.start();
+        RenderStyle<?>[] styles = renderTheme.matchElement(element.type, tags, mTile.zoomLevel);
+        TileStats.stop(Stage.MATCH, start);
+
+        start = TileStats.start();
         if (element.type == GeometryType.POINT) {
-            renderNode(renderTheme.matchElement(element.type, tags, mTile.zoomLevel));
+            renderNode(styles);
         } else {
             mCurBucket = getValidLayer(element.layer) * renderTheme.getLevels() * (element.level > 0 ? element.level : 1);
-            renderWay(renderTheme.matchElement(element.type, tags, mTile.zoomLevel));
+            renderWay(styles);
         }
+        TileStats.stop(Stage.BUILD, start);
         clearState();
     }
 
+    private static int buildThreads() {
+        int threads = Parameters.TILE_BUILD_THREADS;
+        return threads < 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Build the pending elements in consecutive partitions, each into its
+     * own buckets. The partitions are built on the {@link WorkerPool} and
+     * the loader thread. The buckets are merged by level in partition
+     * order and the theme hooks called in element order, so the result
+     * draws like built one by one.
+     *
+     * @return false when a partition failed.
+     */
+    private boolean buildParallel() {
+        final ArrayList<MapElement> elements = mPending;
+        final ArrayList<TagSet> tags = mPendingTags;
+        int size = elements.size();
+        final int count = Math.min(buildThreads(),
+                (size + PARTITION_MIN_ELEMENTS - 1) / PARTITION_MIN_ELEMENTS);
+
+        if (mPartitions == null || mPartitions.length < count) {
+            Partition[] partitions = new Partition[count];
+            for (int i = 0; i < count; i++)
+                partitions[i] = mPartitions != null && i < mPartitions.length
+                        ? mPartitions[i] : new Partition();
+            mPartitions = partitions;
+        }
+
+        long start = TileStats.start();
+        final Partition[] partitions = mPartitions;
+        long[][] times = new long[count][];
+        for (int i = 0; i < count; i++) {
+            Partition p = partitions[i];
+            p.tile = mTile;
+            p.theme = renderTheme;
+            p.lineScale = mLineScale;
+            p.buckets = new RenderBuckets();
+            p.from = (int) ((long) size * i / count);
+            p.to = (int) ((long) size * (i + 1) / count);
+            Arrays.fill(p.times, 0);
+            times[i] = p.times;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final VectorTileLoader owner = this;
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int i; (i = next.getAndIncrement()) < count; )
+                    partitions[i].build(elements, tags, owner);
+            }
+        };
+
+        ExecutorService pool = WorkerPool.get();
+        List<Future<?>> parts = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++)
+            parts.add(pool.submit(worker));
+
+        Throwable failure = null;
+        try {
+            worker.run();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        /* parts that did not start yet have nothing left to do */
+        for (Future<?> part : parts)
+            part.cancel(false);
+        Throwable partFailure = WorkerPool.awaitAll(parts);
+        if (failure == null)
+            failure = partFailure;
+        if (failure != null)
+            log.severe(mTile + " " + failure);
+
+        boolean ok = failure == null;
+        for (int i = 0; i < count; i++) {
+            Partition p = partitions[i];
+            if (ok) {
+                mBuckets.merge(p.buckets);
+                ArrayList<Object> hooks = p.themeHooks;
+                for (int j = 0; j < hooks.size(); j += 3)
+                    mTileLayer.callThemeHooks(mTile, mBuckets, (MapElement) hooks.get(j),
+                            (RenderStyle<?>) hooks.get(j + 1), (Integer) hooks.get(j + 2));
+            } else {
+                p.buckets.clear();
+                p.lineMerger.clear();
+            }
+            p.clear();
+        }
+        TileStats.stopParts(start, times);
+        return ok;
+    }
+
+    /**
+     * @return the bucket to keep for outlines of following line styles.
+     */
+    static LineBucket addLine(RenderBuckets buckets, LineMerger lineMerger, MapElement element,
+                              LineStyle line, int level, float lineScale, LineBucket curLineBucket) {
+        if (line.outline && curLineBucket == null) {
+            log.fine("missing line for outline! " + element.tags
+                    + " lvl:" + level + " layer:" + element.layer);
+            return null;
+        }
+
+        if (line.stipple == 0 && line.texture == null) {
+            LineBucket lb = buckets.getLineBucket(level);
+
+            if (lb.line == null) {
+                lb.line = line;
+                lb.scale = line.fixed ? 1 : lineScale;
+                lb.setExtents(-16, Tile.SIZE + 16);
+            }
+
+            if (line.outline) {
+                lb.addOutline(curLineBucket);
+                return curLineBucket;
+            }
+
+            if (Parameters.MERGE_LINES && element.isLine())
+                lineMerger.add(lb, element);
+            else
+                lb.addLine(element);
+
+            /* keep reference for outline layer(s) */
+            return lb;
+        }
+
+        LineTexBucket lb = buckets.getLineTexBucket(level);
+
+        if (lb.line == null) {
+            lb.line = line;
+            lb.scale = line.fixed ? 1 : lineScale;
+            lb.setExtents(-16, Tile.SIZE + 16);
+        }
+
+        lb.addLine(element);
+        return curLineBucket;
+    }
+
+    static void addArea(RenderBuckets buckets, MapElement element, AreaStyle area, int level) {
+        // Use tessellation with Mapsforge and Freizeitkarte artificial tags for land/sea areas
+        boolean mesh = element.tags.contains(Constants.TAG_MAPSFORGE_ISSEA) || element.tags.contains(Constants.TAG_MAPSFORGE_NOSEA) || element.tags.contains(Constants.TAG_MAPSFORGE_SEA)
+                || element.tags.contains(Constants.TAG_FREIZEITKARTE_LAND) || element.tags.contains(Constants.TAG_FREIZEITKARTE_MEER);
+
+        if (area.mesh || mesh
+                || (USE_MESH_POLY && area.texture == null && area.strokeWidth <= 0)) {
+            MeshBucket mb = buckets.getMeshBucket(level);
+            mb.area = area;
+            mb.addMesh(element);
+        } else {
+            PolygonBucket pb = buckets.getPolygonBucket(level);
+            pb.area = area;
+            pb.addPolygon(element.points, element.index);
+        }
+    }
+
     protected void renderWay(RenderStyle[] style) {
         if (style == null)
             return;
@@ -227,62 +518,15 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
      ***/
     @Override
     public void renderWay(LineStyle line, int level) {
-        int nLevel = mCurBucket + level;
-
-        if (line.outline && mCurLineBucket == null) {
-            log.fine("missing line for outline! " + mElement.tags
-                    + " lvl:" + level + " layer:" + mElement.layer);
-            return;
-        }
-
-        //LineBucket lb;
-
-        if (line.stipple == 0 && line.texture == null) {
-            //lb = mBuckets.getLineBucket(nLevel);
-            //    else
-            //        lb = mBuckets.getLineTexBucket(nLevel);
-
-            LineBucket lb = mBuckets.getLineBucket(nLevel);
-
-            if (lb.line == null) {
-                lb.line = line;
-                lb.scale = line.fixed ? 1 : mLineScale;
-                lb.setExtents(-16, Tile.SIZE + 16);
-            }
-
-            if (line.outline) {
-                lb.addOutline(mCurLineBucket);
-                return;
-            }
-
-            lb.addLine(mElement);
-
-            /* keep reference for outline layer(s) */
-            //if (!(lb instanceof LineTexBucket))
-            mCurLineBucket = lb;
-
-        } else {
-            LineTexBucket lb = mBuckets.getLineTexBucket(nLevel);
-
-            if (lb.line == null) {
-                lb.line = line;
-                lb.scale = line.fixed ? 1 : mLineScale;
-                lb.setExtents(-16, Tile.SIZE + 16);
-            }
-            //if (lb.line == null) {
-            //    lb.line = line;
-            //    float w = line.width;
-            //    if (!line.fixed)
-            //        w *= mLineScale;
-            //    lb.scale = w;
-            //}
-
-            lb.addLine(mElement);
-        }
+        mCurLineBucket = addLine(mBuckets, mLineMerger, mElement, line, mCurBucket + level,
+                mLineScale, mCurLineBucket);
     }
 
     /* slower to load (requires tesselation) and uses
-     * more memory but should be faster to render */
+     * more memory but should be faster to render:
+     * triangulated polygons are drawn in one pass without
+     * the stencil buffer. Areas with texture or stroke are
+     * still drawn as stencil polygons. */
     public static boolean USE_MESH_POLY = false;
 
     @Override
@@ -294,20 +538,7 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
         int nLevel = mCurBucket + level;
 
         mTileLayer.callThemeHooks(mTile, mBuckets, mElement, area, nLevel);
-
-        // Use tessellation with Mapsforge and Freizeitkarte artificial tags for land/sea areas
-        boolean mesh = mElement.tags.contains(Constants.TAG_MAPSFORGE_ISSEA) || mElement.tags.contains(Constants.TAG_MAPSFORGE_NOSEA) || mElement.tags.contains(Constants.TAG_MAPSFORGE_SEA)
-                || mElement.tags.contains(Constants.TAG_FREIZEITKARTE_LAND) || mElement.tags.contains(Constants.TAG_FREIZEITKARTE_MEER);
-
-        if (USE_MESH_POLY || area.mesh || mesh) {
-            MeshBucket mb = mBuckets.getMeshBucket(nLevel);
-            mb.area = area;
-            mb.addMesh(mElement);
-        } else {
-            PolygonBucket pb = mBuckets.getPolygonBucket(nLevel);
-            pb.area = area;
-            pb.addPolygon(mElement.points, mElement.index);
-        }
+        addArea(mBuckets, mElement, area, nLevel);
     }
 
     @Override
@@ -332,4 +563,107 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
     public void renderText(TextStyle text) {
         mTileLayer.callThemeHooks(mTile, mBuckets, mElement, text, 0);
     }
+
+    /**
+     * Context of building a partition of the pending elements into its own
+     * buckets on another thread. Theme hooks are kept to be called on the
+     * loader thread in element order: element, style, level.
+     */
+    private static final class Partition implements RenderStyle.Callback {
+        final LineMerger lineMerger = new LineMerger();
+        final ArrayList<Object> themeHooks = new ArrayList<>();
+        final long[] times = TileStats.newPart();
+
+        MapTile tile;
+        IRenderTheme theme;
+        float lineScale;
+        RenderBuckets buckets;
+        int from, to;
+
+        MapElement element;
+        int curBucket;
+        LineBucket curLineBucket;
+
+        void build(List<MapElement> elements, List<TagSet> tags, VectorTileLoader owner) {
+            for (int i = from; i < to && !owner.isCanceled(); i++) {
+                element = elements.get(i);
+                TagSet t = tags.get(i);
+
+                long start = TileStats.start();
+                RenderStyle<?>[] styles = theme.matchElement(element.type,
+                        t != null ? t : element.tags, tile.zoomLevel);
+                TileStats.stop(times, Stage.MATCH, start);
+
+                start = TileStats.start();
+                if (styles != null) {
+                    if (element.type == GeometryType.POINT) {
+                        for (RenderStyle<?> style : styles)
+                            style.renderNode(this);
+                    } else {
+                        curBucket = getValidLayer(element.layer) * theme.getLevels()
+                                * (element.level > 0 ? element.level : 1);
+                        for (RenderStyle<?> style : styles)
+                            style.renderWay(this);
+                    }
+                }
+                TileStats.stop(times, Stage.BUILD, start);
+                curLineBucket = null;
+                element = null;
+            }
+            long start = TileStats.start();
+            lineMerger.flush();
+            TileStats.stop(times, Stage.BUILD, start);
+        }
+
+        void clear() {
+            themeHooks.clear();
+            buckets = null;
+            tile = null;
+            theme = null;
+        }
+
+        private void callThemeHooks(RenderStyle<?> style, int level) {
+            themeHooks.add(element);
+            themeHooks.add(style);
+            themeHooks.add(level);
+        }
+
+        @Override
+        public void renderWay(LineStyle line, int level) {
+            curLineBucket = addLine(buckets, lineMerger, element, line, curBucket + level,
+                    lineScale, curLineBucket);
+        }
+
+        @Override
+        public void renderArea(AreaStyle area, int level) {
+            if (tile.zoomLevel < area.fadeScale)
+                return;
+
+            int nLevel = curBucket + level;
+            callThemeHooks(area, nLevel);
+            addArea(buckets, element, area, nLevel);
+        }
+
+        @Override
+        public void renderSymbol(SymbolStyle symbol) {
+            callThemeHooks(symbol, 0);
+        }
+
+        @Override
+        public void renderExtrusion(ExtrusionStyle extrusion, int level) {
+            callThemeHooks(extrusion, level);
+        }
+
+        @Override
+        public void renderCircle(CircleStyle circle, int level) {
+            CircleBucket cb = buckets.getCircleBucket(curBucket + level);
+            cb.circle = circle;
+            cb.addCircle(element);
+        }
+
+        @Override
+        public void renderText(TextStyle text) {
+            callThemeHooks(text, 0);
+        }
+    }
 }
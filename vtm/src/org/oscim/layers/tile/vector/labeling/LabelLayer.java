@@ -30,6 +30,7 @@ import org.oscim.layers.tile.vector.VectorTileLayer;
 import org.oscim.map.Map;
 import org.oscim.map.Viewport;
 import org.oscim.utils.async.SimpleWorker;
+import org.oscim.utils.stats.TileStats;
 
 public class LabelLayer extends Layer implements Map.UpdateListener, TileManager.Listener,
         ZoomLimiter.IZoomLimiter {
@@ -76,8 +77,11 @@ public class LabelLayer extends Layer implements Map.UpdateListener, TileManager
 
         @Override
         public boolean doWork(LabelTask t) {
+            long start = TileStats.start();
+            boolean updated = mLabelPlacer.updateLabels(t);
+            TileStats.record(TileStats.Stage.LABEL, start);
 
-            if (mLabelPlacer.updateLabels(t)) {
+            if (updated) {
                 mMap.render();
                 return true;
             }
@@ -1,13 +1,37 @@
 package org.oscim.layers.tile.vector.labeling;
 
+import org.oscim.layers.tile.MapTile;
 import org.oscim.layers.tile.MapTile.TileData;
 import org.oscim.renderer.bucket.SymbolItem;
 import org.oscim.renderer.bucket.TextItem;
 
 public class LabelTileData extends TileData {
+    /**
+     * Estimated bytes of an item and its strings.
+     */
+    private static final int LABEL_BYTES = 128;
+    private static final int SYMBOL_BYTES = 64;
+
     public final List<SymbolItem> symbols = new List<SymbolItem>();
     public final List<TextItem> labels = new List<TextItem>();
 
+    /**
+     * @return the LabelTileData of tile, added when not yet present
+     */
+    public static LabelTileData get(MapTile tile) {
+        LabelTileData ld = (LabelTileData) tile.getData(LabelLayer.LABEL_DATA);
+        if (ld == null) {
+            ld = new LabelTileData();
+            tile.addData(LabelLayer.LABEL_DATA, ld);
+        }
+        return ld;
+    }
+
+    @Override
+    public int getHeapSize() {
+        return labels.size() * LABEL_BYTES + symbols.size() * SYMBOL_BYTES;
+    }
+
     @Override
     protected void dispose() {
         TextItem.pool.releaseAll(labels.clear());
@@ -34,7 +34,6 @@ import org.oscim.utils.Parameters;
 import org.oscim.utils.geom.PolyLabel;
 
 import static org.oscim.core.GeometryBuffer.GeometryType.*;
-import static org.oscim.layers.tile.vector.labeling.LabelLayer.LABEL_DATA;
 
 public class LabelTileLoaderHook implements TileLoaderThemeHook {
 
@@ -42,12 +41,7 @@ public class LabelTileLoaderHook implements TileLoaderThemeHook {
 
     private LabelTileData get(MapTile tile) {
         // FIXME could be 'this'..
-        LabelTileData ld = (LabelTileData) tile.getData(LABEL_DATA);
-        if (ld == null) {
-            ld = new LabelTileData();
-            tile.addData(LABEL_DATA, ld);
-        }
-        return ld;
+        return LabelTileData.get(tile);
     }
 
     @Override
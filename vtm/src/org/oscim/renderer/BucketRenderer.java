@@ -129,6 +129,9 @@ public class BucketRenderer extends LayerRenderer {
                 case CIRCLE:
                     b = CircleBucket.Renderer.draw(b, v);
                     break;
+                case HILLSHADING:
+                    b = HillshadingBucket.Renderer.draw(b, v, 1);
+                    break;
                 default:
                     log.severe("invalid bucket " + b.type);
                     b = b.next;
@@ -20,6 +20,7 @@ package org.oscim.renderer;
 import org.oscim.backend.GL;
 import org.oscim.backend.GLAdapter;
 import org.oscim.utils.pool.Inlist;
+import org.oscim.utils.stats.TileStats;
 
 import javax.annotation.CheckReturnValue;
 import java.nio.Buffer;
@@ -52,6 +53,13 @@ public final class BufferObject extends Inlist<BufferObject> {
         this.target = target;
     }
 
+    /**
+     * @return the allocated bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
     /**
      * @param newSize size required in bytes
      */
@@ -72,6 +80,7 @@ public final class BufferObject extends Inlist<BufferObject> {
             gl.bufferSubData(target, 0, newSize, buf);
         } else {
             mBufferMemoryUsage += newSize - size;
+            TileStats.gauge(TileStats.Gauge.VBO_BYTES, mBufferMemoryUsage);
             size = newSize;
             //GL.bufferData(target, size, buf, GL20.DYNAMIC_DRAW);
             gl.bufferData(target, size, buf, GL.STATIC_DRAW);
@@ -97,6 +106,7 @@ public final class BufferObject extends Inlist<BufferObject> {
 
         log.fine("use: " + mBufferMemoryUsage / MB + "MB");
         mBufferMemoryUsage -= BufferObject.limitUsage(MB);
+        TileStats.gauge(TileStats.Gauge.VBO_BYTES, mBufferMemoryUsage);
         log.fine("now: " + mBufferMemoryUsage / MB + "MB");
     }
 
@@ -236,6 +246,13 @@ public final class BufferObject extends Inlist<BufferObject> {
         counter[0] += num;
     }
 
+    /**
+     * @return bytes currently loaded in VBOs.
+     */
+    public static int getBufferMemoryUsage() {
+        return mBufferMemoryUsage;
+    }
+
     public static boolean isMaxFill() {
         return mBufferMemoryUsage > LIMIT_BUFFERS;
     }
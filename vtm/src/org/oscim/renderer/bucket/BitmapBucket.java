@@ -44,7 +44,11 @@ public class BitmapBucket extends TextureBucket {
      *                    after loading to texture.
      */
     public BitmapBucket(boolean reuseBitmap) {
-        super(RenderBucket.BITMAP);
+        this(RenderBucket.BITMAP, reuseBitmap);
+    }
+
+    protected BitmapBucket(byte type, boolean reuseBitmap) {
+        super(type);
 
         mReuseBitmap = reuseBitmap;
         mVertices = new short[24];
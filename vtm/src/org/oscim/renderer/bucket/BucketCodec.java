@@ -0,0 +1,437 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.renderer.bucket;
+
+import org.oscim.core.PointF;
+import org.oscim.theme.styles.*;
+import org.oscim.utils.pool.Inlist;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Binary encoding of prepared buckets, labels and symbols, e.g. to
+ * persist them in a tile cache. Styles are referenced by their index
+ * in a {@link StyleTable}.
+ * <p/>
+ * Buckets must be written after {@link RenderBuckets#prepare()} and
+ * before they are compiled.
+ */
+public final class BucketCodec {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Maps styles to stable indices and back.
+     */
+    public interface StyleTable {
+        /**
+         * @param key a RenderStyle or the bitmap / texture region of a SymbolStyle
+         * @return the index of key or -1 when unknown
+         */
+        int indexOf(Object key);
+
+        /**
+         * @return the style at index or null
+         */
+        RenderStyle<?> get(int index);
+    }
+
+    public static void writeBuckets(DataOutput out, RenderBucket buckets, StyleTable styles)
+            throws IOException {
+
+        out.writeInt(Inlist.size(buckets));
+
+        for (RenderBucket b = buckets; b != null; b = b.next) {
+            out.writeByte(b.type);
+            out.writeInt(b.level);
+            out.writeInt(b.numVertices);
+            out.writeInt(b.numIndices);
+
+            switch (b.type) {
+                case RenderBucket.LINE:
+                case RenderBucket.TEXLINE:
+                    LineBucket lb = (LineBucket) b;
+                    out.writeInt(index(styles, lb.line));
+                    out.writeFloat(lb.scale);
+                    out.writeBoolean(lb.roundCap);
+                    out.writeFloat(lb.heightOffset);
+                    out.writeInt(position(buckets, lb.outlines));
+                    if (b.type == RenderBucket.TEXLINE) {
+                        out.writeInt(((LineTexBucket) b).evenQuads);
+                        out.writeInt(((LineTexBucket) b).oddQuads);
+                    }
+                    break;
+                case RenderBucket.POLYGON:
+                    PolygonBucket pb = (PolygonBucket) b;
+                    out.writeInt(index(styles, pb.area));
+                    out.writeFloat(pb.xmin);
+                    out.writeFloat(pb.ymin);
+                    out.writeFloat(pb.xmax);
+                    out.writeFloat(pb.ymax);
+                    break;
+                case RenderBucket.MESH:
+                    MeshBucket mb = (MeshBucket) b;
+                    out.writeInt(index(styles, mb.area));
+                    out.writeFloat(mb.heightOffset);
+                    out.writeInt(mb.numRanges);
+                    for (int r = 0; r < mb.numRanges * 2; r++)
+                        out.writeInt(mb.ranges[r]);
+                    break;
+                case RenderBucket.HAIRLINE:
+                    out.writeInt(index(styles, ((HairLineBucket) b).line));
+                    break;
+                case RenderBucket.CIRCLE:
+                    out.writeInt(index(styles, ((CircleBucket) b).circle));
+                    break;
+                default:
+                    throw new IOException("unsupported bucket type " + b.type);
+            }
+
+            writeVertexData(out, b.vertexItems);
+            if (b.indiceItems != RenderBucket.EMPTY)
+                writeVertexData(out, b.indiceItems);
+        }
+    }
+
+    public static RenderBucket readBuckets(ByteBuffer in, StyleTable styles)
+            throws IOException {
+
+        int count = in.getInt();
+        RenderBucket[] buckets = new RenderBucket[count];
+        int[] outlines = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            byte type = in.get();
+            int level = in.getInt();
+            int numVertices = in.getInt();
+            int numIndices = in.getInt();
+            outlines[i] = -1;
+
+            RenderBucket b;
+            switch (type) {
+                case RenderBucket.LINE:
+                case RenderBucket.TEXLINE:
+                    LineBucket lb = (type == RenderBucket.LINE)
+                            ? new LineBucket(level)
+                            : new LineTexBucket(level);
+                    b = lb;
+                    lb.line = (LineStyle) style(styles, in.getInt(), LineStyle.class);
+                    lb.scale = in.getFloat();
+                    lb.roundCap = in.get() != 0;
+                    lb.heightOffset = in.getFloat();
+                    outlines[i] = in.getInt();
+                    if (type == RenderBucket.TEXLINE) {
+                        ((LineTexBucket) b).evenQuads = in.getInt();
+                        ((LineTexBucket) b).oddQuads = in.getInt();
+                    }
+                    break;
+                case RenderBucket.POLYGON:
+                    PolygonBucket pb = new PolygonBucket(level);
+                    b = pb;
+                    pb.area = (AreaStyle) style(styles, in.getInt(), AreaStyle.class);
+                    pb.xmin = in.getFloat();
+                    pb.ymin = in.getFloat();
+                    pb.xmax = in.getFloat();
+                    pb.ymax = in.getFloat();
+                    break;
+                case RenderBucket.MESH:
+                    MeshBucket mb = new MeshBucket(level);
+                    b = mb;
+                    mb.area = (AreaStyle) style(styles, in.getInt(), AreaStyle.class);
+                    mb.heightOffset = in.getFloat();
+                    mb.numRanges = in.getInt();
+                    if (mb.numRanges < 1 || mb.numRanges > numIndices / 3 + 1)
+                        throw new IOException("invalid mesh ranges " + mb.numRanges);
+                    mb.ranges = new int[mb.numRanges * 2];
+                    for (int r = 0; r < mb.numRanges * 2; r++)
+                        mb.ranges[r] = in.getInt();
+                    break;
+                case RenderBucket.HAIRLINE:
+                    HairLineBucket hb = new HairLineBucket(level);
+                    b = hb;
+                    hb.line = (LineStyle) style(styles, in.getInt(), LineStyle.class);
+                    break;
+                case RenderBucket.CIRCLE:
+                    CircleBucket cb = new CircleBucket(level);
+                    b = cb;
+                    cb.circle = (CircleStyle) style(styles, in.getInt(), CircleStyle.class);
+                    break;
+                default:
+                    throw new IOException("unsupported bucket type " + type);
+            }
+            b.numVertices = numVertices;
+            b.numIndices = numIndices;
+            readVertexData(in, b.vertexItems);
+            if (b.indiceItems != RenderBucket.EMPTY)
+                readVertexData(in, b.indiceItems);
+
+            buckets[i] = b;
+            if (i > 0)
+                buckets[i - 1].next = b;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (outlines[i] < 0)
+                continue;
+            if (outlines[i] >= count || buckets[outlines[i]].type != RenderBucket.LINE)
+                throw new IOException("invalid outline " + outlines[i]);
+            ((LineBucket) buckets[i]).outlines = (LineBucket) buckets[outlines[i]];
+        }
+        return count == 0 ? null : buckets[0];
+    }
+
+    public static void writeExtrusions(DataOutput out, ExtrusionBucket buckets)
+            throws IOException {
+
+        out.writeInt(Inlist.size(buckets));
+
+        for (ExtrusionBucket b = buckets; b != null; b = b.next()) {
+            out.writeInt(b.level);
+            out.writeFloat(b.getGroundResolution());
+            out.writeInt(b.getColor());
+            float[] colors = b.getColors();
+            out.writeInt(colors.length);
+            for (float c : colors)
+                out.writeFloat(c);
+
+            out.writeInt(b.numVertices);
+            out.writeInt(b.numIndices);
+            writeVertexData(out, b.vertexItems);
+
+            VertexData[] indices = b.getIndices();
+            for (VertexData v : indices) {
+                out.writeBoolean(v != null);
+                if (v != null)
+                    writeVertexData(out, v);
+            }
+        }
+    }
+
+    public static ExtrusionBucket readExtrusions(ByteBuffer in) throws IOException {
+        int count = in.getInt();
+        ExtrusionBucket first = null;
+        ExtrusionBucket last = null;
+
+        for (int i = 0; i < count; i++) {
+            int level = in.getInt();
+            float groundResolution = in.getFloat();
+            int color = in.getInt();
+            float[] colors = new float[checkSize(in.getInt())];
+            for (int j = 0; j < colors.length; j++)
+                colors[j] = in.getFloat();
+
+            ExtrusionBucket b = new ExtrusionBucket(level, groundResolution, colors, color);
+            b.numVertices = in.getInt();
+            b.numIndices = in.getInt();
+            readVertexData(in, b.vertexItems);
+
+            VertexData[] indices = b.getIndices();
+            for (int j = 0; j < indices.length; j++) {
+                if (in.get() == 0)
+                    continue;
+                indices[j] = new VertexData();
+                readVertexData(in, indices[j]);
+            }
+
+            if (last == null)
+                first = b;
+            else
+                last.next = b;
+            last = b;
+        }
+        return first;
+    }
+
+    public static void writeLabels(DataOutput out, TextItem labels, StyleTable styles)
+            throws IOException {
+
+        out.writeInt(Inlist.size(labels));
+
+        for (TextItem ti = labels; ti != null; ti = ti.next) {
+            out.writeFloat(ti.x);
+            out.writeFloat(ti.y);
+            writeString(out, ti.label);
+            out.writeInt(index(styles, ti.text));
+            out.writeFloat(ti.width);
+            out.writeFloat(ti.x1);
+            out.writeFloat(ti.y1);
+            out.writeFloat(ti.x2);
+            out.writeFloat(ti.y2);
+            out.writeShort(ti.length);
+            out.writeByte(ti.edges);
+        }
+    }
+
+    public static TextItem readLabels(ByteBuffer in, StyleTable styles) throws IOException {
+        int count = in.getInt();
+        TextItem first = null;
+        TextItem last = null;
+
+        for (int i = 0; i < count; i++) {
+            TextItem ti = TextItem.pool.get();
+            ti.x = in.getFloat();
+            ti.y = in.getFloat();
+            ti.label = readString(in);
+            ti.text = (TextStyle) style(styles, in.getInt(), TextStyle.class).current();
+            ti.width = in.getFloat();
+            ti.x1 = in.getFloat();
+            ti.y1 = in.getFloat();
+            ti.x2 = in.getFloat();
+            ti.y2 = in.getFloat();
+            ti.length = in.getShort();
+            ti.edges = in.get();
+
+            if (last == null)
+                first = ti;
+            else
+                last.next = ti;
+            last = ti;
+        }
+        return first;
+    }
+
+    public static void writeSymbols(DataOutput out, SymbolItem symbols, StyleTable styles)
+            throws IOException {
+
+        out.writeInt(Inlist.size(symbols));
+
+        for (SymbolItem it = symbols; it != null; it = it.next) {
+            out.writeFloat(it.x);
+            out.writeFloat(it.y);
+            out.writeBoolean(it.billboard);
+            out.writeFloat(it.rotation);
+            out.writeInt(index(styles, it.bitmap != null ? it.bitmap : it.texRegion));
+            out.writeBoolean(it.offset != null);
+            if (it.offset != null) {
+                out.writeFloat(it.offset.x);
+                out.writeFloat(it.offset.y);
+            }
+        }
+    }
+
+    public static SymbolItem readSymbols(ByteBuffer in, StyleTable styles) throws IOException {
+        int count = in.getInt();
+        SymbolItem first = null;
+        SymbolItem last = null;
+
+        for (int i = 0; i < count; i++) {
+            SymbolItem it = SymbolItem.pool.get();
+            it.x = in.getFloat();
+            it.y = in.getFloat();
+            it.billboard = in.get() != 0;
+            it.rotation = in.getFloat();
+
+            SymbolStyle symbol = (SymbolStyle)
+                    style(styles, in.getInt(), SymbolStyle.class).current();
+            it.bitmap = symbol.bitmap;
+            it.texRegion = (symbol.bitmap == null) ? symbol.texture : null;
+
+            if (in.get() != 0)
+                it.offset = new PointF(in.getFloat(), in.getFloat());
+
+            if (last == null)
+                first = it;
+            else
+                last.next = it;
+            last = it;
+        }
+        return first;
+    }
+
+    static void writeVertexData(DataOutput out, VertexData data) throws IOException {
+        int size = data.countSize();
+        out.writeInt(size);
+        if (size == 0)
+            return;
+
+        byte[] bytes = new byte[VertexData.SIZE * 2];
+        for (VertexData.Chunk it = data.head(); it != null; it = it.next) {
+            short[] v = it.vertices;
+            for (int i = 0, j = 0; i < it.used; i++) {
+                bytes[j++] = (byte) (v[i] >> 8);
+                bytes[j++] = (byte) v[i];
+            }
+            out.write(bytes, 0, it.used * 2);
+        }
+    }
+
+    static void readVertexData(ByteBuffer in, VertexData data) throws IOException {
+        int size = in.getInt();
+        if (size < 0 || size * 2L > in.remaining())
+            throw new IOException("invalid vertex data size " + size);
+
+        while (size > 0) {
+            VertexData.Chunk chunk = data.obtainChunk();
+            int n = Math.min(VertexData.SIZE - chunk.used, size);
+            in.asShortBuffer().get(chunk.vertices, chunk.used, n);
+            in.position(in.position() + n * 2);
+            data.releaseChunk(chunk.used + n);
+            size -= n;
+        }
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[checkSize(in.getInt())];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static int index(StyleTable styles, Object style) throws IOException {
+        int index = styles.indexOf(style);
+        if (index < 0)
+            throw new IOException("unknown style " + style);
+        return index;
+    }
+
+    private static RenderStyle<?> style(StyleTable styles, int index, Class<?> type)
+            throws IOException {
+        RenderStyle<?> style = styles.get(index);
+        if (!type.isInstance(style))
+            throw new IOException("invalid style " + index);
+        return style;
+    }
+
+    private static int position(RenderBucket buckets, RenderBucket bucket) throws IOException {
+        if (bucket == null)
+            return -1;
+        int i = 0;
+        for (RenderBucket b = buckets; b != null; b = b.next, i++) {
+            if (b == bucket)
+                return i;
+        }
+        throw new IOException("outline bucket not in list");
+    }
+
+    private static int checkSize(int size) throws IOException {
+        if (size < 0 || size > 0xffff)
+            throw new IOException("invalid size " + size);
+        return size;
+    }
+
+    private BucketCodec() {
+        throw new IllegalStateException();
+    }
+}
@@ -114,6 +114,28 @@ public class ExtrusionBucket extends RenderBucket {
         }
     }
 
+    /**
+     * ExtrusionLayer restored by {@link BucketCodec}.
+     */
+    ExtrusionBucket(int level, float groundResolution, float[] colors, int color) {
+        super(RenderBucket.EXTRUSION, true, false);
+        this.level = level;
+        this.colors = colors;
+        this.color = color;
+
+        mGroundResolution = groundResolution;
+
+        mIndices = new VertexData[5];
+    }
+
+    float getGroundResolution() {
+        return mGroundResolution;
+    }
+
+    VertexData[] getIndices() {
+        return mIndices;
+    }
+
     static Pool<Vertex> vertexPool = new Pool<Vertex>() {
         @Override
         protected Vertex createItem() {
@@ -113,6 +113,29 @@ public class ExtrusionBuckets extends TileData {
         return buckets;
     }
 
+    @Override
+    public int getHeapSize() {
+        if (compiled)
+            return 0;
+        int size = 0;
+        for (RenderBucket b = buckets; b != null; b = b.next)
+            size += (b.numVertices * RenderBuckets.VERTEX_CNT[b.type] + b.numIndices)
+                    * RenderBuckets.SHORT_BYTES;
+        return size;
+    }
+
+    @Override
+    public int getGpuSize() {
+        if (!compiled)
+            return 0;
+        int size = 0;
+        if (vbo != null)
+            size += vbo.getSize();
+        if (ibo != null)
+            size += ibo.getSize();
+        return size;
+    }
+
     @Override
     protected void dispose() {
         resetBuckets(null);
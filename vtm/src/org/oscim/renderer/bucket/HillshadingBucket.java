@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.renderer.bucket;
+
+import org.oscim.backend.GL;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.backend.canvas.Color;
+import org.oscim.renderer.GLUtils;
+import org.oscim.renderer.GLState;
+import org.oscim.renderer.GLViewport;
+import org.oscim.renderer.bucket.TextureItem.TexturePool;
+
+import static org.oscim.backend.GLAdapter.gl;
+import static org.oscim.renderer.MapRenderer.MAX_INDICES;
+import static org.oscim.renderer.MapRenderer.bindQuadIndicesVBO;
+
+/**
+ * A {@link BitmapBucket} of packed elevations ('terrain-RGB') that is shaded
+ * in the fragment shader. Light and color are read from the {@link Shading}
+ * on each frame, so changing them needs no new tiles.
+ * <p>
+ * The texture must not be filtered, see {@link #initTexture(TextureItem)}.
+ */
+public class HillshadingBucket extends BitmapBucket {
+
+    /**
+     * Shared shading parameters of a layer.
+     */
+    public static class Shading {
+        /**
+         * Light direction: east, south, up.
+         */
+        public final float[] light = new float[3];
+
+        /**
+         * The shade color, alpha of the darkest shade.
+         */
+        public int color = Color.get(128, 0, 0, 0);
+
+        /**
+         * Vertical scale of the elevations.
+         */
+        public float exaggeration = 1;
+
+        public Shading() {
+            setLight(315, 45);
+        }
+
+        /**
+         * @param azimuth  light direction in degrees clockwise from north.
+         * @param altitude light angle in degrees above the horizon.
+         */
+        public void setLight(float azimuth, float altitude) {
+            double az = Math.toRadians(azimuth);
+            double alt = Math.toRadians(altitude);
+            setLight((float) (Math.sin(az) * Math.cos(alt)),
+                    (float) (-Math.cos(az) * Math.cos(alt)),
+                    (float) Math.sin(alt));
+        }
+
+        /**
+         * Set the light direction, with y pointing south. The light is kept
+         * a little above the horizon.
+         */
+        public void setLight(float x, float y, float z) {
+            z = Math.max(z, 0.05f);
+            float len = (float) Math.sqrt(x * x + y * y + z * z);
+            light[0] = x / len;
+            light[1] = y / len;
+            light[2] = z / len;
+        }
+    }
+
+    public final Shading shading;
+
+    /**
+     * Ground size of a texel in meters.
+     */
+    public float cellSize;
+
+    /**
+     * Texels around the tile from the neighbouring tiles.
+     */
+    public int border;
+
+    private int mTextureSize;
+
+    public HillshadingBucket(Shading shading) {
+        super(RenderBucket.HILLSHADING, false);
+        this.shading = shading;
+    }
+
+    @Override
+    public void setBitmap(Bitmap bitmap, int w, int h, TexturePool pool) {
+        mTextureSize = bitmap.getWidth();
+        super.setBitmap(bitmap, w, h, pool);
+    }
+
+    /**
+     * Texture setup for pools of elevation textures: nearest texels as the
+     * shader decodes the heights itself.
+     */
+    public static void initTexture(TextureItem t) {
+        GLState.bindTex2D(t.id);
+        GLUtils.setTextureParameter(GL.NEAREST, GL.NEAREST,
+                GL.CLAMP_TO_EDGE, GL.CLAMP_TO_EDGE);
+    }
+
+    static class Shader extends BitmapBucket.Shader {
+        int uSize, uScale, uLight, uColor;
+
+        Shader(String shaderFile) {
+            super(shaderFile);
+            uSize = getUniform("u_size");
+            uScale = getUniform("u_scale");
+            uLight = getUniform("u_light");
+            uColor = getUniform("u_color");
+        }
+    }
+
+    public static final class Renderer {
+
+        static Shader shader;
+
+        static void init() {
+            shader = new Shader("hillshading");
+        }
+
+        public static RenderBucket draw(RenderBucket b, GLViewport v, float alpha) {
+
+            GLState.blend(true);
+            Shader s = shader;
+            s.useProgram();
+
+            HillshadingBucket hb = (HillshadingBucket) b;
+            Shading shading = hb.shading;
+
+            gl.uniform1f(s.uAlpha, alpha);
+            v.mvp.setAsUniform(s.uMVP);
+            gl.uniform1f(s.uScale, shading.exaggeration / (2 * hb.cellSize));
+            gl.uniform3f(s.uLight, shading.light[0], shading.light[1], shading.light[2]);
+            GLUtils.setColor(s.uColor, shading.color);
+
+            bindQuadIndicesVBO();
+
+            for (TextureItem t = hb.textures; t != null; t = t.next) {
+                t.bind();
+                gl.uniform2f(s.uSize, hb.mTextureSize, hb.border);
+
+                for (int i = 0; i < t.indices; i += MAX_INDICES) {
+                    int off = (t.offset + i) * 8 + hb.vertexOffset;
+
+                    gl.vertexAttribPointer(s.aPos, 2,
+                            GL.SHORT, false, RenderBuckets.SHORT_BYTES * 6, off);
+
+                    gl.vertexAttribPointer(s.aTexCoord, 2,
+                            GL.SHORT, false, RenderBuckets.SHORT_BYTES * 6, off + RenderBuckets.SHORT_BYTES * 4);
+
+                    int numIndices = t.indices - i;
+                    if (numIndices > MAX_INDICES)
+                        numIndices = MAX_INDICES;
+
+                    gl.drawElements(GL.TRIANGLES, numIndices,
+                            GL.UNSIGNED_SHORT, 0);
+                }
+            }
+
+            return b.next;
+        }
+    }
+}
@@ -129,6 +129,14 @@ public class LineBucket extends RenderBucket {
             addLine(points, null, numPoints, closed);
     }
 
+    /**
+     * Add the line string of 'length' coordinates at 'offset' in points.
+     */
+    public void addLine(float[] points, int offset, int length, boolean closed) {
+        roundCap = line.cap == Cap.ROUND;
+        addLineString(points, offset, length, roundCap, line.cap == Cap.SQUARE, closed);
+    }
+
     void addLine(float[] points, int[] index, int numPoints, boolean closed) {
 
         boolean rounded = false;
@@ -179,27 +187,31 @@ public class LineBucket extends RenderBucket {
             int ipos = pos;
             pos += length;
 
-            /* need at least two points */
-            if (length < 4)
-                continue;
-
-            /* start an enpoint are equal */
-            if (length == 4 &&
-                    points[ipos] == points[ipos + 2] &&
-                    points[ipos + 1] == points[ipos + 3])
-                continue;
-
-            /* avoid simple 180 degree angles */
-            if (length == 6 &&
-                    points[ipos] == points[ipos + 4] &&
-                    points[ipos + 1] == points[ipos + 5])
-                length -= 2;
-
-            addLine(vertexItems, points, ipos, length, rounded, squared, closed);
-
+            addLineString(points, ipos, length, rounded, squared, closed);
         }
     }
 
+    private void addLineString(float[] points, int ipos, int length,
+                               boolean rounded, boolean squared, boolean closed) {
+        /* need at least two points */
+        if (length < 4)
+            return;
+
+        /* start an enpoint are equal */
+        if (length == 4 &&
+                points[ipos] == points[ipos + 2] &&
+                points[ipos + 1] == points[ipos + 3])
+            return;
+
+        /* avoid simple 180 degree angles */
+        if (length == 6 &&
+                points[ipos] == points[ipos + 4] &&
+                points[ipos + 1] == points[ipos + 5])
+            length -= 2;
+
+        addLine(vertexItems, points, ipos, length, rounded, squared, closed);
+    }
+
     private void addVertex(VertexData vi,
                            float x, float y,
                            float vNextX, float vNextY,
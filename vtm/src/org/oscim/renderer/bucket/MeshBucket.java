@@ -26,11 +26,11 @@ import org.oscim.renderer.GLShader;
 import org.oscim.renderer.GLState;
 import org.oscim.renderer.GLUtils;
 import org.oscim.renderer.GLViewport;
-import org.oscim.renderer.bucket.VertexData.Chunk;
 import org.oscim.theme.styles.AreaStyle;
 import org.oscim.utils.ColorUtil;
 import org.oscim.utils.TessJNI;
 
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import static org.oscim.backend.GLAdapter.gl;
@@ -43,29 +43,235 @@ public class MeshBucket extends RenderBucket {
     public AreaStyle area;
     public float heightOffset;
 
+    /**
+     * Indices are unsigned short, larger meshes are split into ranges
+     * with their own vertex offset.
+     */
+    static final int MAX_VERTICES = 1 << 16;
+
     private TessJNI tess;
 
-    private int numPoints;
+    /* contours of translucent areas, tessellated together in prepare() */
+    private TessJNI mergeTess;
+    private float[] mergePoints;
+
+    /* output of the tessellation of one element */
+    private float[] tessVertices = new float[64];
+    private int[] tessElements = new int[96];
+    private int[] keys = new int[32];
+    private int[] remap = new int[32];
+
+    /* vertex ids by packed coordinate, to share vertices between elements */
+    private int[] vertexKeys;
+    private int[] vertexIds;
+
+    /* first vertex and first index of each range */
+    int[] ranges = {0, 0};
+    int numRanges = 1;
 
     public MeshBucket(int level) {
         super(RenderBucket.MESH, true, false);
         this.level = level;
     }
 
+    /**
+     * Triangulate the polygon and add the triangles. Vertices with the same
+     * coordinates are shared with the polygons added before.
+     * <p>
+     * Triangles of overlapping elements would blend twice with translucent
+     * styles. Their contours are therefore collected and tessellated
+     * together in prepare(), which yields the union of the elements.
+     */
     public void addMesh(GeometryBuffer geom) {
-        numPoints += geom.pointNextPos;
+        if (area != null && area.hasAlpha(Integer.MAX_VALUE)) {
+            if (mergeTess == null)
+                mergeTess = new TessJNI(8);
+            mergePoints = orient(geom, mergePoints);
+            mergeTess.addContour2D(geom.index, mergePoints);
+            return;
+        }
+
         if (tess == null)
             tess = new TessJNI(8);
 
         tess.addContour2D(geom.index, geom.points);
+        if (!addTessellation(tess, TessJNI.WindingRule.ODD, geom.pointNextPos)) {
+            tess.dispose();
+            tess = null;
+        }
     }
 
-    public void addConvexMesh(GeometryBuffer geom) {
-        short start = (short) numVertices;
+    /**
+     * Copy the points so that the first ring of each polygon has a positive
+     * and all holes a negative area. Then the POSITIVE winding rule gives
+     * the union of all elements, whatever the orientation in the data.
+     */
+    static float[] orient(GeometryBuffer geom, float[] out) {
+        if (out == null || out.length < geom.pointNextPos)
+            out = new float[Math.max(geom.pointNextPos, 64)];
+
+        float[] points = geom.points;
+        int[] index = geom.index;
+        int pos = 0;
+        boolean outer = true;
+        for (int i = 0; i < index.length; i++) {
+            int len = index[i];
+            if (len < 0)
+                break;
+            if (len == 0) {
+                /* next polygon */
+                outer = true;
+                continue;
+            }
+            double area = 0;
+            for (int j = 0; j < len; j += 2) {
+                int k = (j + 2) % len;
+                area += points[pos + j] * points[pos + k + 1]
+                        - points[pos + k] * points[pos + j + 1];
+            }
+            boolean reverse = outer ? area < 0 : area > 0;
+            for (int j = 0; j < len; j += 2) {
+                int src = reverse ? pos + len - 2 - j : pos + j;
+                out[pos + j] = points[src];
+                out[pos + j + 1] = points[src + 1];
+            }
+            pos += len;
+            outer = false;
+        }
+        return out;
+    }
+
+    /**
+     * Tessellate the contours added to t and add the triangles.
+     *
+     * @return false on errors of the tessellator.
+     */
+    private boolean addTessellation(TessJNI t, int windingRule, int points) {
+        if (!t.tesselate(windingRule, TessJNI.ElementType.POLYGONS)) {
+            log.severe("error in tessellation " + points);
+            return false;
+        }
+        int nverts = t.getVertexCount();
+        int nelems = t.getElementCount() * 3;
+        if (nelems == 0)
+            return true;
+
+        if (tessVertices.length < nverts * 2)
+            tessVertices = new float[nverts * 2];
+        if (tessElements.length < nelems)
+            tessElements = new int[nelems];
+
+        t.getVertices(tessVertices, 0, nverts * 2);
+        t.getElements(tessElements, 0, nelems);
+        addTriangles(tessVertices, nverts, tessElements, nelems);
+        return true;
+    }
+
+    /**
+     * Add triangles with vertices in tile coordinates. A new range is
+     * started when the current one has no room for another triangle.
+     */
+    void addTriangles(float[] vertices, int nverts, int[] elements, int nelems) {
+        if (keys.length < nverts) {
+            keys = new int[nverts];
+            remap = new int[nverts];
+        }
+        for (int i = 0; i < nverts; i++) {
+            short x = (short) (vertices[i * 2] * COORD_SCALE);
+            short y = (short) (vertices[i * 2 + 1] * COORD_SCALE);
+            keys[i] = (x << 16) | (y & 0xffff);
+        }
+        Arrays.fill(remap, 0, nverts, -1);
+
+        for (int i = 0; i < nelems; i += 3) {
+            int a = elements[i];
+            int b = elements[i + 1];
+            int c = elements[i + 2];
+
+            /* collapsed by rounding to vertex precision */
+            if (keys[a] == keys[b] || keys[b] == keys[c] || keys[a] == keys[c])
+                continue;
+
+            if (numVertices - rangeVertices() + 3 > MAX_VERTICES) {
+                startRange();
+                Arrays.fill(remap, 0, nverts, -1);
+            }
+            indiceItems.add((short) vertex(a), (short) vertex(b), (short) vertex(c));
+            numIndices += 3;
+        }
+    }
+
+    private int vertex(int i) {
+        int id = remap[i];
+        if (id < 0)
+            remap[i] = id = vertexId(keys[i]);
+        return id;
+    }
+
+    /**
+     * @return the id of the vertex in the current range.
+     */
+    private int vertexId(int key) {
+        int start = rangeVertices();
+        if (vertexKeys == null || (numVertices - start) * 2 >= vertexKeys.length)
+            growVertexMap();
+
+        int mask = vertexKeys.length - 1;
+        int i = (key * 0x9e3779b9) >>> 16 & mask;
+        while (vertexIds[i] >= 0) {
+            if (vertexKeys[i] == key)
+                return vertexIds[i];
+            i = (i + 1) & mask;
+        }
+        vertexKeys[i] = key;
+        vertexIds[i] = numVertices - start;
+        vertexItems.add((short) (key >> 16), (short) key);
+        return numVertices++ - start;
+    }
 
-        if (numVertices >= (1 << 16)) {
+    private int rangeVertices() {
+        return ranges[(numRanges - 1) * 2];
+    }
+
+    private void startRange() {
+        if (ranges.length < (numRanges + 1) * 2)
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        ranges[numRanges * 2] = numVertices;
+        ranges[numRanges * 2 + 1] = numIndices;
+        numRanges++;
+        if (vertexIds != null)
+            Arrays.fill(vertexIds, -1);
+    }
+
+    private void growVertexMap() {
+        int[] keys = vertexKeys;
+        int[] ids = vertexIds;
+        int size = keys == null ? 256 : keys.length << 1;
+        vertexKeys = new int[size];
+        vertexIds = new int[size];
+        Arrays.fill(vertexIds, -1);
+        if (keys == null)
             return;
+        int mask = size - 1;
+        for (int j = 0; j < keys.length; j++) {
+            if (ids[j] < 0)
+                continue;
+            int i = (keys[j] * 0x9e3779b9) >>> 16 & mask;
+            while (vertexIds[i] >= 0)
+                i = (i + 1) & mask;
+            vertexKeys[i] = keys[j];
+            vertexIds[i] = ids[j];
         }
+    }
+
+    public void addConvexMesh(GeometryBuffer geom) {
+        int n = geom.index[0] >> 1;
+        if (n < 3 || n > MAX_VERTICES)
+            return;
+        if (numVertices - rangeVertices() + n > MAX_VERTICES)
+            startRange();
+
+        short start = (short) (numVertices - rangeVertices());
 
         vertexItems.add(geom.points[0] * COORD_SCALE,
                 geom.points[1] * COORD_SCALE);
@@ -93,58 +299,28 @@ public class MeshBucket extends RenderBucket {
 
     @Override
     protected void prepare() {
-        if (tess == null)
-            return;
-
-        if (numPoints == 0) {
-            tess.dispose();
-            return;
+        if (mergeTess != null) {
+            addTessellation(mergeTess, TessJNI.WindingRule.POSITIVE, 0);
+            mergeTess.dispose();
+            mergeTess = null;
         }
-        if (!tess.tesselate()) {
+        if (tess != null) {
             tess.dispose();
-            log.severe("error in tessellation " + numPoints);
-            return;
+            tess = null;
         }
+        mergePoints = null;
+        tessVertices = null;
+        tessElements = null;
+        keys = null;
+        remap = null;
+        vertexKeys = null;
+        vertexIds = null;
+    }
 
-        int nelems = tess.getElementCount() * 3;
-
-        //int startVertex = vertexItems.countSize();
-
-        for (int offset = indiceItems.countSize(); offset < nelems; ) {
-            int size = nelems - offset;
-            if (size > VertexData.SIZE)
-                size = VertexData.SIZE;
-
-            Chunk chunk = indiceItems.obtainChunk();
-
-            tess.getElements(chunk.vertices, offset, size);
-            offset += size;
-
-            //if (startVertex != 0)
-            // FIXME
-
-            indiceItems.releaseChunk(size);
-        }
-
-        int nverts = tess.getVertexCount() * 2;
-
-        for (int offset = 0; offset < nverts; ) {
-            int size = nverts - offset;
-            if (size > VertexData.SIZE)
-                size = VertexData.SIZE;
-
-            Chunk chunk = vertexItems.obtainChunk();
-
-            tess.getVertices(chunk.vertices, offset, size, COORD_SCALE);
-            offset += size;
-
-            vertexItems.releaseChunk(size);
-        }
-
-        this.numIndices += nelems;
-        this.numVertices += nverts >> 1;
-
-        tess.dispose();
+    @Override
+    protected void clear() {
+        super.clear();
+        numRanges = 1;
     }
 
     public static class Renderer {
@@ -199,13 +375,18 @@ public class MeshBucket extends RenderBucket {
                 else {
                     setColor(area, s, v.pos);
                 }
-                gl.vertexAttribPointer(s.aPos, 2, GL.SHORT,
-                        false, 0, ml.vertexOffset);
+                for (int r = 0; r < ml.numRanges; r++) {
+                    int first = ml.ranges[r * 2 + 1];
+                    int end = (r + 1 < ml.numRanges) ? ml.ranges[r * 2 + 3] : ml.numIndices;
+
+                    gl.vertexAttribPointer(s.aPos, 2, GL.SHORT, false, 0,
+                            ml.vertexOffset + ml.ranges[r * 2] * 2 * RenderBuckets.SHORT_BYTES);
 
-                gl.drawElements(GL.TRIANGLES,
-                        ml.numIndices,
-                        GL.UNSIGNED_SHORT,
-                        ml.indiceOffset);
+                    gl.drawElements(GL.TRIANGLES,
+                            end - first,
+                            GL.UNSIGNED_SHORT,
+                            ml.indiceOffset + first * RenderBuckets.SHORT_BYTES);
+                }
 
                 if (dbgRender) {
                     int c = (ml.area == null) ? Color.BLUE : ml.area.color;
@@ -33,6 +33,7 @@ public abstract class RenderBucket extends Inlist<RenderBucket> {
     public static final byte SYMBOL = 6;
     public static final byte BITMAP = 7;
     public static final byte CIRCLE = 8;
+    public static final byte HILLSHADING = 9;
 
     public final byte type;
 
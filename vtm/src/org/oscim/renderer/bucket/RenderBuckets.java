@@ -51,6 +51,7 @@ public class RenderBuckets extends TileData {
             6, // SYMBOL
             6, // BITMAP
             2, // CIRCLE
+            6, // HILLSHADING
     };
 
     public static final int SHORT_BYTES = 2;
@@ -290,6 +291,82 @@ public class RenderBuckets extends TileData {
         return numIndices;
     }
 
+    /**
+     * @return the estimated bytes of vertices and bitmaps not yet in GL
+     * memory.
+     */
+    @Override
+    public int getHeapSize() {
+        int size = 0;
+        if (vbo == null)
+            size = (countVboSize() + countIboSize()) * SHORT_BYTES;
+        return size + countTextureSize(false);
+    }
+
+    @Override
+    public int getGpuSize() {
+        int size = 0;
+        if (vbo != null)
+            size += vbo.getSize();
+        if (ibo != null)
+            size += ibo.getSize();
+        return size + countTextureSize(true);
+    }
+
+    private int countTextureSize(boolean loaded) {
+        int size = 0;
+        for (RenderBucket l = buckets; l != null; l = l.next) {
+            if (!(l instanceof TextureBucket))
+                continue;
+            for (TextureItem t = ((TextureBucket) l).textures; t != null; t = t.next) {
+                if (t.loaded != loaded || (!loaded && t.bitmap == null))
+                    continue;
+                if (t.width > 0)
+                    size += t.width * t.height * 4;
+                else if (t.bitmap != null)
+                    size += t.bitmap.getWidth() * t.bitmap.getHeight() * 4;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Move the buckets of another RenderBuckets into this one, behind the
+     * buckets of the same level. Used to combine buckets built in parallel
+     * from consecutive elements, so a level may hold several buckets which
+     * are drawn in the order of merging.
+     */
+    public void merge(RenderBuckets buckets) {
+        if (buckets == this)
+            throw new IllegalArgumentException("Cannot merge oneself!");
+
+        RenderBucket a = this.buckets;
+        RenderBucket b = buckets.buckets;
+        buckets.buckets = null;
+        buckets.mCurBucket = null;
+        mCurBucket = null;
+        if (b == null)
+            return;
+
+        RenderBucket head = null, tail = null;
+        while (a != null || b != null) {
+            RenderBucket n;
+            if (b == null || (a != null && a.level <= b.level)) {
+                n = a;
+                a = a.next;
+            } else {
+                n = b;
+                b = b.next;
+            }
+            if (tail == null)
+                head = n;
+            else
+                tail.next = n;
+            tail = n;
+        }
+        this.buckets = head;
+    }
+
     public void setFrom(RenderBuckets buckets) {
         if (buckets == this)
             throw new IllegalArgumentException("Cannot set from oneself!");
@@ -452,5 +529,6 @@ public class RenderBuckets extends TileData {
         MeshBucket.Renderer.init();
         HairLineBucket.Renderer.init();
         CircleBucket.Renderer.init();
+        HillshadingBucket.Renderer.init();
     }
 }
@@ -19,7 +19,6 @@ package org.oscim.renderer.bucket;
 import org.oscim.renderer.bucket.VertexData.Chunk;
 import org.oscim.utils.FastMath;
 import org.oscim.utils.pool.Inlist;
-import org.oscim.utils.pool.SyncPool;
 
 import java.nio.ShortBuffer;
 
@@ -39,29 +38,98 @@ public class VertexData extends Inlist.List<Chunk> {
     public static final int SIZE = 360;
 
     /**
-     * Shared chunk pool size.
+     * Number of chunks passed between threads at once.
      */
-    private static final int MAX_POOL = 500;
+    private static final int SEGMENT = 32;
+
+    /**
+     * Shared chunk pool size, in segments.
+     */
+    private static final int MAX_SEGMENTS = 16;
 
     public static class Chunk extends Inlist<Chunk> {
         public final short[] vertices = new short[SIZE];
         public int used;
     }
 
-    private static class Pool extends SyncPool<Chunk> {
-        public Pool() {
-            super(MAX_POOL);
+    /**
+     * Chunk pool with a cache per thread, so that adding vertices on the
+     * loader threads does not synchronize for each chunk. Chunks are mostly
+     * released on another thread (i.e. compiled on the GL thread), they
+     * flow back through a shared depot in segments of SEGMENT chunks.
+     */
+    static final class Pool {
+        private final Chunk[] mDepot = new Chunk[MAX_SEGMENTS];
+        private int mDepotFill;
+
+        private final ThreadLocal<Cache> mCache = new ThreadLocal<Cache>() {
+            @Override
+            protected Cache initialValue() {
+                return new Cache();
+            }
+        };
+
+        static final class Cache {
+            Chunk free;
+            int fill;
+        }
+
+        Chunk get() {
+            Cache cache = mCache.get();
+            if (cache.free == null) {
+                cache.free = takeSegment();
+                if (cache.free == null)
+                    return new Chunk();
+                cache.fill = SEGMENT;
+            }
+            Chunk it = cache.free;
+            cache.free = it.next;
+            cache.fill--;
+            it.next = null;
+            return it;
+        }
+
+        /**
+         * Release list of chunks to the pool of the current thread.
+         */
+        void releaseAll(Chunk list) {
+            if (list == null)
+                return;
+
+            Cache cache = mCache.get();
+            while (list != null) {
+                Chunk next = list.next;
+                list.used = 0;
+                list.next = cache.free;
+                cache.free = list;
+                list = next;
+
+                if (++cache.fill == 2 * SEGMENT) {
+                    /* pass one segment on to other threads */
+                    Chunk segment = cache.free;
+                    Chunk last = segment;
+                    for (int i = 1; i < SEGMENT; i++)
+                        last = last.next;
+                    cache.free = last.next;
+                    last.next = null;
+                    cache.fill -= SEGMENT;
+                    putSegment(segment);
+                }
+            }
         }
 
-        @Override
-        protected Chunk createItem() {
-            return new Chunk();
+        private synchronized Chunk takeSegment() {
+            if (mDepotFill == 0)
+                return null;
+            Chunk segment = mDepot[--mDepotFill];
+            mDepot[mDepotFill] = null;
+            return segment;
         }
 
-        @Override
-        protected boolean clearItem(Chunk it) {
-            it.used = 0;
-            return true;
+        private synchronized void putSegment(Chunk segment) {
+            /* otherwise leave it to the GC */
+            if (mDepotFill < MAX_SEGMENTS)
+                mDepot[mDepotFill++] = segment;
         }
     }
 
@@ -18,18 +18,26 @@
 package org.oscim.theme;
 
 import org.oscim.core.Tag;
+import org.oscim.core.TagDictionary;
 import org.oscim.core.TagSet;
 import org.oscim.utils.Utils;
 
+/**
+ * Key of the matching cache, hashed and compared by the
+ * {@link TagDictionary} ids of its tags. Tags without id
+ * (e.g. names) fall back to comparing their values.
+ */
 class MatchingCacheKey {
     int mHash;
     Tag[] mTags;
+    int[] mIds;
 
     MatchingCacheKey() {
     }
 
     MatchingCacheKey(MatchingCacheKey key) {
         mTags = key.mTags;
+        mIds = key.mIds;
         mHash = key.mHash;
     }
 
@@ -38,15 +46,13 @@ class MatchingCacheKey {
      */
     boolean set(TagSet tags, MatchingCacheKey compare) {
         int numTags = tags.size();
+        int[] ids = tags.getIds();
 
         /* Test if tags are equal to previous query */
         if (compare != null && numTags == compare.mTags.length) {
             int i = 0;
             for (; i < numTags; i++) {
-                Tag t1 = tags.get(i);
-                Tag t2 = compare.mTags[i];
-
-                if (!(t1 == t2 || (Utils.equals(t1.key, t2.key) && Utils.equals(t1.value, t2.value))))
+                if (!equals(ids[i], tags.get(i), compare.mIds[i], compare.mTags[i]))
                     break;
             }
             if (i == numTags)
@@ -57,12 +63,18 @@ class MatchingCacheKey {
          * Also needed for comparison if previous tags
          * were equal. */
         mTags = new Tag[numTags];
+        mIds = new int[numTags];
 
         int result = 7;
         for (int i = 0; i < numTags; i++) {
             Tag t = tags.get(i);
-            result = 31 * result + t.hashCode();
+            int id = ids[i];
+            if (id == TagDictionary.NONE)
+                result = 31 * result + 31 * t.keyId() + (t.value == null ? 0 : t.value.hashCode());
+            else
+                result = 31 * result + id;
             mTags[i] = t;
+            mIds[i] = id;
         }
 
         mHash = 31 * result;
@@ -70,6 +82,13 @@ class MatchingCacheKey {
         return false;
     }
 
+    private static boolean equals(int id1, Tag t1, int id2, Tag t2) {
+        if (id1 != TagDictionary.NONE || id2 != TagDictionary.NONE)
+            return id1 == id2;
+
+        return t1 == t2 || (t1.keyId() == t2.keyId() && Utils.equals(t1.value, t2.value));
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null)
@@ -80,15 +99,12 @@ class MatchingCacheKey {
 
         MatchingCacheKey other = (MatchingCacheKey) obj;
 
-        int length = mTags.length;
-        if (length != other.mTags.length)
+        int length = mIds.length;
+        if (length != other.mIds.length)
             return false;
 
         for (int i = 0; i < length; i++) {
-            Tag t1 = mTags[i];
-            Tag t2 = other.mTags[i];
-
-            if (!(t1 == t2 || (Utils.equals(t1.key, t2.key) && Utils.equals(t1.value, t2.value))))
+            if (!equals(mIds[i], mTags[i], other.mIds[i], other.mTags[i]))
                 return false;
         }
         return true;
@@ -28,6 +28,7 @@ import org.oscim.theme.rule.Rule.RuleVisitor;
 import org.oscim.theme.styles.RenderStyle;
 import org.oscim.utils.ArrayUtils;
 import org.oscim.utils.LRUCache;
+import org.oscim.utils.stats.TileStats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +42,7 @@ public class RenderTheme implements IRenderTheme {
     private static final int MATCHING_CACHE_SIZE = 8192;
 
     private final float mBaseTextSize;
+    private volatile float mTextScale = 1;
     private final int mMapBackground;
     private final int mMapBackgroundOutside;
 
@@ -80,7 +82,24 @@ public class RenderTheme implements IRenderTheme {
         MatchingCacheKey key;
     }
 
-    private final RenderStyleCache[] mStyleCache;
+    /**
+     * Match caches of each thread, so that the loader threads and the
+     * workers building parts of a tile do not wait for each other.
+     * Replaced on dispose to drop the caches of all threads.
+     */
+    private volatile ThreadLocal<RenderStyleCache[]> mStyleCache = newStyleCache();
+
+    private static ThreadLocal<RenderStyleCache[]> newStyleCache() {
+        return new ThreadLocal<RenderStyleCache[]>() {
+            @Override
+            protected RenderStyleCache[] initialValue() {
+                return new RenderStyleCache[]{
+                        new RenderStyleCache(Element.NODE),
+                        new RenderStyleCache(Element.LINE),
+                        new RenderStyleCache(Element.POLY)};
+            }
+        };
+    }
 
     public RenderTheme(int mapBackground, int mapBackgroundOutside, float baseTextSize, Rule[] rules, int levels) {
         this(mapBackground, mapBackgroundOutside, baseTextSize, rules, levels, false);
@@ -111,18 +130,12 @@ public class RenderTheme implements IRenderTheme {
         mTransformBackwardKeyMap = ArrayUtils.swap(transformKeyMap);
         mTransformForwardTagMap = transformTagMap;
         mTransformBackwardTagMap = ArrayUtils.swap(transformTagMap);
-
-        mStyleCache = new RenderStyleCache[3];
-        mStyleCache[0] = new RenderStyleCache(Element.NODE);
-        mStyleCache[1] = new RenderStyleCache(Element.LINE);
-        mStyleCache[2] = new RenderStyleCache(Element.POLY);
     }
 
     @Override
     public void dispose() {
 
-        for (int i = 0; i < 3; i++)
-            mStyleCache[i].cache.clear();
+        mStyleCache = newStyleCache();
 
         for (Rule rule : mRules)
             rule.dispose();
@@ -147,6 +160,24 @@ public class RenderTheme implements IRenderTheme {
         return mRules;
     }
 
+    float getBaseTextSize() {
+        return mBaseTextSize;
+    }
+
+    /**
+     * @return the forward key transformations, or null.
+     */
+    public Map<String, String> getTransformKeyMap() {
+        return mTransformForwardKeyMap;
+    }
+
+    /**
+     * @return the forward tag transformations, or null.
+     */
+    public Map<Tag, Tag> getTransformTagMap() {
+        return mTransformForwardTagMap;
+    }
+
     @Override
     public boolean isMapsforgeTheme() {
         return mMapsforgeTheme;
@@ -171,135 +202,142 @@ public class RenderTheme implements IRenderTheme {
             return null;
         }
 
-        RenderStyleCache cache = mStyleCache[type - 1];
+        RenderStyleCache cache = mStyleCache.get()[type - 1];
 
         /* NOTE: maximum zoom level supported is 32 */
         int zoomMask = 1 << zoomLevel;
 
-        synchronized (cache) {
-
-            if ((cache.prevItem == null) || (cache.prevItem.zoom & zoomMask) == 0) {
-                /* previous instructions zoom does not match */
-                cache.cacheKey.set(tags, null);
-            } else {
-                /* compare if tags match previous instructions */
-                if (cache.cacheKey.set(tags, cache.prevItem.key)) {
-                    ri = cache.prevItem;
-                    //log.debug(hitCount + "/" + sameCount.incrementAndGet()
-                    //        + "/" + missCount + "same hit " + tags);
-                }
+        if ((cache.prevItem == null) || (cache.prevItem.zoom & zoomMask) == 0) {
+            /* previous instructions zoom does not match */
+            cache.cacheKey.set(tags, null);
+        } else {
+            /* compare if tags match previous instructions */
+            if (cache.cacheKey.set(tags, cache.prevItem.key)) {
+                ri = cache.prevItem;
+                //log.debug(hitCount + "/" + sameCount.incrementAndGet()
+                //        + "/" + missCount + "same hit " + tags);
             }
+        }
 
-            if (ri == null) {
-                /* get instruction for current cacheKey */
-                ris = cache.getRenderInstructions();
+        if (ri == null) {
+            /* get instruction for current cacheKey */
+            ris = cache.getRenderInstructions();
 
-                for (ri = ris; ri != null; ri = ri.next) {
-                    if ((ri.zoom & zoomMask) != 0) {
-                        /* cache hit */
+            for (ri = ris; ri != null; ri = ri.next) {
+                if ((ri.zoom & zoomMask) != 0) {
+                    /* cache hit */
 
-                        //log.debug(hitCount.incrementAndGet()
-                        //       + "/" + sameCount + "/" + missCount
-                        //       + " cache hit " + tags);
-                        break;
-                    }
+                    //log.debug(hitCount.incrementAndGet()
+                    //       + "/" + sameCount + "/" + missCount
+                    //       + " cache hit " + tags);
+                    break;
                 }
             }
+        }
 
-            if (ri == null) {
-                /* cache miss */
-                //missCount.incrementAndGet();
-
-                List<RenderStyle> matches = cache.instructionList;
-                matches.clear();
-
-                for (Rule rule : mRules)
-                    rule.matchElement(cache.matchType, cache.cacheKey.mTags, zoomMask, matches);
-
-                int size = matches.size();
-                if (size > 1) {
-                    for (int i = 0; i < size - 1; i++) {
-                        RenderStyle r = matches.get(i);
-                        for (int j = i + 1; j < size; j++) {
-                            if (matches.get(j) == r) {
-                                log.fine("fix duplicate instruction! "
-                                        + Arrays.deepToString(cache.cacheKey.mTags)
-                                        + " zoom:" + zoomLevel + " "
-                                        + r.getClass().getName());
-                                matches.remove(j--);
-                                size--;
-                            }
+        TileStats.cache(TileStats.Cache.STYLE, ri != null);
+
+        if (ri == null) {
+            /* cache miss */
+            //missCount.incrementAndGet();
+
+            List<RenderStyle> matches = cache.instructionList;
+            matches.clear();
+
+            for (Rule rule : mRules)
+                rule.matchElement(cache.matchType, cache.cacheKey.mTags, zoomMask, matches);
+
+            int size = matches.size();
+            if (size > 1) {
+                for (int i = 0; i < size - 1; i++) {
+                    RenderStyle r = matches.get(i);
+                    for (int j = i + 1; j < size; j++) {
+                        if (matches.get(j) == r) {
+                            log.fine("fix duplicate instruction! "
+                                    + Arrays.deepToString(cache.cacheKey.mTags)
+                                    + " zoom:" + zoomLevel + " "
+                                    + r.getClass().getName());
+                            matches.remove(j--);
+                            size--;
                         }
                     }
                 }
-                /* check if same instructions are used in another level */
-                for (ri = ris; ri != null; ri = ri.next) {
-                    if (size == 0) {
-                        if (ri.list != null)
-                            continue;
+            }
+            /* check if same instructions are used in another level */
+            for (ri = ris; ri != null; ri = ri.next) {
+                if (size == 0) {
+                    if (ri.list != null)
+                        continue;
 
-                        /* both matchinglists are empty */
-                        break;
-                    }
+                    /* both matchinglists are empty */
+                    break;
+                }
 
-                    if (ri.list == null)
-                        continue;
+                if (ri.list == null)
+                    continue;
 
-                    if (ri.list.length != size)
-                        continue;
+                if (ri.list.length != size)
+                    continue;
 
-                    int i = 0;
-                    for (RenderStyle r : ri.list) {
-                        if (r != matches.get(i))
-                            break;
-                        i++;
-                    }
-                    if (i == size)
-                        /* both matching lists contain the same items */
+                int i = 0;
+                for (RenderStyle r : ri.list) {
+                    if (r != matches.get(i))
                         break;
+                    i++;
                 }
+                if (i == size)
+                    /* both matching lists contain the same items */
+                    break;
+            }
 
-                if (ri != null) {
-                    /* we found a same matchting list on another zoomlevel add
-                     * this zoom level to the existing RenderInstructionItem. */
-                    ri.zoom |= zoomMask;
+            if (ri != null) {
+                /* we found a same matchting list on another zoomlevel add
+                 * this zoom level to the existing RenderInstructionItem. */
+                ri.zoom |= zoomMask;
 
-                    //log.debug(zoomLevel + " same instructions " + size + " "
-                    //                + Arrays.deepToString(tags));
-                } else {
-                    //log.debug(zoomLevel + " new instructions " + size + " "
-                    //                + Arrays.deepToString(tags));
+                //log.debug(zoomLevel + " same instructions " + size + " "
+                //                + Arrays.deepToString(tags));
+            } else {
+                //log.debug(zoomLevel + " new instructions " + size + " "
+                //                + Arrays.deepToString(tags));
 
-                    ri = new RenderStyleItem();
-                    ri.zoom = zoomMask;
+                ri = new RenderStyleItem();
+                ri.zoom = zoomMask;
 
-                    if (size > 0) {
-                        ri.list = new RenderStyle[size];
-                        matches.toArray(ri.list);
-                    }
+                if (size > 0) {
+                    ri.list = new RenderStyle[size];
+                    matches.toArray(ri.list);
+                }
 
-                    /* attach this list to the one found for MatchingKey */
-                    if (ris != null) {
-                        ri.next = ris.next;
-                        ri.key = ris.key;
-                        ris.next = ri;
-                    } else {
-                        ri.key = new MatchingCacheKey(cache.cacheKey);
-                        cache.cache.put(ri.key, ri);
-                    }
+                /* attach this list to the one found for MatchingKey */
+                if (ris != null) {
+                    ri.next = ris.next;
+                    ri.key = ris.key;
+                    ris.next = ri;
+                } else {
+                    ri.key = new MatchingCacheKey(cache.cacheKey);
+                    cache.cache.put(ri.key, ri);
                 }
             }
-            cache.prevItem = ri;
         }
+        cache.prevItem = ri;
         return ri.list;
     }
 
     @Override
     public void scaleTextSize(float scaleFactor) {
+        mTextScale = scaleFactor;
         for (Rule rule : mRules)
             rule.scaleTextSize(scaleFactor * mBaseTextSize);
     }
 
+    /**
+     * @return the factor of the last {@link #scaleTextSize(float)}.
+     */
+    public float getTextScale() {
+        return mTextScale;
+    }
+
     @Override
     public String transformBackwardKey(String key) {
         if (mTransformBackwardKeyMap != null)
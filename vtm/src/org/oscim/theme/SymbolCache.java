@@ -0,0 +1,352 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.backend.canvas.Canvas;
+import org.oscim.renderer.atlas.TextureAtlas;
+import org.oscim.renderer.atlas.TextureRegion;
+import org.oscim.utils.BitmapPacker;
+import org.oscim.utils.IOUtils;
+import org.oscim.utils.LRUCache;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Disk cache of rasterized theme symbols. Symbols are keyed by the hash
+ * of their source, their size and scale and stored packed into atlas
+ * images with {@link BitmapPacker}.
+ * <p/>
+ * Symbols taken from the atlases are kept in memory, up to
+ * {@link #MAX_BITMAPS}, and the same bitmap is returned while it is valid.
+ * <p/>
+ * New symbols are written by {@link #flush()}, which is called by
+ * {@link XmlThemeBuilder} after loading a theme. The index also keeps the
+ * bitmaps requested by the last read themes, so they can be loaded in
+ * parallel from the start when a theme is read again.
+ * <p/>
+ * Usage: {@link XmlThemeBuilder#setSymbolCache(SymbolCache)}
+ */
+public class SymbolCache {
+
+    private static final Logger log = Logger.getLogger(SymbolCache.class.getName());
+
+    private static final int MAGIC = 0x56545343; // "VTSC"
+    private static final int VERSION = 2;
+
+    private static final String INDEX = "symbols.idx";
+    private static final String ATLAS_PREFIX = "symbols-";
+    private static final String ATLAS_SUFFIX = ".png";
+
+    private static final int ATLAS_SIZE = 1024;
+    private static final int PAD = 2;
+
+    public static final int MAX_BITMAPS = 512;
+
+    /**
+     * Number of themes whose requested bitmaps are kept.
+     */
+    public static final int MAX_THEMES = 8;
+
+    private static class Entry {
+        final int atlas;
+        final int x, y, width, height;
+
+        Entry(int atlas, int x, int y, int width, int height) {
+            this.atlas = atlas;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final File mDir;
+
+    private final Map<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private final Map<String, Bitmap> mBitmaps = new ConcurrentHashMap<>();
+
+    /* guarded by this */
+    private final Map<Integer, Bitmap> mAtlases = new HashMap<>();
+    private final Map<String, Bitmap> mPending = new HashMap<>();
+    private final Map<Long, List<ThemeAssets.Request>> mRequests = new LRUCache<>(MAX_THEMES);
+    private boolean mRequestsChanged;
+    private int mNextAtlas;
+
+    private volatile boolean mIndexLoaded;
+
+    /**
+     * @param dir the cache directory
+     */
+    public SymbolCache(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return the cache key of a symbol rasterized from data
+     */
+    public static String key(byte[] data, int width, int height, int percent) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : data)
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+
+        return Long.toHexString(h) + '-' + data.length
+                + '-' + width + 'x' + height + '-' + percent
+                + '-' + Float.floatToIntBits(CanvasAdapter.getScale())
+                + '-' + CanvasAdapter.platform;
+    }
+
+    /**
+     * @return the cached symbol or null
+     */
+    public Bitmap get(String key) {
+        Bitmap bitmap = mBitmaps.get(key);
+        if (bitmap != null) {
+            if (bitmap.isValid())
+                return bitmap;
+            /* recycled with its theme */
+            mBitmaps.remove(key, bitmap);
+        }
+
+        loadIndex();
+        Entry e = mEntries.get(key);
+        if (e == null) {
+            synchronized (this) {
+                bitmap = mPending.get(key);
+            }
+            return bitmap;
+        }
+
+        Bitmap atlas = getAtlas(e.atlas);
+        if (atlas == null) {
+            mEntries.remove(key);
+            return null;
+        }
+
+        bitmap = CanvasAdapter.newBitmap(e.width, e.height, 0);
+        Canvas canvas = CanvasAdapter.newCanvas();
+        canvas.setBitmap(bitmap);
+        canvas.drawBitmap(atlas, -e.x, -e.y);
+        keep(key, bitmap);
+        return bitmap;
+    }
+
+    private void keep(String key, Bitmap bitmap) {
+        if (mBitmaps.size() >= MAX_BITMAPS) {
+            /* drop some, they are extracted again when needed */
+            Iterator<String> it = mBitmaps.keySet().iterator();
+            for (int i = 0; i < MAX_BITMAPS / 4 && it.hasNext(); i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        mBitmaps.put(key, bitmap);
+    }
+
+    /**
+     * Add a symbol, written on next {@link #flush()}.
+     */
+    public synchronized void put(String key, Bitmap bitmap) {
+        if (bitmap.getWidth() + PAD > ATLAS_SIZE || bitmap.getHeight() + PAD > ATLAS_SIZE)
+            return;
+
+        mPending.put(key, bitmap);
+        keep(key, bitmap);
+    }
+
+    /**
+     * @return the bitmaps requested by the last read of a theme, or null.
+     */
+    synchronized List<ThemeAssets.Request> getRequests(long theme) {
+        loadIndex();
+        return mRequests.get(theme);
+    }
+
+    /**
+     * Set the bitmaps requested by a theme, written on next {@link #flush()}.
+     */
+    synchronized void putRequests(long theme, List<ThemeAssets.Request> requests) {
+        loadIndex();
+        if (requests.equals(mRequests.put(theme, requests)))
+            return;
+        mRequestsChanged = true;
+    }
+
+    /**
+     * Pack new symbols into atlases and write them with the index.
+     * Releases the decoded atlases.
+     */
+    public synchronized void flush() {
+        mAtlases.clear();
+
+        if (mPending.isEmpty() && !mRequestsChanged)
+            return;
+
+        loadIndex();
+
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            log.warning("could not create " + mDir);
+            mPending.clear();
+            mRequestsChanged = false;
+            return;
+        }
+
+        BitmapPacker packer = new BitmapPacker(ATLAS_SIZE, ATLAS_SIZE, PAD,
+                new BitmapPacker.GuillotineStrategy(), false);
+        for (Map.Entry<String, Bitmap> p : mPending.entrySet())
+            packer.add(p.getKey(), p.getValue());
+
+        try {
+            for (int i = 0, n = packer.getAtlasCount(); i < n; i++) {
+                TextureAtlas atlas = packer.getAtlasItem(i).getAtlas();
+                int id = mNextAtlas++;
+
+                write(new File(mDir, ATLAS_PREFIX + id + ATLAS_SUFFIX),
+                        atlas.texture.bitmap.getPngEncodedData());
+
+                for (Map.Entry<Object, TextureRegion> r : atlas.getRegions().entrySet()) {
+                    TextureAtlas.Rect rect = r.getValue().rect;
+                    mEntries.put((String) r.getKey(), new Entry(id, rect.x, rect.y, rect.w, rect.h));
+                }
+            }
+            writeIndex();
+        } catch (IOException e) {
+            log.warning("could not write symbol cache: " + e);
+        }
+        mPending.clear();
+        mRequestsChanged = false;
+    }
+
+    private void loadIndex() {
+        if (mIndexLoaded)
+            return;
+        synchronized (this) {
+            if (mIndexLoaded)
+                return;
+            readIndex();
+            mIndexLoaded = true;
+        }
+    }
+
+    private void readIndex() {
+        File file = new File(mDir, INDEX);
+        if (!file.exists())
+            return;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("invalid header");
+
+            mNextAtlas = in.readInt();
+            for (int i = 0, n = in.readInt(); i < n; i++) {
+                String key = in.readUTF();
+                mEntries.put(key, new Entry(in.readInt(), in.readInt(), in.readInt(),
+                        in.readInt(), in.readInt()));
+            }
+            for (int i = 0, n = in.readInt(); i < n; i++) {
+                long theme = in.readLong();
+                int size = in.readInt();
+                List<ThemeAssets.Request> requests = new ArrayList<>(size);
+                for (int j = 0; j < size; j++)
+                    requests.add(new ThemeAssets.Request(in.readUTF(), in.readInt(),
+                            in.readInt(), in.readInt()));
+                mRequests.put(theme, requests);
+            }
+        } catch (IOException e) {
+            log.fine("invalid symbol cache index: " + e);
+            mEntries.clear();
+            mRequests.clear();
+            mNextAtlas = 0;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        File tmp = new File(mDir, INDEX + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mNextAtlas);
+            out.writeInt(mEntries.size());
+            for (Map.Entry<String, Entry> p : mEntries.entrySet()) {
+                Entry e = p.getValue();
+                out.writeUTF(p.getKey());
+                out.writeInt(e.atlas);
+                out.writeInt(e.x);
+                out.writeInt(e.y);
+                out.writeInt(e.width);
+                out.writeInt(e.height);
+            }
+            out.writeInt(mRequests.size());
+            for (Map.Entry<Long, List<ThemeAssets.Request>> p : mRequests.entrySet()) {
+                out.writeLong(p.getKey());
+                out.writeInt(p.getValue().size());
+                for (ThemeAssets.Request r : p.getValue()) {
+                    out.writeUTF(r.src);
+                    out.writeInt(r.width);
+                    out.writeInt(r.height);
+                    out.writeInt(r.percent);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        File file = new File(mDir, INDEX);
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+            throw new IOException("could not replace " + file);
+    }
+
+    private synchronized Bitmap getAtlas(int id) {
+        Bitmap atlas = mAtlases.get(id);
+        if (atlas != null)
+            return atlas;
+
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(new File(mDir, ATLAS_PREFIX + id + ATLAS_SUFFIX)));
+            atlas = CanvasAdapter.decodeBitmap(in);
+            mAtlases.put(id, atlas);
+        } catch (IOException e) {
+            log.fine("invalid symbol atlas " + id + ": " + e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return atlas;
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.utils.IOUtils;
+import org.oscim.utils.LRUCache;
+import org.oscim.utils.async.WorkerPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the bitmaps of a theme for {@link XmlThemeBuilder}.
+ * <p/>
+ * Symbols are requested with {@link #request} while parsing: they are
+ * loaded by up to {@link #mThreads} tasks on the {@link WorkerPool} and
+ * the parser gets a placeholder, which is resolved by {@link #resolve}
+ * before the theme is built. Textures, which are used while parsing, are
+ * loaded by {@link #getBitmap}.
+ * <p/>
+ * The bitmaps requested are remembered per theme, by the hash of its XML
+ * and its path, and kept with the {@link SymbolCache} if set. When the
+ * theme is read again {@link #prefetch(long)} starts them all at once.
+ * SVG symbols are taken from the {@link SymbolCache} if set.
+ */
+final class ThemeAssets {
+
+    private static final Logger log = Logger.getLogger(ThemeAssets.class.getName());
+
+    /**
+     * Requested bitmaps of the last read themes, without symbol cache.
+     */
+    private static final Map<Long, List<Request>> sRequests = new LRUCache<>(4);
+
+    static final class Request {
+        final String src;
+        final int width, height, percent;
+
+        Request(String src, int width, int height, int percent) {
+            this.src = src;
+            this.width = width;
+            this.height = height;
+            this.percent = percent;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Request))
+                return false;
+            Request o = (Request) obj;
+            return src.equals(o.src) && width == o.width && height == o.height
+                    && percent == o.percent;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((src.hashCode() * 31 + width) * 31 + height) * 31 + percent;
+        }
+    }
+
+    /**
+     * Placeholder of a requested bitmap, only to be passed to
+     * {@link #resolve(Bitmap)}.
+     */
+    static final class PendingBitmap implements Bitmap {
+        final Request request;
+        final FutureTask<Bitmap> task;
+
+        PendingBitmap(Request request, FutureTask<Bitmap> task) {
+            this.request = request;
+            this.task = task;
+        }
+
+        @Override
+        public int getWidth() {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public int getHeight() {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public void recycle() {
+        }
+
+        @Override
+        public int[] getPixels() {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public void eraseColor(int color) {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public void uploadToTexture(boolean replace) {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public boolean isValid() {
+            return false;
+        }
+
+        @Override
+        public byte[] getPngEncodedData() {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+
+        @Override
+        public void scaleTo(int width, int height) {
+            throw new IllegalStateException("not loaded: " + request.src);
+        }
+    }
+
+    /**
+     * @return true when bitmap is a placeholder of {@link #request}.
+     */
+    static boolean isPending(Bitmap bitmap) {
+        return bitmap instanceof PendingBitmap;
+    }
+
+    /**
+     * @return the key of a theme, from its XML and the path of its resources.
+     */
+    static long key(ThemeFile theme, byte[] xml) {
+        long h = ThemeCompiler.hash(0xcbf29ce484222325L, xml, xml.length);
+        return ThemeCompiler.hash(h, theme.getRelativePathPrefix());
+    }
+
+    private final ThemeFile mTheme;
+    private final ThemeCallback mThemeCallback;
+    private final SymbolCache mCache;
+    private final int mThreads;
+
+    private long mKey;
+
+    private final LinkedHashSet<Request> mRequested = new LinkedHashSet<>();
+    private final LinkedHashSet<String> mSources = new LinkedHashSet<>();
+    private final Map<Request, FutureTask<Bitmap>> mTasks = new HashMap<>();
+
+    /* tasks to run on the pool */
+    private final ConcurrentLinkedQueue<FutureTask<Bitmap>> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mRunners = new AtomicInteger();
+
+    private final Runnable mRunner = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                FutureTask<Bitmap> task;
+                /* tasks already run or canceled are skipped */
+                while ((task = mQueue.poll()) != null)
+                    task.run();
+
+                mRunners.decrementAndGet();
+                /* a task may have been added when all runners were busy,
+                 * otherwise the parser runs it on resolve */
+                int n = mRunners.get();
+                if (mQueue.isEmpty() || n >= mThreads || !mRunners.compareAndSet(n, n + 1))
+                    return;
+            }
+        }
+    };
+
+    /**
+     * @param threads the number of bitmaps to load in parallel, 0 to load
+     *                them on the parsing thread.
+     */
+    ThemeAssets(ThemeFile theme, ThemeCallback themeCallback, SymbolCache cache, int threads) {
+        mTheme = theme;
+        mThemeCallback = themeCallback;
+        mCache = cache;
+        mThreads = threads;
+    }
+
+    /**
+     * Set the key of the theme and start loading the bitmaps requested by
+     * its last read.
+     */
+    void prefetch(long key) {
+        mKey = key;
+
+        List<Request> requests;
+        if (mCache != null) {
+            requests = mCache.getRequests(key);
+        } else {
+            synchronized (sRequests) {
+                requests = sRequests.get(key);
+            }
+        }
+        if (requests == null || mThreads <= 0)
+            return;
+
+        for (Request r : requests)
+            task(r);
+    }
+
+    private FutureTask<Bitmap> task(final Request r) {
+        FutureTask<Bitmap> task = mTasks.get(r);
+        if (task != null)
+            return task;
+
+        task = new FutureTask<>(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() throws Exception {
+                return load(r);
+            }
+        });
+        mTasks.put(r, task);
+
+        if (mThreads > 0) {
+            mQueue.add(task);
+            int n = mRunners.get();
+            while (n < mThreads) {
+                if (mRunners.compareAndSet(n, n + 1)) {
+                    WorkerPool.get().execute(mRunner);
+                    break;
+                }
+                n = mRunners.get();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Start loading a bitmap.
+     *
+     * @return a placeholder to {@link #resolve}, the bitmap itself when
+     * loading on the parsing thread, or null for an empty src.
+     */
+    Bitmap request(String src, int width, int height, int percent) throws IOException {
+        if (mThreads <= 0)
+            return getBitmap(src, width, height, percent);
+        if (src == null || src.length() == 0)
+            return null;
+
+        Request r = new Request(src, width, height, percent);
+        mRequested.add(r);
+        mSources.add(src);
+        return new PendingBitmap(r, task(r));
+    }
+
+    /**
+     * Wait for a requested bitmap, it is loaded here when no worker has
+     * started it yet.
+     *
+     * @return the bitmap, processed by the ThemeCallback, or null when it
+     * could not be loaded.
+     */
+    Bitmap resolve(Bitmap bitmap) {
+        if (!(bitmap instanceof PendingBitmap))
+            return bitmap;
+
+        PendingBitmap pending = (PendingBitmap) bitmap;
+        try {
+            return process(get(pending.request, pending.task));
+        } catch (IOException e) {
+            log.severe(pending.request.src + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the bitmap of src, processed by the ThemeCallback
+     */
+    Bitmap getBitmap(String src, int width, int height, int percent) throws IOException {
+        if (src == null || src.length() == 0)
+            return null;
+
+        Request r = new Request(src, width, height, percent);
+        mRequested.add(r);
+        mSources.add(src);
+
+        return process(get(r, task(r)));
+    }
+
+    private Bitmap get(Request r, FutureTask<Bitmap> task) throws IOException {
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (CancellationException e) {
+            return load(r);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Bitmap process(Bitmap bitmap) {
+        if (bitmap != null && mThemeCallback != null)
+            bitmap = mThemeCallback.getBitmap(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Add a resource which is not loaded through {@link #getBitmap}.
+     */
+    void addSource(String src) {
+        mSources.add(src);
+    }
+
+    /**
+     * @return the resources used by the theme
+     */
+    Set<String> getSources() {
+        return mSources;
+    }
+
+    /**
+     * Cancel loading of bitmaps which were not requested again, remember
+     * the requested bitmaps and write new symbols to the cache.
+     */
+    void finish() {
+        for (FutureTask<Bitmap> task : mTasks.values())
+            task.cancel(false);
+        mTasks.clear();
+        mQueue.clear();
+
+        if (mKey != 0 && !mRequested.isEmpty()) {
+            List<Request> requests = new ArrayList<>(mRequested);
+            if (mCache != null) {
+                mCache.putRequests(mKey, requests);
+            } else {
+                synchronized (sRequests) {
+                    sRequests.put(mKey, requests);
+                }
+            }
+        }
+        mRequested.clear();
+
+        if (mCache != null)
+            mCache.flush();
+    }
+
+    private Bitmap load(Request r) throws IOException {
+        String prefix = mTheme.getRelativePathPrefix();
+        XmlThemeResourceProvider provider = mTheme.getResourceProvider();
+
+        if (mCache == null || !r.src.toLowerCase(Locale.ENGLISH).endsWith(".svg"))
+            return CanvasAdapter.getBitmapAsset(prefix, r.src, provider, r.width, r.height, r.percent, null);
+
+        InputStream in = CanvasAdapter.getInputStream(prefix, r.src, provider);
+        if (in == null)
+            return null;
+
+        byte[] data;
+        try {
+            data = readFully(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+
+        String key = SymbolCache.key(data, r.width, r.height, r.percent);
+        Bitmap bitmap = mCache.get(key);
+        if (bitmap == null) {
+            log.fine("rasterize " + r.src);
+            bitmap = CanvasAdapter.decodeSvgBitmap(new ByteArrayInputStream(data), r.width, r.height, r.percent);
+            if (bitmap != null)
+                mCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+}
@@ -41,4 +41,16 @@ public interface ThemeCallback {
      * @return the text
      */
     String getText(MapElement element, String text);
+
+    /**
+     * A ThemeCallback whose results depend on its state, e.g. a night mode
+     * color transform. Themes are only compiled by {@link ThemeCompiler}
+     * with a Versioned callback, keyed by its version.
+     */
+    interface Versioned extends ThemeCallback {
+        /**
+         * @return a version which changes whenever the results change
+         */
+        String getVersion();
+    }
 }
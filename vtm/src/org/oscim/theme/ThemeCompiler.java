@@ -0,0 +1,837 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.backend.canvas.Paint.Cap;
+import org.oscim.backend.canvas.Paint.FontFamily;
+import org.oscim.backend.canvas.Paint.FontStyle;
+import org.oscim.core.Tag;
+import org.oscim.renderer.atlas.TextureAtlas.Rect;
+import org.oscim.renderer.atlas.TextureRegion;
+import org.oscim.renderer.bucket.TextureItem;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.Rule.RuleVisitor;
+import org.oscim.theme.rule.Rule.Selector;
+import org.oscim.theme.rule.RuleBuilder;
+import org.oscim.theme.rule.RuleBuilder.RuleType;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.AreaStyle.AreaBuilder;
+import org.oscim.theme.styles.CircleStyle;
+import org.oscim.theme.styles.CircleStyle.CircleBuilder;
+import org.oscim.theme.styles.ExtrusionStyle;
+import org.oscim.theme.styles.ExtrusionStyle.ExtrusionBuilder;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.LineStyle.LineBuilder;
+import org.oscim.theme.styles.RenderStyle;
+import org.oscim.theme.styles.SymbolStyle;
+import org.oscim.theme.styles.SymbolStyle.SymbolBuilder;
+import org.oscim.theme.styles.TextStyle;
+import org.oscim.theme.styles.TextStyle.TextBuilder;
+import org.oscim.utils.IOUtils;
+import org.oscim.utils.Parameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Compiles a parsed {@link RenderTheme} into a binary file and restores it
+ * without XML parsing on the next start.
+ * <p>
+ * The rules, styles, levels and tag transforms are written as they are.
+ * Bitmaps, textures and atlas regions are written once and referenced by index.
+ * Compiled themes are stored as dir/[theme hash]/[categories hash].vtt, keyed
+ * by the theme data, the version of a {@link ThemeCallback.Versioned} and the
+ * categories chosen in its style menu. The hashes of the symbols and textures
+ * used by the theme are stored and checked on load, so a changed theme, asset
+ * or menu selection is compiled again.
+ */
+public class ThemeCompiler {
+    private static final Logger log = Logger.getLogger(ThemeCompiler.class.getName());
+
+    private static final int MAGIC = 0x56544d54;
+    private static final int VERSION = 2;
+
+    private static final String MENU = "menu";
+    private static final String SUFFIX = ".vtt";
+
+    private static final int AREA = 1;
+    private static final int LINE = 2;
+    private static final int CIRCLE = 3;
+    private static final int EXTRUSION = 4;
+    private static final int SYMBOL = 5;
+    private static final int TEXT = 6;
+
+    private final File mDir;
+
+    public ThemeCompiler(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return the hash of the theme data and the settings that are applied
+     * to the styles while parsing.
+     */
+    static long hash(byte[] data, ThemeCallback themeCallback) {
+        long h = hash(0xcbf29ce484222325L, data, data.length);
+
+        h = (h ^ data.length) * 0x100000001b3L;
+        h = (h ^ Float.floatToIntBits(CanvasAdapter.getScale())) * 0x100000001b3L;
+        h = (h ^ Float.floatToIntBits(CanvasAdapter.lineScale)) * 0x100000001b3L;
+        h = (h ^ Float.floatToIntBits(CanvasAdapter.symbolScale)) * 0x100000001b3L;
+        h = (h ^ CanvasAdapter.platform.ordinal()) * 0x100000001b3L;
+        h = (h ^ Parameters.SYMBOL_SCALING.ordinal()) * 0x100000001b3L;
+        h = (h ^ (Parameters.POT_TEXTURES ? 1 : 0)) * 0x100000001b3L;
+        if (themeCallback != null) {
+            h = hash(h, themeCallback.getClass().getName());
+            if (themeCallback instanceof ThemeCallback.Versioned)
+                h = hash(h, ((ThemeCallback.Versioned) themeCallback).getVersion());
+        }
+        return h;
+    }
+
+    static long hash(long h, byte[] data, int length) {
+        for (int i = 0; i < length; i++)
+            h = (h ^ (data[i] & 0xff)) * 0x100000001b3L;
+        return h;
+    }
+
+    static long hash(long h, String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++)
+                h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return (h ^ 0xff) * 0x100000001b3L;
+    }
+
+    /**
+     * @return the hash of the data of a symbol or texture, 0 when it
+     * cannot be read.
+     */
+    static long hashResource(ThemeFile theme, String src) {
+        InputStream in = null;
+        try {
+            in = CanvasAdapter.getInputStream(theme.getRelativePathPrefix(), src,
+                    theme.getResourceProvider());
+            if (in == null)
+                return 0;
+            long h = 0xcbf29ce484222325L;
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                h = hash(h, buf, n);
+            return h;
+        } catch (IOException e) {
+            return 0;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    static long hash(Set<String> categories) {
+        if (categories == null)
+            return 0;
+
+        long h = 0xcbf29ce484222325L;
+        for (String cat : new TreeSet<>(categories))
+            h = hash(h, cat);
+        return h;
+    }
+
+    /**
+     * @return the compiled theme or null when it was not compiled yet
+     * or could not be read.
+     */
+    RenderTheme load(ThemeFile theme, long hash, ThemeCallback themeCallback) {
+        File dir = new File(mDir, Long.toHexString(hash));
+        File menuFile = new File(dir, MENU);
+        if (!menuFile.exists())
+            return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(menuFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != hash)
+                return null;
+
+            Set<String> categories = null;
+            if (in.readBoolean()) {
+                XmlRenderThemeStyleMenu menu = readMenu(in);
+                if (theme.getMenuCallback() != null)
+                    categories = theme.getMenuCallback().getCategories(menu);
+            }
+            in.close();
+
+            File file = new File(dir, Long.toHexString(hash(categories)) + SUFFIX);
+            if (!file.exists())
+                return null;
+
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != hash)
+                return null;
+
+            for (int i = in.readInt(); i > 0; i--) {
+                String src = in.readUTF();
+                if (in.readLong() != hashResource(theme, src)) {
+                    log.fine("theme resource changed: " + src);
+                    return null;
+                }
+            }
+
+            return new Reader(in, themeCallback).read();
+        } catch (Exception e) {
+            log.fine("reading compiled theme failed: " + e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write the theme as parsed, i.e. before its text size is scaled.
+     */
+    void save(ThemeFile themeFile, long hash, XmlRenderThemeStyleMenu menu, Set<String> categories,
+              Set<String> sources, RenderTheme theme) {
+        File dir = new File(mDir, Long.toHexString(hash));
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.fine("cannot create " + dir);
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(hash);
+            out.writeBoolean(menu != null);
+            if (menu != null)
+                writeMenu(out, menu);
+            out.flush();
+            write(new File(dir, MENU), buf);
+
+            buf.reset();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(hash);
+            out.writeInt(sources.size());
+            for (String src : sources) {
+                out.writeUTF(src);
+                out.writeLong(hashResource(themeFile, src));
+            }
+            new Writer(out).write(theme);
+            out.flush();
+            write(new File(dir, Long.toHexString(hash(categories)) + SUFFIX), buf);
+        } catch (Exception e) {
+            log.fine("compiling theme failed: " + e);
+        }
+    }
+
+    private static void write(File file, ByteArrayOutputStream buf) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+        try {
+            buf.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            /* renameTo does not replace existing files on all platforms */
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("cannot rename " + tmp);
+            }
+        }
+    }
+
+    static void writeMenu(DataOutputStream out, XmlRenderThemeStyleMenu menu)
+            throws IOException {
+        writeString(out, menu.getId());
+        writeString(out, menu.getDefaultLanguage());
+        writeString(out, menu.getDefaultValue());
+
+        Map<String, XmlRenderThemeStyleLayer> layers = menu.getLayers();
+        out.writeInt(layers.size());
+        for (XmlRenderThemeStyleLayer layer : layers.values()) {
+            writeString(out, layer.getId());
+            out.writeBoolean(layer.isVisible());
+            out.writeBoolean(layer.isEnabled());
+            writeStrings(out, layer.getCategories().toArray(new String[0]));
+            out.writeShort(layer.getTitles().size());
+            for (Map.Entry<String, String> e : layer.getTitles().entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+        }
+        /* overlays refer to layers */
+        for (XmlRenderThemeStyleLayer layer : layers.values()) {
+            out.writeShort(layer.getOverlays().size());
+            for (XmlRenderThemeStyleLayer overlay : layer.getOverlays())
+                writeString(out, overlay.getId());
+        }
+    }
+
+    static XmlRenderThemeStyleMenu readMenu(DataInputStream in) throws IOException {
+        XmlRenderThemeStyleMenu menu = new XmlRenderThemeStyleMenu(readString(in),
+                readString(in), readString(in));
+
+        int n = in.readInt();
+        List<XmlRenderThemeStyleLayer> layers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            XmlRenderThemeStyleLayer layer = menu.createLayer(readString(in),
+                    in.readBoolean(), in.readBoolean());
+            for (String cat : readStrings(in))
+                layer.addCategory(cat);
+            for (int j = in.readShort(); j > 0; j--)
+                layer.addTranslation(readString(in), readString(in));
+            layers.add(layer);
+        }
+        for (XmlRenderThemeStyleLayer layer : layers) {
+            for (int j = in.readShort(); j > 0; j--) {
+                XmlRenderThemeStyleLayer overlay = menu.getLayer(readString(in));
+                if (overlay == null)
+                    throw new IOException("unknown overlay");
+                layer.addOverlay(overlay);
+            }
+        }
+        return menu;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF().intern() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] s) throws IOException {
+        out.writeShort(s.length);
+        for (String v : s)
+            out.writeUTF(v);
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] s = new String[in.readShort()];
+        for (int i = 0; i < s.length; i++)
+            s[i] = in.readUTF();
+        return s;
+    }
+
+    static final class Writer extends RuleVisitor {
+        private final DataOutputStream out;
+
+        private final Map<RenderStyle<?>, Integer> styles = new IdentityHashMap<>();
+        private final Map<Bitmap, Integer> bitmaps = new IdentityHashMap<>();
+        private final Map<TextureItem, Integer> textures = new IdentityHashMap<>();
+        private final Map<TextureRegion, Integer> regions = new IdentityHashMap<>();
+
+        private final List<RenderStyle<?>> styleList = new ArrayList<>();
+        private final List<Bitmap> bitmapList = new ArrayList<>();
+        private final List<TextureItem> textureList = new ArrayList<>();
+        private final List<TextureRegion> regionList = new ArrayList<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void apply(Rule r) {
+            for (RenderStyle<?> style : r.styles) {
+                if (styles.containsKey(style))
+                    continue;
+                styles.put(style, styleList.size());
+                styleList.add(style);
+
+                if (style instanceof AreaStyle) {
+                    add(((AreaStyle) style).texture);
+                } else if (style instanceof LineStyle) {
+                    add(((LineStyle) style).texture);
+                } else if (style instanceof SymbolStyle) {
+                    add(((SymbolStyle) style).bitmap);
+                    add(((SymbolStyle) style).texture);
+                } else if (style instanceof TextStyle) {
+                    add(((TextStyle) style).bitmap);
+                    add(((TextStyle) style).texture);
+                }
+            }
+            super.apply(r);
+        }
+
+        private void add(Bitmap bitmap) {
+            if (bitmap != null && !bitmaps.containsKey(bitmap)) {
+                bitmaps.put(bitmap, bitmapList.size());
+                bitmapList.add(bitmap);
+            }
+        }
+
+        private void add(TextureItem texture) {
+            if (texture != null && !textures.containsKey(texture)) {
+                add(texture.bitmap);
+                textures.put(texture, textureList.size());
+                textureList.add(texture);
+            }
+        }
+
+        private void add(TextureRegion region) {
+            if (region != null && !regions.containsKey(region)) {
+                add(region.texture);
+                regions.put(region, regionList.size());
+                regionList.add(region);
+            }
+        }
+
+        private static int index(Map<?, Integer> map, Object o) {
+            return o == null ? -1 : map.get(o);
+        }
+
+        void write(RenderTheme theme) throws IOException {
+            Rule[] rules = theme.getRules();
+            for (Rule r : rules)
+                apply(r);
+
+            out.writeInt(theme.getMapBackground());
+            out.writeInt(theme.getMapBackgroundOutside());
+            out.writeFloat(theme.getBaseTextSize());
+            out.writeInt(theme.getLevels());
+            out.writeBoolean(theme.isMapsforgeTheme());
+
+            Map<String, String> keyMap = theme.getTransformKeyMap();
+            out.writeInt(keyMap == null ? 0 : keyMap.size());
+            if (keyMap != null) {
+                for (Map.Entry<String, String> e : keyMap.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+            }
+            Map<Tag, Tag> tagMap = theme.getTransformTagMap();
+            out.writeInt(tagMap == null ? 0 : tagMap.size());
+            if (tagMap != null) {
+                for (Map.Entry<Tag, Tag> e : tagMap.entrySet()) {
+                    out.writeUTF(e.getKey().key);
+                    out.writeUTF(e.getKey().value);
+                    out.writeUTF(e.getValue().key);
+                    out.writeUTF(e.getValue().value);
+                }
+            }
+
+            out.writeInt(bitmapList.size());
+            for (Bitmap bitmap : bitmapList) {
+                byte[] png = bitmap.getPngEncodedData();
+                out.writeInt(png.length);
+                out.write(png);
+            }
+
+            out.writeInt(textureList.size());
+            for (TextureItem t : textureList) {
+                out.writeInt(index(bitmaps, t.bitmap));
+                out.writeBoolean(t.repeat);
+                out.writeBoolean(t.mipmap);
+            }
+
+            out.writeInt(regionList.size());
+            for (TextureRegion r : regionList) {
+                out.writeInt(index(textures, r.texture));
+                out.writeInt(r.rect.x);
+                out.writeInt(r.rect.y);
+                out.writeInt(r.rect.w);
+                out.writeInt(r.rect.h);
+            }
+
+            out.writeInt(styleList.size());
+            for (RenderStyle<?> style : styleList)
+                writeStyle(style);
+
+            out.writeInt(rules.length);
+            for (Rule r : rules)
+                writeRule(r);
+        }
+
+        private void writeRule(Rule r) throws IOException {
+            out.writeByte(r.getType().ordinal());
+            out.writeInt(r.element);
+            out.writeInt(r.zoom);
+            out.writeByte((r.selectFirstMatch ? Selector.FIRST : 0)
+                    | (r.selectWhenMatched ? Selector.WHEN_MATCHED : 0));
+            writeString(out, r.cat);
+            writeStrings(out, r.getKeys());
+            writeStrings(out, r.getValues());
+
+            out.writeShort(r.styles.length);
+            for (RenderStyle<?> style : r.styles)
+                out.writeInt(styles.get(style));
+
+            out.writeShort(r.subRules.length);
+            for (Rule subRule : r.subRules)
+                writeRule(subRule);
+        }
+
+        private void writeStyle(RenderStyle<?> style) throws IOException {
+            if (style instanceof AreaStyle) {
+                AreaBuilder<?> b = AreaStyle.builder().set((AreaStyle) style);
+                out.writeByte(AREA);
+                writeString(out, b.cat);
+                out.writeInt(b.level);
+                writeString(out, b.style);
+                out.writeInt(b.fillColor);
+                out.writeInt(b.strokeColor);
+                out.writeFloat(b.strokeWidth);
+                out.writeInt(b.fadeScale);
+                out.writeInt(b.blendColor);
+                out.writeInt(b.blendScale);
+                out.writeInt(index(textures, b.texture));
+                out.writeBoolean(b.mesh);
+                out.writeFloat(b.heightOffset);
+                out.writeInt(b.symbolWidth);
+                out.writeInt(b.symbolHeight);
+                out.writeInt(b.symbolPercent);
+            } else if (style instanceof LineStyle) {
+                LineBuilder<?> b = LineStyle.builder().set((LineStyle) style);
+                out.writeByte(LINE);
+                writeString(out, b.cat);
+                out.writeInt(b.level);
+                writeString(out, b.style);
+                out.writeInt(b.fillColor);
+                out.writeFloat(b.strokeWidth);
+                out.writeByte(b.cap == null ? -1 : b.cap.ordinal());
+                out.writeBoolean(b.outline);
+                out.writeBoolean(b.fixed);
+                out.writeDouble(b.strokeIncrease);
+                out.writeInt(b.fadeScale);
+                out.writeFloat(b.blur);
+                out.writeInt(b.stipple);
+                out.writeInt(b.stippleColor);
+                out.writeFloat(b.stippleWidth);
+                out.writeInt(index(textures, b.texture));
+                out.writeFloat(b.heightOffset);
+                out.writeBoolean(b.randomOffset);
+                out.writeInt(b.symbolWidth);
+                out.writeInt(b.symbolHeight);
+                out.writeInt(b.symbolPercent);
+                out.writeInt(b.dashArray == null ? -1 : b.dashArray.length);
+                if (b.dashArray != null)
+                    for (float f : b.dashArray)
+                        out.writeFloat(f);
+                out.writeFloat(b.repeatStart);
+                out.writeFloat(b.repeatGap);
+                out.writeBoolean(b.transparent);
+            } else if (style instanceof CircleStyle) {
+                CircleBuilder<?> b = CircleStyle.builder().set((CircleStyle) style);
+                out.writeByte(CIRCLE);
+                writeString(out, b.cat);
+                out.writeInt(b.level);
+                out.writeFloat(b.radius);
+                out.writeBoolean(b.scaleRadius);
+                out.writeInt(b.fillColor);
+                out.writeInt(b.strokeColor);
+                out.writeFloat(b.strokeWidth);
+            } else if (style instanceof ExtrusionStyle) {
+                ExtrusionBuilder<?> b = ExtrusionStyle.builder().set((ExtrusionStyle) style);
+                out.writeByte(EXTRUSION);
+                writeString(out, b.cat);
+                out.writeInt(b.level);
+                out.writeInt(b.colorSide);
+                out.writeInt(b.colorTop);
+                out.writeInt(b.colorLine);
+                out.writeDouble(b.hsvHue);
+                out.writeDouble(b.hsvSaturation);
+                out.writeDouble(b.hsvValue);
+                out.writeInt(b.defaultHeight);
+            } else if (style instanceof SymbolStyle) {
+                SymbolBuilder<?> b = SymbolStyle.builder().set((SymbolStyle) style);
+                out.writeByte(SYMBOL);
+                writeString(out, b.cat);
+                out.writeInt(index(bitmaps, b.bitmap));
+                out.writeInt(index(regions, b.texture));
+                out.writeInt(b.hash);
+                out.writeInt(b.symbolWidth);
+                out.writeInt(b.symbolHeight);
+                out.writeInt(b.symbolPercent);
+                out.writeBoolean(b.billboard);
+                out.writeBoolean(b.repeat);
+                out.writeFloat(b.repeatStart);
+                out.writeFloat(b.repeatGap);
+                out.writeBoolean(b.rotate);
+            } else if (style instanceof TextStyle) {
+                TextBuilder<?> b = TextStyle.builder().set((TextStyle) style);
+                out.writeByte(TEXT);
+                writeString(out, b.cat);
+                writeString(out, b.style);
+                writeString(out, b.textKey);
+                out.writeBoolean(b.caption);
+                out.writeFloat(b.dy);
+                out.writeInt(b.priority);
+                out.writeFloat(b.areaSize);
+                out.writeInt(index(bitmaps, b.bitmap));
+                out.writeInt(index(regions, b.texture));
+                out.writeInt(b.fillColor);
+                out.writeByte(b.fontFamily.ordinal());
+                out.writeByte(b.fontStyle.ordinal());
+                out.writeInt(b.strokeColor);
+                out.writeFloat(b.strokeWidth);
+                out.writeFloat(b.fontSize);
+                out.writeInt(b.symbolWidth);
+                out.writeInt(b.symbolHeight);
+                out.writeInt(b.symbolPercent);
+                out.writeInt(b.bgFillColor);
+            } else {
+                throw new IOException("unknown style " + style.getClass().getName());
+            }
+        }
+    }
+
+    static final class Reader {
+        private final DataInputStream in;
+        private final ThemeCallback themeCallback;
+
+        private Bitmap[] bitmaps;
+        private TextureItem[] textures;
+        private TextureRegion[] regions;
+        private RenderStyle<?>[] styles;
+
+        Reader(DataInputStream in, ThemeCallback themeCallback) {
+            this.in = in;
+            this.themeCallback = themeCallback;
+        }
+
+        RenderTheme read() throws IOException {
+            int mapBackground = in.readInt();
+            int mapBackgroundOutside = in.readInt();
+            float baseTextSize = in.readFloat();
+            int levels = in.readInt();
+            boolean mapsforgeTheme = in.readBoolean();
+
+            Map<String, String> keyMap = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--)
+                keyMap.put(in.readUTF().intern(), in.readUTF().intern());
+
+            Map<Tag, Tag> tagMap = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                Tag k = new Tag(in.readUTF(), in.readUTF());
+                tagMap.put(k, new Tag(in.readUTF(), in.readUTF()));
+            }
+
+            bitmaps = new Bitmap[in.readInt()];
+            for (int i = 0; i < bitmaps.length; i++) {
+                byte[] png = new byte[in.readInt()];
+                in.readFully(png);
+                bitmaps[i] = CanvasAdapter.decodeBitmap(new ByteArrayInputStream(png));
+            }
+
+            textures = new TextureItem[in.readInt()];
+            for (int i = 0; i < textures.length; i++) {
+                textures[i] = new TextureItem(bitmap(in.readInt()), in.readBoolean());
+                textures[i].mipmap = in.readBoolean();
+            }
+
+            regions = new TextureRegion[in.readInt()];
+            for (int i = 0; i < regions.length; i++) {
+                TextureItem texture = texture(in.readInt());
+                regions[i] = new TextureRegion(texture,
+                        new Rect(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+            }
+
+            styles = new RenderStyle<?>[in.readInt()];
+            for (int i = 0; i < styles.length; i++)
+                styles[i] = readStyle();
+
+            Rule[] rules = new Rule[in.readInt()];
+            for (int i = 0; i < rules.length; i++)
+                rules[i] = readRule().onComplete(null);
+
+            return new RenderTheme(mapBackground, mapBackgroundOutside, baseTextSize, rules, levels,
+                    keyMap, tagMap, mapsforgeTheme);
+        }
+
+        private Bitmap bitmap(int i) {
+            return i < 0 ? null : bitmaps[i];
+        }
+
+        private TextureItem texture(int i) {
+            return i < 0 ? null : textures[i];
+        }
+
+        private TextureRegion region(int i) {
+            return i < 0 ? null : regions[i];
+        }
+
+        private RuleBuilder readRule() throws IOException {
+            RuleType type = RuleType.values()[in.readByte()];
+            int element = in.readInt();
+            int zoom = in.readInt();
+            int selector = in.readByte();
+            String cat = readString(in);
+            String[] keys = readStrings(in);
+            String[] values = readStrings(in);
+
+            RuleBuilder b = new RuleBuilder(type, element, zoom, selector, keys, values).cat(cat);
+            for (int i = in.readShort(); i > 0; i--)
+                b.addStyle(styles[in.readInt()]);
+            for (int i = in.readShort(); i > 0; i--)
+                b.addSubRule(readRule());
+            return b;
+        }
+
+        private RenderStyle<?> readStyle() throws IOException {
+            int type = in.readByte();
+            switch (type) {
+                case AREA: {
+                    AreaBuilder<?> b = AreaStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.level = in.readInt();
+                    b.style = readString(in);
+                    b.fillColor = in.readInt();
+                    b.strokeColor = in.readInt();
+                    b.strokeWidth = in.readFloat();
+                    b.fadeScale = in.readInt();
+                    b.blendColor = in.readInt();
+                    b.blendScale = in.readInt();
+                    b.texture = texture(in.readInt());
+                    b.mesh = in.readBoolean();
+                    b.heightOffset = in.readFloat();
+                    b.symbolWidth = in.readInt();
+                    b.symbolHeight = in.readInt();
+                    b.symbolPercent = in.readInt();
+                    return b.build();
+                }
+                case LINE: {
+                    LineBuilder<?> b = LineStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.level = in.readInt();
+                    b.style = readString(in);
+                    b.fillColor = in.readInt();
+                    b.strokeWidth = in.readFloat();
+                    int cap = in.readByte();
+                    b.cap = cap < 0 ? null : Cap.values()[cap];
+                    b.outline = in.readBoolean();
+                    b.fixed = in.readBoolean();
+                    b.strokeIncrease = in.readDouble();
+                    b.fadeScale = in.readInt();
+                    b.blur = in.readFloat();
+                    b.stipple = in.readInt();
+                    b.stippleColor = in.readInt();
+                    b.stippleWidth = in.readFloat();
+                    b.texture = texture(in.readInt());
+                    b.heightOffset = in.readFloat();
+                    b.randomOffset = in.readBoolean();
+                    b.symbolWidth = in.readInt();
+                    b.symbolHeight = in.readInt();
+                    b.symbolPercent = in.readInt();
+                    int dashes = in.readInt();
+                    if (dashes >= 0) {
+                        b.dashArray = new float[dashes];
+                        for (int i = 0; i < dashes; i++)
+                            b.dashArray[i] = in.readFloat();
+                    }
+                    b.repeatStart = in.readFloat();
+                    b.repeatGap = in.readFloat();
+                    b.transparent = in.readBoolean();
+                    return b.build();
+                }
+                case CIRCLE: {
+                    CircleBuilder<?> b = CircleStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.level = in.readInt();
+                    b.radius = in.readFloat();
+                    b.scaleRadius = in.readBoolean();
+                    b.fillColor = in.readInt();
+                    b.strokeColor = in.readInt();
+                    b.strokeWidth = in.readFloat();
+                    return b.build();
+                }
+                case EXTRUSION: {
+                    ExtrusionBuilder<?> b = ExtrusionStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.level = in.readInt();
+                    b.colorSide = in.readInt();
+                    b.colorTop = in.readInt();
+                    b.colorLine = in.readInt();
+                    b.hsvHue = in.readDouble();
+                    b.hsvSaturation = in.readDouble();
+                    b.hsvValue = in.readDouble();
+                    b.defaultHeight = in.readInt();
+                    return b.build();
+                }
+                case SYMBOL: {
+                    SymbolBuilder<?> b = SymbolStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.bitmap = bitmap(in.readInt());
+                    b.texture = region(in.readInt());
+                    b.hash = in.readInt();
+                    b.symbolWidth = in.readInt();
+                    b.symbolHeight = in.readInt();
+                    b.symbolPercent = in.readInt();
+                    b.billboard = in.readBoolean();
+                    b.repeat = in.readBoolean();
+                    b.repeatStart = in.readFloat();
+                    b.repeatGap = in.readFloat();
+                    b.rotate = in.readBoolean();
+                    return b.build();
+                }
+                case TEXT: {
+                    TextBuilder<?> b = TextStyle.builder().reset();
+                    b.cat = readString(in);
+                    b.style = readString(in);
+                    b.textKey = readString(in);
+                    b.caption = in.readBoolean();
+                    b.dy = in.readFloat();
+                    b.priority = in.readInt();
+                    b.areaSize = in.readFloat();
+                    b.bitmap = bitmap(in.readInt());
+                    b.texture = region(in.readInt());
+                    b.fillColor = in.readInt();
+                    b.fontFamily = FontFamily.values()[in.readByte()];
+                    b.fontStyle = FontStyle.values()[in.readByte()];
+                    b.strokeColor = in.readInt();
+                    b.strokeWidth = in.readFloat();
+                    b.fontSize = in.readFloat();
+                    b.symbolWidth = in.readInt();
+                    b.symbolHeight = in.readInt();
+                    b.symbolPercent = in.readInt();
+                    b.bgFillColor = in.readInt();
+                    TextStyle text = b.build();
+                    /* colors are stored with the callback applied */
+                    text.themeCallback = themeCallback;
+                    return text;
+                }
+                default:
+                    throw new IOException("unknown style type " + type);
+            }
+        }
+    }
+}
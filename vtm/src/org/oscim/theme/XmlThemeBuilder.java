@@ -57,6 +57,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -69,6 +70,8 @@ public class XmlThemeBuilder {
     private static final int RENDER_THEME_VERSION_MAPSFORGE = 6;
     private static final int RENDER_THEME_VERSION_VTM = 1;
     private static XmlPullParserFactory xmlPullParserFactory = null;
+    private static SymbolCache symbolCache = null;
+    private static ThemeCompiler themeCompiler = null;
 
     private enum Element {
         RENDER_THEME, RENDERING_INSTRUCTION, RULE, STYLE, ATLAS, RECT, RENDERING_STYLE, TAG_TRANSFORM
@@ -113,8 +116,24 @@ public class XmlThemeBuilder {
             XmlPullParser pullParser = getXmlPullParserFactory().newPullParser();
             XmlThemeBuilder renderThemeHandler = new XmlThemeBuilder(theme, pullParser, themeCallback);
             inputStream = theme.getRenderThemeAsStream();
-            pullParser.setInput(inputStream, null);
+            byte[] data = ThemeAssets.readFully(inputStream);
+            ThemeCompiler compiler = themeCompiler;
+            if (themeCallback != null && !(themeCallback instanceof ThemeCallback.Versioned))
+                compiler = null;
+            long hash = 0;
+            if (compiler != null) {
+                hash = ThemeCompiler.hash(data, themeCallback);
+                RenderTheme compiled = compiler.load(theme, hash, themeCallback);
+                if (compiled != null)
+                    return compiled;
+            }
+            renderThemeHandler.mAssets.prefetch(ThemeAssets.key(theme, data));
+            pullParser.setInput(new ByteArrayInputStream(data), null);
             renderThemeHandler.processRenderTheme();
+            if (compiler != null)
+                compiler.save(theme, hash, renderThemeHandler.mRenderThemeStyleMenu,
+                        renderThemeHandler.mCategories, renderThemeHandler.mAssets.getSources(),
+                        renderThemeHandler.mRenderTheme);
             return renderThemeHandler.mRenderTheme;
         } catch (Exception e) {
             throw new ThemeException(e.toString(), e);
@@ -134,6 +153,23 @@ public class XmlThemeBuilder {
         XmlThemeBuilder.xmlPullParserFactory = xmlPullParserFactory;
     }
 
+    /**
+     * Set the disk cache of rasterized SVG symbols, null to disable.
+     */
+    public static void setSymbolCache(SymbolCache symbolCache) {
+        XmlThemeBuilder.symbolCache = symbolCache;
+    }
+
+    /**
+     * Set the store of compiled themes, null to disable.
+     * Themes are parsed once and loaded from the compiled form afterwards.
+     * Themes read with a {@link ThemeCallback} are only compiled when it
+     * implements {@link ThemeCallback.Versioned}.
+     */
+    public static void setThemeCompiler(ThemeCompiler themeCompiler) {
+        XmlThemeBuilder.themeCompiler = themeCompiler;
+    }
+
     /**
      * Logs the given information about an unknown XML attribute.
      *
@@ -178,6 +214,21 @@ public class XmlThemeBuilder {
 
     private final float mScale;
 
+    private final ThemeAssets mAssets;
+
+    /**
+     * Styles with symbols that are still loading, built again before the
+     * theme is created.
+     */
+    private final Map<RenderStyle<?>, Deferred> mDeferred = new IdentityHashMap<>();
+
+    private interface Deferred {
+        /**
+         * @return the style with the loaded symbol, or null to drop it.
+         */
+        RenderStyle<?> build();
+    }
+
     private Set<String> mCategories;
     private XmlRenderThemeStyleLayer mCurrentLayer;
     private XmlRenderThemeStyleMenu mRenderThemeStyleMenu;
@@ -194,6 +245,7 @@ public class XmlThemeBuilder {
         mPullParser = pullParser;
         mThemeCallback = themeCallback;
         mScale = CanvasAdapter.getScale();
+        mAssets = new ThemeAssets(theme, themeCallback, symbolCache, Parameters.THEME_ASSET_THREADS);
     }
 
     public void processRenderTheme() throws XmlPullParserException, IOException {
@@ -219,6 +271,8 @@ public class XmlThemeBuilder {
             mRulesList.add(buildingRule());
         }
 
+        resolveStyles();
+
         Rule[] rules = new Rule[mRulesList.size()];
         for (int i = 0, n = rules.length; i < n; i++)
             rules[i] = mRulesList.get(i).onComplete(mTheme.isMapsforgeTheme() ? new int[1] : null);
@@ -233,6 +287,25 @@ public class XmlThemeBuilder {
         mElementStack.clear();
 
         mTextureAtlas = null;
+
+        mAssets.finish();
+    }
+
+    /**
+     * Wait for the symbols loaded in parallel and replace the placeholder
+     * styles in the rules.
+     */
+    private void resolveStyles() {
+        if (mDeferred.isEmpty())
+            return;
+
+        Map<RenderStyle<?>, RenderStyle<?>> styles = new IdentityHashMap<>();
+        for (Map.Entry<RenderStyle<?>, Deferred> e : mDeferred.entrySet())
+            styles.put(e.getKey(), e.getValue().build());
+        mDeferred.clear();
+
+        for (RuleBuilder rule : mRulesList)
+            rule.replaceStyles(styles);
     }
 
     RenderTheme createTheme(Rule[] rules) {
@@ -485,6 +558,19 @@ public class XmlThemeBuilder {
         return b;
     }
 
+    private TextureItem loadTexture(String src, int width, int height, int percent) {
+        try {
+            Bitmap bitmap = mAssets.getBitmap(src, width, height, percent);
+            if (bitmap != null) {
+                log.fine("loading " + src);
+                return new TextureItem(Utils.potBitmap(bitmap), true);
+            }
+        } catch (Exception e) {
+            log.severe(src + ": missing file / " + e);
+        }
+        return null;
+    }
+
     private TextureRegion getAtlasRegion(String src) {
         if (mTextureAtlas == null)
             return null;
@@ -711,7 +797,7 @@ public class XmlThemeBuilder {
             if (src != null) {
                 b.symbolPercent *= 2;
                 float symbolScale = hasSymbol && Parameters.SYMBOL_SCALING == Parameters.SymbolScaling.ALL ? CanvasAdapter.symbolScale : 1;
-                b.texture = Utils.loadTexture(mTheme.getRelativePathPrefix(), src, mTheme.getResourceProvider(), b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * symbolScale), mThemeCallback);
+                b.texture = loadTexture(src, b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * symbolScale));
             }
             if (b.texture != null) {
                 int width = (int) (b.texture.width + (hasSymbol ? b.repeatGap : 0));
@@ -824,7 +910,7 @@ public class XmlThemeBuilder {
         }
 
         if (src != null)
-            b.texture = Utils.loadTexture(mTheme.getRelativePathPrefix(), src, mTheme.getResourceProvider(), b.symbolWidth, b.symbolHeight, b.symbolPercent, mThemeCallback);
+            b.texture = loadTexture(src, b.symbolWidth, b.symbolHeight, b.symbolPercent);
 
         if (mThemeCallback != null) {
             if (mCurrentRule != null) {
@@ -875,6 +961,7 @@ public class XmlThemeBuilder {
         }
         validateExists("img", img, elementName);
 
+        mAssets.addSource(img);
         Bitmap bitmap = CanvasAdapter.getBitmapAsset(mTheme.getRelativePathPrefix(), img, mThemeCallback);
         if (bitmap != null)
             mTextureAtlas = new TextureAtlas(bitmap);
@@ -1051,8 +1138,11 @@ public class XmlThemeBuilder {
             mTextStyles.put(b.style, TextStyle.builder().from(b));
         } else {
             TextStyle text = b.buildInternal();
-            if (isVisible(text))
+            if (isVisible(text)) {
                 mCurrentRule.addStyle(text);
+                if (ThemeAssets.isPending(b.bitmap))
+                    defer(text, b);
+            }
         }
     }
 
@@ -1190,7 +1280,7 @@ public class XmlThemeBuilder {
             String lowValue = symbol.toLowerCase(Locale.ENGLISH);
             if (lowValue.endsWith(".png") || lowValue.endsWith(".svg")) {
                 try {
-                    b.bitmap = CanvasAdapter.getBitmapAsset(mTheme.getRelativePathPrefix(), symbol, mTheme.getResourceProvider(), b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * CanvasAdapter.symbolScale), mThemeCallback);
+                    b.bitmap = mAssets.request(symbol, b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * CanvasAdapter.symbolScale));
                 } catch (Exception e) {
                     log.severe(symbol + ": " + e);
                 }
@@ -1350,7 +1440,9 @@ public class XmlThemeBuilder {
                             symbolScale = CanvasAdapter.symbolScale;
                         break;
                 }
-                Bitmap bitmap = CanvasAdapter.getBitmapAsset(mTheme.getRelativePathPrefix(), b.src, mTheme.getResourceProvider(), b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * symbolScale), mThemeCallback);
+                Bitmap bitmap = mAssets.request(b.src, b.symbolWidth, b.symbolHeight, (int) (b.symbolPercent * symbolScale));
+                if (ThemeAssets.isPending(bitmap))
+                    return defer(b, bitmap);
                 if (bitmap != null)
                     return buildSymbol(b, b.src, bitmap);
             } catch (Exception e) {
@@ -1365,6 +1457,40 @@ public class XmlThemeBuilder {
         return b.bitmap(bitmap).build();
     }
 
+    /**
+     * @return a placeholder of the symbol, built when its bitmap is loaded.
+     */
+    private SymbolStyle defer(SymbolBuilder<?> b, final Bitmap pending) {
+        final SymbolBuilder<?> symbol = SymbolStyle.builder().from(b);
+        symbol.themeCallback(b.themeCallback);
+        SymbolStyle placeholder = b.bitmap(pending).build();
+        mDeferred.put(placeholder, new Deferred() {
+            @Override
+            public RenderStyle<?> build() {
+                Bitmap bitmap = mAssets.resolve(pending);
+                if (bitmap == null)
+                    return null;
+                return buildSymbol(symbol, symbol.src, bitmap);
+            }
+        });
+        return placeholder;
+    }
+
+    /**
+     * Build the text again when its symbol is loaded.
+     */
+    private void defer(TextStyle placeholder, TextBuilder<?> b) {
+        final TextBuilder<?> text = TextStyle.builder().from(b);
+        text.themeCallback(b.themeCallback);
+        mDeferred.put(placeholder, new Deferred() {
+            @Override
+            public RenderStyle<?> build() {
+                text.bitmap = mAssets.resolve(text.bitmap);
+                return text.buildInternal();
+            }
+        });
+    }
+
     private ExtrusionStyle createExtrusion(String elementName, int level) {
         ExtrusionBuilder<?> b = mExtrusionBuilder.reset();
         b.level(level);
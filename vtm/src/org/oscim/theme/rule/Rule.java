@@ -18,9 +18,9 @@
 package org.oscim.theme.rule;
 
 import org.oscim.core.Tag;
+import org.oscim.core.TagDictionary;
 import org.oscim.theme.rule.RuleBuilder.RuleType;
 import org.oscim.theme.styles.RenderStyle;
-import org.oscim.utils.Utils;
 
 import java.util.List;
 
@@ -48,6 +48,8 @@ public class Rule {
     public static final RenderStyle[] EMPTY_STYLE = new RenderStyle[0];
     public static final Rule[] EMPTY_RULES = new Rule[0];
 
+    private static final String[] EMPTY_KV = {};
+
     public final Rule[] subRules;
     public final RenderStyle[] styles;
 
@@ -178,70 +180,108 @@ public class Rule {
         v.apply(this);
     }
 
+    public RuleType getType() {
+        return RuleType.POSITIVE;
+    }
+
+    /**
+     * @return the keys this rule matches, as given in the theme.
+     */
+    public String[] getKeys() {
+        return EMPTY_KV;
+    }
+
+    /**
+     * @return the values this rule matches, as given in the theme.
+     */
+    public String[] getValues() {
+        return EMPTY_KV;
+    }
+
     static class PositiveRuleK extends Rule {
-        private final String mKey;
+        private final int mKey;
 
         PositiveRuleK(int element, int zoom, int selector, String key,
                       Rule[] subRules, RenderStyle[] styles) {
 
             super(element, zoom, selector, subRules, styles);
-            mKey = key;
+            mKey = TagDictionary.keyId(key);
         }
 
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
-                if (Utils.equals(mKey, tag.key))
+                if (mKey == tag.keyId())
                     return true;
 
             return false;
         }
+
+        @Override
+        public String[] getKeys() {
+            return new String[]{TagDictionary.key(mKey)};
+        }
     }
 
     static class PositiveRuleV extends Rule {
-        private final String mValue;
+        private final int mValue;
 
         PositiveRuleV(int element, int zoom, int selector, String value,
                       Rule[] subRules, RenderStyle[] styles) {
             super(element, zoom, selector, subRules, styles);
-            mValue = value;
+            mValue = TagDictionary.registerValue(value);
         }
 
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
-                if (Utils.equals(mValue, tag.value))
+                if (mValue == tag.valueId())
                     return true;
 
             return false;
         }
+
+        @Override
+        public String[] getValues() {
+            return new String[]{TagDictionary.value(mValue)};
+        }
     }
 
     static class PositiveRuleKV extends Rule {
-        private final String mKey;
-        private final String mValue;
+        private final int mKey;
+        private final int mValue;
 
         PositiveRuleKV(int element, int zoom, int selector,
                        String key, String value,
                        Rule[] subRules, RenderStyle[] styles) {
             super(element, zoom, selector, subRules, styles);
-            mKey = key;
-            mValue = value;
+            mKey = TagDictionary.keyId(key);
+            mValue = TagDictionary.registerValue(value);
         }
 
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
-                if (Utils.equals(mKey, tag.key))
-                    return (Utils.equals(mValue, tag.value));
+                if (mKey == tag.keyId())
+                    return mValue == tag.valueId();
 
             return false;
         }
+
+        @Override
+        public String[] getKeys() {
+            return new String[]{TagDictionary.key(mKey)};
+        }
+
+        @Override
+        public String[] getValues() {
+            return new String[]{TagDictionary.value(mValue)};
+        }
     }
 
     static class PositiveRuleMultiKV extends Rule {
-        private final String mKeys[];
-        private final String mValues[];
+        private final int mKeys[];
+        private final int mValues[];
 
         PositiveRuleMultiKV(int element, int zoom, int selector,
                             String keys[], String values[],
@@ -251,40 +291,64 @@ public class Rule {
             if (keys.length == 0)
                 mKeys = null;
             else
-                mKeys = keys;
+                mKeys = keyIds(keys);
 
             if (values.length == 0)
                 mValues = null;
             else
-                mValues = values;
+                mValues = valueIds(values);
         }
 
         @Override
         public boolean matchesTags(Tag[] tags) {
             if (mKeys == null) {
                 for (Tag tag : tags) {
-                    for (String value : mValues) {
-                        if (Utils.equals(value, tag.value))
+                    int valueId = tag.valueId();
+                    for (int value : mValues) {
+                        if (value == valueId)
                             return true;
                     }
                 }
                 return false;
             }
 
-            for (Tag tag : tags)
-                for (String key : mKeys) {
-                    if (Utils.equals(key, tag.key)) {
+            for (Tag tag : tags) {
+                int keyId = tag.keyId();
+                for (int key : mKeys) {
+                    if (key == keyId) {
                         if (mValues == null)
                             return true;
 
-                        for (String value : mValues) {
-                            if (Utils.equals(value, tag.value))
+                        int valueId = tag.valueId();
+                        for (int value : mValues) {
+                            if (value == valueId)
                                 return true;
                         }
                     }
                 }
+            }
             return false;
         }
+
+        @Override
+        public String[] getKeys() {
+            if (mKeys == null)
+                return EMPTY_KV;
+            String[] keys = new String[mKeys.length];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = TagDictionary.key(mKeys[i]);
+            return keys;
+        }
+
+        @Override
+        public String[] getValues() {
+            if (mValues == null)
+                return EMPTY_KV;
+            String[] values = new String[mValues.length];
+            for (int i = 0; i < values.length; i++)
+                values[i] = TagDictionary.value(mValues[i]);
+            return values;
+        }
     }
 
     static class NegativeRule extends Rule {
@@ -303,6 +367,9 @@ public class Rule {
 
         public final boolean exclusive;
 
+        private final int[] mKeys;
+        private final int[] mValues;
+
         NegativeRule(RuleType type, int element, int zoom, int selector,
                      String[] keys, String[] values,
                      Rule[] subRules, RenderStyle[] styles) {
@@ -311,6 +378,9 @@ public class Rule {
             this.keys = keys;
             this.values = values;
             this.exclusive = type == RuleType.EXCLUDE;
+
+            mKeys = keyIds(keys);
+            mValues = valueIds(values);
         }
 
         @Override
@@ -319,10 +389,12 @@ public class Rule {
                 return true;
 
             for (Tag tag : tags) {
-                for (String key : keys) {
-                    if (Utils.equals(key, tag.key)) {
-                        for (String value : values) {
-                            if (Utils.equals(value, tag.value))
+                int keyId = tag.keyId();
+                for (int key : mKeys) {
+                    if (key == keyId) {
+                        int valueId = tag.valueId();
+                        for (int value : mValues) {
+                            if (value == valueId)
                                 return !exclusive;
                         }
                     }
@@ -333,13 +405,44 @@ public class Rule {
         }
 
         private boolean containsKeys(Tag[] tags) {
-            for (Tag tag : tags)
-                for (String key : keys)
-                    if (Utils.equals(key, tag.key))
+            for (Tag tag : tags) {
+                int keyId = tag.keyId();
+                for (int key : mKeys)
+                    if (key == keyId)
                         return true;
+            }
 
             return false;
         }
+
+        @Override
+        public RuleType getType() {
+            return exclusive ? RuleType.EXCLUDE : RuleType.NEGATIVE;
+        }
+
+        @Override
+        public String[] getKeys() {
+            return keys;
+        }
+
+        @Override
+        public String[] getValues() {
+            return values;
+        }
+    }
+
+    static int[] keyIds(String[] keys) {
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            ids[i] = TagDictionary.keyId(keys[i]);
+        return ids;
+    }
+
+    static int[] valueIds(String[] values) {
+        int[] ids = new int[values.length];
+        for (int i = 0; i < values.length; i++)
+            ids[i] = TagDictionary.registerValue(values[i]);
+        return ids;
     }
 
     public static RuleBuilder builder() {
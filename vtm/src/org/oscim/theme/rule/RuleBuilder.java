@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class RuleBuilder {
 
@@ -182,6 +183,26 @@ public class RuleBuilder {
         return this;
     }
 
+    /**
+     * Replace styles of this rule and its sub-rules, styles mapped to
+     * null are removed.
+     */
+    public RuleBuilder replaceStyles(Map<RenderStyle<?>, RenderStyle<?>> styles) {
+        for (int i = renderStyles.size() - 1; i >= 0; i--) {
+            RenderStyle<?> style = renderStyles.get(i);
+            if (!styles.containsKey(style))
+                continue;
+            RenderStyle<?> replacement = styles.get(style);
+            if (replacement != null)
+                renderStyles.set(i, replacement);
+            else
+                renderStyles.remove(i);
+        }
+        for (RuleBuilder rule : subRules)
+            rule.replaceStyles(styles);
+        return this;
+    }
+
     public RuleBuilder addSubRule(RuleBuilder rule) {
         subRules.add(rule);
         return this;
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.MapElement;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.SharedTileSource.Request;
+
+import java.util.ArrayList;
+
+/**
+ * A data source of a {@link SharedTileSource}. Each instance reads through
+ * its own data source of the wrapped source, concurrent and recent queries
+ * of the same tile are served from the query that read the tile.
+ */
+public class SharedTileDataSource implements ITileDataSource {
+
+    private final SharedTileSource mBroker;
+    private final ITileDataSource mDataSource;
+
+    private volatile boolean mCanceled;
+
+    public SharedTileDataSource(SharedTileSource broker, ITileDataSource dataSource) {
+        mBroker = broker;
+        mDataSource = dataSource;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        mCanceled = false;
+        long key = SharedTileSource.key(tile.tileX, tile.tileY, tile.zoomLevel);
+
+        MapElement[] elements;
+        Request request;
+        boolean read = false;
+        synchronized (mBroker) {
+            elements = mBroker.mCache.get(key);
+            request = mBroker.mRequests.get(key);
+            if (elements == null && request == null) {
+                request = new Request();
+                mBroker.mRequests.put(key, request);
+                read = true;
+            }
+        }
+
+        if (elements == null && !read) {
+            /* wait for the query in flight */
+            synchronized (mBroker) {
+                try {
+                    while (!request.done && !mCanceled)
+                        mBroker.wait();
+                } catch (InterruptedException e) {
+                    mCanceled = true;
+                }
+            }
+            if (mCanceled) {
+                sink.completed(QueryResult.FAILED);
+                return;
+            }
+            elements = request.elements;
+            if (elements == null) {
+                /* failed or not shareable, read on our own */
+                mDataSource.query(tile, sink);
+                return;
+            }
+        }
+
+        if (elements != null) {
+            /* sinks may clip or scale the elements */
+            for (MapElement e : elements)
+                sink.process(new MapElement(e));
+            sink.completed(QueryResult.SUCCESS);
+            return;
+        }
+
+        RecordingSink recorder = new RecordingSink(sink);
+        try {
+            mDataSource.query(tile, recorder);
+        } finally {
+            elements = recorder.getElements();
+            synchronized (mBroker) {
+                mBroker.mRequests.remove(key);
+                request.elements = elements;
+                request.done = true;
+                if (elements != null)
+                    mBroker.mCache.put(key, elements);
+                mBroker.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        mDataSource.dispose();
+    }
+
+    @Override
+    public void cancel() {
+        mCanceled = true;
+        synchronized (mBroker) {
+            mBroker.notifyAll();
+        }
+        mDataSource.cancel();
+    }
+
+    /**
+     * Passes the tile data on and keeps copies of the elements.
+     */
+    static final class RecordingSink implements ITileDataSink {
+        private final ITileDataSink mSink;
+        private final ArrayList<MapElement> mElements = new ArrayList<>();
+        private QueryResult mResult;
+        private boolean mBitmap;
+
+        RecordingSink(ITileDataSink sink) {
+            mSink = sink;
+        }
+
+        /**
+         * @return the elements of a successful query without bitmap, else null.
+         */
+        MapElement[] getElements() {
+            if (mResult != QueryResult.SUCCESS || mBitmap)
+                return null;
+            return mElements.toArray(new MapElement[mElements.size()]);
+        }
+
+        @Override
+        public void process(MapElement element) {
+            /* copy before the sink modifies the element */
+            mElements.add(new MapElement(element));
+            mSink.process(element);
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+            mBitmap = true;
+            mSink.setTileImage(bitmap);
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            mResult = result;
+            mSink.completed(result);
+        }
+    }
+}
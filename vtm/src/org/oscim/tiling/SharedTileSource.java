@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling;
+
+import org.oscim.core.MapElement;
+import org.oscim.layers.tile.bitmap.BitmapTileLayer.FadeStep;
+import org.oscim.layers.tile.vector.VectorTileLayer;
+import org.oscim.utils.LRUCache;
+
+import java.util.HashMap;
+
+/**
+ * Shares one {@link TileSource} between several tile layers, e.g. a
+ * {@link VectorTileLayer} and an S3DB layer on the same backend.
+ * <p>
+ * Concurrent queries of a tile are merged: the first one reads the tile,
+ * the others wait and receive copies of its map elements. The elements of
+ * the latest tiles are kept in memory for layers that ask later. Tiles with
+ * bitmaps are not shared, each layer reads them on its own.
+ * <p>
+ * The wrapped source is opened with the first and closed with the last
+ * layer using it.
+ */
+public class SharedTileSource extends TileSource {
+
+    /**
+     * A query in flight, completed with the elements of the tile or with
+     * null when the tile cannot be shared.
+     */
+    static final class Request {
+        boolean done;
+        MapElement[] elements;
+    }
+
+    private final TileSource mTileSource;
+
+    /* guarded by this */
+    final HashMap<Long, Request> mRequests = new HashMap<>();
+    final LRUCache<Long, MapElement[]> mCache;
+    private int mOpenCount;
+
+    public SharedTileSource(TileSource tileSource) {
+        this(tileSource, 16);
+    }
+
+    /**
+     * @param cacheSize the number of tiles kept in memory, 0 to only
+     *                  merge concurrent queries.
+     */
+    public SharedTileSource(TileSource tileSource, int cacheSize) {
+        mTileSource = tileSource;
+        mCache = new LRUCache<>(Math.max(cacheSize, 0));
+    }
+
+    public TileSource getTileSource() {
+        return mTileSource;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        return new SharedTileDataSource(this, mTileSource.getDataSource());
+    }
+
+    @Override
+    public synchronized OpenResult open() {
+        if (mOpenCount > 0) {
+            mOpenCount++;
+            return OpenResult.SUCCESS;
+        }
+        OpenResult result = mTileSource.open();
+        if (result.isSuccess())
+            mOpenCount = 1;
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mOpenCount == 0 || --mOpenCount > 0)
+            return;
+        mTileSource.close();
+        mCache.clear();
+    }
+
+    /**
+     * Drop the tiles kept in memory, e.g. when the data of the source
+     * changed.
+     */
+    public synchronized void clearCache() {
+        mCache.clear();
+    }
+
+    static long key(int x, int y, int z) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    @Override
+    public float getAlpha() {
+        return mTileSource.getAlpha();
+    }
+
+    @Override
+    public void setCache(ITileCache cache) {
+        mTileSource.setCache(cache);
+    }
+
+    @Override
+    public int getZoomLevelMax() {
+        return mTileSource.getZoomLevelMax();
+    }
+
+    @Override
+    public int getZoomLevelMin() {
+        return mTileSource.getZoomLevelMin();
+    }
+
+    @Override
+    public int getOverZoom() {
+        return mTileSource.getOverZoom();
+    }
+
+    @Override
+    public void setFadeSteps(FadeStep[] fadeSteps) {
+        mTileSource.setFadeSteps(fadeSteps);
+    }
+
+    @Override
+    public FadeStep[] getFadeSteps() {
+        return mTileSource.getFadeSteps();
+    }
+
+    @Override
+    public String getName() {
+        return mTileSource.getName();
+    }
+
+    @Override
+    public int getTileSize() {
+        return mTileSource.getTileSize();
+    }
+
+    @Override
+    public TileSource setOption(String key, String value) {
+        mTileSource.setOption(key, value);
+        return this;
+    }
+
+    @Override
+    public String getOption(String key) {
+        return mTileSource.getOption(key);
+    }
+}
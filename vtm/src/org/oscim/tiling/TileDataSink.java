@@ -16,14 +16,16 @@ package org.oscim.tiling;
 
 import org.oscim.backend.canvas.Bitmap;
 import org.oscim.core.MapElement;
-
-import java.util.HashSet;
-import java.util.Set;
+import org.oscim.utils.LongHashSet;
 
 public class TileDataSink implements ITileDataSink {
 
-    public final Set<Integer> hashPois = new HashSet<>();
-    public final Set<Integer> hashWays = new HashSet<>();
+    /**
+     * Content fingerprints of the elements already passed on, used to drop
+     * duplicates of overlapping map files.
+     */
+    public final LongHashSet hashPois = new LongHashSet();
+    public final LongHashSet hashWays = new LongHashSet();
 
     public int level, levels;
     private QueryResult result;
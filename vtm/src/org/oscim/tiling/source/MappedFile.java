@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only file, memory mapped in segments. Reads are absolute and may
+ * run concurrently from all loader threads.
+ */
+public class MappedFile {
+
+    /**
+     * Segments overlap so that every read up to OVERLAP bytes can be served
+     * from a single mapping.
+     */
+    private static final long SEGMENT = 1L << 30;
+    private static final long OVERLAP = 1L << 24;
+
+    private final FileInputStream mInputStream;
+    private final FileChannel mChannel;
+    private final ByteBuffer[] mSegments;
+    private final ByteOrder mOrder;
+    private final long mSize;
+
+    public MappedFile(File file, ByteOrder order) throws IOException {
+        mInputStream = new FileInputStream(file);
+        mOrder = order;
+        try {
+            mChannel = mInputStream.getChannel();
+            mSize = mChannel.size();
+
+            int n = (int) ((mSize + SEGMENT - 1) / SEGMENT);
+            mSegments = new ByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long start = i * SEGMENT;
+                mSegments[i] = mChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT + OVERLAP, mSize - start))
+                        .order(order);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public void close() {
+        try {
+            mInputStream.close();
+        } catch (IOException e) {
+            /* ignore */
+        }
+    }
+
+    public long size() {
+        return mSize;
+    }
+
+    public byte get(long offset) {
+        return segment(offset).get(position(offset));
+    }
+
+    public int getInt(long offset) {
+        return segment(offset).getInt(position(offset));
+    }
+
+    public long getLong(long offset) {
+        return segment(offset).getLong(position(offset));
+    }
+
+    public double getDouble(long offset) {
+        return segment(offset).getDouble(position(offset));
+    }
+
+    /**
+     * @return a read-only view of the given file range in the byte order of
+     * the file.
+     */
+    public ByteBuffer read(long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > mSize)
+            throw new EOFException();
+
+        if (length <= OVERLAP) {
+            ByteBuffer buf = segment(offset).duplicate();
+            int pos = position(offset);
+            buf.limit(pos + (int) length).position(pos);
+            return buf.slice().order(mOrder);
+        }
+
+        /* larger than the overlap of the mappings, read into the heap */
+        ByteBuffer buf = ByteBuffer.allocate((int) length);
+        while (buf.hasRemaining()) {
+            if (mChannel.read(buf, offset + buf.position()) < 0)
+                throw new EOFException();
+        }
+        buf.flip();
+        return buf.order(mOrder);
+    }
+
+    private ByteBuffer segment(long offset) {
+        return mSegments[(int) (offset / SEGMENT)];
+    }
+
+    private static int position(long offset) {
+        return (int) (offset % SEGMENT);
+    }
+}
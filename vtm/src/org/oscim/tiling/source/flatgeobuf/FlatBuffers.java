@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.flatgeobuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Minimal access to FlatBuffers tables in a little endian buffer. Tables
+ * and vectors are addressed by their absolute position, 0 means absent.
+ */
+final class FlatBuffers {
+
+    private FlatBuffers() {
+    }
+
+    /**
+     * @return the position of the root table of a buffer starting at pos.
+     */
+    static int root(ByteBuffer b, int pos) {
+        return pos + b.getInt(pos);
+    }
+
+    /**
+     * @return the position of a field in the table or 0 when it is absent.
+     */
+    static int field(ByteBuffer b, int table, int id) {
+        int vtable = table - b.getInt(table);
+        int entry = 4 + id * 2;
+        if (entry >= (b.getShort(vtable) & 0xffff))
+            return 0;
+        int offset = b.getShort(vtable + entry) & 0xffff;
+        return offset == 0 ? 0 : table + offset;
+    }
+
+    static int indirect(ByteBuffer b, int pos) {
+        return pos + b.getInt(pos);
+    }
+
+    /**
+     * @return the position of a sub table or 0.
+     */
+    static int table(ByteBuffer b, int table, int id) {
+        int pos = field(b, table, id);
+        return pos == 0 ? 0 : indirect(b, pos);
+    }
+
+    /**
+     * @return the position of the length of a vector or 0, the elements
+     * follow the length.
+     */
+    static int vector(ByteBuffer b, int table, int id) {
+        return table(b, table, id);
+    }
+
+    static int length(ByteBuffer b, int vector) {
+        return b.getInt(vector);
+    }
+
+    static String getString(ByteBuffer b, int table, int id) {
+        int pos = vector(b, table, id);
+        if (pos == 0)
+            return null;
+        return readString(b, pos + 4, b.getInt(pos));
+    }
+
+    static String readString(ByteBuffer b, int pos, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = b.get(pos + i);
+        return new String(bytes, FlatGeobufFile.UTF8);
+    }
+
+    static int getUByte(ByteBuffer b, int table, int id, int def) {
+        int pos = field(b, table, id);
+        return pos == 0 ? def : b.get(pos) & 0xff;
+    }
+
+    static int getUShort(ByteBuffer b, int table, int id, int def) {
+        int pos = field(b, table, id);
+        return pos == 0 ? def : b.getShort(pos) & 0xffff;
+    }
+
+    static int getInt(ByteBuffer b, int table, int id, int def) {
+        int pos = field(b, table, id);
+        return pos == 0 ? def : b.getInt(pos);
+    }
+
+    static long getLong(ByteBuffer b, int table, int id, long def) {
+        int pos = field(b, table, id);
+        return pos == 0 ? def : b.getLong(pos);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.flatgeobuf;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.tiling.source.MappedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Read-only access to a FlatGeobuf file with spatial index.
+ * <p>
+ * The file is read through a {@link MappedFile}, so reads may run
+ * concurrently from all loader threads. The packed Hilbert R-tree is
+ * searched in place and features are read as FlatBuffers tables without
+ * copying.
+ * <p>
+ * See https://github.com/flatgeobuf/flatgeobuf
+ */
+public class FlatGeobufFile {
+
+    public static final int GEOMETRY_UNKNOWN = 0;
+    public static final int GEOMETRY_POINT = 1;
+    public static final int GEOMETRY_LINESTRING = 2;
+    public static final int GEOMETRY_POLYGON = 3;
+    public static final int GEOMETRY_MULTIPOINT = 4;
+    public static final int GEOMETRY_MULTILINESTRING = 5;
+    public static final int GEOMETRY_MULTIPOLYGON = 6;
+
+    public static final int COLUMN_BYTE = 0;
+    public static final int COLUMN_UBYTE = 1;
+    public static final int COLUMN_BOOL = 2;
+    public static final int COLUMN_SHORT = 3;
+    public static final int COLUMN_USHORT = 4;
+    public static final int COLUMN_INT = 5;
+    public static final int COLUMN_UINT = 6;
+    public static final int COLUMN_LONG = 7;
+    public static final int COLUMN_ULONG = 8;
+    public static final int COLUMN_FLOAT = 9;
+    public static final int COLUMN_DOUBLE = 10;
+    public static final int COLUMN_STRING = 11;
+    public static final int COLUMN_JSON = 12;
+    public static final int COLUMN_DATETIME = 13;
+    public static final int COLUMN_BINARY = 14;
+
+    /**
+     * Coordinates in degrees.
+     */
+    public static final int CRS_WGS84 = 4326;
+    /**
+     * Coordinates in web mercator meters.
+     */
+    public static final int CRS_WEB_MERCATOR = 3857;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC_SIZE = 8;
+    private static final int NODE_SIZE = 40;
+
+    private final MappedFile mFile;
+
+    private final int mGeometryType;
+    private final String[] mColumnNames;
+    private final int[] mColumnTypes;
+    private final long mFeaturesCount;
+    private final int mNodeSize;
+    private final int mCrs;
+    private final double[] mEnvelope;
+
+    private final long mIndexOffset;
+    private final long mFeaturesOffset;
+
+    /* first and last + 1 node of each level, leaves first */
+    private final long[] mLevelBounds;
+    private final long mNumNodes;
+
+    public FlatGeobufFile(File file) throws IOException {
+        mFile = new MappedFile(file, ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (mFile.size() < MAGIC_SIZE + 4)
+                throw new IOException("not a FlatGeobuf file: " + file);
+
+            ByteBuffer m = mFile.read(0, MAGIC_SIZE + 4);
+            if (m.get(0) != 'f' || m.get(1) != 'g' || m.get(2) != 'b'
+                    || m.get(4) != 'f' || m.get(5) != 'g' || m.get(6) != 'b')
+                throw new IOException("not a FlatGeobuf file: " + file);
+            if (m.get(3) != 3)
+                throw new IOException("unsupported FlatGeobuf version: " + m.get(3));
+
+            int headerSize = m.getInt(MAGIC_SIZE);
+            ByteBuffer h = mFile.read(MAGIC_SIZE + 4, headerSize);
+            int header = FlatBuffers.root(h, 0);
+
+            mGeometryType = FlatBuffers.getUByte(h, header, 2, GEOMETRY_UNKNOWN);
+            mFeaturesCount = FlatBuffers.getLong(h, header, 8, 0);
+            mNodeSize = FlatBuffers.getUShort(h, header, 9, 16);
+
+            int env = FlatBuffers.vector(h, header, 1);
+            if (env != 0 && FlatBuffers.length(h, env) >= 4) {
+                mEnvelope = new double[4];
+                for (int i = 0; i < 4; i++)
+                    mEnvelope[i] = h.getDouble(env + 4 + i * 8);
+            } else {
+                mEnvelope = null;
+            }
+
+            int columns = FlatBuffers.vector(h, header, 7);
+            int numColumns = columns == 0 ? 0 : FlatBuffers.length(h, columns);
+            mColumnNames = new String[numColumns];
+            mColumnTypes = new int[numColumns];
+            for (int i = 0; i < numColumns; i++) {
+                int column = FlatBuffers.indirect(h, columns + 4 + i * 4);
+                mColumnNames[i] = FlatBuffers.getString(h, column, 0).intern();
+                mColumnTypes[i] = FlatBuffers.getUByte(h, column, 1, COLUMN_BYTE);
+            }
+
+            int crs = FlatBuffers.table(h, header, 10);
+            mCrs = crs == 0 ? CRS_WGS84 : FlatBuffers.getInt(h, crs, 1, CRS_WGS84);
+
+            mIndexOffset = MAGIC_SIZE + 4 + headerSize;
+            if (mNodeSize > 1 && mFeaturesCount > 0) {
+                mLevelBounds = levelBounds(mFeaturesCount, mNodeSize);
+                mNumNodes = mLevelBounds[mLevelBounds.length - 1];
+            } else {
+                mLevelBounds = null;
+                mNumNodes = 0;
+            }
+            mFeaturesOffset = mIndexOffset + mNumNodes * NODE_SIZE;
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw new IOException("invalid FlatGeobuf file: " + file, e);
+        }
+    }
+
+    public void close() {
+        mFile.close();
+    }
+
+    /**
+     * @return one of the GEOMETRY_* constants, GEOMETRY_UNKNOWN when it is
+     * given per feature.
+     */
+    public int getGeometryType() {
+        return mGeometryType;
+    }
+
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    /**
+     * @return the COLUMN_* types of the columns.
+     */
+    public int[] getColumnTypes() {
+        return mColumnTypes;
+    }
+
+    public long getFeaturesCount() {
+        return mFeaturesCount;
+    }
+
+    /**
+     * @return the EPSG code of the coordinates.
+     */
+    public int getCrs() {
+        return mCrs;
+    }
+
+    public boolean hasIndex() {
+        return mLevelBounds != null;
+    }
+
+    /**
+     * @return the bounds of the features in degrees, or null.
+     */
+    public BoundingBox getBounds() {
+        if (mEnvelope == null || mCrs != CRS_WGS84)
+            return null;
+        return new BoundingBox(mEnvelope[1], mEnvelope[0], mEnvelope[3], mEnvelope[2]);
+    }
+
+    /**
+     * Search the spatial index, in the coordinates of the file.
+     *
+     * @return the offsets of the intersecting features in file order, for
+     * reads in one sweep.
+     */
+    public long[] search(double minX, double minY, double maxX, double maxY) throws IOException {
+        if (mLevelBounds == null)
+            throw new IOException("no spatial index");
+
+        long[] results = new long[64];
+        int numResults = 0;
+        long leafStart = mNumNodes - mFeaturesCount;
+
+        /* stack of node index and level */
+        long[] stack = new long[64];
+        int sp = 0;
+        stack[sp++] = 0;
+        stack[sp++] = mLevelBounds.length / 2 - 1;
+
+        while (sp > 0) {
+            int level = (int) stack[--sp];
+            long node = stack[--sp];
+            boolean leaf = node >= leafStart;
+            long end = Math.min(node + mNodeSize, mLevelBounds[level * 2 + 1]);
+
+            for (long pos = node; pos < end; pos++) {
+                long o = mIndexOffset + pos * NODE_SIZE;
+                if (maxX < mFile.getDouble(o) || maxY < mFile.getDouble(o + 8)
+                        || minX > mFile.getDouble(o + 16) || minY > mFile.getDouble(o + 24))
+                    continue;
+
+                long offset = mFile.getLong(o + 32);
+                if (leaf) {
+                    if (numResults == results.length)
+                        results = Arrays.copyOf(results, numResults * 2);
+                    results[numResults++] = offset;
+                } else {
+                    if (sp + 2 > stack.length)
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[sp++] = offset;
+                    stack[sp++] = level - 1;
+                }
+            }
+        }
+        results = Arrays.copyOf(results, numResults);
+        Arrays.sort(results);
+        return results;
+    }
+
+    /**
+     * @param offset the offset of the feature as found by search.
+     * @return the feature table, starting at its root offset.
+     */
+    public ByteBuffer getFeature(long offset) throws IOException {
+        long o = mFeaturesOffset + offset;
+        return mFile.read(o + 4, mFile.getInt(o));
+    }
+
+    /**
+     * @return the first and last + 1 node of each level, leaves first, and
+     * the total number of nodes last.
+     */
+    static long[] levelBounds(long numItems, int nodeSize) {
+        long n = numItems;
+        long numNodes = n;
+        long[] levelNumNodes = new long[64];
+        int levels = 0;
+        levelNumNodes[levels++] = n;
+        do {
+            n = (n + nodeSize - 1) / nodeSize;
+            numNodes += n;
+            levelNumNodes[levels++] = n;
+        } while (n != 1);
+
+        long[] bounds = new long[levels * 2 + 1];
+        long offset = numNodes;
+        for (int i = 0; i < levels; i++) {
+            offset -= levelNumNodes[i];
+            bounds[i * 2] = offset;
+            bounds[i * 2 + 1] = offset + levelNumNodes[i];
+        }
+        bounds[levels * 2] = numNodes;
+        return bounds;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.flatgeobuf;
+
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.utils.geom.TileClipper;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+
+import static org.oscim.tiling.source.flatgeobuf.FlatGeobufFile.*;
+
+/**
+ * A tile data source for FlatGeobuf files. The file is shared by all data
+ * sources of a {@link FlatGeobufTileSource}.
+ * <p>
+ * The spatial index yields the features of the tile, they are read in file
+ * order and their geometry is projected from the mapped file directly into
+ * the tile coordinates of a reused {@link MapElement}.
+ */
+public class FlatGeobufTileDataSource implements ITileDataSource {
+    private static final Logger log = Logger.getLogger(FlatGeobufTileDataSource.class.getName());
+
+    /**
+     * Pixels around the tile that are queried and kept when clipping.
+     */
+    static final int BUFFER = 4;
+
+    private final FlatGeobufFile mFile;
+    private final String[] mColumnNames;
+    private final int[] mColumnTypes;
+    private final boolean mMercator;
+
+    private final MapElement mElement = new MapElement();
+    private final TileClipper mTileClipper = new TileClipper(-BUFFER, -BUFFER,
+            Tile.SIZE + BUFFER, Tile.SIZE + BUFFER);
+
+    /* projection to the current tile */
+    private double mScale, mDx, mDy;
+
+    public FlatGeobufTileDataSource(FlatGeobufFile file) {
+        mFile = file;
+        mColumnNames = file.getColumnNames();
+        mColumnTypes = file.getColumnTypes();
+        mMercator = file.getCrs() == CRS_WEB_MERCATOR;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        QueryResult res = QueryResult.FAILED;
+        try {
+            long size = 1L << tile.zoomLevel;
+            double b = (double) BUFFER / Tile.SIZE;
+            double x1 = (tile.tileX - b) / size;
+            double y1 = (tile.tileY - b) / size;
+            double x2 = (tile.tileX + 1 + b) / size;
+            double y2 = (tile.tileY + 1 + b) / size;
+
+            long[] offsets;
+            if (mMercator) {
+                double c = MercatorProjection.EARTH_CIRCUMFERENCE;
+                offsets = mFile.search((x1 - 0.5) * c, (0.5 - y2) * c, (x2 - 0.5) * c, (0.5 - y1) * c);
+            } else {
+                offsets = mFile.search(MercatorProjection.toLongitude(x1),
+                        MercatorProjection.toLatitude(Math.min(y2, 1)),
+                        MercatorProjection.toLongitude(x2),
+                        MercatorProjection.toLatitude(Math.max(y1, 0)));
+            }
+
+            mScale = (double) size * Tile.SIZE;
+            mDx = (double) tile.tileX * Tile.SIZE;
+            mDy = (double) tile.tileY * Tile.SIZE;
+
+            MapElement e = mElement;
+            for (long offset : offsets) {
+                ByteBuffer buf = mFile.getFeature(offset);
+                int feature = FlatBuffers.root(buf, 0);
+                int geometry = FlatBuffers.table(buf, feature, 0);
+                if (geometry == 0)
+                    continue;
+
+                e.clear();
+                e.tags.clear();
+                int type = mFile.getGeometryType();
+                if (type == GEOMETRY_UNKNOWN)
+                    type = FlatBuffers.getUByte(buf, geometry, 6, GEOMETRY_UNKNOWN);
+                if (!decodeGeometry(buf, geometry, type, e))
+                    continue;
+
+                if (e.isPoint()) {
+                    if (e.getNumPoints() == 0)
+                        continue;
+                } else {
+                    if (!mTileClipper.clip(e))
+                        continue;
+                    e.simplify(1, true);
+                    if (e.getNumPoints() == 0)
+                        continue;
+                }
+
+                decodeProperties(buf, FlatBuffers.vector(buf, feature, 1), e);
+                sink.process(e);
+            }
+            res = QueryResult.SUCCESS;
+        } catch (Exception e) {
+            log.fine(tile + " " + e);
+        } finally {
+            sink.completed(res);
+        }
+    }
+
+    /**
+     * @return false when the geometry type is not supported.
+     */
+    private boolean decodeGeometry(ByteBuffer buf, int geometry, int type, MapElement e) {
+        switch (type) {
+            case GEOMETRY_POINT:
+            case GEOMETRY_MULTIPOINT: {
+                e.startPoints();
+                int xy = FlatBuffers.vector(buf, geometry, 1);
+                if (xy == 0)
+                    return true;
+                int n = FlatBuffers.length(buf, xy) / 2;
+                for (int i = 0, pos = xy + 4; i < n; i++, pos += 16) {
+                    float x = projectX(buf.getDouble(pos));
+                    float y = projectY(buf.getDouble(pos + 8));
+                    /* keep points of the tile only, not of the buffer */
+                    if (x >= 0 && y >= 0 && x < Tile.SIZE && y < Tile.SIZE)
+                        e.addPoint(x, y);
+                }
+                return true;
+            }
+            case GEOMETRY_LINESTRING:
+            case GEOMETRY_MULTILINESTRING:
+            case GEOMETRY_POLYGON:
+                addRings(buf, geometry, type == GEOMETRY_POLYGON, e);
+                return true;
+            case GEOMETRY_MULTIPOLYGON: {
+                int parts = FlatBuffers.vector(buf, geometry, 7);
+                if (parts == 0)
+                    return false;
+                int n = FlatBuffers.length(buf, parts);
+                for (int i = 0; i < n; i++)
+                    addRings(buf, FlatBuffers.indirect(buf, parts + 4 + i * 4), true, e);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Add the parts of a geometry as lines, or as polygon with holes.
+     */
+    private void addRings(ByteBuffer buf, int geometry, boolean polygon, MapElement e) {
+        int xy = FlatBuffers.vector(buf, geometry, 1);
+        if (xy == 0)
+            return;
+        int numPoints = FlatBuffers.length(buf, xy) / 2;
+        int ends = FlatBuffers.vector(buf, geometry, 0);
+        int numEnds = ends == 0 ? 1 : FlatBuffers.length(buf, ends);
+
+        int start = 0;
+        for (int r = 0; r < numEnds; r++) {
+            int end = ends == 0 ? numPoints : buf.getInt(ends + 4 + r * 4);
+            if (end > numPoints)
+                end = numPoints;
+
+            int first = xy + 4 + start * 16;
+            int last = xy + 4 + (end - 1) * 16;
+            int n = end - start;
+            /* drop the closing point of rings */
+            if (polygon && n > 1 && buf.getDouble(first) == buf.getDouble(last)
+                    && buf.getDouble(first + 8) == buf.getDouble(last + 8))
+                n--;
+
+            if (!polygon)
+                e.startLine();
+            else if (r == 0)
+                e.startPolygon();
+            else
+                e.startHole();
+
+            for (int i = 0, pos = first; i < n; i++, pos += 16)
+                e.addPoint(projectX(buf.getDouble(pos)), projectY(buf.getDouble(pos + 8)));
+
+            start = end;
+        }
+    }
+
+    private float projectX(double x) {
+        double px = mMercator
+                ? x / MercatorProjection.EARTH_CIRCUMFERENCE + 0.5
+                : MercatorProjection.longitudeToX(x);
+        return (float) (px * mScale - mDx);
+    }
+
+    private float projectY(double y) {
+        double py = mMercator
+                ? 0.5 - y / MercatorProjection.EARTH_CIRCUMFERENCE
+                : MercatorProjection.latitudeToY(y);
+        return (float) (py * mScale - mDy);
+    }
+
+    private void decodeProperties(ByteBuffer buf, int properties, MapElement e) {
+        if (properties == 0)
+            return;
+        int pos = properties + 4;
+        int end = pos + FlatBuffers.length(buf, properties);
+
+        while (pos + 2 <= end) {
+            int column = buf.getShort(pos) & 0xffff;
+            pos += 2;
+            if (column >= mColumnTypes.length)
+                return;
+
+            String value;
+            switch (mColumnTypes[column]) {
+                case COLUMN_BYTE:
+                    value = String.valueOf(buf.get(pos));
+                    pos += 1;
+                    break;
+                case COLUMN_UBYTE:
+                    value = String.valueOf(buf.get(pos) & 0xff);
+                    pos += 1;
+                    break;
+                case COLUMN_BOOL:
+                    value = buf.get(pos) != 0 ? "true" : "false";
+                    pos += 1;
+                    break;
+                case COLUMN_SHORT:
+                    value = String.valueOf(buf.getShort(pos));
+                    pos += 2;
+                    break;
+                case COLUMN_USHORT:
+                    value = String.valueOf(buf.getShort(pos) & 0xffff);
+                    pos += 2;
+                    break;
+                case COLUMN_INT:
+                    value = String.valueOf(buf.getInt(pos));
+                    pos += 4;
+                    break;
+                case COLUMN_UINT:
+                    value = String.valueOf(buf.getInt(pos) & 0xffffffffL);
+                    pos += 4;
+                    break;
+                case COLUMN_LONG:
+                    value = String.valueOf(buf.getLong(pos));
+                    pos += 8;
+                    break;
+                case COLUMN_ULONG: {
+                    long v = buf.getLong(pos);
+                    if (v >= 0) {
+                        value = String.valueOf(v);
+                    } else {
+                        long q = (v >>> 1) / 5;
+                        value = String.valueOf(q) + (v - q * 10);
+                    }
+                    pos += 8;
+                    break;
+                }
+                case COLUMN_FLOAT:
+                    value = String.valueOf(buf.getFloat(pos));
+                    pos += 4;
+                    break;
+                case COLUMN_DOUBLE:
+                    value = String.valueOf(buf.getDouble(pos));
+                    pos += 8;
+                    break;
+                case COLUMN_STRING:
+                case COLUMN_JSON:
+                case COLUMN_DATETIME: {
+                    int len = buf.getInt(pos);
+                    value = FlatBuffers.readString(buf, pos + 4, len);
+                    pos += 4 + len;
+                    break;
+                }
+                case COLUMN_BINARY:
+                    pos += 4 + buf.getInt(pos);
+                    continue;
+                default:
+                    return;
+            }
+            e.tags.add(new Tag(mColumnNames[column], value, false));
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.flatgeobuf;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.TileSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * A tile source for FlatGeobuf files with spatial index, in WGS84 or web
+ * mercator coordinates. Feature properties become tags, see
+ * {@link FlatGeobufTileDataSource}.
+ */
+public class FlatGeobufTileSource extends TileSource {
+    private static final Logger log = Logger.getLogger(FlatGeobufTileSource.class.getName());
+
+    private FlatGeobufFile mFile;
+
+    public FlatGeobufTileSource() {
+        this(Viewport.MIN_ZOOM_LEVEL, Viewport.MAX_ZOOM_LEVEL);
+    }
+
+    public FlatGeobufTileSource(int zoomMin, int zoomMax) {
+        super(zoomMin, zoomMax);
+    }
+
+    public FlatGeobufTileSource(String filename) {
+        this();
+        setFlatGeobufFile(filename);
+    }
+
+    public boolean setFlatGeobufFile(String filename) {
+        setOption("file", filename);
+
+        File file = new File(filename);
+        return file.isFile() && file.canRead();
+    }
+
+    /**
+     * @return the opened file or null.
+     */
+    public FlatGeobufFile getFlatGeobufFile() {
+        return mFile;
+    }
+
+    /**
+     * @return the bounds of the features or null.
+     */
+    public BoundingBox getBounds() {
+        return mFile == null ? null : mFile.getBounds();
+    }
+
+    @Override
+    public OpenResult open() {
+        if (!options.containsKey("file"))
+            return new OpenResult("no FlatGeobuf file set");
+
+        File file = new File(options.get("file"));
+        if (!file.exists())
+            return new OpenResult("file does not exist: " + file);
+
+        try {
+            mFile = new FlatGeobufFile(file);
+        } catch (IOException e) {
+            log.severe(e.toString());
+            return new OpenResult(e.toString());
+        }
+
+        if (!mFile.hasIndex()) {
+            close();
+            return new OpenResult("no spatial index: " + file);
+        }
+        int crs = mFile.getCrs();
+        if (crs != FlatGeobufFile.CRS_WGS84 && crs != FlatGeobufFile.CRS_WEB_MERCATOR) {
+            close();
+            return new OpenResult("unsupported crs: " + crs);
+        }
+
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        return new OverzoomTileDataSource(new FlatGeobufTileDataSource(mFile), mOverZoom);
+    }
+
+    @Override
+    public void close() {
+        if (mFile != null) {
+            mFile.close();
+            mFile = null;
+        }
+    }
+}
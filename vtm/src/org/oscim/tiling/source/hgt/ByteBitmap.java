@@ -0,0 +1,297 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.oscim.backend.GL;
+import org.oscim.backend.canvas.Bitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.oscim.backend.GLAdapter.gl;
+
+/**
+ * A {@link Bitmap} of raw bytes that is uploaded as {@link GL#ALPHA} or
+ * {@link GL#RGB} texture, without a canvas backend. Shades only have an
+ * alpha, elevations only the RGB channels.
+ * <p>
+ * Tiles are cached as PNG, {@link #decodePng(InputStream, int)} reads back
+ * what {@link #getPngEncodedData()} writes.
+ */
+final class ByteBitmap implements Bitmap {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454e44;
+
+    /* PNG color types */
+    private static final int RGB = 2;
+    private static final int GRAY_ALPHA = 4;
+
+    final int width;
+    final int height;
+
+    /**
+     * {@link GL#ALPHA} or {@link GL#RGB}.
+     */
+    final int format;
+
+    /**
+     * The pixels row by row, one byte per channel.
+     */
+    final byte[] data;
+
+    ByteBitmap(int width, int height, int format) {
+        if (format != GL.ALPHA && format != GL.RGB)
+            throw new IllegalArgumentException("format " + format);
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        data = new byte[width * height * channels(format)];
+    }
+
+    private static int channels(int format) {
+        return format == GL.RGB ? 3 : 1;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void recycle() {
+    }
+
+    @Override
+    public int[] getPixels() {
+        int[] pixels = new int[width * height];
+        for (int i = 0, p = 0; i < pixels.length; i++) {
+            if (format == GL.ALPHA) {
+                pixels[i] = (data[p++] & 0xff) << 24;
+            } else {
+                pixels[i] = 0xff000000 | (data[p] & 0xff) << 16
+                        | (data[p + 1] & 0xff) << 8 | (data[p + 2] & 0xff);
+                p += 3;
+            }
+        }
+        return pixels;
+    }
+
+    @Override
+    public void eraseColor(int color) {
+        if (format == GL.ALPHA) {
+            Arrays.fill(data, (byte) (color >>> 24));
+            return;
+        }
+        for (int p = 0; p < data.length; p += 3) {
+            data[p] = (byte) (color >> 16);
+            data[p + 1] = (byte) (color >> 8);
+            data[p + 2] = (byte) color;
+        }
+    }
+
+    /**
+     * Always specifies the whole texture, as pooled textures may have been
+     * created by bitmaps of another format.
+     */
+    @Override
+    public void uploadToTexture(boolean replace) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length).order(ByteOrder.nativeOrder());
+        buf.put(data);
+        buf.flip();
+        gl.pixelStorei(GL.UNPACK_ALIGNMENT, 1);
+        gl.texImage2D(GL.TEXTURE_2D, 0, format, width, height, 0, format,
+                GL.UNSIGNED_BYTE, buf);
+        gl.pixelStorei(GL.UNPACK_ALIGNMENT, 4);
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    /**
+     * @return a PNG of 8 bit RGB, or black with 8 bit alpha.
+     */
+    @Override
+    public byte[] getPngEncodedData() {
+        int channels = channels(format);
+        int stride = width * (format == GL.ALPHA ? 2 : 3);
+        byte[] raw = new byte[(stride + 1) * height];
+        for (int y = 0, p = 0, o = 0; y < height; y++) {
+            /* filter type none */
+            raw[o++] = 0;
+            if (format == GL.ALPHA) {
+                for (int x = 0; x < width; x++, o += 2)
+                    raw[o + 1] = data[p++];
+            } else {
+                System.arraycopy(data, p, raw, o, stride);
+                p += stride;
+                o += stride;
+            }
+        }
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream idat = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buf = new byte[8192];
+        while (!deflater.finished())
+            idat.write(buf, 0, deflater.deflate(buf));
+        deflater.end();
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(idat.size() + 64);
+            DataOutputStream out = new DataOutputStream(bos);
+            out.write(PNG_SIGNATURE);
+
+            ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+            DataOutputStream h = new DataOutputStream(header);
+            h.writeInt(width);
+            h.writeInt(height);
+            h.writeByte(8);
+            h.writeByte(channels == 3 ? RGB : GRAY_ALPHA);
+            h.writeByte(0);
+            h.writeByte(0);
+            h.writeByte(0);
+            writeChunk(out, IHDR, header.toByteArray());
+            writeChunk(out, IDAT, idat.toByteArray());
+            writeChunk(out, IEND, new byte[0]);
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            /* not thrown by byte array streams */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, int type, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type >>> 24);
+        crc.update(type >>> 16);
+        crc.update(type >>> 8);
+        crc.update(type);
+        crc.update(data, 0, data.length);
+        out.writeInt(data.length);
+        out.writeInt(type);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Read a PNG written by {@link #getPngEncodedData()}.
+     *
+     * @return the bitmap, or null when the PNG has another layout or format.
+     */
+    static ByteBitmap decodePng(InputStream is, int format) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        byte[] signature = new byte[PNG_SIGNATURE.length];
+        in.readFully(signature);
+        if (!Arrays.equals(signature, PNG_SIGNATURE))
+            return null;
+
+        ByteBitmap bitmap = null;
+        Inflater inflater = new Inflater();
+        byte[] raw = null;
+        int pos = 0;
+        try {
+            while (true) {
+                int length = in.readInt();
+                int type = in.readInt();
+                byte[] chunk = new byte[length];
+                in.readFully(chunk);
+                in.readInt();
+
+                if (type == IHDR) {
+                    DataInputStream h = new DataInputStream(new ByteArrayInputStream(chunk));
+                    int width = h.readInt();
+                    int height = h.readInt();
+                    int depth = h.readUnsignedByte();
+                    int color = h.readUnsignedByte();
+                    h.readUnsignedByte();
+                    h.readUnsignedByte();
+                    int interlace = h.readUnsignedByte();
+                    if (depth != 8 || interlace != 0
+                            || color != (format == GL.RGB ? RGB : GRAY_ALPHA))
+                        return null;
+                    bitmap = new ByteBitmap(width, height, format);
+                    raw = new byte[(width * (format == GL.ALPHA ? 2 : 3) + 1) * height];
+                } else if (type == IDAT) {
+                    if (raw == null)
+                        return null;
+                    inflater.setInput(chunk);
+                    while (pos < raw.length && !inflater.needsInput()) {
+                        int n = inflater.inflate(raw, pos, raw.length - pos);
+                        if (n == 0 && (inflater.finished() || inflater.needsDictionary()))
+                            break;
+                        pos += n;
+                    }
+                } else if (type == IEND) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        if (bitmap == null || pos != raw.length)
+            return null;
+
+        int stride = raw.length / bitmap.height - 1;
+        byte[] data = bitmap.data;
+        for (int y = 0, p = 0, o = 0; y < bitmap.height; y++) {
+            /* only unfiltered rows are written */
+            if (raw[o++] != 0)
+                return null;
+            if (format == GL.ALPHA) {
+                for (int x = 0; x < bitmap.width; x++, o += 2)
+                    data[p++] = raw[o + 1];
+            } else {
+                System.arraycopy(raw, o, data, p, stride);
+                p += stride;
+                o += stride;
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Not supported, tiles are created in the size they are shown.
+     */
+    @Override
+    public void scaleTo(int width, int height) {
+        throw new UnsupportedOperationException();
+    }
+}
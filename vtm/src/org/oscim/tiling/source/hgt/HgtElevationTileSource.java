@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.oscim.core.Tile;
+import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.TileSource;
+
+import java.io.File;
+
+/**
+ * Elevation tiles from a folder of SRTM .hgt files, to be shaded on the GPU
+ * by a HillshadingTileLayer.
+ * <p>
+ * The elevations are packed into the color of the pixels, as in Mapbox
+ * 'terrain-RGB': height = (R * 65536 + G * 256 + B) * 0.1 - 10000. The
+ * texture has a border of two pixels from the neighbouring tiles, so the
+ * normals can be interpolated up to the tile edges without seams.
+ */
+public class HgtElevationTileSource extends TileSource {
+
+    /**
+     * Width and height of the elevation textures, including the border.
+     */
+    public static final int TEXTURE_SIZE = 256;
+    public static final int BORDER = 2;
+
+    private final HgtFolder mFolder;
+
+    public HgtElevationTileSource(File folder) {
+        this(new HgtFolder(folder));
+    }
+
+    public HgtElevationTileSource(HgtFolder folder) {
+        this(Viewport.MIN_ZOOM_LEVEL, Viewport.MAX_ZOOM_LEVEL, folder);
+    }
+
+    public HgtElevationTileSource(int zoomMin, int zoomMax, HgtFolder folder) {
+        super(zoomMin, zoomMax);
+        mFolder = folder;
+    }
+
+    public HgtFolder getFolder() {
+        return mFolder;
+    }
+
+    /**
+     * @return the opaque terrain-RGB color of the elevation in meters.
+     */
+    public static int encode(float elevation) {
+        int v = Math.round((elevation + 10000) * 10);
+        return 0xff000000 | Math.max(0, Math.min(0xffffff, v));
+    }
+
+    /**
+     * @return the elevation in meters of a terrain-RGB color.
+     */
+    public static float decode(int color) {
+        return (color & 0xffffff) * 0.1f - 10000;
+    }
+
+    /**
+     * Encode the elevations of a map tile.
+     *
+     * @param rgb        receives TEXTURE_SIZE^2 pixels of three bytes.
+     * @param elevations a buffer of at least TEXTURE_SIZE^2 values.
+     */
+    static void encode(HgtFolder folder, Tile tile, byte[] rgb, float[] elevations) {
+        int n = TEXTURE_SIZE * TEXTURE_SIZE;
+        Hillshading.sample(folder, tile, TEXTURE_SIZE - 2 * BORDER, BORDER, elevations);
+        for (int i = 0, p = 0; i < n; i++) {
+            int color = encode(elevations[i]);
+            rgb[p++] = (byte) (color >> 16);
+            rgb[p++] = (byte) (color >> 8);
+            rgb[p++] = (byte) color;
+        }
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        return new HgtTileDataSource(this, mFolder, null);
+    }
+
+    @Override
+    public OpenResult open() {
+        if (mFolder.size() == 0)
+            return new OpenResult("no hgt files");
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A folder of SRTM .hgt or .hgt.zip files, named like N47E011.hgt.
+ * <p>
+ * Keeps the most recently used tiles open.
+ */
+public class HgtFolder {
+    private static final Logger log = Logger.getLogger(HgtFolder.class.getName());
+
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private static final Pattern NAME = Pattern.compile(
+            "([ns])(\\d{1,2})([ew])(\\d{1,3})\\.hgt(\\.zip)?", Pattern.CASE_INSENSITIVE);
+
+    private final Map<Integer, File> mFiles = new HashMap<>();
+    private final LinkedHashMap<Integer, HgtTile> mCache;
+
+    public HgtFolder(File dir) {
+        this(dir, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize the number of tiles to keep open.
+     */
+    public HgtFolder(File dir, final int cacheSize) {
+        mCache = new LinkedHashMap<Integer, HgtTile>(cacheSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HgtTile> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        scan(dir);
+    }
+
+    private void scan(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                scan(file);
+                continue;
+            }
+            Matcher m = NAME.matcher(file.getName());
+            if (!m.matches())
+                continue;
+            int lat = Integer.parseInt(m.group(2));
+            int lon = Integer.parseInt(m.group(4));
+            if (m.group(1).equalsIgnoreCase("s"))
+                lat = -lat;
+            if (m.group(3).equalsIgnoreCase("w"))
+                lon = -lon;
+            Integer key = key(lat, lon);
+            /* prefer plain files, they are mapped */
+            if (m.group(5) == null || !mFiles.containsKey(key))
+                mFiles.put(key, file);
+        }
+    }
+
+    private static Integer key(int lat, int lon) {
+        return (lat + 90) * 360 + lon + 180;
+    }
+
+    /**
+     * @return the number of hgt files.
+     */
+    public int size() {
+        return mFiles.size();
+    }
+
+    public boolean hasTile(int lat, int lon) {
+        return mFiles.containsKey(key(lat, lon));
+    }
+
+    /**
+     * @param lat latitude of the south west corner.
+     * @param lon longitude of the south west corner.
+     * @return the tile or null when not available.
+     */
+    public synchronized HgtTile getTile(int lat, int lon) {
+        Integer key = key(lat, lon);
+        HgtTile tile = mCache.get(key);
+        if (tile != null)
+            return tile;
+
+        File file = mFiles.get(key);
+        if (file == null)
+            return null;
+        try {
+            tile = HgtTile.open(file, lat, lon);
+        } catch (IOException e) {
+            log.severe(file + ": " + e);
+            mFiles.remove(key);
+            return null;
+        }
+        mCache.put(key, tile);
+        return tile;
+    }
+}
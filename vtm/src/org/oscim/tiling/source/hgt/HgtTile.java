@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Elevations of a 1x1 degree SRTM .hgt file.
+ * <p>
+ * Plain files are memory mapped, zipped files are inflated into direct
+ * memory. Samples are big endian shorts in rows from north to south.
+ */
+public class HgtTile {
+
+    /**
+     * Marks missing samples.
+     */
+    public static final short VOID = Short.MIN_VALUE;
+
+    /**
+     * Latitude and longitude of the south west corner.
+     */
+    public final int lat, lon;
+
+    private final ShortBuffer mData;
+    private final int mSize;
+
+    HgtTile(int lat, int lon, ShortBuffer data) throws IOException {
+        this.lat = lat;
+        this.lon = lon;
+        mData = data;
+        mSize = (int) Math.round(Math.sqrt(data.capacity()));
+        if (mSize * mSize != data.capacity() || mSize < 2)
+            throw new IOException("invalid hgt size: " + data.capacity() * 2);
+    }
+
+    /**
+     * Open a .hgt or .hgt.zip file.
+     */
+    public static HgtTile open(File file, int lat, int lon) throws IOException {
+        ByteBuffer buffer;
+        if (file.getName().toLowerCase().endsWith(".zip"))
+            buffer = inflate(file);
+        else
+            buffer = map(file);
+        return new HgtTile(lat, lon, buffer.asShortBuffer());
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            FileChannel channel = is.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            /* the mapping stays valid */
+            is.close();
+        }
+    }
+
+    private static ByteBuffer inflate(File file) throws IOException {
+        ZipInputStream zis = new ZipInputStream(new FileInputStream(file));
+        try {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".hgt"))
+                    continue;
+                return read(zis, entry.getSize());
+            }
+            throw new IOException("no hgt in " + file);
+        } finally {
+            zis.close();
+        }
+    }
+
+    private static ByteBuffer read(InputStream is, long size) throws IOException {
+        /* room for 1 arc second files when the size is not known */
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size > 0 ? (int) size : 3601 * 3601 * 2);
+        byte[] buf = new byte[1 << 16];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            if (n > buffer.remaining())
+                throw new IOException("hgt too large");
+            buffer.put(buf, 0, n);
+        }
+        buffer.flip();
+        if (buffer.limit() != buffer.capacity()) {
+            ByteBuffer b = ByteBuffer.allocateDirect(buffer.limit());
+            b.put(buffer);
+            b.flip();
+            buffer = b;
+        }
+        return buffer;
+    }
+
+    /**
+     * @return the number of samples per row and column.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @param row from north, in [0..size).
+     * @param col from west, in [0..size).
+     */
+    public short get(int row, int col) {
+        return mData.get(row * mSize + col);
+    }
+
+    /**
+     * @return the bilinear interpolated elevation in meters, voids count as 0.
+     */
+    public float getElevation(double lat, double lon) {
+        int n = mSize - 1;
+        double y = (this.lat + 1 - lat) * n;
+        double x = (lon - this.lon) * n;
+        int row = Math.max(0, Math.min(n - 1, (int) y));
+        int col = Math.max(0, Math.min(n - 1, (int) x));
+        float fy = (float) Math.max(0, Math.min(1, y - row));
+        float fx = (float) Math.max(0, Math.min(1, x - col));
+
+        int p = row * mSize + col;
+        float a = value(mData.get(p));
+        float b = value(mData.get(p + 1));
+        float c = value(mData.get(p + mSize));
+        float d = value(mData.get(p + mSize + 1));
+
+        float top = a + (b - a) * fx;
+        float bottom = c + (d - c) * fx;
+        return top + (bottom - top) * fy;
+    }
+
+    private static float value(short v) {
+        return v == VOID ? 0 : v;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.oscim.backend.GL;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileCache;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.TileSource;
+import org.oscim.utils.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+
+/**
+ * Shades the tiles of a {@link HgtTileSource}, or encodes the elevations of
+ * a {@link HgtElevationTileSource}. Tiles are alpha or RGB bytes that are
+ * uploaded as textures directly. Finished tiles are written to the tile
+ * cache of the source as PNG, when set.
+ */
+public class HgtTileDataSource implements ITileDataSource {
+    private static final Logger log = Logger.getLogger(HgtTileDataSource.class.getName());
+
+    private final TileSource mTileSource;
+    private final HgtFolder mFolder;
+    private final Hillshading mShading;
+
+    /* buffers of this loader */
+    private float[] mElevations;
+
+    /**
+     * @param shading the shading, or null for elevation tiles.
+     */
+    public HgtTileDataSource(TileSource tileSource, HgtFolder folder, Hillshading shading) {
+        mTileSource = tileSource;
+        mFolder = folder;
+        mShading = shading;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        ITileCache cache = mTileSource.tileCache;
+        if (cache != null) {
+            ITileCache.TileReader c = cache.getTile(tile);
+            if (c != null) {
+                InputStream is = c.getInputStream();
+                try {
+                    ByteBitmap bitmap = ByteBitmap.decodePng(is, format());
+                    if (bitmap != null) {
+                        sink.setTileImage(bitmap);
+                        sink.completed(QueryResult.SUCCESS);
+                        return;
+                    }
+                } catch (IOException e) {
+                    log.fine(tile + " Cache read: " + e);
+                } finally {
+                    IOUtils.closeQuietly(is);
+                }
+            }
+        }
+
+        if (!Hillshading.covers(mFolder, tile)) {
+            sink.completed(QueryResult.TILE_NOT_FOUND);
+            return;
+        }
+
+        QueryResult res = QueryResult.FAILED;
+        ITileCache.TileWriter cacheWriter = null;
+        try {
+            int size = mShading != null ? Tile.SIZE : HgtElevationTileSource.TEXTURE_SIZE;
+            if (mElevations == null)
+                mElevations = new float[(size + 2) * (size + 2)];
+
+            /* a new bitmap per tile, it is owned by the tile until uploaded */
+            ByteBitmap bitmap = new ByteBitmap(size, size, format());
+            if (mShading != null)
+                mShading.shade(mFolder, tile, size, bitmap.data, mElevations);
+            else
+                HgtElevationTileSource.encode(mFolder, tile, bitmap.data, mElevations);
+            sink.setTileImage(bitmap);
+
+            if (cache != null) {
+                cacheWriter = cache.writeTile(tile);
+                OutputStream os = cacheWriter.getOutputStream();
+                try {
+                    os.write(bitmap.getPngEncodedData());
+                } finally {
+                    IOUtils.closeQuietly(os);
+                }
+            }
+            res = QueryResult.SUCCESS;
+        } catch (Exception e) {
+            log.severe(tile + " " + e);
+        } finally {
+            if (cacheWriter != null)
+                cacheWriter.complete(res == QueryResult.SUCCESS);
+            sink.completed(res);
+        }
+    }
+
+    /**
+     * @return alpha for shades, RGB for elevations.
+     */
+    private int format() {
+        return mShading != null ? GL.ALPHA : GL.RGB;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
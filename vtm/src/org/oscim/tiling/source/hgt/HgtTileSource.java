@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.TileSource;
+
+import java.io.File;
+
+/**
+ * Hillshading tiles computed from a folder of SRTM .hgt files, see
+ * {@link Hillshading}. Use it with a BitmapTileLayer.
+ */
+public class HgtTileSource extends TileSource {
+
+    private final HgtFolder mFolder;
+    private final Hillshading mShading;
+
+    public HgtTileSource(File folder) {
+        this(new HgtFolder(folder), new Hillshading());
+    }
+
+    public HgtTileSource(HgtFolder folder, Hillshading shading) {
+        this(Viewport.MIN_ZOOM_LEVEL, Viewport.MAX_ZOOM_LEVEL, folder, shading);
+    }
+
+    public HgtTileSource(int zoomMin, int zoomMax, HgtFolder folder, Hillshading shading) {
+        super(zoomMin, zoomMax);
+        mFolder = folder;
+        mShading = shading;
+    }
+
+    public HgtFolder getFolder() {
+        return mFolder;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        return new HgtTileDataSource(this, mFolder, mShading);
+    }
+
+    @Override
+    public OpenResult open() {
+        if (mFolder.size() == 0)
+            return new OpenResult("no hgt files");
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public void close() {
+    }
+}
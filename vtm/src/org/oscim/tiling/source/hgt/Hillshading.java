@@ -0,0 +1,233 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.hgt;
+
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.utils.async.WorkerPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Slope and aspect shading of the elevations in a {@link HgtFolder}.
+ * <p>
+ * Elevations are sampled at the pixel centers of a map tile plus a border
+ * of one pixel, so the tiles fit without seams. The normals use Horn's
+ * 3x3 gradient. Rows are shaded in parallel by a shared pool of threads,
+ * the calling thread takes part. The output is only the alpha of a black
+ * shade, one byte per pixel.
+ */
+public class Hillshading {
+
+    public static final float DEFAULT_AZIMUTH = 315;
+    public static final float DEFAULT_ALTITUDE = 45;
+    public static final int DEFAULT_MAGNITUDE = 128;
+
+    /**
+     * Rows per unit of work.
+     */
+    private static final int ROWS = 16;
+
+    private final float mLightX, mLightY, mLightZ;
+    private final float mExaggeration;
+    private final int mMagnitude;
+
+    public Hillshading() {
+        this(DEFAULT_AZIMUTH, DEFAULT_ALTITUDE, 1, DEFAULT_MAGNITUDE);
+    }
+
+    /**
+     * @param azimuth      light direction in degrees clockwise from north.
+     * @param altitude     light angle in degrees above the horizon.
+     * @param exaggeration vertical scale of the elevations.
+     * @param magnitude    alpha of the darkest shade, in [0..255].
+     */
+    public Hillshading(float azimuth, float altitude, float exaggeration, int magnitude) {
+        double az = Math.toRadians(azimuth);
+        double alt = Math.toRadians(altitude);
+        mLightX = (float) (Math.sin(az) * Math.cos(alt));
+        mLightY = (float) (Math.cos(az) * Math.cos(alt));
+        mLightZ = (float) Math.sin(alt);
+        mExaggeration = exaggeration;
+        mMagnitude = Math.max(0, Math.min(255, magnitude));
+    }
+
+    /**
+     * @return true when the folder has elevations within the tile.
+     */
+    public static boolean covers(HgtFolder folder, Tile tile) {
+        double scale = 1 << tile.zoomLevel;
+        int latMin = (int) Math.floor(MercatorProjection.toLatitude((tile.tileY + 1) / scale));
+        int latMax = (int) Math.floor(MercatorProjection.toLatitude(tile.tileY / scale));
+        int lonMin = (int) Math.floor(MercatorProjection.toLongitude(tile.tileX / scale));
+        int lonMax = (int) Math.floor(MercatorProjection.toLongitude((tile.tileX + 1) / scale));
+        for (int lat = latMin; lat <= latMax; lat++)
+            for (int lon = lonMin; lon <= lonMax; lon++)
+                if (folder.hasTile(lat, lon))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Shade a map tile.
+     *
+     * @param size       the width and height of the tile in pixels.
+     * @param alpha      receives size * size shades, the alpha of black.
+     * @param elevations a buffer of at least (size + 2)^2 values, or null.
+     */
+    public void shade(final HgtFolder folder, Tile tile, final int size, final byte[] alpha,
+                      float[] elevations) {
+        final int n = size + 2;
+        if (elevations == null || elevations.length < n * n)
+            elevations = new float[n * n];
+        final float[] z = elevations;
+
+        double[] lat = sample(folder, tile, size, 1, z);
+
+        /* ground size of a pixel, for 8 * dz / dx */
+        final float[] cell = new float[n];
+        double scale = (double) size * (1 << tile.zoomLevel);
+        for (int i = 0; i < n; i++)
+            cell[i] = (float) (8 * Math.cos(Math.toRadians(lat[i]))
+                    * MercatorProjection.EARTH_CIRCUMFERENCE / scale / mExaggeration);
+
+        run(size, new Rows() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++)
+                    shadeRow(z, n, i, cell[i + 1], alpha, i * size, size);
+            }
+        });
+    }
+
+    /**
+     * Sample the elevations at the pixel centers of a map tile plus a border.
+     *
+     * @param size   the width and height of the tile in pixels.
+     * @param border the border in pixels.
+     * @param z      receives (size + 2 * border)^2 elevations, row by row
+     *               from north.
+     * @return the latitudes of the rows.
+     */
+    static double[] sample(final HgtFolder folder, Tile tile, int size, int border, final float[] z) {
+        final int n = size + 2 * border;
+        final double[] lat = new double[n];
+        final double[] lon = new double[n];
+        double scale = (double) size * (1 << tile.zoomLevel);
+        for (int i = 0; i < n; i++) {
+            double y = Math.max(0, Math.min(1, (tile.tileY * size + i - border + 0.5) / scale));
+            double x = (tile.tileX * size + i - border + 0.5) / scale;
+            lat[i] = MercatorProjection.toLatitude(y);
+            lon[i] = MercatorProjection.toLongitude(x - Math.floor(x));
+        }
+
+        run(n, new Rows() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++)
+                    sample(folder, lat[i], lon, z, i * n, n);
+            }
+        });
+        return lat;
+    }
+
+    private static void sample(HgtFolder folder, double lat, double[] lon, float[] out, int pos, int n) {
+        int tileLat = (int) Math.floor(lat);
+        int tileLon = Integer.MIN_VALUE;
+        HgtTile tile = null;
+        for (int j = 0; j < n; j++) {
+            int l = (int) Math.floor(lon[j]);
+            if (l != tileLon) {
+                tileLon = l;
+                tile = folder.getTile(tileLat, l);
+            }
+            out[pos + j] = tile == null ? 0 : tile.getElevation(lat, lon[j]);
+        }
+    }
+
+    private void shadeRow(float[] z, int n, int row, float cell, byte[] out, int pos, int size) {
+        float lx = mLightX, ly = mLightY, lz = mLightZ;
+        float flat = lz;
+        float magnitude = mMagnitude;
+
+        int up = row * n;
+        int mid = up + n;
+        int down = mid + n;
+        for (int j = 0; j < size; j++, up++, mid++, down++) {
+            float a = z[up], b = z[up + 1], c = z[up + 2];
+            float d = z[mid], f = z[mid + 2];
+            float g = z[down], h = z[down + 1], k = z[down + 2];
+
+            float dx = ((c + 2 * f + k) - (a + 2 * d + g)) / cell;
+            float dy = ((a + 2 * b + c) - (g + 2 * h + k)) / cell;
+
+            /* normal (-dx, -dy, 1) */
+            float shade = (lz - lx * dx - ly * dy) / (float) Math.sqrt(dx * dx + dy * dy + 1);
+
+            int alpha = 0;
+            if (shade < flat)
+                alpha = (int) (magnitude * Math.min(1, (flat - shade) / flat));
+            out[pos + j] = (byte) alpha;
+        }
+    }
+
+    interface Rows {
+        void run(int from, int to);
+    }
+
+    /**
+     * Run blocks of rows on the shared threads and the calling thread.
+     * Returns when all blocks are done, as they write to the buffers of
+     * the caller.
+     */
+    private static void run(final int rows, final Rows task) {
+        final int blocks = (rows + ROWS - 1) / ROWS;
+        final AtomicInteger next = new AtomicInteger();
+
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int b;
+                while ((b = next.getAndIncrement()) < blocks)
+                    task.run(b * ROWS, Math.min(rows, (b + 1) * ROWS));
+            }
+        };
+
+        ExecutorService pool = WorkerPool.get();
+        int n = Math.min(blocks, Runtime.getRuntime().availableProcessors());
+        List<Future<?>> parts = new ArrayList<>(n);
+        for (int i = 1; i < n; i++)
+            parts.add(pool.submit(worker));
+
+        try {
+            worker.run();
+        } finally {
+            /* parts that did not start yet have nothing left to do */
+            for (Future<?> part : parts)
+                part.cancel(false);
+            Throwable failure = WorkerPool.awaitAll(parts);
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+        }
+    }
+}
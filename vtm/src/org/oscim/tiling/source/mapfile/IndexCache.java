@@ -19,6 +19,7 @@ package org.oscim.tiling.source.mapfile;
 
 import org.oscim.tiling.source.mapfile.header.SubFileParameter;
 import org.oscim.utils.LRUCache;
+import org.oscim.utils.stats.TileStats;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -91,6 +92,7 @@ class IndexCache {
 
             // check for cached index block
             byte[] indexBlock = this.map.get(indexCacheEntryKey);
+            TileStats.cache(TileStats.Cache.INDEX, indexBlock != null);
             if (indexBlock == null) {
                 // cache miss, seek to the correct index block in the file and read it
                 long indexBlockPosition = subFileParameter.indexStartAddress + indexBlockNumber
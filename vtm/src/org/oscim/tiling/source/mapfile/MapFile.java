@@ -216,6 +216,14 @@ public class MapFile implements ITileDataSource {
 
     private boolean deduplicate;
 
+    private static final long FINGERPRINT_SEED = 0xcbf29ce484222325L;
+
+    /**
+     * Content fingerprint of the current way data block, accumulated over the
+     * absolute coordinates while decoding.
+     */
+    private long mWayHash;
+
     /**
      * Priority of this MapFile. A higher number means a higher priority. Negative numbers have a special
      * meaning, they should only be used for so-called background maps. Data from background maps is only read
@@ -305,10 +313,7 @@ public class MapFile implements ITileDataSource {
 
             QueryCalculations.calculateBaseTiles(queryParameters, tile, subFileParameter);
             QueryCalculations.calculateBlocks(queryParameters, subFileParameter);
-            if (deduplicate)
-                processBlocks(sink, queryParameters, subFileParameter, tile.getBoundingBox(), Selector.ALL, new MapReadResult());
-            else
-                processBlocks(sink, queryParameters, subFileParameter);
+            processBlocks(sink, queryParameters, subFileParameter);
             sink.completed(QueryResult.SUCCESS);
         } catch (Throwable t) {
             log.severe(t.toString());
@@ -738,7 +743,8 @@ public class MapFile implements ITileDataSource {
             }
 
             if (mapDataSink != null) {
-                if (!deduplicate || poi == null || (mapDataSink instanceof TileDataSink && ((TileDataSink) mapDataSink).hashPois.add(poi.hashCode())))
+                if (!deduplicate || !(mapDataSink instanceof TileDataSink)
+                        || ((TileDataSink) mapDataSink).hashPois.add(fingerprint(fingerprint(hashTags(layer, e.tags), latitude), longitude)))
                     mapDataSink.process(e);
             }
         }
@@ -754,6 +760,8 @@ public class MapFile implements ITileDataSource {
             return false;
         }
 
+        mWayHash = FINGERPRINT_SEED;
+
         int[] wayLengths = e.ensureIndexSize(numBlocks, false);
         if (wayLengths.length > numBlocks)
             wayLengths[numBlocks] = -1;
@@ -815,6 +823,10 @@ public class MapFile implements ITileDataSource {
         if (waySegment != null)
             waySegment[0] = new GeoPoint(rawLat / 1E6, rawLon / 1E6);
 
+        long hash = mWayHash;
+        if (deduplicate)
+            hash = fingerprint(fingerprint(fingerprint(hash, length), rawLat), rawLon);
+
         int deltaLat = 0;
         int deltaLon = 0;
 
@@ -831,6 +843,8 @@ public class MapFile implements ITileDataSource {
 
             if (waySegment != null)
                 waySegment[pos / 2] = new GeoPoint(rawLat / 1E6, rawLon / 1E6);
+            if (deduplicate)
+                hash = fingerprint(fingerprint(hash, rawLat), rawLon);
 
             float lat = mTileProjection.projectLat(rawLat);
             float lon = mTileProjection.projectLon(rawLon);
@@ -868,10 +882,25 @@ public class MapFile implements ITileDataSource {
         }
 
         e.pointNextPos = outPos;
+        mWayHash = hash;
 
         return cnt;
     }
 
+    /**
+     * Order independent hash of the layer and tags of an element.
+     */
+    private static long hashTags(byte layer, TagSet tags) {
+        int sum = 0;
+        for (int i = 0, n = tags.size(); i < n; i++)
+            sum += tags.get(i).hashCode();
+        return fingerprint(fingerprint(FINGERPRINT_SEED, layer), sum);
+    }
+
+    private static long fingerprint(long hash, long value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
     private int stringOffset = -1;
 
     /**
@@ -1039,6 +1068,13 @@ public class MapFile implements ITileDataSource {
                 if (!processWayDataBlock(e, featureWayDoubleDeltaEncoding, linearFeature, wayNodes, labelPosition, readBuffer))
                     return false;
 
+                long wayHash = mWayHash;
+                if (deduplicate) {
+                    wayHash = fingerprint(wayHash, hashTags(layer, e.tags));
+                    if (labelPosition != null && wayDataBlock == 0)
+                        wayHash = fingerprint(fingerprint(wayHash, labelPosition[0]), labelPosition[1]);
+                }
+
                 /* drop invalid outer ring */
                 if (e.isPoly() && e.index[0] < 6) {
                     continue;
@@ -1100,7 +1136,8 @@ public class MapFile implements ITileDataSource {
                 }
 
                 if (mapDataSink != null) {
-                    if (!deduplicate || way == null || (mapDataSink instanceof TileDataSink && ((TileDataSink) mapDataSink).hashWays.add(way.hashCode()))) {
+                    if (!deduplicate || !(mapDataSink instanceof TileDataSink)
+                            || ((TileDataSink) mapDataSink).hashWays.add(wayHash)) {
                         if (mapDataSink instanceof TileDataSink)
                             e.level = e.isLine() ? ((TileDataSink) mapDataSink).levels : ((TileDataSink) mapDataSink).level;
                         mapDataSink.process(e);
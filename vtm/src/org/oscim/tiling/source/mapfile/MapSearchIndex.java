@@ -0,0 +1,438 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mapfile;
+
+import org.oscim.core.GeoPoint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A memory mapped search index of the named items and POIs of map files,
+ * see {@link MapSearchIndexBuilder}.
+ * <p>
+ * Names are found by an inverted index of word-start trigrams, categories
+ * by postings of their 'key=value' tag. Queries only touch the index file.
+ */
+public class MapSearchIndex {
+
+    static final int MAGIC = 0x564d5349;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int ENTRY_SIZE = 16;
+    static final int GRAM_SIZE = 16;
+    static final int CATEGORY_SIZE = 12;
+
+    /**
+     * Word boundary in the normalized name.
+     */
+    static final char BOUNDARY = 0;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static class Result {
+        public final String name;
+        public final String category;
+        public final GeoPoint position;
+
+        /**
+         * The match quality, higher is better.
+         */
+        public final float score;
+
+        Result(String name, String category, GeoPoint position, float score) {
+            this.name = name;
+            this.category = category;
+            this.position = position;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + category + "] " + position;
+        }
+    }
+
+    private final FileInputStream mInputStream;
+    private final ByteBuffer mBuffer;
+
+    private final long mSourceKey;
+    private final int mEntryCount;
+    private final int mGramCount;
+    private final int mCategoryCount;
+    private final int mEntries;
+    private final int mGrams;
+    private final int mCategories;
+    private final int mPostings;
+    private final int mNames;
+
+    public MapSearchIndex(File file) throws IOException {
+        mInputStream = new FileInputStream(file);
+        try {
+            FileChannel channel = mInputStream.getChannel();
+            mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION)
+                throw new IOException("not a search index: " + file);
+
+            mSourceKey = mBuffer.getLong(8);
+            mEntryCount = mBuffer.getInt(16);
+            mGramCount = mBuffer.getInt(20);
+            mCategoryCount = mBuffer.getInt(24);
+            mEntries = mBuffer.getInt(28);
+            mGrams = mBuffer.getInt(32);
+            mCategories = mBuffer.getInt(36);
+            mPostings = mBuffer.getInt(40);
+            mNames = mBuffer.getInt(44);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public void close() {
+        try {
+            mInputStream.close();
+        } catch (IOException e) {
+            /* ignore */
+        }
+    }
+
+    /**
+     * @return true when the index was built from the given map files.
+     */
+    public boolean isValidFor(MapFile... mapFiles) {
+        return mSourceKey == MapSearchIndexBuilder.sourceKey(Arrays.asList(mapFiles));
+    }
+
+    public int size() {
+        return mEntryCount;
+    }
+
+    /**
+     * @return all categories ('key=value') in the index.
+     */
+    public List<String> getCategories() {
+        List<String> categories = new ArrayList<>(mCategoryCount);
+        for (int i = 0; i < mCategoryCount; i++)
+            categories.add(readName(mBuffer.getInt(mCategories + i * CATEGORY_SIZE)));
+        return categories;
+    }
+
+    /**
+     * Find items by name.
+     */
+    public List<Result> search(String query, int limit) {
+        return search(query, null, null, limit);
+    }
+
+    /**
+     * Find items whose name contains a word starting with the query.
+     *
+     * @param query    the name to search, may be null when a category is given.
+     * @param category an optional 'key=value' tag the items must have.
+     * @param near     an optional position, nearer items rank higher.
+     * @param limit    the maximum number of results.
+     * @return the results, best first.
+     */
+    public List<Result> search(String query, String category, GeoPoint near, int limit) {
+        String q = query == null ? "" : normalize(query);
+        int[] candidates = null;
+
+        if (!q.isEmpty()) {
+            long[] grams = grams(BOUNDARY + q.replace(' ', BOUNDARY), false);
+            if (grams.length == 0) {
+                /* shorter than a gram, take all words starting with it */
+                candidates = prefixPostings(q.charAt(0));
+                if (candidates.length == 0)
+                    return Collections.emptyList();
+            }
+
+            int[] slots = new int[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                slots[i] = findGram(grams[i]);
+                if (slots[i] < 0)
+                    return Collections.emptyList();
+            }
+            /* intersect the shortest lists first */
+            Integer[] order = new Integer[slots.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = slots[i];
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Integer.compare(gramCount(a), gramCount(b));
+                }
+            });
+            for (int slot : order) {
+                int base = mGrams + slot * GRAM_SIZE;
+                int[] postings = readPostings(mBuffer.getInt(base + 8), mBuffer.getInt(base + 12));
+                candidates = candidates == null ? postings : intersect(candidates, postings);
+                if (candidates.length == 0)
+                    return Collections.emptyList();
+            }
+        }
+
+        if (category != null) {
+            int slot = findCategory(category);
+            if (slot < 0)
+                return Collections.emptyList();
+            int base = mCategories + slot * CATEGORY_SIZE;
+            int[] postings = readPostings(mBuffer.getInt(base + 4), mBuffer.getInt(base + 8));
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+        }
+
+        if (candidates == null)
+            return Collections.emptyList();
+
+        PriorityQueue<Result> best = new PriorityQueue<>(limit + 1, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return Float.compare(a.score, b.score);
+            }
+        });
+
+        for (int id : candidates) {
+            int base = mEntries + id * ENTRY_SIZE;
+            int nameOffset = mBuffer.getInt(base + 8);
+            String name = nameOffset < 0 ? null : readName(nameOffset);
+
+            float score = 0;
+            if (!q.isEmpty()) {
+                score = match(normalize(name), q);
+                if (score == 0)
+                    continue;
+            }
+
+            GeoPoint position = new GeoPoint(mBuffer.getInt(base), mBuffer.getInt(base + 4));
+            if (near != null)
+                score += 1 - Math.min(near.sphericalDistance(position) / 1e6, 0.999);
+            else if (name != null)
+                score += 1 - Math.min(name.length() / 1000f, 0.999);
+
+            if (best.size() == limit && best.peek().score >= score)
+                continue;
+
+            int cat = mBuffer.getInt(base + 12);
+            String catName = cat < 0 ? null : readName(mBuffer.getInt(mCategories + cat * CATEGORY_SIZE));
+            best.add(new Result(name, catName, position, score));
+            if (best.size() > limit)
+                best.poll();
+        }
+
+        List<Result> results = new ArrayList<>(best);
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return Float.compare(b.score, a.score);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * @return 3 for an exact match, 2 when the name starts with the query,
+     * 1 when a word of the name starts with it, otherwise 0.
+     */
+    private static float match(String name, String q) {
+        if (name.equals(q))
+            return 3;
+        if (name.startsWith(q))
+            return 2;
+        if ((' ' + name).contains(' ' + q))
+            return 1;
+        return 0;
+    }
+
+    /**
+     * @return the union of the postings of all grams at the start of a word
+     * beginning with the given character. The grams form one range of the
+     * sorted gram table.
+     */
+    private int[] prefixPostings(char c) {
+        long prefix = ((long) BOUNDARY << 32) | ((long) c << 16);
+        int lo = 0, hi = mGramCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mBuffer.getLong(mGrams + mid * GRAM_SIZE) < prefix)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        int[] ids = new int[0];
+        int n = 0;
+        for (int slot = lo; slot < mGramCount; slot++) {
+            int base = mGrams + slot * GRAM_SIZE;
+            if ((mBuffer.getLong(base) & ~0xffffL) != prefix)
+                break;
+            int count = mBuffer.getInt(base + 12);
+            if (n + count > ids.length)
+                ids = Arrays.copyOf(ids, Math.max(n + count, ids.length * 2));
+            System.arraycopy(readPostings(mBuffer.getInt(base + 8), count), 0, ids, n, count);
+            n += count;
+        }
+        Arrays.sort(ids, 0, n);
+        int k = 0;
+        for (int i = 0; i < n; i++)
+            if (i == 0 || ids[i] != ids[i - 1])
+                ids[k++] = ids[i];
+        return Arrays.copyOf(ids, k);
+    }
+
+    private int gramCount(int slot) {
+        return mBuffer.getInt(mGrams + slot * GRAM_SIZE + 12);
+    }
+
+    private int findGram(long gram) {
+        int lo = 0, hi = mGramCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long g = mBuffer.getLong(mGrams + mid * GRAM_SIZE);
+            if (g < gram)
+                lo = mid + 1;
+            else if (g > gram)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private int findCategory(String category) {
+        int lo = 0, hi = mCategoryCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = readName(mBuffer.getInt(mCategories + mid * CATEGORY_SIZE)).compareTo(category);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private int[] readPostings(int offset, int count) {
+        int[] ids = new int[count];
+        int pos = mPostings + offset;
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = mBuffer.get(pos++);
+                delta |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    break;
+            }
+            id += delta;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private String readName(int offset) {
+        int pos = mNames + offset;
+        int len = mBuffer.getShort(pos) & 0xffff;
+        byte[] b = new byte[len];
+        ByteBuffer buf = mBuffer.duplicate();
+        buf.position(pos + 2);
+        buf.get(b);
+        return new String(b, UTF8);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * @return the name in lower case without accents, words separated by
+     * a single space.
+     */
+    static String normalize(String s) {
+        if (s == null)
+            return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(n.length());
+        boolean space = false;
+        for (int i = 0; i < n.length(); i++) {
+            char c = n.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK)
+                continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0)
+                    sb.append(' ');
+                c = Character.toLowerCase(c);
+                if (c == '\u00df')
+                    sb.append("ss");
+                else
+                    sb.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param s     the normalized name with word boundaries.
+     * @param close true to add the boundary after the last word.
+     * @return the sorted, distinct trigrams of the name.
+     */
+    static long[] grams(String s, boolean close) {
+        if (close)
+            s = s + BOUNDARY;
+        int n = s.length() - 2;
+        if (n <= 0)
+            return new long[0];
+        long[] grams = new long[n];
+        for (int i = 0; i < n; i++)
+            grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        Arrays.sort(grams);
+        int k = 0;
+        for (int i = 0; i < n; i++)
+            if (i == 0 || grams[i] != grams[i - 1])
+                grams[k++] = grams[i];
+        return Arrays.copyOf(grams, k);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mapfile;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tag;
+import org.oscim.core.Tile;
+import org.oscim.utils.LongHashSet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import static org.oscim.tiling.source.mapfile.MapSearchIndex.BOUNDARY;
+
+/**
+ * Builds a {@link MapSearchIndex} by scanning the map files once.
+ * <p>
+ * The area is read in chunks of zoom level 12 tiles at the highest query
+ * zoom level, so the index contains all POIs and named ways. Items are
+ * positioned at their label position or the center of their bounding box.
+ */
+public class MapSearchIndexBuilder {
+    private static final Logger log = Logger.getLogger(MapSearchIndexBuilder.class.getName());
+
+    private static final byte CHUNK_ZOOM = 12;
+    private static final byte SCAN_ZOOM = 20;
+
+    private final List<MapFile> mMapFiles;
+    private final MultiMapFile mMultiMapFile = new MultiMapFile(true);
+    private final Set<Tag> mCategoryTags = new HashSet<>();
+
+    private int mCount;
+    private int[] mEntries = new int[4 * 1024];
+
+    private final ByteArrayOutputStream mNamePool = new ByteArrayOutputStream();
+    private final Map<String, Integer> mNames = new HashMap<>();
+    private final Map<Long, Postings> mGrams = new HashMap<>();
+    private final Map<String, Integer> mCategoryIds = new HashMap<>();
+    private final List<Postings> mCategories = new ArrayList<>();
+
+    /* fingerprints of items that may be read again in a neighbour chunk */
+    private final LongHashSet mBorderItems = new LongHashSet();
+
+    public MapSearchIndexBuilder(MapFile... mapFiles) {
+        mMapFiles = Arrays.asList(mapFiles);
+        for (MapFile mapFile : mapFiles) {
+            mMultiMapFile.add(mapFile);
+            MapFileTileSource tileSource = mapFile.getTileSource();
+            addCategoryTags(tileSource.fileInfo.poiTags);
+            addCategoryTags(tileSource.fileInfo.wayTags);
+        }
+    }
+
+    private void addCategoryTags(Tag[] tags) {
+        for (Tag tag : tags) {
+            /* variable values, e.g. '%s', are not categories */
+            if (!(tag.value.length() == 2 && tag.value.charAt(0) == '%'))
+                mCategoryTags.add(tag);
+        }
+    }
+
+    static long sourceKey(List<MapFile> mapFiles) {
+        long h = 0xcbf29ce484222325L;
+        for (MapFile mapFile : mapFiles) {
+            MapInfo info = mapFile.getTileSource().getMapInfo();
+            h = (h ^ info.mapDate) * 0x100000001b3L;
+            h = (h ^ info.fileSize) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Index the whole area of the map files.
+     */
+    public void build(File file) throws IOException {
+        BoundingBox area = null;
+        for (MapFile mapFile : mMapFiles) {
+            BoundingBox bbox = mapFile.getTileSource().getMapInfo().boundingBox;
+            area = area == null ? bbox : area.extendBoundingBox(bbox);
+        }
+        if (area == null)
+            throw new IOException("no map files");
+        build(area, file);
+    }
+
+    public void build(BoundingBox area, File file) throws IOException {
+        int minX = MercatorProjection.longitudeToTileX(area.getMinLongitude(), CHUNK_ZOOM);
+        int maxX = MercatorProjection.longitudeToTileX(area.getMaxLongitude(), CHUNK_ZOOM);
+        int minY = MercatorProjection.latitudeToTileY(area.getMaxLatitude(), CHUNK_ZOOM);
+        int maxY = MercatorProjection.latitudeToTileY(area.getMinLatitude(), CHUNK_ZOOM);
+        int shift = SCAN_ZOOM - CHUNK_ZOOM;
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                Tile upperLeft = new Tile(x << shift, y << shift, SCAN_ZOOM);
+                Tile lowerRight = new Tile(((x + 1) << shift) - 1, ((y + 1) << shift) - 1, SCAN_ZOOM);
+                MapReadResult result = mMultiMapFile.readNamedItems(upperLeft, lowerRight, false);
+                if (result == null)
+                    continue;
+
+                BoundingBox chunk = new Tile(x, y, CHUNK_ZOOM).getBoundingBox();
+                for (PointOfInterest poi : result.pointOfInterests)
+                    add(poi.tags, poi.position, poi.position, poi.position, chunk);
+
+                for (Way way : result.ways) {
+                    int minLat = Integer.MAX_VALUE, minLon = Integer.MAX_VALUE;
+                    int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+                    for (GeoPoint[] points : way.geoPoints) {
+                        for (GeoPoint p : points) {
+                            minLat = Math.min(minLat, p.latitudeE6);
+                            minLon = Math.min(minLon, p.longitudeE6);
+                            maxLat = Math.max(maxLat, p.latitudeE6);
+                            maxLon = Math.max(maxLon, p.longitudeE6);
+                        }
+                    }
+                    if (minLat > maxLat)
+                        continue;
+                    GeoPoint min = new GeoPoint(minLat, minLon);
+                    GeoPoint max = new GeoPoint(maxLat, maxLon);
+                    GeoPoint position = way.labelPosition != null ? way.labelPosition
+                            : new GeoPoint((minLat + maxLat) / 2, (minLon + maxLon) / 2);
+                    add(way.tags, position, min, max, chunk);
+                }
+            }
+        }
+        log.fine("indexed " + mCount + " items");
+        write(file);
+    }
+
+    void add(List<Tag> tags, GeoPoint position, GeoPoint min, GeoPoint max, BoundingBox chunk) {
+        String name = null;
+        int first = -1;
+        int[] categories = null;
+        int numCategories = 0;
+
+        for (Tag tag : tags) {
+            if (Tag.KEY_NAME.equals(tag.key)) {
+                name = tag.value;
+            } else if (mCategoryTags.contains(tag)) {
+                int id = categoryId(tag.key + '=' + tag.value);
+                if (categories == null)
+                    categories = new int[tags.size()];
+                categories[numCategories++] = id;
+                if (first < 0)
+                    first = id;
+            }
+        }
+        if (name == null && numCategories == 0)
+            return;
+
+        /* items crossing the chunk border are read once per chunk */
+        if (!chunk.contains(min) || !chunk.contains(max)
+                || min.latitudeE6 == chunk.minLatitudeE6 || min.longitudeE6 == chunk.minLongitudeE6
+                || max.latitudeE6 == chunk.maxLatitudeE6 || max.longitudeE6 == chunk.maxLongitudeE6) {
+            long h = 0xcbf29ce484222325L;
+            if (name != null)
+                h = (h ^ name.hashCode()) * 0x100000001b3L;
+            h = (h ^ first) * 0x100000001b3L;
+            h = (h ^ position.latitudeE6) * 0x100000001b3L;
+            h = (h ^ position.longitudeE6) * 0x100000001b3L;
+            if (!mBorderItems.add(h))
+                return;
+        }
+
+        int id = mCount++;
+        if (mEntries.length < mCount * 4)
+            mEntries = Arrays.copyOf(mEntries, mEntries.length * 2);
+        mEntries[id * 4] = position.latitudeE6;
+        mEntries[id * 4 + 1] = position.longitudeE6;
+        mEntries[id * 4 + 2] = name == null ? -1 : nameOffset(name);
+        mEntries[id * 4 + 3] = first;
+
+        for (int i = 0; i < numCategories; i++)
+            mCategories.get(categories[i]).add(id);
+
+        if (name != null) {
+            String n = MapSearchIndex.normalize(name);
+            for (long gram : MapSearchIndex.grams(BOUNDARY + n.replace(' ', BOUNDARY), true)) {
+                Postings p = mGrams.get(gram);
+                if (p == null) {
+                    p = new Postings();
+                    mGrams.put(gram, p);
+                }
+                p.add(id);
+            }
+        }
+    }
+
+    private int categoryId(String category) {
+        Integer id = mCategoryIds.get(category);
+        if (id == null) {
+            id = mCategories.size();
+            mCategoryIds.put(category, id);
+            mCategories.add(new Postings());
+        }
+        return id;
+    }
+
+    private int nameOffset(String name) {
+        Integer offset = mNames.get(name);
+        if (offset == null) {
+            byte[] b = name.getBytes(MapSearchIndex.UTF8);
+            if (b.length > 0xffff)
+                b = Arrays.copyOf(b, 0xffff);
+            offset = mNamePool.size();
+            mNamePool.write(b.length >> 8);
+            mNamePool.write(b.length);
+            mNamePool.write(b, 0, b.length);
+            mNames.put(name, offset);
+        }
+        return offset;
+    }
+
+    void write(File file) throws IOException {
+        /* categories sorted by name, entries refer to the sorted position */
+        TreeMap<String, Integer> sorted = new TreeMap<>(mCategoryIds);
+        int[] slot = new int[mCategories.size()];
+        int s = 0;
+        for (Integer id : sorted.values())
+            slot[id] = s++;
+        for (int i = 0; i < mCount; i++) {
+            int cat = mEntries[i * 4 + 3];
+            if (cat >= 0)
+                mEntries[i * 4 + 3] = slot[cat];
+        }
+
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+
+        TreeMap<Long, Postings> grams = new TreeMap<>(mGrams);
+        int[][] gramPostings = new int[grams.size()][];
+        int g = 0;
+        for (Postings p : grams.values())
+            gramPostings[g++] = new int[]{p.write(postings), p.size};
+
+        int[][] categoryPostings = new int[sorted.size()][];
+        int c = 0;
+        for (Map.Entry<String, Integer> e : sorted.entrySet()) {
+            Postings p = mCategories.get(e.getValue());
+            categoryPostings[c++] = new int[]{nameOffset(e.getKey()), p.write(postings), p.size};
+        }
+
+        int entries = MapSearchIndex.HEADER_SIZE;
+        int gramTable = entries + mCount * MapSearchIndex.ENTRY_SIZE;
+        int categoryTable = gramTable + grams.size() * MapSearchIndex.GRAM_SIZE;
+        int postingData = categoryTable + sorted.size() * MapSearchIndex.CATEGORY_SIZE;
+        int names = postingData + postings.size();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MapSearchIndex.MAGIC);
+            out.writeInt(MapSearchIndex.VERSION);
+            out.writeLong(sourceKey(mMapFiles));
+            out.writeInt(mCount);
+            out.writeInt(grams.size());
+            out.writeInt(sorted.size());
+            out.writeInt(entries);
+            out.writeInt(gramTable);
+            out.writeInt(categoryTable);
+            out.writeInt(postingData);
+            out.writeInt(names);
+            while (out.size() < MapSearchIndex.HEADER_SIZE)
+                out.writeByte(0);
+
+            for (int i = 0; i < mCount * 4; i++)
+                out.writeInt(mEntries[i]);
+
+            g = 0;
+            for (Long gram : grams.keySet()) {
+                out.writeLong(gram);
+                out.writeInt(gramPostings[g][0]);
+                out.writeInt(gramPostings[g][1]);
+                g++;
+            }
+            for (int[] p : categoryPostings) {
+                out.writeInt(p[0]);
+                out.writeInt(p[1]);
+                out.writeInt(p[2]);
+            }
+            postings.writeTo(out);
+            mNamePool.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            /* renameTo does not replace existing files on all platforms */
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("cannot rename " + tmp);
+            }
+        }
+    }
+
+    /**
+     * Ascending entry ids, written as delta varints.
+     */
+    static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id)
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int write(ByteArrayOutputStream out) {
+            int offset = out.size();
+            int last = 0;
+            for (int i = 0; i < size; i++) {
+                int v = ids[i] - last;
+                last = ids[i];
+                while ((v & ~0x7f) != 0) {
+                    out.write((v & 0x7f) | 0x80);
+                    v >>>= 7;
+                }
+                out.write(v);
+            }
+            return offset;
+        }
+    }
+}
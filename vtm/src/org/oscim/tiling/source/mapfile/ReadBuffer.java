@@ -21,6 +21,8 @@ package org.oscim.tiling.source.mapfile;
 import org.oscim.core.Tag;
 import org.oscim.core.TagSet;
 import org.oscim.utils.Parameters;
+import org.oscim.utils.stats.TileStats;
+import org.oscim.utils.stats.TileStats.Stage;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -102,7 +104,10 @@ public class ReadBuffer {
 
         // reset the buffer position and read the data into the buffer
         // bufferPosition = 0;
-        return mInputChannel.read(mBufferWrapper) == length;
+        long start = TileStats.start();
+        boolean ok = mInputChannel.read(mBufferWrapper) == length;
+        TileStats.stop(Stage.IO, start);
+        return ok;
     }
 
     /**
@@ -138,10 +143,14 @@ public class ReadBuffer {
 
         // reset the buffer position and read the data into the buffer
         // bufferPosition = 0;
+        long start = TileStats.start();
+        boolean ok;
         synchronized (mInputChannel) {
             mInputChannel.position(offset);
-            return mInputChannel.read(mBufferWrapper) == length;
+            ok = mInputChannel.read(mBufferWrapper) == length;
         }
+        TileStats.stop(Stage.IO, start);
+        return ok;
     }
 
     /**
@@ -493,7 +502,8 @@ public class ReadBuffer {
                 } else if (value.charAt(1) == 's') {
                     value = readUTF8EncodedString();
                 }
-                tag = new Tag(tag.key, value);
+                // variable values are not added to TagDictionary
+                tag = new Tag(tag.key, value, false);
             }
             tags.add(tag);
         }
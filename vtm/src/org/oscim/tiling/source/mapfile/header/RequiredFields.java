@@ -19,6 +19,7 @@ package org.oscim.tiling.source.mapfile.header;
 
 import org.oscim.core.BoundingBox;
 import org.oscim.core.Tag;
+import org.oscim.core.TagDictionary;
 import org.oscim.tiling.TileSource.OpenResult;
 import org.oscim.tiling.source.mapfile.ReadBuffer;
 
@@ -180,6 +181,7 @@ final class RequiredFields {
             }
             poiTags[currentTagId] = Tag.parse(tag);
         }
+        TagDictionary.resolve(poiTags);
         mapFileInfoBuilder.poiTags = poiTags;
         return OpenResult.SUCCESS;
     }
@@ -236,6 +238,7 @@ final class RequiredFields {
             }
             wayTags[currentTagId] = Tag.parse(tag);
         }
+        TagDictionary.resolve(wayTags);
         mapFileInfoBuilder.wayTags = wayTags;
         return OpenResult.SUCCESS;
     }
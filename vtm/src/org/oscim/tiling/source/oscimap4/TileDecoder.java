@@ -21,6 +21,7 @@ package org.oscim.tiling.source.oscimap4;
 import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
 import org.oscim.core.Tag;
+import org.oscim.core.TagDictionary;
 import org.oscim.core.TagSet;
 import org.oscim.core.Tile;
 import org.oscim.tiling.ITileDataSink;
@@ -65,6 +66,16 @@ public class TileDecoder extends PbfDecoder {
     private static final int TAG_ELEM_COORDS = 13;
     private static final int TAG_ELEM_LAYER = 21;
 
+    private static final int[] KEY_IDS = new int[Tags.keys.length];
+    private static final int[] VALUE_IDS = new int[Tags.values.length];
+
+    static {
+        for (int i = 0; i < KEY_IDS.length; i++)
+            KEY_IDS[i] = TagDictionary.keyId(Tags.keys[i]);
+        for (int i = 0; i < VALUE_IDS.length; i++)
+            VALUE_IDS[i] = TagDictionary.registerValue(Tags.values[i]);
+    }
+
     private int[] mSArray = new int[100];
 
     private Tile mTile;
@@ -105,7 +116,7 @@ public class TileDecoder extends PbfDecoder {
         int curKey = 0;
         int curValue = 0;
 
-        String[] keys = null;
+        int[] keys = null;
         String[] values = null;
 
         while (hasData() && (val = decodeVarint32()) > 0) {
@@ -126,7 +137,7 @@ public class TileDecoder extends PbfDecoder {
                         log.fine(mTile + " wrong number of keys " + numKeys);
                         return false;
                     }
-                    keys[curKey++] = decodeString().intern();
+                    keys[curKey++] = TagDictionary.keyId(decodeString());
                     break;
 
                 case TAG_TILE_TAG_VALUES:
@@ -145,7 +156,7 @@ public class TileDecoder extends PbfDecoder {
                 case TAG_TILE_NUM_KEYS:
                     numKeys = decodeVarint32();
                     //log.debug("num keys " + numKeys);
-                    keys = new String[numKeys];
+                    keys = new int[numKeys];
                     break;
 
                 case TAG_TILE_NUM_VALUES:
@@ -184,34 +195,38 @@ public class TileDecoder extends PbfDecoder {
     }
 
     private boolean decodeTileTags(int numTags, int[] tagIdx,
-                                   String[] keys, String[] vals) {
+                                   int[] keys, String[] vals) {
 
         Tag tag;
         for (int i = 0, n = (numTags << 1); i < n; i += 2) {
             int k = tagIdx[i];
             int v = tagIdx[i + 1];
+            int keyId, valueId;
             String key, val;
 
             if (k < Tags.ATTRIB_OFFSET) {
                 if (k > Tags.MAX_KEY)
                     return false;
-                key = Tags.keys[k];
+                keyId = KEY_IDS[k];
             } else {
                 k -= Tags.ATTRIB_OFFSET;
                 if (k >= keys.length)
                     return false;
-                key = keys[k];
+                keyId = keys[k];
             }
+            key = TagDictionary.key(keyId);
 
             if (v < Tags.ATTRIB_OFFSET) {
                 if (v > Tags.MAX_VALUE)
                     return false;
                 val = Tags.values[v];
+                valueId = VALUE_IDS[v];
             } else {
                 v -= Tags.ATTRIB_OFFSET;
                 if (v >= vals.length)
                     return false;
                 val = vals[v];
+                valueId = TagDictionary.NONE;
             }
 
             // FIXME filter out all variable tags
@@ -225,8 +240,15 @@ public class TileDecoder extends PbfDecoder {
                     || Tag.KEY_MIN_HEIGHT.equals(key)) {
                 // Reformat values to established meters in OSM
                 tag = new Tag(key, String.valueOf(FastMath.round2(Float.valueOf(val) / 100)), false);
-            } else
-                tag = new Tag(key, val, false, true);
+            } else {
+                if (valueId == TagDictionary.NONE)
+                    valueId = TagDictionary.findValueId(val);
+
+                if (valueId == TagDictionary.NONE)
+                    tag = new Tag(key, val, false, true);
+                else
+                    tag = new Tag(keyId, valueId);
+            }
 
             mTileTags.add(tag);
         }
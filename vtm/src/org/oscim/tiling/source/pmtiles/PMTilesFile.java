@@ -0,0 +1,325 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.core.MapPosition;
+import org.oscim.tiling.source.MappedFile;
+import org.oscim.utils.LRUCache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read-only access to a PMTiles v3 archive.
+ * <p>
+ * The file is memory mapped in segments, reads are absolute and may run
+ * concurrently from all loader threads. Leaf directories are decoded once
+ * and kept in a small LRU cache.
+ * <p>
+ * See https://github.com/protomaps/PMTiles/blob/main/spec/v3/spec.md
+ */
+public class PMTilesFile {
+
+    public static final int COMPRESSION_UNKNOWN = 0;
+    public static final int COMPRESSION_NONE = 1;
+    public static final int COMPRESSION_GZIP = 2;
+    public static final int COMPRESSION_BROTLI = 3;
+    public static final int COMPRESSION_ZSTD = 4;
+
+    public static final int TYPE_UNKNOWN = 0;
+    public static final int TYPE_MVT = 1;
+    public static final int TYPE_PNG = 2;
+    public static final int TYPE_JPEG = 3;
+    public static final int TYPE_WEBP = 4;
+    public static final int TYPE_AVIF = 5;
+
+    private static final int HEADER_SIZE = 127;
+    private static final int MAX_DEPTH = 4;
+
+    /**
+     * Amount of leaf directories to keep decoded.
+     */
+    private static final int DIRECTORY_CACHE_SIZE = 64;
+
+    private final MappedFile mFile;
+
+    private final long mRootOffset;
+    private final long mRootLength;
+    private final long mMetadataOffset;
+    private final long mMetadataLength;
+    private final long mLeafOffset;
+    private final long mTileDataOffset;
+
+    private final int mInternalCompression;
+    private final int mTileCompression;
+    private final int mTileType;
+    private final int mMinZoom;
+    private final int mMaxZoom;
+    private final BoundingBox mBounds;
+    private final MapPosition mCenter;
+
+    private final Directory mRoot;
+    private final LRUCache<Long, Directory> mDirectories = new LRUCache<>(DIRECTORY_CACHE_SIZE);
+
+    public PMTilesFile(File file) throws IOException {
+        mFile = new MappedFile(file, ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (mFile.size() < HEADER_SIZE)
+                throw new IOException("not a PMTiles archive: " + file);
+
+            ByteBuffer h = mFile.read(0, HEADER_SIZE);
+            if (h.get(0) != 'P' || h.get(1) != 'M' || h.get(2) != 'T' || h.get(3) != 'i'
+                    || h.get(4) != 'l' || h.get(5) != 'e' || h.get(6) != 's')
+                throw new IOException("not a PMTiles archive: " + file);
+            if (h.get(7) != 3)
+                throw new IOException("unsupported PMTiles version: " + h.get(7));
+
+            mRootOffset = h.getLong(8);
+            mRootLength = h.getLong(16);
+            mMetadataOffset = h.getLong(24);
+            mMetadataLength = h.getLong(32);
+            mLeafOffset = h.getLong(40);
+            mTileDataOffset = h.getLong(56);
+            mInternalCompression = h.get(97);
+            mTileCompression = h.get(98);
+            mTileType = h.get(99);
+            mMinZoom = h.get(100) & 0xff;
+            mMaxZoom = h.get(101) & 0xff;
+            mBounds = new BoundingBox(h.getInt(106) / 1e7, h.getInt(102) / 1e7,
+                    h.getInt(114) / 1e7, h.getInt(110) / 1e7);
+            mCenter = new MapPosition(h.getInt(123) / 1e7, h.getInt(119) / 1e7,
+                    1 << (h.get(118) & 0xff));
+
+            mRoot = readDirectory(mRootOffset, mRootLength);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public void close() {
+        mFile.close();
+    }
+
+    public int getTileType() {
+        return mTileType;
+    }
+
+    public int getTileCompression() {
+        return mTileCompression;
+    }
+
+    public int getInternalCompression() {
+        return mInternalCompression;
+    }
+
+    public int getMinZoom() {
+        return mMinZoom;
+    }
+
+    public int getMaxZoom() {
+        return mMaxZoom;
+    }
+
+    public BoundingBox getBounds() {
+        return mBounds;
+    }
+
+    public MapPosition getCenter() {
+        return mCenter;
+    }
+
+    /**
+     * @return the JSON metadata of the archive.
+     */
+    public String getMetadata() throws IOException {
+        InputStream is = decompress(mFile.read(mMetadataOffset, mMetadataLength), mInternalCompression);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) != -1)
+            out.write(buf, 0, n);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * @return the tile data as stored in the archive, i.e. still compressed
+     * with the tile compression, or null when the tile does not exist.
+     */
+    public ByteBuffer getTile(int zoom, int x, int y) throws IOException {
+        long tileId = tileId(zoom, x, y);
+        Directory dir = mRoot;
+
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            int i = dir.find(tileId);
+            if (i < 0)
+                return null;
+
+            if (dir.runLengths[i] > 0) {
+                if (tileId - dir.tileIds[i] >= dir.runLengths[i])
+                    return null;
+                return mFile.read(mTileDataOffset + dir.offsets[i], dir.lengths[i]);
+            }
+            dir = leafDirectory(mLeafOffset + dir.offsets[i], dir.lengths[i]);
+        }
+        return null;
+    }
+
+    /**
+     * @return a stream of the decompressed tile data, or null when the tile
+     * does not exist.
+     */
+    public InputStream getTileStream(int zoom, int x, int y) throws IOException {
+        ByteBuffer data = getTile(zoom, x, y);
+        if (data == null)
+            return null;
+        return decompress(data, mTileCompression);
+    }
+
+    private Directory leafDirectory(long offset, long length) throws IOException {
+        Directory dir;
+        synchronized (mDirectories) {
+            dir = mDirectories.get(offset);
+        }
+        if (dir == null) {
+            /* concurrent misses may decode the same directory twice,
+             * which is cheaper than holding the lock while reading */
+            dir = readDirectory(offset, length);
+            synchronized (mDirectories) {
+                mDirectories.put(offset, dir);
+            }
+        }
+        return dir;
+    }
+
+    private Directory readDirectory(long offset, long length) throws IOException {
+        InputStream is = decompress(mFile.read(offset, length), mInternalCompression);
+        if (mInternalCompression == COMPRESSION_GZIP)
+            is = new BufferedInputStream(is);
+
+        int n = (int) readVarint(is);
+        Directory dir = new Directory(n);
+
+        long tileId = 0;
+        for (int i = 0; i < n; i++) {
+            tileId += readVarint(is);
+            dir.tileIds[i] = tileId;
+        }
+        for (int i = 0; i < n; i++)
+            dir.runLengths[i] = (int) readVarint(is);
+        for (int i = 0; i < n; i++)
+            dir.lengths[i] = (int) readVarint(is);
+        for (int i = 0; i < n; i++) {
+            long v = readVarint(is);
+            if (v == 0 && i > 0)
+                dir.offsets[i] = dir.offsets[i - 1] + dir.lengths[i - 1];
+            else
+                dir.offsets[i] = v - 1;
+        }
+        return dir;
+    }
+
+    private static InputStream decompress(ByteBuffer data, int compression) throws IOException {
+        InputStream is = new ByteBufferInputStream(data);
+        switch (compression) {
+            case COMPRESSION_NONE:
+            case COMPRESSION_UNKNOWN:
+                return is;
+            case COMPRESSION_GZIP:
+                return new GZIPInputStream(is);
+            default:
+                throw new IOException("unsupported PMTiles compression: " + compression);
+        }
+    }
+
+    private static long readVarint(InputStream is) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = is.read();
+            if (b < 0)
+                throw new EOFException();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * @return the Hilbert curve based tile id.
+     */
+    static long tileId(int zoom, int x, int y) {
+        long acc = ((1L << (2 * zoom)) - 1) / 3;
+        long d = 0;
+        for (int s = (1 << zoom) >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return acc + d;
+    }
+
+    static final class Directory {
+        final long[] tileIds;
+        final int[] runLengths;
+        final int[] lengths;
+        final long[] offsets;
+
+        Directory(int size) {
+            tileIds = new long[size];
+            runLengths = new int[size];
+            lengths = new int[size];
+            offsets = new long[size];
+        }
+
+        /**
+         * @return the index of the last entry with a tile id less or equal
+         * to the given one, or -1.
+         */
+        int find(long tileId) {
+            int lo = 0, hi = tileIds.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long id = tileIds[mid];
+                if (id < tileId)
+                    lo = mid + 1;
+                else if (id > tileId)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return hi;
+        }
+    }
+}
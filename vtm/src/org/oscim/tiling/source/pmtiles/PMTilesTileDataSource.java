@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.ITileDecoder;
+
+import java.io.InputStream;
+import java.util.logging.Logger;
+
+/**
+ * A tile data source for PMTiles archives. The archive is shared by all
+ * data sources of a {@link PMTilesTileSource}, decoders are per instance.
+ */
+public class PMTilesTileDataSource implements ITileDataSource {
+    private static final Logger log = Logger.getLogger(PMTilesTileDataSource.class.getName());
+
+    private final PMTilesFile mFile;
+    private final ITileDecoder mDecoder;
+
+    public PMTilesTileDataSource(PMTilesFile file, ITileDecoder decoder) {
+        mFile = file;
+        mDecoder = decoder;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        QueryResult res = QueryResult.FAILED;
+        try {
+            InputStream is = mFile.getTileStream(tile.zoomLevel, tile.tileX, tile.tileY);
+            if (is == null)
+                res = QueryResult.TILE_NOT_FOUND;
+            else if (mDecoder.decode(tile, sink, is))
+                res = QueryResult.SUCCESS;
+        } catch (Exception e) {
+            log.fine(tile + " " + e);
+        } finally {
+            sink.completed(res);
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.TileSource;
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * A tile source for PMTiles v3 archives, without SQLite dependency.
+ * <p>
+ * Raster archives are decoded as bitmaps. For vector archives override
+ * {@link #createDecoder(int)}, e.g. with the decoder from vtm-mvt.
+ */
+public class PMTilesTileSource extends TileSource {
+    private static final Logger log = Logger.getLogger(PMTilesTileSource.class.getName());
+
+    private PMTilesFile mFile;
+
+    public PMTilesTileSource() {
+        this(Viewport.MIN_ZOOM_LEVEL, Viewport.MAX_ZOOM_LEVEL);
+    }
+
+    public PMTilesTileSource(int zoomMin, int zoomMax) {
+        super(zoomMin, zoomMax);
+    }
+
+    public PMTilesTileSource(String filename) {
+        this();
+        setPMTilesFile(filename);
+    }
+
+    public boolean setPMTilesFile(String filename) {
+        setOption("file", filename);
+
+        File file = new File(filename);
+        return file.isFile() && file.canRead();
+    }
+
+    /**
+     * @return the opened archive or null.
+     */
+    public PMTilesFile getPMTilesFile() {
+        return mFile;
+    }
+
+    /**
+     * @param tileType one of the PMTilesFile.TYPE_* constants.
+     * @return a new decoder for the tile type or null when not supported.
+     */
+    protected ITileDecoder createDecoder(int tileType) {
+        switch (tileType) {
+            case PMTilesFile.TYPE_PNG:
+            case PMTilesFile.TYPE_JPEG:
+            case PMTilesFile.TYPE_WEBP:
+                return new BitmapTileSource.TileDecoder();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public OpenResult open() {
+        if (!options.containsKey("file"))
+            return new OpenResult("no PMTiles file set");
+
+        File file = new File(options.get("file"));
+        if (!file.exists())
+            return new OpenResult("file does not exist: " + file);
+
+        try {
+            mFile = new PMTilesFile(file);
+        } catch (IOException e) {
+            log.severe(e.toString());
+            return new OpenResult(e.toString());
+        }
+
+        int compression = mFile.getTileCompression();
+        if (compression != PMTilesFile.COMPRESSION_NONE
+                && compression != PMTilesFile.COMPRESSION_GZIP
+                && compression != PMTilesFile.COMPRESSION_UNKNOWN) {
+            close();
+            return new OpenResult("unsupported tile compression: " + compression);
+        }
+        if (createDecoder(mFile.getTileType()) == null) {
+            int type = mFile.getTileType();
+            close();
+            return new OpenResult("unsupported tile type: " + type);
+        }
+
+        if (mFile.getTileType() == PMTilesFile.TYPE_MVT)
+            mOverZoom = Math.min(mOverZoom, mFile.getMaxZoom());
+        else
+            mZoomMax = Math.min(mZoomMax, mFile.getMaxZoom());
+
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        ITileDataSource dataSource = new PMTilesTileDataSource(mFile, createDecoder(mFile.getTileType()));
+        if (mFile.getTileType() == PMTilesFile.TYPE_MVT)
+            return new OverzoomTileDataSource(dataSource, mOverZoom);
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        if (mFile != null) {
+            mFile.close();
+            mFile = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import org.oscim.core.Box;
+import org.oscim.core.Point;
+
+import java.util.List;
+
+/**
+ * Holds a {@link PackedRTree} that is replaced as a whole on changes.
+ * <p>
+ * Readers use the current tree without locking, while a writer builds the
+ * next one. Single {@link #insert} and {@link #remove} calls rebuild the tree
+ * and take O(n log n), prefer {@link #set} with a tree built from all changes.
+ */
+public class CopyOnWriteSpatialIndex<T> implements SpatialIndex<T> {
+
+    private volatile PackedRTree<T> mIndex;
+
+    public CopyOnWriteSpatialIndex() {
+        mIndex = new PackedRTree.Builder<T>(1).build();
+    }
+
+    public CopyOnWriteSpatialIndex(PackedRTree<T> index) {
+        mIndex = index;
+    }
+
+    /**
+     * @return the current tree, unaffected by later changes.
+     */
+    public PackedRTree<T> get() {
+        return mIndex;
+    }
+
+    /**
+     * Replace the tree, searches running on the previous one complete there.
+     */
+    public synchronized void set(PackedRTree<T> index) {
+        mIndex = index;
+    }
+
+    @Override
+    public synchronized void insert(Box box, T item) {
+        PackedRTree<T> index = mIndex;
+        PackedRTree.Builder<T> builder = copy(index, index.size() + 1, null);
+        builder.add(box, item);
+        mIndex = builder.build();
+    }
+
+    @Override
+    public synchronized boolean remove(Box box, T item) {
+        PackedRTree<T> index = mIndex;
+        for (int i = 0, n = index.size(); i < n; i++) {
+            if (index.getItem(i) == item) {
+                mIndex = copy(index, n - 1, item).build();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> PackedRTree.Builder<T> copy(PackedRTree<T> index, int capacity, T skip) {
+        PackedRTree.Builder<T> builder = new PackedRTree.Builder<>(capacity);
+        Box box = new Box();
+        for (int i = 0, n = index.size(); i < n; i++) {
+            T item = index.getItem(i);
+            if (item == skip) {
+                skip = null;
+                continue;
+            }
+            builder.add(index.getBox(i, box), item);
+        }
+        return builder;
+    }
+
+    @Override
+    public List<T> search(Box bbox, List<T> results) {
+        return mIndex.search(bbox, results);
+    }
+
+    @Override
+    public boolean search(Box bbox, SearchCb<T> cb, Object context) {
+        return mIndex.search(bbox, cb, context);
+    }
+
+    @Override
+    public List<T> searchKNearestNeighbors(Point center, int k, double maxDistance, List<T> results) {
+        return mIndex.searchKNearestNeighbors(center, k, maxDistance, results);
+    }
+
+    @Override
+    public void searchKNearestNeighbors(Point center, int k, double maxDistance, SearchCb<T> cb, Object context) {
+        mIndex.searchKNearestNeighbors(center, k, maxDistance, cb, context);
+    }
+
+    @Override
+    public int size() {
+        return mIndex.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        mIndex = new PackedRTree.Builder<T>(1).build();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive longs, without boxing or entry
+ * objects. The value 0 is stored out of band.
+ */
+public class LongHashSet {
+
+    private long[] mKeys;
+    private int mMask;
+    private int mSize;
+    private boolean mHasZero;
+
+    public LongHashSet() {
+        this(64);
+    }
+
+    public LongHashSet(int capacity) {
+        int size = 16;
+        while (size < capacity * 2)
+            size <<= 1;
+        mKeys = new long[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * @return true if the value was not yet in the set.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (mHasZero)
+                return false;
+            mHasZero = true;
+            mSize++;
+            return true;
+        }
+        int i = slot(value);
+        while (mKeys[i] != 0) {
+            if (mKeys[i] == value)
+                return false;
+            i = (i + 1) & mMask;
+        }
+        mKeys[i] = value;
+        if (++mSize * 2 > mKeys.length)
+            grow();
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0)
+            return mHasZero;
+        int i = slot(value);
+        while (mKeys[i] != 0) {
+            if (mKeys[i] == value)
+                return true;
+            i = (i + 1) & mMask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        if (mSize == 0)
+            return;
+        Arrays.fill(mKeys, 0);
+        mHasZero = false;
+        mSize = 0;
+    }
+
+    private int slot(long value) {
+        long h = value * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mMask;
+    }
+
+    private void grow() {
+        long[] keys = mKeys;
+        mKeys = new long[keys.length << 1];
+        mMask = mKeys.length - 1;
+        for (long k : keys) {
+            if (k == 0)
+                continue;
+            int i = slot(k);
+            while (mKeys[i] != 0)
+                i = (i + 1) & mMask;
+            mKeys[i] = k;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import org.oscim.core.Box;
+import org.oscim.core.Point;
+import org.oscim.utils.SpatialIndex.SearchCb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, bulk loaded R-tree for static data sets.
+ * <p>
+ * Items are sorted along a Hilbert curve and packed into nodes of
+ * {@link #NODE_SIZE} entries. All boxes are stored in one flat array and
+ * the tree needs no node objects, see https://github.com/mourner/flatbush
+ * <p>
+ * Searches are thread-safe and do not allocate. Use {@link Builder} to
+ * create a tree. The tree can not be modified and is no
+ * {@link SpatialIndex}, {@link CopyOnWriteSpatialIndex} implements one by
+ * replacing the tree while other threads read.
+ */
+public class PackedRTree<T> {
+
+    public static final int NODE_SIZE = 16;
+
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    /**
+     * Collects items for a {@link PackedRTree}.
+     */
+    public static class Builder<T> {
+        private double[] boxes;
+        private Object[] items;
+        private int size;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            boxes = new double[capacity * 4];
+            items = new Object[capacity];
+        }
+
+        public Builder<T> add(Box box, T item) {
+            return add(box.xmin, box.ymin, box.xmax, box.ymax, item);
+        }
+
+        public Builder<T> add(double xmin, double ymin, double xmax, double ymax, T item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                boxes = Arrays.copyOf(boxes, size * 8);
+            }
+            int p = size * 4;
+            boxes[p] = xmin;
+            boxes[p + 1] = ymin;
+            boxes[p + 2] = xmax;
+            boxes[p + 3] = ymax;
+            items[size++] = item;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PackedRTree<T> build() {
+            return new PackedRTree<>(boxes, items, size);
+        }
+    }
+
+    /* boxes of all nodes, leaves first, 4 values each */
+    private final double[] mBoxes;
+
+    /* leaves: item id, other nodes: index of the first child */
+    private final int[] mIndices;
+
+    /* end of each level in nodes */
+    private final int[] mLevelBounds;
+
+    private final Object[] mItems;
+    private final int mSize;
+
+    private static final ThreadLocal<KnnQueue> sKnnQueue = new ThreadLocal<KnnQueue>() {
+        @Override
+        protected KnnQueue initialValue() {
+            return new KnnQueue();
+        }
+    };
+
+    PackedRTree(double[] boxes, Object[] items, int size) {
+        mSize = size;
+        mItems = Arrays.copyOf(items, size);
+
+        /* count nodes per level */
+        int n = size;
+        int numNodes = n;
+        int[] levelBounds = new int[16];
+        int levels = 0;
+        levelBounds[levels++] = numNodes;
+        while (n > 1) {
+            n = (n + NODE_SIZE - 1) / NODE_SIZE;
+            numNodes += n;
+            levelBounds[levels++] = numNodes;
+        }
+        mLevelBounds = Arrays.copyOf(levelBounds, levels);
+
+        mBoxes = new double[numNodes * 4];
+        mIndices = new int[numNodes];
+        System.arraycopy(boxes, 0, mBoxes, 0, size * 4);
+        for (int i = 0; i < size; i++)
+            mIndices[i] = i;
+
+        if (size == 0)
+            return;
+
+        /* sort leaves by the Hilbert value of their center */
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < size * 4; i += 4) {
+            minX = Math.min(minX, mBoxes[i]);
+            minY = Math.min(minY, mBoxes[i + 1]);
+            maxX = Math.max(maxX, mBoxes[i + 2]);
+            maxY = Math.max(maxY, mBoxes[i + 3]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        if (width == 0)
+            width = 1;
+        if (height == 0)
+            height = 1;
+
+        int[] hilbert = new int[size];
+        for (int i = 0, p = 0; i < size; i++, p += 4) {
+            int x = (int) (HILBERT_MAX * ((mBoxes[p] + mBoxes[p + 2]) / 2 - minX) / width);
+            int y = (int) (HILBERT_MAX * ((mBoxes[p + 1] + mBoxes[p + 3]) / 2 - minY) / height);
+            hilbert[i] = hilbert(x, y);
+        }
+        sort(hilbert, 0, size - 1);
+
+        /* build parent nodes level by level */
+        for (int l = 0, pos = 0; l < levels - 1; l++) {
+            int end = mLevelBounds[l];
+            int parent = end;
+            while (pos < end) {
+                int first = pos;
+                double nminX = Double.MAX_VALUE, nminY = Double.MAX_VALUE;
+                double nmaxX = -Double.MAX_VALUE, nmaxY = -Double.MAX_VALUE;
+                for (int j = 0; j < NODE_SIZE && pos < end; j++, pos++) {
+                    int p = pos * 4;
+                    nminX = Math.min(nminX, mBoxes[p]);
+                    nminY = Math.min(nminY, mBoxes[p + 1]);
+                    nmaxX = Math.max(nmaxX, mBoxes[p + 2]);
+                    nmaxY = Math.max(nmaxY, mBoxes[p + 3]);
+                }
+                int p = parent * 4;
+                mBoxes[p] = nminX;
+                mBoxes[p + 1] = nminY;
+                mBoxes[p + 2] = nmaxX;
+                mBoxes[p + 3] = nmaxY;
+                mIndices[parent++] = first;
+            }
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @param position the leaf position in [0..size), in Hilbert order.
+     */
+    @SuppressWarnings("unchecked")
+    public T getItem(int position) {
+        return (T) mItems[mIndices[position]];
+    }
+
+    /**
+     * @param position the leaf position in [0..size), in Hilbert order.
+     */
+    public Box getBox(int position, Box out) {
+        int p = position * 4;
+        out.xmin = mBoxes[p];
+        out.ymin = mBoxes[p + 1];
+        out.xmax = mBoxes[p + 2];
+        out.ymax = mBoxes[p + 3];
+        return out;
+    }
+
+    /**
+     * @return the items with boxes intersecting bbox, added to results.
+     */
+    public List<T> search(Box bbox, List<T> results) {
+        if (results == null)
+            results = new ArrayList<>(16);
+        final List<T> out = results;
+        search(bbox, new SearchCb<T>() {
+            @Override
+            public boolean call(T item, Object context) {
+                out.add(item);
+                return true;
+            }
+        }, null);
+        return results;
+    }
+
+    /**
+     * Call cb for the items with boxes intersecting bbox.
+     *
+     * @return false when cb stopped the search.
+     */
+    public boolean search(Box bbox, SearchCb<T> cb, Object context) {
+        if (mSize == 0)
+            return true;
+        int root = mBoxes.length / 4 - 1;
+        return search(root, mLevelBounds.length - 1,
+                bbox.xmin, bbox.ymin, bbox.xmax, bbox.ymax, cb, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean search(int node, int level, double minX, double minY, double maxX,
+                           double maxY, SearchCb<T> cb, Object context) {
+        int first = level == 0 ? node : mIndices[node];
+        int count = level == 0 ? 1 : childCount(node, level);
+
+        for (int pos = first, end = first + count; pos < end; pos++) {
+            int p = pos * 4;
+            if (maxX < mBoxes[p] || maxY < mBoxes[p + 1]
+                    || minX > mBoxes[p + 2] || minY > mBoxes[p + 3])
+                continue;
+
+            if (level <= 1) {
+                if (!cb.call((T) mItems[mIndices[pos]], context))
+                    return false;
+            } else if (!search(pos, level - 1, minX, minY, maxX, maxY, cb, context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int childCount(int node, int level) {
+        int first = mIndices[node];
+        int end = mLevelBounds[level - 1];
+        return Math.min(NODE_SIZE, end - first);
+    }
+
+    /**
+     * @return the k nearest items by increasing distance, added to results.
+     */
+    public List<T> searchKNearestNeighbors(Point center, int k, double maxDistance, List<T> results) {
+        if (results == null)
+            results = new ArrayList<>(k);
+        final List<T> out = results;
+        searchKNearestNeighbors(center, k, maxDistance, new SearchCb<T>() {
+            @Override
+            public boolean call(T item, Object context) {
+                out.add(item);
+                return true;
+            }
+        }, null);
+        return results;
+    }
+
+    /**
+     * Best-first search of the k nearest items by distance to their box.
+     * The callback receives the items by increasing distance.
+     */
+    public void searchKNearestNeighbors(Point center, int k, double maxDistance,
+                                        SearchCb<T> cb, Object context) {
+        if (mSize == 0 || k <= 0)
+            return;
+
+        KnnQueue queue = sKnnQueue.get();
+        if (queue.busy)
+            queue = new KnnQueue();
+        queue.busy = true;
+        try {
+            searchKNearestNeighbors(queue, center.x, center.y, k,
+                    maxDistance * maxDistance, cb, context);
+        } finally {
+            queue.clear();
+            queue.busy = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void searchKNearestNeighbors(KnnQueue queue, double x, double y, int k,
+                                         double maxDistSq, SearchCb<T> cb, Object context) {
+        int level = mLevelBounds.length - 1;
+        int node = mBoxes.length / 4 - 1;
+        int found = 0;
+
+        while (true) {
+            /* leaves have level 0, their ids are pushed as -(pos + 1) */
+            int first = level == 0 ? node : mIndices[node];
+            int count = level == 0 ? 1 : childCount(node, level);
+            for (int pos = first, end = first + count; pos < end; pos++) {
+                double d = distSq(pos, x, y);
+                if (d > maxDistSq)
+                    continue;
+                if (level <= 1)
+                    queue.push(-(pos + 1), 0, d);
+                else
+                    queue.push(pos, level - 1, d);
+            }
+
+            while (queue.size > 0 && queue.peekId() < 0) {
+                int pos = -queue.peekId() - 1;
+                queue.pop();
+                if (!cb.call((T) mItems[mIndices[pos]], context) || ++found == k)
+                    return;
+            }
+            if (queue.size == 0)
+                return;
+
+            node = queue.peekId();
+            level = queue.peekLevel();
+            queue.pop();
+        }
+    }
+
+    private double distSq(int pos, double x, double y) {
+        int p = pos * 4;
+        double dx = x < mBoxes[p] ? mBoxes[p] - x : x > mBoxes[p + 2] ? x - mBoxes[p + 2] : 0;
+        double dy = y < mBoxes[p + 1] ? mBoxes[p + 1] - y : y > mBoxes[p + 3] ? y - mBoxes[p + 3] : 0;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Binary min-heap of node ids, levels and distances in flat arrays.
+     */
+    static final class KnnQueue {
+        int[] ids = new int[64];
+        int[] levels = new int[64];
+        double[] values = new double[64];
+        int size;
+
+        /* set while a search on this thread uses the queue */
+        boolean busy;
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(int id, int level, double value) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >> 1;
+                if (values[parent] <= value)
+                    break;
+                ids[pos] = ids[parent];
+                levels[pos] = levels[parent];
+                values[pos] = values[parent];
+                pos = parent;
+            }
+            ids[pos] = id;
+            levels[pos] = level;
+            values[pos] = value;
+        }
+
+        int peekId() {
+            return ids[0];
+        }
+
+        int peekLevel() {
+            return levels[0];
+        }
+
+        void pop() {
+            if (--size <= 0) {
+                size = Math.max(size, 0);
+                return;
+            }
+            int id = ids[size];
+            int level = levels[size];
+            double value = values[size];
+            int pos = 0;
+            int half = size >> 1;
+            while (pos < half) {
+                int child = (pos << 1) + 1;
+                int right = child + 1;
+                if (right < size && values[right] < values[child])
+                    child = right;
+                if (values[child] >= value)
+                    break;
+                ids[pos] = ids[child];
+                levels[pos] = levels[child];
+                values[pos] = values[child];
+                pos = child;
+            }
+            ids[pos] = id;
+            levels[pos] = level;
+            values[pos] = value;
+        }
+    }
+
+    /**
+     * Quicksort of the leaves by Hilbert value.
+     */
+    private void sort(int[] values, int left, int right) {
+        while (left < right) {
+            int pivot = values[(left + right) >> 1];
+            int i = left - 1;
+            int j = right + 1;
+            while (true) {
+                do i++; while (values[i] < pivot);
+                do j--; while (values[j] > pivot);
+                if (i >= j)
+                    break;
+                swap(values, i, j);
+            }
+            /* recurse into the smaller part */
+            if (j - left < right - j) {
+                sort(values, left, j);
+                left = j + 1;
+            } else {
+                sort(values, j + 1, right);
+                right = j;
+            }
+        }
+    }
+
+    private void swap(int[] values, int i, int j) {
+        int v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+
+        int id = mIndices[i];
+        mIndices[i] = mIndices[j];
+        mIndices[j] = id;
+
+        int a = i * 4;
+        int b = j * 4;
+        for (int k = 0; k < 4; k++) {
+            double t = mBoxes[a + k];
+            mBoxes[a + k] = mBoxes[b + k];
+            mBoxes[b + k] = t;
+        }
+    }
+
+    /**
+     * Hilbert curve index of x, y in [0..65535], see
+     * https://github.com/rawrunprotected/hilbert_curves
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+        B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+        C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+        D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+        B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+        C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+        D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+        D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+}
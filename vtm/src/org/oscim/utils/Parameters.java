@@ -58,6 +58,11 @@ public final class Parameters {
      */
     public static int MAXIMUM_BUFFER_SIZE = 10000000;
 
+    /**
+     * Join lines with the same style which share an end point, per tile.
+     */
+    public static boolean MERGE_LINES = false;
+
     /**
      * Calculation of centroids for all polygons.
      * (may affect performance)
@@ -113,11 +118,38 @@ public final class Parameters {
      */
     public static boolean TEXTURE_ATLAS = false;
 
+    /**
+     * Threads to load the symbols of a theme in parallel while it is parsed,
+     * 0 to load them one after the other on the parsing thread.
+     */
+    public static int THEME_ASSET_THREADS = 0;
+
     /**
      * Threaded system initialization.
      */
     public static boolean THREADED_INIT = false;
 
+    /**
+     * Threads shared by the loaders of all tile layers, -1 for the number of
+     * available processors, 0 to run own loader threads per layer.
+     */
+    public static int TILE_LOADER_THREADS = 0;
+
+    /**
+     * Threads to build the buckets of vector tiles with many elements in
+     * parallel, -1 for the number of available processors, 0 to build them
+     * on the loader thread. See
+     * {@link org.oscim.layers.tile.vector.VectorTileLoader#PARALLEL_MIN_ELEMENTS}.
+     */
+    public static int TILE_BUILD_THREADS = 0;
+
+    /**
+     * Limit the tile caches by memory budgets derived from the maximum heap
+     * size instead of by the number of tiles, see
+     * {@link org.oscim.layers.tile.TileManager#setMemoryBudget(long, long)}.
+     */
+    public static boolean TILE_MEMORY_BUDGET = false;
+
     private Parameters() {
         throw new IllegalStateException();
     }
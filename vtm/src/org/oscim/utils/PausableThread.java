@@ -149,6 +149,32 @@ public abstract class PausableThread extends Thread {
         afterRun();
     }
 
+    /**
+     * Does one unit of work on the calling thread, for instances which are not
+     * started but driven by a shared executor. {@link #isPausing()} is true
+     * whenever no work is in progress.
+     *
+     * @return false if this thread is paused, finished or has no work.
+     */
+    public final boolean runOnce() {
+        synchronized (this) {
+            if (mShouldStop || mShouldPause || !hasWork())
+                return false;
+            mPausing = false;
+        }
+        try {
+            doWork();
+        } catch (InterruptedException e) {
+            if (dbg)
+                log.fine("Interrupted " + getThreadName());
+        } finally {
+            synchronized (this) {
+                mPausing = true;
+            }
+        }
+        return true;
+    }
+
     /**
      * Called once when this thread continues to work after a pause. The default
      * implementation is empty.
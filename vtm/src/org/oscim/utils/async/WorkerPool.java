@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.async;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of daemon threads for work that a loader thread splits
+ * into parts, e.g. theme symbols, hillshading rows or the buckets of
+ * dense tiles. The pool has one thread per processor, the number of
+ * parts is chosen by the caller. Parts must not wait for other parts.
+ */
+public final class WorkerPool {
+
+    private static final long KEEP_ALIVE = 30;
+
+    private static ExecutorService sPool;
+
+    /**
+     * @return the shared pool, idle threads are stopped after a while.
+     */
+    public static synchronized ExecutorService get() {
+        if (sPool == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    threadFactory("VtmWorker"));
+            pool.allowCoreThreadTimeOut(true);
+            sPool = pool;
+        }
+        return sPool;
+    }
+
+    /**
+     * @return a factory of daemon threads with lowered priority, for
+     * modules which need a pool of their own.
+     */
+    public static ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + mCount.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority((Thread.NORM_PRIORITY + Thread.MIN_PRIORITY) / 2);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Wait for all parts. Interrupts are not handled before all parts are
+     * done, as they still use the buffers of the caller, and the interrupt
+     * flag is restored afterwards.
+     *
+     * @return the first failure of a part or null.
+     */
+    public static Throwable awaitAll(List<? extends Future<?>> parts) {
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (Future<?> part : parts) {
+            while (true) {
+                try {
+                    part.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (CancellationException e) {
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause();
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return failure;
+    }
+
+    private WorkerPool() {
+        throw new IllegalStateException();
+    }
+}
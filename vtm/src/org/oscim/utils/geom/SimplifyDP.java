@@ -55,7 +55,7 @@ public class SimplifyDP {
             if (end > inPos + len)
                 log.severe("out larger than cur: " + end + " > " + (inPos + len));
 
-            idx[i] = (short) (end - outPos);
+            idx[i] = end - outPos;
             outPos = end;
             inPos += len;
         }
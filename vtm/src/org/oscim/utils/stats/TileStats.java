@@ -0,0 +1,298 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This file is part of the OpenScienceMap project (http://www.opensciencemap.org).
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.stats;
+
+import org.oscim.core.Tile;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Low-overhead instrumentation of the tile pipeline.
+ * <p>
+ * Disabled by default, then every call returns after testing one flag.
+ * Stages of a tile loaded by a TileLoader are accumulated per thread between
+ * {@link #beginTile()} and {@link #endTile(Tile)}, so that e.g. the time
+ * spent in theme matching is recorded once per tile. Stages of the GL and
+ * label threads are recorded directly with {@link #record(Stage, long)}.
+ */
+public final class TileStats {
+
+    public enum Stage {
+        /**
+         * Data source I/O, e.g. map file block reads.
+         */
+        IO,
+        /**
+         * Data source query without the nested IO, MATCH, BUILD and PREPARE stages.
+         */
+        DECODE,
+        /**
+         * Render theme matching.
+         */
+        MATCH,
+        /**
+         * Adding elements to render buckets.
+         */
+        BUILD,
+        /**
+         * RenderBuckets.prepare(), e.g. tessellation.
+         */
+        PREPARE,
+        /**
+         * Compiling and uploading RenderBuckets to GL.
+         */
+        UPLOAD,
+        /**
+         * Label placement.
+         */
+        LABEL
+    }
+
+    public enum Cache {
+        /**
+         * Map file index cache.
+         */
+        INDEX,
+        /**
+         * Render theme style cache.
+         */
+        STYLE,
+        /**
+         * TileManager tile cache.
+         */
+        TILE
+    }
+
+    public enum Gauge {
+        /**
+         * Tiles waiting for a TileLoader.
+         */
+        JOB_QUEUE,
+        /**
+         * Loaded tiles waiting for upload to GL.
+         */
+        UPLOAD_QUEUE,
+        /**
+         * Bytes allocated in VBOs.
+         */
+        VBO_BYTES,
+        /**
+         * Estimated bytes of cached tiles in the Java heap, of the layers
+         * with memory budget.
+         */
+        TILE_HEAP_BYTES,
+        /**
+         * Estimated bytes of cached tiles in GL memory, of the layers with
+         * memory budget.
+         */
+        TILE_GPU_BYTES
+    }
+
+    public interface Listener {
+        /**
+         * Called on the loader thread when a tile was loaded.
+         *
+         * @param tile       the tile.
+         * @param stageNanos the time spent in each stage in ns,
+         *                   indexed by {@link Stage#ordinal()}.
+         */
+        void onTileLoaded(Tile tile, long[] stageNanos);
+    }
+
+    private static final int NUM_STAGES = Stage.values().length;
+
+    private static volatile boolean sEnabled;
+    private static volatile Listener sListener;
+
+    private static final Histogram[] sHistograms = new Histogram[NUM_STAGES];
+    private static final AtomicLongArray sHits = new AtomicLongArray(Cache.values().length);
+    private static final AtomicLongArray sMisses = new AtomicLongArray(Cache.values().length);
+    private static final AtomicLongArray sGauges = new AtomicLongArray(Gauge.values().length);
+
+    private static final ThreadLocal<long[]> sTileTimes = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[NUM_STAGES];
+        }
+    };
+
+    static {
+        for (int i = 0; i < NUM_STAGES; i++)
+            sHistograms[i] = new Histogram();
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static void setListener(Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @return the start time for {@link #stop(Stage, long)}, or 0 when disabled.
+     */
+    public static long start() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time since start to the current tile of this thread.
+     */
+    public static void stop(Stage stage, long start) {
+        if (start == 0)
+            return;
+        sTileTimes.get()[stage.ordinal()] += System.nanoTime() - start;
+    }
+
+    /**
+     * @return the times of a part of a tile built on another thread, for
+     * {@link #stop(long[], Stage, long)}.
+     */
+    public static long[] newPart() {
+        return new long[NUM_STAGES];
+    }
+
+    /**
+     * Add the time since start to the times of a part.
+     */
+    public static void stop(long[] part, Stage stage, long start) {
+        if (start == 0)
+            return;
+        part[stage.ordinal()] += System.nanoTime() - start;
+    }
+
+    /**
+     * Add the time since start to the current tile of this thread, split
+     * into stages in the ratio of the times of the parts. The parts ran in
+     * parallel, so their sum may exceed the elapsed time.
+     */
+    public static void stopParts(long start, long[]... parts) {
+        if (start == 0)
+            return;
+        long elapsed = System.nanoTime() - start;
+        long sum = 0;
+        for (long[] part : parts) {
+            for (int i = 0; i < NUM_STAGES; i++)
+                sum += part[i];
+        }
+        if (sum == 0)
+            return;
+
+        long[] times = sTileTimes.get();
+        for (long[] part : parts) {
+            for (int i = 0; i < NUM_STAGES; i++)
+                times[i] += (long) ((double) part[i] / sum * elapsed);
+        }
+    }
+
+    /**
+     * Record the time since start directly.
+     */
+    public static void record(Stage stage, long start) {
+        if (start == 0)
+            return;
+        sHistograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Start accumulating stages of a tile on this thread.
+     */
+    public static void beginTile() {
+        if (!sEnabled)
+            return;
+        long[] times = sTileTimes.get();
+        for (int i = 0; i < NUM_STAGES; i++)
+            times[i] = 0;
+    }
+
+    /**
+     * Record the stages accumulated since {@link #beginTile()}.
+     */
+    public static void endTile(Tile tile) {
+        if (!sEnabled)
+            return;
+
+        long[] times = sTileTimes.get();
+        int decode = Stage.DECODE.ordinal();
+        if (times[decode] > 0) {
+            times[decode] -= times[Stage.IO.ordinal()]
+                    + times[Stage.MATCH.ordinal()]
+                    + times[Stage.BUILD.ordinal()]
+                    + times[Stage.PREPARE.ordinal()];
+            if (times[decode] <= 0)
+                times[decode] = 1;
+        }
+        for (int i = 0; i < NUM_STAGES; i++) {
+            if (times[i] > 0)
+                sHistograms[i].record(times[i]);
+        }
+
+        Listener listener = sListener;
+        if (listener != null)
+            listener.onTileLoaded(tile, times);
+    }
+
+    public static void cache(Cache cache, boolean hit) {
+        if (!sEnabled)
+            return;
+        if (hit)
+            sHits.incrementAndGet(cache.ordinal());
+        else
+            sMisses.incrementAndGet(cache.ordinal());
+    }
+
+    public static void gauge(Gauge gauge, long value) {
+        if (!sEnabled)
+            return;
+        sGauges.set(gauge.ordinal(), value);
+    }
+
+    public static Histogram getHistogram(Stage stage) {
+        return sHistograms[stage.ordinal()];
+    }
+
+    /**
+     * @return the hit rate in range [0..1] or -1 when nothing was recorded.
+     */
+    public static float getHitRate(Cache cache) {
+        long hits = sHits.get(cache.ordinal());
+        long total = hits + sMisses.get(cache.ordinal());
+        return total == 0 ? -1 : (float) hits / total;
+    }
+
+    public static long getGauge(Gauge gauge) {
+        return sGauges.get(gauge.ordinal());
+    }
+
+    public static void reset() {
+        for (Histogram h : sHistograms)
+            h.reset();
+        for (int i = 0; i < sHits.length(); i++) {
+            sHits.set(i, 0);
+            sMisses.set(i, 0);
+        }
+    }
+
+    private TileStats() {
+        throw new IllegalStateException();
+    }
+}